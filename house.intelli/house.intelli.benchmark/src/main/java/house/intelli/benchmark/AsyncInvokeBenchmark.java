@@ -0,0 +1,130 @@
+package house.intelli.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import house.intelli.core.Uid;
+import house.intelli.core.rpc.HostId;
+import house.intelli.core.rpc.Request;
+import house.intelli.core.rpc.RpcClient;
+import house.intelli.core.rpc.RpcContext;
+import house.intelli.core.rpc.RpcContextMode;
+import house.intelli.core.rpc.echo.EchoRequest;
+import house.intelli.core.rpc.echo.EchoResponse;
+import house.intelli.core.rpc.mocktransport.MockRpcClientTransportProvider;
+
+/**
+ * {@link #INVOCATION_COUNT} invocations of a service taking {@link #SERVICE_LATENCY} with {@link #IO_THREAD_COUNT}
+ * threads -- over the mock-transports:
+ * <ul>
+ * <li>{@code blocking}: Every thread {@linkplain RpcClient#invoke(Request) invokes} one request after the other.
+ * <li>{@code async}: All requests are {@linkplain RpcClient#invokeAsync(Request) invoked asynchronously} at once,
+ * served by {@link #IO_THREAD_COUNT} I/O threads.
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class AsyncInvokeBenchmark {
+
+	private static final int IO_THREAD_COUNT = 2;
+
+	private static final int INVOCATION_COUNT = 100;
+
+	private static final long SERVICE_LATENCY = 20L;
+
+	/**
+	 * Every exchange returns quickly -- deferring the slow requests -- so few I/O threads serve many invocations.
+	 */
+	private static final int ASYNC_LOW_LEVEL_TIMEOUT = 5;
+
+	private RpcContext clientRpcContext;
+
+	private RpcContext serverRpcContext;
+
+	private ExecutorService blockingExecutor;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		clientRpcContext = new RpcContext(RpcContextMode.CLIENT, new HostId("client-" + new Uid()));
+		clientRpcContext.setAsyncIoThreadCount(IO_THREAD_COUNT);
+		clientRpcContext.setAsyncLowLevelTimeout(ASYNC_LOW_LEVEL_TIMEOUT);
+		serverRpcContext = new RpcContext(RpcContextMode.SERVER, new HostId("server-" + new Uid()));
+
+		final MockRpcClientTransportProvider rpcClientTransportProvider = new MockRpcClientTransportProvider();
+		rpcClientTransportProvider.setServerRpcContext(serverRpcContext);
+		clientRpcContext.setRpcClientTransportProvider(rpcClientTransportProvider);
+
+		blockingExecutor = Executors.newFixedThreadPool(IO_THREAD_COUNT);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		if (blockingExecutor != null)
+			blockingExecutor.shutdownNow();
+
+		if (clientRpcContext != null)
+			clientRpcContext.close();
+
+		if (serverRpcContext != null)
+			serverRpcContext.close();
+	}
+
+	@Benchmark
+	public List<EchoResponse> blocking() throws Exception {
+		final RpcClient rpcClient = clientRpcContext.getRpcClient();
+		final List<Future<EchoResponse>> futures = new ArrayList<>(INVOCATION_COUNT);
+		for (int i = 0; i < INVOCATION_COUNT; ++i) {
+			final EchoRequest echoRequest = createEchoRequest();
+			futures.add(blockingExecutor.submit(() -> rpcClient.invoke(echoRequest)));
+		}
+		final List<EchoResponse> responses = new ArrayList<>(INVOCATION_COUNT);
+		for (final Future<EchoResponse> future : futures)
+			responses.add(future.get(60, TimeUnit.SECONDS));
+
+		return responses;
+	}
+
+	@Benchmark
+	public List<EchoResponse> async() throws Exception {
+		final RpcClient rpcClient = clientRpcContext.getRpcClient();
+		final List<CompletableFuture<EchoResponse>> futures = new ArrayList<>(INVOCATION_COUNT);
+		for (int i = 0; i < INVOCATION_COUNT; ++i)
+			futures.add(rpcClient.invokeAsync(createEchoRequest()));
+
+		final List<EchoResponse> responses = new ArrayList<>(INVOCATION_COUNT);
+		for (final CompletableFuture<EchoResponse> future : futures)
+			responses.add(future.get(60, TimeUnit.SECONDS));
+
+		return responses;
+	}
+
+	private static EchoRequest createEchoRequest() {
+		final EchoRequest echoRequest = new EchoRequest();
+		echoRequest.setServerHostId(HostId.SERVER);
+		echoRequest.setPayload("benchmark");
+		echoRequest.setSleep(SERVICE_LATENCY);
+		return echoRequest;
+	}
+}
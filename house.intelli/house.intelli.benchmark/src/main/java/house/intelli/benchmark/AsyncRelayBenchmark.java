@@ -0,0 +1,102 @@
+package house.intelli.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import house.intelli.core.Uid;
+import house.intelli.core.rpc.HostId;
+import house.intelli.core.rpc.Request;
+import house.intelli.core.rpc.RpcClient;
+import house.intelli.core.rpc.RpcContext;
+import house.intelli.core.rpc.RpcContextMode;
+import house.intelli.core.rpc.echo.EchoRequest;
+import house.intelli.core.rpc.echo.EchoResponse;
+import house.intelli.core.rpc.mocktransport.MockRpcClientTransportProvider;
+
+/**
+ * {@linkplain RpcClient#invokeAsync(Request) Asynchronous invocation} of one client by another, relayed by the
+ * server -- like the {@code LightControllerEventNotifier} of one Raspberry Pi notifying another. The clients are
+ * connected in-process over the mock-transports.
+ * <p>
+ * The {@link RpcContext#getAsyncLowLevelTimeout() asyncLowLevelTimeout} decides whether the relayed response
+ * arrives within the first exchange or has to be polled. {@link #echoWithServiceLatency()} simulates a service
+ * taking a few milliseconds, like switching a GPIO on the event-thread.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class AsyncRelayBenchmark {
+
+	private static final long SERVICE_LATENCY = 20L;
+
+	@Param({ "5", "2000" })
+	private int asyncLowLevelTimeout;
+
+	private RpcContext serverRpcContext;
+
+	private RpcContext clientRpcContext1;
+
+	private RpcContext clientRpcContext2;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		serverRpcContext = new RpcContext(RpcContextMode.SERVER, new HostId("server-" + new Uid()));
+		clientRpcContext1 = createClientRpcContext("client1-");
+		clientRpcContext2 = createClientRpcContext("client2-");
+		clientRpcContext1.setAsyncLowLevelTimeout(asyncLowLevelTimeout);
+	}
+
+	private RpcContext createClientRpcContext(final String hostIdPrefix) {
+		final RpcContext rpcContext = new RpcContext(RpcContextMode.CLIENT, new HostId(hostIdPrefix + new Uid()));
+		final MockRpcClientTransportProvider rpcClientTransportProvider = new MockRpcClientTransportProvider();
+		rpcClientTransportProvider.setServerRpcContext(serverRpcContext);
+		rpcContext.setRpcClientTransportProvider(rpcClientTransportProvider);
+		return rpcContext;
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		if (clientRpcContext1 != null)
+			clientRpcContext1.close();
+
+		if (clientRpcContext2 != null)
+			clientRpcContext2.close();
+
+		if (serverRpcContext != null)
+			serverRpcContext.close();
+	}
+
+	private EchoResponse invokeEcho(final long sleep) throws Exception {
+		final EchoRequest echoRequest = new EchoRequest();
+		echoRequest.setServerHostId(clientRpcContext2.getLocalHostId());
+		echoRequest.setPayload("benchmark");
+		echoRequest.setSleep(sleep);
+		return clientRpcContext1.getRpcClient().invokeAsync(echoRequest).get(30, TimeUnit.SECONDS);
+	}
+
+	@Benchmark
+	public EchoResponse echo() throws Exception {
+		return invokeEcho(0);
+	}
+
+	@Benchmark
+	public EchoResponse echoWithServiceLatency() throws Exception {
+		return invokeEcho(SERVICE_LATENCY);
+	}
+}
@@ -0,0 +1,158 @@
+package house.intelli.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.net.httpserver.HttpServer;
+
+import house.intelli.core.Uid;
+import house.intelli.core.rpc.BatchRequest;
+import house.intelli.core.rpc.HostId;
+import house.intelli.core.rpc.HttpRpcClientTransportProvider;
+import house.intelli.core.rpc.HttpRpcServerTransport;
+import house.intelli.core.rpc.RpcContext;
+import house.intelli.core.rpc.RpcContextMode;
+import house.intelli.core.rpc.RpcServer;
+import house.intelli.core.rpc.codec.RpcMessageCodecUtil;
+import house.intelli.core.rpc.echo.EchoRequest;
+import house.intelli.core.rpc.echo.EchoResponse;
+
+/**
+ * Invoking {@code requestCount} requests over a loopback-HTTP-connection -- individually or in one
+ * {@link BatchRequest}. Every HTTP-exchange is delayed by {@link #EXCHANGE_LATENCY} to simulate the network and the
+ * encryption on a Raspberry Pi.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class BatchRequestBenchmark {
+	private static final Logger logger = LoggerFactory.getLogger(BatchRequestBenchmark.class);
+
+	private static final long EXCHANGE_LATENCY = 5L;
+
+	@Param({ "10", "50", "200" })
+	public int requestCount;
+
+	private ExecutorService httpServerExecutor;
+
+	private HttpServer httpServer;
+
+	private RpcContext serverRpcContext;
+
+	private RpcContext clientRpcContext;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		System.setProperty("sun.net.httpserver.nodelay", "true");
+
+		serverRpcContext = new RpcContext(RpcContextMode.SERVER, new HostId("server-" + new Uid()));
+
+		httpServerExecutor = Executors.newCachedThreadPool();
+		httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		httpServer.setExecutor(httpServerExecutor);
+		httpServer.createContext("/", exchange -> {
+			try {
+				Thread.sleep(EXCHANGE_LATENCY);
+				final ByteArrayOutputStream requestBody = new ByteArrayOutputStream();
+				try (InputStream in = exchange.getRequestBody()) {
+					final byte[] buf = new byte[1024];
+					int bytesRead;
+					while ((bytesRead = in.read(buf)) >= 0)
+						requestBody.write(buf, 0, bytesRead);
+				}
+				// Like the RpcServlet.
+				exchange.getResponseHeaders().set(RpcMessageCodecUtil.HTTP_HEADER_CODECS, RpcMessageCodecUtil.getCodecOffer());
+				exchange.sendResponseHeaders(200, 0); // chunked
+
+				final HttpRpcServerTransport transport = new HttpRpcServerTransport();
+				transport.setRpcContext(serverRpcContext);
+				transport.setInputStream(new ByteArrayInputStream(requestBody.toByteArray()));
+				transport.setOutputStream(exchange.getResponseBody());
+				transport.setResponseCodec(RpcMessageCodecUtil.negotiateCodec(
+						exchange.getRequestHeaders().getFirst(RpcMessageCodecUtil.HTTP_HEADER_CODECS)));
+				try (RpcServer rpcServer = serverRpcContext.createRpcServer()) {
+					rpcServer.receiveAndProcessRequest(transport);
+				}
+			} catch (Exception x) {
+				logger.debug("handle: " + x + ' ', x);
+			} finally {
+				exchange.close();
+			}
+		});
+		httpServer.start();
+
+		clientRpcContext = new RpcContext(RpcContextMode.CLIENT, new HostId("client-" + new Uid()));
+		final HttpRpcClientTransportProvider rpcClientTransportProvider = new HttpRpcClientTransportProvider();
+		rpcClientTransportProvider.setServerUrl(new URL("http", "127.0.0.1", httpServer.getAddress().getPort(), "/"));
+		clientRpcContext.setRpcClientTransportProvider(rpcClientTransportProvider);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		if (clientRpcContext != null)
+			clientRpcContext.close();
+
+		if (serverRpcContext != null)
+			serverRpcContext.close();
+
+		if (httpServer != null)
+			httpServer.stop(0);
+
+		if (httpServerExecutor != null)
+			httpServerExecutor.shutdownNow();
+	}
+
+	@Benchmark
+	public List<EchoResponse> individual() throws Exception {
+		final List<EchoRequest> requests = createEchoRequests();
+		final List<EchoResponse> responses = new ArrayList<>(requests.size());
+		for (final EchoRequest request : requests)
+			responses.add(clientRpcContext.getRpcClient().invoke(request));
+
+		return responses;
+	}
+
+	@Benchmark
+	public List<EchoResponse> batched() throws Exception {
+		return clientRpcContext.getRpcClient().invokeBatch(createEchoRequests());
+	}
+
+	private List<EchoRequest> createEchoRequests() {
+		final List<EchoRequest> requests = new ArrayList<>(requestCount);
+		for (int i = 0; i < requestCount; ++i) {
+			final EchoRequest request = new EchoRequest();
+			request.setServerHostId(HostId.SERVER);
+			request.setPayload(new Uid().toString());
+			requests.add(request);
+		}
+		return requests;
+	}
+}
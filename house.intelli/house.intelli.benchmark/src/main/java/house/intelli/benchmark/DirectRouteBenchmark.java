@@ -0,0 +1,161 @@
+package house.intelli.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.net.httpserver.HttpServer;
+
+import house.intelli.core.Uid;
+import house.intelli.core.rpc.DirectRpcServer;
+import house.intelli.core.rpc.HostId;
+import house.intelli.core.rpc.HttpRpcClientTransportProvider;
+import house.intelli.core.rpc.HttpRpcServerTransport;
+import house.intelli.core.rpc.RpcContext;
+import house.intelli.core.rpc.RpcContextMode;
+import house.intelli.core.rpc.RpcServer;
+import house.intelli.core.rpc.codec.RpcMessageCodecUtil;
+import house.intelli.core.rpc.echo.EchoRequest;
+import house.intelli.core.rpc.echo.EchoResponse;
+
+/**
+ * One client (e.g. a Raspberry Pi) invoking another over loopback-HTTP -- either {@code relayed} by the server or
+ * {@code direct}ly via the other client's {@link DirectRpcServer}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class DirectRouteBenchmark {
+	private static final Logger logger = LoggerFactory.getLogger(DirectRouteBenchmark.class);
+
+	@Param({ "relayed", "direct" })
+	public String route;
+
+	private ExecutorService httpServerExecutor;
+
+	private HttpServer httpServer;
+
+	private RpcContext serverRpcContext;
+
+	private RpcContext clientRpcContext1;
+
+	private RpcContext clientRpcContext2;
+
+	private DirectRpcServer directRpcServer2;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		System.setProperty("sun.net.httpserver.nodelay", "true");
+
+		serverRpcContext = new RpcContext(RpcContextMode.SERVER, new HostId("server-" + new Uid()));
+
+		httpServerExecutor = Executors.newCachedThreadPool(); // a stream occupies its thread
+		httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		httpServer.setExecutor(httpServerExecutor);
+		httpServer.createContext("/", exchange -> {
+			try {
+				final ByteArrayOutputStream requestBody = new ByteArrayOutputStream();
+				try (InputStream in = exchange.getRequestBody()) {
+					final byte[] buf = new byte[1024];
+					int bytesRead;
+					while ((bytesRead = in.read(buf)) >= 0)
+						requestBody.write(buf, 0, bytesRead);
+				}
+				// Like the RpcServlet.
+				exchange.getResponseHeaders().set(RpcMessageCodecUtil.HTTP_HEADER_CODECS, RpcMessageCodecUtil.getCodecOffer());
+				exchange.sendResponseHeaders(200, 0); // chunked
+
+				final HttpRpcServerTransport transport = new HttpRpcServerTransport();
+				transport.setRpcContext(serverRpcContext);
+				transport.setInputStream(new ByteArrayInputStream(requestBody.toByteArray()));
+				transport.setOutputStream(exchange.getResponseBody());
+				transport.setResponseCodec(RpcMessageCodecUtil.negotiateCodec(
+						exchange.getRequestHeaders().getFirst(RpcMessageCodecUtil.HTTP_HEADER_CODECS)));
+				try (RpcServer rpcServer = serverRpcContext.createRpcServer()) {
+					rpcServer.receiveAndProcessRequest(transport);
+				}
+			} catch (Exception x) {
+				logger.debug("handle: " + x + ' ', x);
+			} finally {
+				exchange.close();
+			}
+		});
+		httpServer.start();
+
+		clientRpcContext1 = createClientRpcContext("client1-", httpServer.getAddress().getPort());
+		clientRpcContext2 = createClientRpcContext("client2-", httpServer.getAddress().getPort());
+
+		directRpcServer2 = new DirectRpcServer(clientRpcContext2);
+		directRpcServer2.setBindAddress(InetAddress.getLoopbackAddress().getHostAddress());
+		directRpcServer2.setPort(0);
+		directRpcServer2.init();
+
+		if ("direct".equals(route)) {
+			final HttpRpcClientTransportProvider rpcClientTransportProvider = new HttpRpcClientTransportProvider();
+			rpcClientTransportProvider.setServerUrl(new URL("http", "127.0.0.1", directRpcServer2.getLocalPort(), "/"));
+			clientRpcContext1.putDirectRpcClientTransportProvider(clientRpcContext2.getLocalHostId(), rpcClientTransportProvider);
+		}
+	}
+
+	private static RpcContext createClientRpcContext(final String hostIdPrefix, final int port) throws Exception {
+		final RpcContext rpcContext = new RpcContext(RpcContextMode.CLIENT, new HostId(hostIdPrefix + new Uid()));
+		final HttpRpcClientTransportProvider rpcClientTransportProvider = new HttpRpcClientTransportProvider();
+		rpcClientTransportProvider.setServerUrl(new URL("http", "127.0.0.1", port, "/"));
+		rpcContext.setRpcClientTransportProvider(rpcClientTransportProvider);
+		return rpcContext;
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		if (directRpcServer2 != null)
+			directRpcServer2.close();
+
+		if (clientRpcContext1 != null)
+			clientRpcContext1.close();
+
+		if (clientRpcContext2 != null)
+			clientRpcContext2.close();
+
+		if (serverRpcContext != null)
+			serverRpcContext.close();
+
+		if (httpServer != null)
+			httpServer.stop(0);
+
+		if (httpServerExecutor != null)
+			httpServerExecutor.shutdownNow();
+	}
+
+	@Benchmark
+	public EchoResponse echo() throws Exception {
+		final EchoRequest echoRequest = new EchoRequest();
+		echoRequest.setServerHostId(clientRpcContext2.getLocalHostId());
+		echoRequest.setPayload("benchmark");
+		return clientRpcContext1.getRpcClient().invoke(echoRequest);
+	}
+}
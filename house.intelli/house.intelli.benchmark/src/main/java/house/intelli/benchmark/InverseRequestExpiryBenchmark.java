@@ -0,0 +1,93 @@
+package house.intelli.benchmark;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import house.intelli.core.Uid;
+import house.intelli.core.rpc.HostId;
+import house.intelli.core.rpc.InverseRequestRegistry;
+import house.intelli.core.rpc.Request;
+import house.intelli.core.rpc.RpcConst;
+import house.intelli.core.rpc.RpcContext;
+import house.intelli.core.rpc.RpcContextMode;
+import house.intelli.core.rpc.echo.EchoRequest;
+
+/**
+ * Putting and polling an inverse request while {@link #ABANDONED_COUNT} abandoned requests expire at the same time
+ * -- every measurement iteration starts with a new batch of them. The tail latencies (p99.9, max) show whether the
+ * eviction stalls the other traffic, like a sweep over all requests holding the registry's lock did.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class InverseRequestExpiryBenchmark {
+
+	private static final int ABANDONED_COUNT = 200000;
+
+	/**
+	 * How long (milliseconds) after the iteration's start the abandoned requests expire.
+	 */
+	private static final long ABANDONED_TIMEOUT = 500L;
+
+	private RpcContext rpcContext;
+
+	private InverseRequestRegistry inverseRequestRegistry;
+
+	private HostId clientHostId;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		rpcContext = new RpcContext(RpcContextMode.SERVER, new HostId("server-" + new Uid()));
+		rpcContext.setInverseRequestQueueCapacity(ABANDONED_COUNT);
+		inverseRequestRegistry = rpcContext.getInverseRequestRegistry();
+		clientHostId = new HostId("client-" + new Uid());
+	}
+
+	@Setup(Level.Iteration)
+	public void putAbandonedRequests() {
+		final long expiry = System.currentTimeMillis() + ABANDONED_TIMEOUT;
+		final HostId abandonedHostId = new HostId("abandoned-" + new Uid());
+		for (int i = 0; i < ABANDONED_COUNT; ++i)
+			inverseRequestRegistry.putRequest(createEchoRequest(abandonedHostId, Math.max(1, expiry - System.currentTimeMillis())));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		if (rpcContext != null)
+			rpcContext.close();
+	}
+
+	@Benchmark
+	public List<Request<?>> putAndPoll() {
+		inverseRequestRegistry.putRequest(createEchoRequest(clientHostId, RpcConst.DEFAULT_REQUEST_TIMEOUT));
+		return inverseRequestRegistry.pollRequests(clientHostId, 0);
+	}
+
+	private EchoRequest createEchoRequest(final HostId serverHostId, final long timeout) {
+		final EchoRequest request = new EchoRequest();
+		request.setRequestId(new Uid());
+		request.setClientHostId(rpcContext.getLocalHostId());
+		request.setServerHostId(serverHostId);
+		request.setCreated(new Date());
+		request.setTimeout(timeout);
+		request.setPayload("abandoned");
+		return request;
+	}
+}
@@ -0,0 +1,165 @@
+package house.intelli.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.net.httpserver.HttpServer;
+
+import house.intelli.core.Uid;
+import house.intelli.core.rpc.HostId;
+import house.intelli.core.rpc.HttpRpcClientTransportProvider;
+import house.intelli.core.rpc.HttpRpcServerTransport;
+import house.intelli.core.rpc.RpcContext;
+import house.intelli.core.rpc.RpcContextMode;
+import house.intelli.core.rpc.RpcServer;
+import house.intelli.core.rpc.codec.RpcMessageCodecUtil;
+import house.intelli.core.rpc.echo.EchoRequest;
+import house.intelli.core.rpc.echo.EchoResponse;
+
+/**
+ * A burst of inverse invocations over a loopback-HTTP-connection -- the requests are started shortly one after the
+ * other, like e.g. a light-scene switching multiple dimmers. The client either polls the inverse requests or
+ * receives them {@linkplain RpcContext#setInverseRequestStreamEnabled(boolean) streamed}. Every HTTP-exchange is
+ * delayed by {@link #EXCHANGE_LATENCY} to simulate the network and the decryption on a Raspberry Pi.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class InverseRequestStreamBenchmark {
+	private static final Logger logger = LoggerFactory.getLogger(InverseRequestStreamBenchmark.class);
+
+	private static final long EXCHANGE_LATENCY = 50L;
+
+	private static final int BURST_SIZE = 5;
+
+	private static final long BURST_INTERVAL = 10L;
+
+	@Param({ "false", "true" })
+	public boolean inverseRequestStreamEnabled;
+
+	private ExecutorService httpServerExecutor;
+
+	private HttpServer httpServer;
+
+	private RpcContext serverRpcContext;
+
+	private RpcContext clientRpcContext;
+
+	private ExecutorService burstExecutor;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		System.setProperty("sun.net.httpserver.nodelay", "true");
+
+		serverRpcContext = new RpcContext(RpcContextMode.SERVER, new HostId("server-" + new Uid()));
+
+		httpServerExecutor = Executors.newCachedThreadPool(); // a stream occupies its thread
+		httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		httpServer.setExecutor(httpServerExecutor);
+		httpServer.createContext("/", exchange -> {
+			try {
+				Thread.sleep(EXCHANGE_LATENCY);
+				final ByteArrayOutputStream requestBody = new ByteArrayOutputStream();
+				try (InputStream in = exchange.getRequestBody()) {
+					final byte[] buf = new byte[1024];
+					int bytesRead;
+					while ((bytesRead = in.read(buf)) >= 0)
+						requestBody.write(buf, 0, bytesRead);
+				}
+				// Like the RpcServlet.
+				exchange.getResponseHeaders().set(RpcMessageCodecUtil.HTTP_HEADER_CODECS, RpcMessageCodecUtil.getCodecOffer());
+				exchange.sendResponseHeaders(200, 0); // chunked
+
+				final HttpRpcServerTransport transport = new HttpRpcServerTransport();
+				transport.setRpcContext(serverRpcContext);
+				transport.setInputStream(new ByteArrayInputStream(requestBody.toByteArray()));
+				transport.setOutputStream(exchange.getResponseBody());
+				transport.setResponseCodec(RpcMessageCodecUtil.negotiateCodec(
+						exchange.getRequestHeaders().getFirst(RpcMessageCodecUtil.HTTP_HEADER_CODECS)));
+				try (RpcServer rpcServer = serverRpcContext.createRpcServer()) {
+					rpcServer.receiveAndProcessRequest(transport);
+				}
+			} catch (Exception x) {
+				logger.debug("handle: " + x + ' ', x);
+			} finally {
+				exchange.close();
+			}
+		});
+		httpServer.start();
+
+		clientRpcContext = new RpcContext(RpcContextMode.CLIENT, new HostId("client-" + new Uid()));
+		clientRpcContext.setInverseRequestStreamEnabled(inverseRequestStreamEnabled);
+		final HttpRpcClientTransportProvider rpcClientTransportProvider = new HttpRpcClientTransportProvider();
+		rpcClientTransportProvider.setServerUrl(new URL("http", "127.0.0.1", httpServer.getAddress().getPort(), "/"));
+		clientRpcContext.setRpcClientTransportProvider(rpcClientTransportProvider);
+
+		burstExecutor = Executors.newFixedThreadPool(BURST_SIZE);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		if (burstExecutor != null)
+			burstExecutor.shutdownNow();
+
+		if (clientRpcContext != null)
+			clientRpcContext.close();
+
+		if (serverRpcContext != null)
+			serverRpcContext.close();
+
+		if (httpServer != null)
+			httpServer.stop(0);
+
+		if (httpServerExecutor != null)
+			httpServerExecutor.shutdownNow();
+	}
+
+	@Benchmark
+	public List<EchoResponse> burst() throws Exception {
+		final List<Future<EchoResponse>> futures = new ArrayList<>(BURST_SIZE);
+		for (int i = 0; i < BURST_SIZE; ++i) {
+			final long delay = i * BURST_INTERVAL;
+			futures.add(burstExecutor.submit(() -> {
+				Thread.sleep(delay);
+				final EchoRequest echoRequest = new EchoRequest();
+				echoRequest.setServerHostId(clientRpcContext.getLocalHostId());
+				echoRequest.setPayload("benchmark");
+				return serverRpcContext.getRpcClient().invoke(echoRequest);
+			}));
+		}
+		final List<EchoResponse> responses = new ArrayList<>(BURST_SIZE);
+		for (final Future<EchoResponse> future : futures)
+			responses.add(future.get());
+
+		return responses;
+	}
+}
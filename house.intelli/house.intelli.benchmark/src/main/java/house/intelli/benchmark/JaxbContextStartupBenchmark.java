@@ -0,0 +1,78 @@
+package house.intelli.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.bind.Marshaller;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import house.intelli.core.Uid;
+import house.intelli.core.jaxb.IntelliHouseJaxbContext;
+import house.intelli.core.jaxb.JaxbPool;
+import house.intelli.core.rpc.HostId;
+import house.intelli.core.rpc.echo.EchoRequest;
+
+/**
+ * Latency of the first message after start-up -- every fork is a fresh JVM, measuring a single shot:
+ * <ul>
+ * <li>{@code lazy}: The {@code JAXBContext} is built when the first message needs it.
+ * <li>{@code eager}: {@link IntelliHouseJaxbContext#initializeInBackground()} was invoked during start-up, while the
+ * application did other things for {@link #STARTUP_DURATION} ms.
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class JaxbContextStartupBenchmark {
+
+	private static final long STARTUP_DURATION = 5000L;
+
+	@Param({ "lazy", "eager" })
+	public String initialization;
+
+	private EchoRequest echoRequest;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		if ("eager".equals(initialization)) {
+			IntelliHouseJaxbContext.initializeInBackground();
+			Thread.sleep(STARTUP_DURATION);
+		}
+
+		echoRequest = new EchoRequest();
+		echoRequest.setRequestId(new Uid());
+		echoRequest.setClientHostId(new HostId("client"));
+		echoRequest.setServerHostId(HostId.SERVER);
+		echoRequest.setCreated(new Date());
+		echoRequest.setPayload("Hello world!");
+	}
+
+	@Benchmark
+	public ByteArrayOutputStream firstMessage() throws Exception {
+		final ByteArrayOutputStream bout = new ByteArrayOutputStream();
+		final JaxbPool jaxbPool = IntelliHouseJaxbContext.getJaxbPool();
+		final Marshaller marshaller = jaxbPool.acquireMarshaller();
+		try {
+			marshaller.marshal(echoRequest, bout);
+		} finally {
+			jaxbPool.releaseMarshaller(marshaller);
+		}
+		return bout;
+	}
+}
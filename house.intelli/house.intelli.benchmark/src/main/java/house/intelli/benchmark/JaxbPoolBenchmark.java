@@ -0,0 +1,87 @@
+package house.intelli.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import house.intelli.core.Uid;
+import house.intelli.core.jaxb.IntelliHouseJaxbContext;
+import house.intelli.core.jaxb.JaxbPool;
+import house.intelli.core.rpc.HostId;
+import house.intelli.core.rpc.echo.EchoRequest;
+
+/**
+ * Marshalling and unmarshalling a small message -- like the RPC transports do for every request and response:
+ * <ul>
+ * <li>{@code createdPerMessage}: New {@link Marshaller} and {@link Unmarshaller} for every message (as before the
+ * {@link JaxbPool}).
+ * <li>{@code pooled}: Instances from the {@link JaxbPool}.
+ * </ul>
+ * Run with {@code -prof gc} to compare the allocations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class JaxbPoolBenchmark {
+
+	private EchoRequest echoRequest;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		IntelliHouseJaxbContext.getJaxbContext(); // building the JAXBContext takes long -- not to be measured
+
+		echoRequest = new EchoRequest();
+		echoRequest.setRequestId(new Uid());
+		echoRequest.setClientHostId(new HostId("client"));
+		echoRequest.setServerHostId(HostId.SERVER);
+		echoRequest.setCreated(new Date());
+		echoRequest.setPayload("Hello world!");
+	}
+
+	@Benchmark
+	public Object createdPerMessage() throws Exception {
+		final JAXBContext jaxbContext = IntelliHouseJaxbContext.getJaxbContext();
+		final ByteArrayOutputStream bout = new ByteArrayOutputStream();
+		jaxbContext.createMarshaller().marshal(echoRequest, bout);
+		return jaxbContext.createUnmarshaller().unmarshal(new ByteArrayInputStream(bout.toByteArray()));
+	}
+
+	@Benchmark
+	public Object pooled() throws Exception {
+		final JaxbPool jaxbPool = IntelliHouseJaxbContext.getJaxbPool();
+		final ByteArrayOutputStream bout = new ByteArrayOutputStream();
+		final Marshaller marshaller = jaxbPool.acquireMarshaller();
+		try {
+			marshaller.marshal(echoRequest, bout);
+		} finally {
+			jaxbPool.releaseMarshaller(marshaller);
+		}
+
+		final Unmarshaller unmarshaller = jaxbPool.acquireUnmarshaller();
+		try {
+			return unmarshaller.unmarshal(new ByteArrayInputStream(bout.toByteArray()));
+		} finally {
+			jaxbPool.releaseUnmarshaller(unmarshaller);
+		}
+	}
+}
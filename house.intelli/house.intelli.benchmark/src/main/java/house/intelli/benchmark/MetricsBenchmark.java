@@ -0,0 +1,87 @@
+package house.intelli.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import house.intelli.core.metrics.Counter;
+import house.intelli.core.metrics.LatencyHistogram;
+import house.intelli.core.metrics.LatencyHistogramsByType;
+import house.intelli.core.metrics.MetricRegistry;
+import house.intelli.core.rpc.echo.EchoRequest;
+
+/**
+ * Cost of updating the metrics on the hot path -- i.e. what every invocation pays for being measured.
+ * <p>
+ * {@link #nanoTime()} is the baseline: Measuring a latency needs two calls of {@link System#nanoTime()} anyway.
+ * The metrics are shared by all threads (like in an {@code RpcContext}), hence the 4-thread variants show the
+ * cost under contention. Run with {@code -prof gc} to see that recording does not allocate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class MetricsBenchmark {
+
+	private Counter counter;
+	private LatencyHistogram latencyHistogram;
+	private LatencyHistogramsByType latencyHistograms;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		final MetricRegistry metricRegistry = new MetricRegistry();
+		counter = metricRegistry.getCounter("benchmark.counter");
+		latencyHistogram = metricRegistry.getLatencyHistogram("benchmark.histogram");
+		latencyHistograms = metricRegistry.getLatencyHistogramsByType("benchmark.byType");
+	}
+
+	@Benchmark
+	public long nanoTime() {
+		return System.nanoTime();
+	}
+
+	@Benchmark
+	public void counterIncrement() {
+		counter.increment();
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void counterIncrementContended() {
+		counter.increment();
+	}
+
+	@Benchmark
+	public void histogramRecord() {
+		latencyHistogram.record(System.nanoTime() & 0xFFFFFF);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void histogramRecordContended() {
+		latencyHistogram.record(System.nanoTime() & 0xFFFFFF);
+	}
+
+	/**
+	 * What {@code RpcClient} and {@code RpcServiceExecutor} do per request: Look up the histogram of the
+	 * request-type and record.
+	 */
+	@Benchmark
+	@Threads(4)
+	public void histogramByTypeRecordContended() {
+		latencyHistograms.record(EchoRequest.class, System.nanoTime() & 0xFFFFFF);
+	}
+}
@@ -0,0 +1,140 @@
+package house.intelli.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import house.intelli.core.rpc.HostId;
+import house.intelli.core.util.IOUtil;
+import house.intelli.pgp.CreatePgpKeyParam;
+import house.intelli.pgp.Pgp;
+import house.intelli.pgp.PgpKey;
+import house.intelli.pgp.PgpOwnerTrust;
+import house.intelli.pgp.PgpRegistry;
+import house.intelli.pgp.PgpUserId;
+import house.intelli.pgp.StaticPgpAuthenticationCallback;
+import house.intelli.pgp.rpc.PgpTransportSupport;
+import house.intelli.pgp.rpc.Session;
+import house.intelli.pgp.rpc.SessionHostIdPair;
+import house.intelli.pgp.rpc.SessionManager;
+
+/**
+ * {@link PgpTransportSupport#encryptAndSign(byte[], HostId, HostId) Encryption} and
+ * {@link PgpTransportSupport#decryptAndVerifySignature(byte[], HostId, HostId) decryption} of the RPC-messages --
+ * in both modes:
+ * <ul>
+ * <li>{@code PGP}: The first messages of a session -- asymmetrically encrypted and signed.
+ * <li>{@code SYMMETRIC}: All other messages -- encrypted with the session-key, after both peers confirmed the session.
+ * </ul>
+ * <p>
+ * The keys are generated into a throw-away GnuPG-directory: Every fork of the benchmark uses its own temporary
+ * {@code user.home}. Hence, the real keys of the user are neither used nor touched.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class PgpTransportSupportBenchmark {
+
+	private static final String PASSPHRASE = "benchmark";
+
+	@Param({ "PGP", "SYMMETRIC" })
+	private String mode;
+
+	@Param({ "1024", "65536" })
+	private int plainDataSize;
+
+	private File userHome;
+
+	private final HostId senderHostId = new HostId("raspi-benchmark");
+
+	private final HostId recipientHostId = new HostId("server-benchmark");
+
+	private PgpTransportSupport pgpTransportSupport;
+
+	private byte[] plainData;
+
+	private byte[] encryptedData;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		userHome = Files.createTempDirectory("intellihouse-benchmark-").toFile();
+		System.setProperty("user.home", userHome.getAbsolutePath()); // must happen before the Pgp is initialised
+		new File(userHome, ".gnupg").mkdirs();
+
+		final StaticPgpAuthenticationCallback pgpAuthenticationCallback = new StaticPgpAuthenticationCallback();
+		pgpAuthenticationCallback.setDefaultPassphrase(PASSPHRASE);
+		PgpRegistry.getInstance().setPgpAuthenticationCallback(pgpAuthenticationCallback);
+
+		final Pgp pgp = PgpRegistry.getInstance().getPgpOrFail();
+		createPgpKey(pgp, senderHostId);
+		createPgpKey(pgp, recipientHostId);
+		pgp.updateTrustDb();
+
+		pgpTransportSupport = new PgpTransportSupport();
+		pgpTransportSupport.setServerHostId(recipientHostId);
+
+		plainData = new byte[plainDataSize];
+		new Random(1).nextBytes(plainData);
+
+		if ("SYMMETRIC".equals(mode)) {
+			// Both peers confirmed the session -- in reality, this happens with the first exchange of messages.
+			final Session session = SessionManager.getInstance().getOrCreateSession(new SessionHostIdPair(senderHostId, recipientHostId));
+			session.confirmByHostId(senderHostId);
+			session.confirmByHostId(recipientHostId);
+		}
+		else if (! "PGP".equals(mode))
+			throw new IllegalArgumentException("Unknown mode: " + mode);
+
+		// Sender and recipient share the SessionManager in this JVM. Decrypting confirms the session only by the
+		// sender -- hence, the PGP-mode does not switch to SYMMETRIC during the benchmark.
+		encryptedData = pgpTransportSupport.encryptAndSign(plainData, senderHostId, recipientHostId);
+		final byte actualMode = encryptedData[PgpTransportSupport.ENCRYPTED_DATA_HEADER.length + 1];
+		final byte expectedMode = "PGP".equals(mode) ? PgpTransportSupport.ENCRYPTED_DATA_MODE_PGP : PgpTransportSupport.ENCRYPTED_DATA_MODE_SYMMETRIC;
+		if (expectedMode != actualMode)
+			throw new IllegalStateException(String.format("Encrypted in mode %s, but expected mode %s!", actualMode, expectedMode));
+	}
+
+	private static void createPgpKey(final Pgp pgp, final HostId hostId) {
+		final CreatePgpKeyParam createPgpKeyParam = new CreatePgpKeyParam();
+		createPgpKeyParam.getUserIds().add(new PgpUserId(hostId.toString()));
+		createPgpKeyParam.setPassphrase(PASSPHRASE.toCharArray());
+		final PgpKey pgpKey = pgp.createPgpKey(createPgpKeyParam);
+		// The signature of the sender is only accepted, if its key is (at least) fully valid.
+		pgp.setOwnerTrust(pgpKey, PgpOwnerTrust.ULTIMATE);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		if (userHome != null)
+			IOUtil.deleteDirectoryRecursively(userHome);
+	}
+
+	@Benchmark
+	public byte[] encryptAndSign() throws IOException {
+		return pgpTransportSupport.encryptAndSign(plainData, senderHostId, recipientHostId);
+	}
+
+	@Benchmark
+	public byte[] decryptAndVerifySignature() throws IOException {
+		return pgpTransportSupport.decryptAndVerifySignature(encryptedData, senderHostId, recipientHostId);
+	}
+}
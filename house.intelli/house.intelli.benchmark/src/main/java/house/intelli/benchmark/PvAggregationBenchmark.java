@@ -0,0 +1,117 @@
+package house.intelli.benchmark;
+
+import static java.util.Objects.*;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import house.intelli.core.TimeInterval;
+import house.intelli.core.pv.EstimatedPvStatus;
+import house.intelli.jdo.model.PvStatusEntity;
+import house.intelli.jdo.model.PvStatusMinuteEntity;
+import house.intelli.pvagg.PvStatusAggregator;
+import house.intelli.pvagg.PvStatusInterpolator;
+import house.intelli.pvagg.PvStatusMinuteAggregator;
+
+/**
+ * {@link PvStatusInterpolator#interpolate(List, TimeInterval) Interpolation} and
+ * {@link PvStatusAggregator#aggregate(List) aggregation} of synthetic {@link PvStatusEntity}s -- without a database.
+ * <p>
+ * The synthetic data has gaps (like after a lost {@code PvStatusEventRequest}), but the first and the last second
+ * of the interval are always present. Hence, the interpolator never needs to look up neighbours in the database.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class PvAggregationBenchmark {
+
+	/**
+	 * The length of the interval in minutes. With 1 measurement per second, this corresponds to 60 input-entities per minute.
+	 */
+	@Param({ "1", "10" })
+	private int intervalMinutes;
+
+	/**
+	 * Percentage of the seconds without measurement -- which must be interpolated.
+	 */
+	@Param({ "0", "10" })
+	private int gapPercentage;
+
+	private TimeInterval interval;
+
+	private List<PvStatusEntity> pvStatusEntities;
+
+	private List<PvStatusEntity> interpolatedPvStatusEntities;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		final long fromIncl = 1_500_000_000_000L; // aligned to full minutes
+		interval = new TimeInterval(new Date(fromIncl), new Date(fromIncl + intervalMinutes * 60_000L));
+
+		final Random random = new Random(1);
+		final int secondCount = intervalMinutes * 60;
+		pvStatusEntities = new ArrayList<>(secondCount);
+		for (int second = 0; second < secondCount; ++second) {
+			final boolean edge = second == 0 || second == secondCount - 1;
+			if (! edge && random.nextInt(100) < gapPercentage)
+				continue;
+
+			final Date measured = new Date(fromIncl + second * 1000L + random.nextInt(1000));
+			pvStatusEntities.add(SyntheticPvStatus.populate(new PvStatusEntity(), "inverter0", measured, random));
+		}
+		interpolatedPvStatusEntities = new PvStatusInterpolator().interpolate(pvStatusEntities, interval);
+	}
+
+	@Benchmark
+	public List<PvStatusEntity> interpolate() {
+		return new PvStatusInterpolator().interpolate(pvStatusEntities, interval);
+	}
+
+	@Benchmark
+	public List<PvStatusMinuteEntity> aggregateMinutes() {
+		final InMemoryPvStatusMinuteAggregator aggregator = new InMemoryPvStatusMinuteAggregator();
+		aggregator.aggregate(interpolatedPvStatusEntities);
+		return aggregator.aggregatedPvStatuses;
+	}
+
+	/**
+	 * Keeps the aggregated entities in memory instead of persisting them.
+	 */
+	private static class InMemoryPvStatusMinuteAggregator extends PvStatusMinuteAggregator {
+		public final List<PvStatusMinuteEntity> aggregatedPvStatuses = new ArrayList<>();
+
+		@Override
+		protected PvStatusMinuteEntity getAggregatedPvStatus(String deviceName, Date measured) {
+			return null;
+		}
+
+		@Override
+		protected void persistAggregatedPvStatus(PvStatusMinuteEntity aggregatedPvStatus) {
+			aggregatedPvStatuses.add(requireNonNull(aggregatedPvStatus, "aggregatedPvStatus"));
+		}
+
+		@Override
+		protected void populateEstimatedProperties(List<PvStatusEntity> subPvStatusEntities, EstimatedPvStatus estimatedPvStatus) {
+			// The estimators query the database for the previous state of the battery -- not covered here.
+		}
+	}
+}
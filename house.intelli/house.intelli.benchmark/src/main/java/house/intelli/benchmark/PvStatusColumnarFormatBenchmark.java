@@ -0,0 +1,171 @@
+package house.intelli.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import house.intelli.core.Uid;
+import house.intelli.core.jaxb.IntelliHouseJaxbContext;
+import house.intelli.core.rpc.HostId;
+import house.intelli.core.rpc.Request;
+import house.intelli.core.rpc.codec.RpcCompression;
+import house.intelli.core.rpc.codec.RpcCompressionUtil;
+import house.intelli.core.rpc.codec.RpcMessageCodecUtil;
+import house.intelli.core.rpc.pv.PackedPvStatusEventRequest;
+import house.intelli.core.rpc.pv.PvStatus;
+import house.intelli.core.rpc.pv.PvStatusColumnarFormat;
+import house.intelli.core.rpc.pv.PvStatusEventRequest;
+import house.intelli.core.rpc.pv.PvStatusList;
+
+/**
+ * Packing and unpacking a {@link PvStatusList} with the {@link PvStatusColumnarFormat} compared to the gzipped XML,
+ * which the Raspberry Pi used to store its backlog in.
+ * <p>
+ * {@code decimal} values are rounded to the resolution reported by the inverter -- the common case, in which the
+ * {@code float}-columns are delta-encoded. {@code random} values are the raw {@link SyntheticPvStatus} values, which
+ * must be XOR-encoded. Both are uncorrelated from one measurement to the next -- real measurements drift slowly and
+ * are therefore packed even better.
+ * <p>
+ * The sizes -- including those of the encoded (and compressed) {@link PvStatusEventRequest} and
+ * {@link PackedPvStatusEventRequest} -- are printed during the setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class PvStatusColumnarFormatBenchmark {
+
+	@Param({ "decimal", "random" })
+	private String values;
+
+	/**
+	 * The number of {@link PvStatus} instances. 30 are sent every 30 seconds.
+	 */
+	@Param({ "30", "600" })
+	private int pvStatusCount;
+
+	private PvStatusList pvStatusList;
+
+	private byte[] packed;
+
+	private byte[] gzippedXml;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		IntelliHouseJaxbContext.getJaxbContext(); // building the JAXBContext takes long -- not to be measured
+
+		final Random random = new Random(1);
+		final long now = System.currentTimeMillis() / 1000L * 1000L;
+		pvStatusList = new PvStatusList();
+		for (int i = 0; i < pvStatusCount; ++i) {
+			final PvStatus pvStatus = SyntheticPvStatus.populate(new PvStatus(), "inverter0", new Date(now - (pvStatusCount - i) * 1000L), random);
+			if ("decimal".equals(values))
+				roundToInverterResolution(pvStatus);
+			else if (! "random".equals(values))
+				throw new IllegalArgumentException("Unknown values: " + values);
+
+			pvStatusList.getPvStatuses().add(pvStatus);
+		}
+
+		packed = pack();
+		gzippedXml = marshalGzippedXml();
+
+		final PvStatusEventRequest request = new PvStatusEventRequest();
+		request.setPvStatuses(pvStatusList.getPvStatuses());
+		final PackedPvStatusEventRequest packedRequest = new PackedPvStatusEventRequest();
+		packedRequest.setPackedPvStatuses(packed);
+
+		System.out.printf("%n%s/%d: packed=%d bytes, gzippedXml=%d bytes, request=%d/%d bytes, packedRequest=%d/%d bytes (binary/LZ4)%n",
+				values, pvStatusCount, packed.length, gzippedXml.length,
+				encodeBinary(request).length, compressLz4(encodeBinary(request)),
+				encodeBinary(packedRequest).length, compressLz4(encodeBinary(packedRequest)));
+	}
+
+	@Benchmark
+	public byte[] pack() {
+		return PvStatusColumnarFormat.pack(pvStatusList.getPvStatuses());
+	}
+
+	@Benchmark
+	public List<PvStatus> unpack() throws IOException {
+		return PvStatusColumnarFormat.unpack(packed);
+	}
+
+	@Benchmark
+	public byte[] marshalGzippedXml() throws Exception {
+		final ByteArrayOutputStream bout = new ByteArrayOutputStream();
+		try (GZIPOutputStream out = new GZIPOutputStream(bout)) {
+			IntelliHouseJaxbContext.getJaxbContext().createMarshaller().marshal(pvStatusList, out);
+		}
+		return bout.toByteArray();
+	}
+
+	@Benchmark
+	public PvStatusList unmarshalGzippedXml() throws Exception {
+		try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzippedXml))) {
+			return (PvStatusList) IntelliHouseJaxbContext.getJaxbContext().createUnmarshaller().unmarshal(in);
+		}
+	}
+
+	/**
+	 * Rounds to the fractional digits the inverter reports (see {@code GetInverterStatus} in the Raspberry-Pi-module).
+	 */
+	private static void roundToInverterResolution(final PvStatus pvStatus) {
+		pvStatus.setAcInVoltage(round(pvStatus.getAcInVoltage(), 10));
+		pvStatus.setAcInFrequency(round(pvStatus.getAcInFrequency(), 10));
+		pvStatus.setAcOutVoltage(round(pvStatus.getAcOutVoltage(), 10));
+		pvStatus.setAcOutFrequency(round(pvStatus.getAcOutFrequency(), 10));
+		pvStatus.setAcOutApparentPower(round(pvStatus.getAcOutApparentPower(), 1));
+		pvStatus.setAcOutActivePower(round(pvStatus.getAcOutActivePower(), 1));
+		pvStatus.setAcOutLoadPercentage(round(pvStatus.getAcOutLoadPercentage(), 1));
+		pvStatus.setInternalBusVoltage(round(pvStatus.getInternalBusVoltage(), 1));
+		pvStatus.setBatteryVoltageAtInverter(round(pvStatus.getBatteryVoltageAtInverter(), 100));
+		pvStatus.setBatteryChargeCurrent(round(pvStatus.getBatteryChargeCurrent(), 1));
+		pvStatus.setBatteryCapacityPercentage(round(pvStatus.getBatteryCapacityPercentage(), 1));
+		pvStatus.setHeatSinkTemperature(round(pvStatus.getHeatSinkTemperature(), 1));
+		pvStatus.setPvToBatteryCurrent(round(pvStatus.getPvToBatteryCurrent(), 1));
+		pvStatus.setPvVoltage(round(pvStatus.getPvVoltage(), 10));
+		pvStatus.setBatteryVoltageAtCharger(round(pvStatus.getBatteryVoltageAtCharger(), 100));
+		pvStatus.setBatteryDischargeCurrent(round(pvStatus.getBatteryDischargeCurrent(), 1));
+		pvStatus.setPvPower(round(pvStatus.getPvPower(), 1));
+	}
+
+	private static float round(final float value, final int scale) {
+		return (float) ((double) Math.round(value * scale) / scale);
+	}
+
+	private static byte[] encodeBinary(final Request<?> request) throws IOException {
+		request.setRequestId(new Uid());
+		request.setClientHostId(new HostId("raspi0"));
+		request.setServerHostId(HostId.SERVER);
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		RpcMessageCodecUtil.getBinaryCodec().encode(request, out);
+		return out.toByteArray();
+	}
+
+	private static int compressLz4(final byte[] encoded) throws IOException {
+		return RpcCompressionUtil.compress(RpcCompression.LZ4, encoded, 0, encoded.length).remaining();
+	}
+}
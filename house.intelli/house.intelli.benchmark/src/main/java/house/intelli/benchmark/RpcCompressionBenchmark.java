@@ -0,0 +1,135 @@
+package house.intelli.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import house.intelli.core.Uid;
+import house.intelli.core.jaxb.IntelliHouseJaxbContext;
+import house.intelli.core.rpc.HostId;
+import house.intelli.core.rpc.codec.RpcCompression;
+import house.intelli.core.rpc.codec.RpcCompressionUtil;
+import house.intelli.core.rpc.codec.RpcMessageCodec;
+import house.intelli.core.rpc.codec.RpcMessageCodecUtil;
+import house.intelli.core.rpc.pv.PvStatus;
+import house.intelli.core.rpc.pv.PvStatusEventRequest;
+
+/**
+ * Compression and decompression of encoded {@link PvStatusEventRequest}s of different sizes -- from a single
+ * measurement (a few hundred bytes) to a large backlog. The result is the basis for the thresholds in
+ * {@link RpcCompressionUtil#selectCompression(RpcCompression, int)}: Below them, compressing costs more time than
+ * encrypting and transferring the saved bytes.
+ * <p>
+ * {@code GZIP} is the legacy format (gzip at the default level), which is still used for peers not announcing
+ * their compressions. The compressed sizes are printed during the setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class RpcCompressionBenchmark {
+
+	private static final String GZIP = "GZIP";
+
+	@Param({ "xml", "binary" })
+	private String codecName;
+
+	@Param({ "LZ4", "DEFLATE", GZIP })
+	private String compressionName;
+
+	/**
+	 * The number of {@link PvStatus} instances in the {@link PvStatusEventRequest}. 0 is about the size of a
+	 * request switching a light.
+	 */
+	@Param({ "0", "1", "5", "60", "600" })
+	private int pvStatusCount;
+
+	private byte[] encoded;
+
+	private byte[] compressed;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		IntelliHouseJaxbContext.getJaxbContext(); // building the JAXBContext takes long -- not to be measured
+
+		final RpcMessageCodec codec;
+		if ("xml".equals(codecName))
+			codec = RpcMessageCodecUtil.getXmlCodec();
+		else if ("binary".equals(codecName))
+			codec = RpcMessageCodecUtil.getBinaryCodec();
+		else
+			throw new IllegalArgumentException("Unknown codecName: " + codecName);
+
+		if (codec == null) // getBinaryCodec() returns null, if the BinarySchema could not be created.
+			throw new IllegalStateException("Codec not available: " + codecName);
+
+		final Random random = new Random(1);
+		final long now = System.currentTimeMillis();
+		final List<PvStatus> pvStatuses = new ArrayList<>(pvStatusCount);
+		for (int i = 0; i < pvStatusCount; ++i)
+			pvStatuses.add(SyntheticPvStatus.populate(new PvStatus(), "inverter0", new Date(now - (pvStatusCount - i) * 1000L), random));
+
+		final PvStatusEventRequest request = new PvStatusEventRequest();
+		request.setRequestId(new Uid());
+		request.setClientHostId(new HostId("raspi0"));
+		request.setServerHostId(HostId.SERVER);
+		request.setCreated(new Date());
+		request.setPvStatuses(pvStatuses);
+
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		codec.encode(request, out);
+		encoded = out.toByteArray();
+		compressed = compress();
+		System.out.printf("%n%s/%s/%d: encoded=%d bytes, compressed=%d bytes%n",
+				codecName, compressionName, pvStatusCount, encoded.length, compressed.length);
+	}
+
+	@Benchmark
+	public byte[] compress() throws IOException {
+		if (GZIP.equals(compressionName)) {
+			final ByteArrayOutputStream bout = new ByteArrayOutputStream();
+			try (GZIPOutputStream gzOut = new GZIPOutputStream(bout, 8 * 1024)) {
+				gzOut.write(encoded);
+			}
+			return bout.toByteArray();
+		}
+		final ByteBuffer buf = RpcCompressionUtil.compress(RpcCompression.valueOf(compressionName), encoded, 0, encoded.length);
+		final byte[] result = new byte[buf.remaining()];
+		buf.get(result);
+		return result;
+	}
+
+	@Benchmark
+	public int decompress() throws IOException {
+		final byte[] buf = new byte[8 * 1024];
+		int length = 0;
+		try (InputStream in = RpcCompressionUtil.decompress(compressed)) {
+			int bytesRead;
+			while ((bytesRead = in.read(buf)) >= 0)
+				length += bytesRead;
+		}
+		return length;
+	}
+}
@@ -0,0 +1,194 @@
+package house.intelli.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import house.intelli.core.Uid;
+import house.intelli.core.jaxb.IntelliHouseJaxbContext;
+import house.intelli.core.rpc.HostId;
+import house.intelli.core.rpc.Request;
+import house.intelli.core.rpc.RpcMessage;
+import house.intelli.core.rpc.codec.RpcMessageCodec;
+import house.intelli.core.rpc.codec.RpcMessageCodecUtil;
+import house.intelli.core.rpc.dimmer.DimmerActorEventRequest;
+import house.intelli.core.rpc.dimmer.DimmerActorWriteRequest;
+import house.intelli.core.rpc.pv.PvStatus;
+import house.intelli.core.rpc.pv.PvStatusEventRequest;
+import house.intelli.core.rpc.relay.RelayActorEventRequest;
+import house.intelli.core.rpc.relay.RelayActorWriteRequest;
+
+/**
+ * Encoding and decoding of the most frequent messages: The {@link PvStatusEventRequest}s sent every few seconds
+ * and the dimmer/relay requests sent whenever a light is switched.
+ * <p>
+ * The XML-codec is JAXB, the binary codec is the one negotiated between up-to-date peers. {@code xmlGzip} is
+ * XML compressed with gzip -- as sent by {@code PgpTransportSupport} before the binary codec was introduced.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class RpcMessageCodecBenchmark {
+
+	@Param({ "xml", "xmlGzip", "binary" })
+	private String codecName;
+
+	private boolean gzip;
+
+	/**
+	 * The number of {@link PvStatus} instances in the {@link PvStatusEventRequest}. The raspi sends a few at a time,
+	 * but after a connection-loss, the backlog might be large.
+	 */
+	@Param({ "1", "60" })
+	private int pvStatusCount;
+
+	private RpcMessageCodec codec;
+
+	private PvStatusEventRequest pvStatusEventRequest;
+	private DimmerActorWriteRequest dimmerActorWriteRequest;
+	private DimmerActorEventRequest dimmerActorEventRequest;
+	private RelayActorWriteRequest relayActorWriteRequest;
+	private RelayActorEventRequest relayActorEventRequest;
+
+	private byte[] encodedPvStatusEventRequest;
+	private byte[] encodedDimmerActorWriteRequest;
+	private byte[] encodedRelayActorEventRequest;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		IntelliHouseJaxbContext.getJaxbContext(); // building the JAXBContext takes long -- not to be measured
+
+		gzip = "xmlGzip".equals(codecName);
+		if ("xml".equals(codecName) || gzip)
+			codec = RpcMessageCodecUtil.getXmlCodec();
+		else if ("binary".equals(codecName))
+			codec = RpcMessageCodecUtil.getBinaryCodec();
+		else
+			throw new IllegalArgumentException("Unknown codecName: " + codecName);
+
+		if (codec == null) // getBinaryCodec() returns null, if the BinarySchema could not be created.
+			throw new IllegalStateException("Codec not available: " + codecName);
+
+		final Random random = new Random(1);
+		final long now = System.currentTimeMillis();
+		final List<PvStatus> pvStatuses = new ArrayList<>(pvStatusCount);
+		for (int i = 0; i < pvStatusCount; ++i)
+			pvStatuses.add(SyntheticPvStatus.populate(new PvStatus(), "inverter0", new Date(now - (pvStatusCount - i) * 1000L), random));
+
+		pvStatusEventRequest = prepare(new PvStatusEventRequest());
+		pvStatusEventRequest.setPvStatuses(pvStatuses);
+
+		dimmerActorWriteRequest = prepare(new DimmerActorWriteRequest());
+		dimmerActorWriteRequest.setChannelId("bedroomLight0");
+		dimmerActorWriteRequest.setDimmerValue(75);
+
+		dimmerActorEventRequest = prepare(new DimmerActorEventRequest());
+		dimmerActorEventRequest.setChannelId("bedroomLight0");
+		dimmerActorEventRequest.setDimmerValue(75);
+
+		relayActorWriteRequest = prepare(new RelayActorWriteRequest());
+		relayActorWriteRequest.setChannelId("bedroomPowerSupply");
+		relayActorWriteRequest.setEnergized(true);
+
+		relayActorEventRequest = prepare(new RelayActorEventRequest());
+		relayActorEventRequest.setChannelId("bedroomPowerSupply");
+		relayActorEventRequest.setEnergized(true);
+
+		encodedPvStatusEventRequest = encode(pvStatusEventRequest);
+		encodedDimmerActorWriteRequest = encode(dimmerActorWriteRequest);
+		encodedRelayActorEventRequest = encode(relayActorEventRequest);
+	}
+
+	private static <R extends Request<?>> R prepare(final R request) {
+		request.setRequestId(new Uid());
+		request.setClientHostId(new HostId("raspi0"));
+		request.setServerHostId(HostId.SERVER);
+		request.setCreated(new Date());
+		return request;
+	}
+
+	private byte[] encode(final RpcMessage rpcMessage) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		if (gzip) {
+			try (GZIPOutputStream gzOut = new GZIPOutputStream(out)) {
+				codec.encode(rpcMessage, gzOut);
+			}
+		}
+		else
+			codec.encode(rpcMessage, out);
+
+		return out.toByteArray();
+	}
+
+	private RpcMessage decode(final byte[] encoded) throws IOException {
+		if (gzip) {
+			try (GZIPInputStream gzIn = new GZIPInputStream(new ByteArrayInputStream(encoded))) {
+				return codec.decode(gzIn);
+			}
+		}
+		return codec.decode(new ByteArrayInputStream(encoded));
+	}
+
+	@Benchmark
+	public byte[] encodePvStatusEventRequest() throws IOException {
+		return encode(pvStatusEventRequest);
+	}
+
+	@Benchmark
+	public RpcMessage decodePvStatusEventRequest() throws IOException {
+		return decode(encodedPvStatusEventRequest);
+	}
+
+	@Benchmark
+	public byte[] encodeDimmerActorWriteRequest() throws IOException {
+		return encode(dimmerActorWriteRequest);
+	}
+
+	@Benchmark
+	public RpcMessage decodeDimmerActorWriteRequest() throws IOException {
+		return decode(encodedDimmerActorWriteRequest);
+	}
+
+	@Benchmark
+	public byte[] encodeDimmerActorEventRequest() throws IOException {
+		return encode(dimmerActorEventRequest);
+	}
+
+	@Benchmark
+	public byte[] encodeRelayActorWriteRequest() throws IOException {
+		return encode(relayActorWriteRequest);
+	}
+
+	@Benchmark
+	public byte[] encodeRelayActorEventRequest() throws IOException {
+		return encode(relayActorEventRequest);
+	}
+
+	@Benchmark
+	public RpcMessage decodeRelayActorEventRequest() throws IOException {
+		return decode(encodedRelayActorEventRequest);
+	}
+}
@@ -0,0 +1,98 @@
+package house.intelli.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import house.intelli.core.Uid;
+import house.intelli.core.rpc.HostId;
+import house.intelli.core.rpc.RpcClient;
+import house.intelli.core.rpc.RpcContext;
+import house.intelli.core.rpc.RpcContextMode;
+import house.intelli.core.rpc.RpcServer;
+import house.intelli.core.rpc.echo.EchoRequest;
+import house.intelli.core.rpc.echo.EchoResponse;
+import house.intelli.core.rpc.mocktransport.MockRpcClientTransportProvider;
+
+/**
+ * Round trip of an {@link EchoRequest} from the {@link RpcClient} to the {@link RpcServer} -- in-process over the
+ * mock-transports (the same as used by the core's tests). Hence, this measures the RPC-framework's own overhead
+ * (dispatching, serialisation, thread hand-over) without any network.
+ * <p>
+ * {@code echoConcurrently} shows how the shared {@link RpcClient} scales with the caller threads.
+ * {@code echoWithNewRpcClient} creates a new {@code RpcClient} (and thus transport) for every invocation -- run with
+ * {@code -prof gc} to compare the allocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class RpcRoundTripBenchmark {
+
+	private RpcContext clientRpcContext;
+
+	private RpcContext serverRpcContext;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		clientRpcContext = new RpcContext(RpcContextMode.CLIENT, new HostId("client-" + new Uid()));
+		serverRpcContext = new RpcContext(RpcContextMode.SERVER, new HostId("server-" + new Uid()));
+
+		final MockRpcClientTransportProvider rpcClientTransportProvider = new MockRpcClientTransportProvider();
+		rpcClientTransportProvider.setServerRpcContext(serverRpcContext);
+		clientRpcContext.setRpcClientTransportProvider(rpcClientTransportProvider);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		if (clientRpcContext != null)
+			clientRpcContext.close();
+
+		if (serverRpcContext != null)
+			serverRpcContext.close();
+	}
+
+	private EchoResponse invokeEcho() throws Exception {
+		final EchoRequest echoRequest = new EchoRequest();
+		echoRequest.setServerHostId(HostId.SERVER);
+		echoRequest.setPayload("benchmark");
+		return clientRpcContext.getRpcClient().invoke(echoRequest);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public EchoResponse echo() throws Exception {
+		return invokeEcho();
+	}
+
+	@Benchmark
+	@Threads(8)
+	public EchoResponse echoConcurrently() throws Exception {
+		return invokeEcho();
+	}
+
+	@Benchmark
+	@Threads(1)
+	public EchoResponse echoWithNewRpcClient() throws Exception {
+		final EchoRequest echoRequest = new EchoRequest();
+		echoRequest.setServerHostId(HostId.SERVER);
+		echoRequest.setPayload("benchmark");
+		try (RpcClient rpcClient = clientRpcContext.createRpcClient()) {
+			return rpcClient.invoke(echoRequest);
+		}
+	}
+}
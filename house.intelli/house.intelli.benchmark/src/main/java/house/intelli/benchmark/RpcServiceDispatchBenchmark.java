@@ -0,0 +1,125 @@
+package house.intelli.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import house.intelli.core.Uid;
+import house.intelli.core.rpc.HostId;
+import house.intelli.core.rpc.Request;
+import house.intelli.core.rpc.Response;
+import house.intelli.core.rpc.RpcContext;
+import house.intelli.core.rpc.RpcContextMode;
+import house.intelli.core.rpc.RpcService;
+import house.intelli.core.rpc.RpcServiceExecutor;
+import house.intelli.core.rpc.RpcServiceRegistry;
+import house.intelli.core.rpc.ThreadSafeRpcService;
+import house.intelli.core.rpc.echo.EchoRequest;
+
+/**
+ * Looking up the service for a request -- like {@link RpcServiceExecutor#processLocally(Request)} does for every
+ * request -- from 4 threads concurrently:
+ * <ul>
+ * <li>{@code legacyLookup}: Like the registry before the dispatch-table -- a synchronized lookup, walking the
+ * super-classes and cloning for every request.
+ * <li>{@code dispatchTable}: The lock-free dispatch-table, re-using the {@linkplain ThreadSafeRpcService thread-safe}
+ * {@code EchoRpcService}.
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+@Threads(4)
+public class RpcServiceDispatchBenchmark {
+
+	private RpcContext rpcContext;
+
+	private LegacyRpcServiceRegistry legacyRpcServiceRegistry;
+
+	private DispatchingRpcServiceExecutor rpcServiceExecutor;
+
+	/**
+	 * Exposes {@link RpcServiceExecutor#getRpcService(Class)}, which is not public.
+	 */
+	private static class DispatchingRpcServiceExecutor extends RpcServiceExecutor {
+		public DispatchingRpcServiceExecutor(final RpcContext rpcContext) {
+			super(rpcContext);
+		}
+
+		@SuppressWarnings("rawtypes")
+		public RpcService<Request, Response> dispatch(final Class<?> requestType) {
+			return getRpcService(requestType);
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setup() {
+		rpcContext = new RpcContext(RpcContextMode.SERVER, new HostId("server-" + new Uid()));
+		legacyRpcServiceRegistry = new LegacyRpcServiceRegistry(RpcServiceRegistry.getInstance().getRpcServices());
+		rpcServiceExecutor = new DispatchingRpcServiceExecutor(rpcContext);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		if (rpcContext != null)
+			rpcContext.close();
+	}
+
+	@Benchmark
+	public RpcService<?, ?> legacyLookup() {
+		final RpcService<?, ?> rpcService = legacyRpcServiceRegistry.getRpcService(EchoRequest.class);
+		rpcService.setRpcContext(rpcContext);
+		return rpcService;
+	}
+
+	@Benchmark
+	public RpcService<?, ?> dispatchTable() {
+		return rpcServiceExecutor.dispatch(EchoRequest.class);
+	}
+
+	/**
+	 * Behaves like the {@link RpcServiceRegistry} before the dispatch-table was introduced.
+	 */
+	private static class LegacyRpcServiceRegistry {
+		private final Object mutex = new Object();
+		private final Map<Class<?>, List<RpcService<?, ?>>> requestType2RpcServices = new HashMap<>();
+
+		public LegacyRpcServiceRegistry(final List<RpcService<?, ?>> rpcServices) {
+			for (final RpcService<?, ?> rpcService : rpcServices)
+				requestType2RpcServices.computeIfAbsent(rpcService.getRequestType(), rt -> new ArrayList<>()).add(rpcService);
+		}
+
+		public RpcService<?, ?> getRpcService(final Class<?> requestType) {
+			Class<?> rt = requestType;
+			synchronized (mutex) {
+				while (rt != Object.class) {
+					final List<RpcService<?, ?>> list = requestType2RpcServices.get(rt);
+					if (list != null && ! list.isEmpty())
+						return list.get(0).clone();
+
+					rt = rt.getSuperclass();
+				}
+			}
+			return null;
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package house.intelli.benchmark;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import house.intelli.core.Uid;
+import house.intelli.core.rpc.HostId;
+import house.intelli.core.rpc.Response;
+import house.intelli.core.rpc.RpcConst;
+import house.intelli.core.rpc.RpcContext;
+import house.intelli.core.rpc.RpcContextMode;
+import house.intelli.core.rpc.RpcServiceExecutor;
+import house.intelli.core.rpc.echo.EchoRequest;
+
+/**
+ * A local round-trip through the {@link RpcServiceExecutor} -- {@code putRequest(...)} followed by
+ * {@code pollResponse(...)} -- while {@code parkedWaiterCount} other threads wait for responses which never arrive.
+ * <p>
+ * With per-request futures, the parked waiters are not woken up by other responses and the latency should hardly
+ * depend on {@code parkedWaiterCount}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class RpcServiceExecutorBenchmark {
+
+	@Param({ "0", "10", "400" })
+	public int parkedWaiterCount;
+
+	private RpcContext rpcContext;
+
+	private RpcServiceExecutor rpcServiceExecutor;
+
+	private final List<Thread> parkedWaiters = new ArrayList<>();
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		rpcContext = new RpcContext(RpcContextMode.SERVER, new HostId("server-" + new Uid()));
+		rpcServiceExecutor = rpcContext.getRpcServiceExecutor();
+
+		// Park the waiters on inverse requests which are never answered (the addressed client does not exist).
+		final HostId absentClientHostId = new HostId("client-" + new Uid());
+		for (int i = 0; i < parkedWaiterCount; ++i) {
+			final EchoRequest inverseRequest = createEchoRequest(absentClientHostId);
+			rpcServiceExecutor.putRequest(inverseRequest);
+			final Thread thread = new Thread(() -> rpcServiceExecutor.pollResponse(inverseRequest.getRequestId(), 60L * 60L * 1000L));
+			thread.setDaemon(true);
+			thread.start();
+			parkedWaiters.add(thread);
+		}
+		for (final Thread thread : parkedWaiters) {
+			while (thread.getState() != Thread.State.TIMED_WAITING)
+				Thread.sleep(1L);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		for (final Thread thread : parkedWaiters)
+			thread.interrupt();
+
+		for (final Thread thread : parkedWaiters)
+			thread.join(10000L);
+
+		parkedWaiters.clear();
+
+		if (rpcContext != null)
+			rpcContext.close();
+	}
+
+	@Benchmark
+	public Response roundTrip() {
+		final EchoRequest echoRequest = createEchoRequest(HostId.SERVER);
+		rpcServiceExecutor.putRequest(echoRequest);
+		return rpcServiceExecutor.pollResponse(echoRequest.getRequestId(), 60000L);
+	}
+
+	private static EchoRequest createEchoRequest(final HostId targetHostId) {
+		final EchoRequest echoRequest = new EchoRequest();
+		echoRequest.setRequestId(new Uid());
+		echoRequest.setClientHostId(new HostId("client-" + new Uid()));
+		echoRequest.setServerHostId(targetHostId);
+		echoRequest.setCreated(new Date());
+		echoRequest.setTimeout(RpcConst.DEFAULT_REQUEST_TIMEOUT);
+		echoRequest.setPayload(echoRequest.getRequestId().toString());
+		return echoRequest;
+	}
+}
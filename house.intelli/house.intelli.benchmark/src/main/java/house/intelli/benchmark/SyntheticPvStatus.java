@@ -0,0 +1,54 @@
+package house.intelli.benchmark;
+
+import static java.util.Objects.*;
+
+import java.util.Date;
+import java.util.Random;
+
+import house.intelli.core.pv.PvStatus;
+
+/**
+ * Populates {@link PvStatus} instances with plausible (but random) values -- similar to what an inverter reports.
+ * <p>
+ * The {@link Random} is seeded by the benchmarks, hence every run processes the same data.
+ */
+public final class SyntheticPvStatus {
+
+	private SyntheticPvStatus() { }
+
+	public static <P extends PvStatus> P populate(final P pvStatus, final String deviceName, final Date measured, final Random random) {
+		requireNonNull(pvStatus, "pvStatus");
+		requireNonNull(deviceName, "deviceName");
+		requireNonNull(measured, "measured");
+		requireNonNull(random, "random");
+
+		pvStatus.setDeviceName(deviceName);
+		pvStatus.setMeasured(measured);
+		pvStatus.setDeviceMode(random.nextInt(10) == 0 ? "L" : "B");
+
+		pvStatus.setAcInVoltage(around(random, 230f, 5f));
+		pvStatus.setAcInFrequency(around(random, 50f, 0.1f));
+		pvStatus.setAcOutVoltage(around(random, 230f, 2f));
+		pvStatus.setAcOutFrequency(around(random, 50f, 0.05f));
+		pvStatus.setAcOutApparentPower(around(random, 800f, 400f));
+		pvStatus.setAcOutActivePower(around(random, 700f, 350f));
+		pvStatus.setAcOutLoadPercentage(around(random, 15f, 8f));
+		pvStatus.setInternalBusVoltage(around(random, 380f, 10f));
+		pvStatus.setBatteryVoltageAtInverter(around(random, 52f, 2f));
+		pvStatus.setBatteryChargeCurrent(around(random, 20f, 20f));
+		pvStatus.setBatteryCapacityPercentage(around(random, 70f, 20f));
+		pvStatus.setHeatSinkTemperature(around(random, 40f, 5f));
+		pvStatus.setPvToBatteryCurrent(around(random, 15f, 15f));
+		pvStatus.setPvVoltage(around(random, 250f, 50f));
+		pvStatus.setBatteryVoltageAtCharger(around(random, 52f, 2f));
+		pvStatus.setBatteryDischargeCurrent(around(random, 5f, 5f));
+		pvStatus.setStatusBitmask(random.nextInt(256));
+		pvStatus.setEepromVersion(1);
+		pvStatus.setPvPower(around(random, 1500f, 1500f));
+		return pvStatus;
+	}
+
+	private static float around(final Random random, final float center, final float maxDeviation) {
+		return Math.max(0f, center + (random.nextFloat() * 2f - 1f) * maxDeviation);
+	}
+}
@@ -0,0 +1,328 @@
+package house.intelli.benchmark.loadtest;
+
+import static java.util.Objects.*;
+
+import java.net.InetAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import house.intelli.benchmark.SyntheticPvStatus;
+import house.intelli.core.Uid;
+import house.intelli.core.metrics.Counter;
+import house.intelli.core.metrics.LatencyHistogram;
+import house.intelli.core.metrics.MetricRegistry;
+import house.intelli.core.metrics.MetricValue;
+import house.intelli.core.rpc.DirectRpcServer;
+import house.intelli.core.rpc.HostId;
+import house.intelli.core.rpc.HttpRpcClientTransportProvider;
+import house.intelli.core.rpc.RpcClientTransportProvider;
+import house.intelli.core.rpc.RpcContext;
+import house.intelli.core.rpc.RpcContextMode;
+import house.intelli.core.rpc.RpcService;
+import house.intelli.core.rpc.dimmer.DimmerActorReadRequest;
+import house.intelli.core.rpc.dimmer.DimmerActorWriteRequest;
+import house.intelli.core.rpc.lightcontroller.LightControllerFederationPropagationRequest;
+import house.intelli.core.rpc.lightcontroller.LightControllerState;
+import house.intelli.core.rpc.mocktransport.MockRpcClientTransportProvider;
+import house.intelli.core.rpc.pv.PvStatus;
+import house.intelli.core.rpc.pv.PvStatusEventRequest;
+import house.intelli.core.service.ServiceRegistry;
+
+/**
+ * Simulates a fleet of Raspberry Pis talking to one openHAB-server -- all in one JVM.
+ * <p>
+ * Every Pi has its own {@link RpcContextMode#CLIENT CLIENT}-{@link RpcContext} polling (or streaming) its inverse
+ * requests from the {@link RpcContextMode#SERVER SERVER}-context, just like in production. They are connected
+ * either via the mock-transports or via HTTP over the loopback-interface -- see {@link LoadTestTransport}.
+ * The services of the server and the Pis are replaced by {@link StandInRpcServices}, hence neither
+ * PostgreSQL nor any hardware is needed.
+ * <p>
+ * {@link LoadTestConfig#getThreadCount() threadCount} threads issue requests -- the mix is configured by the
+ * {@linkplain LoadTestConfig#getWeight(LoadTestTraffic) weights} of the {@link LoadTestTraffic}s. After a warm-up,
+ * the latency of every request is recorded.
+ * <p>
+ * Usage from the command-line (the arguments are described in {@link LoadTestConfig#parse(String[])}):
+ * <pre>gradle :house.intelli.benchmark:loadTest -PloadTest.args="clientCount=50 transport=HTTP"</pre>
+ * It may also be used programmatically -- e.g. from a test:
+ * <pre>try (LoadTest loadTest = new LoadTest(config)) {
+ *     loadTest.start();
+ *     LoadTestResult result = loadTest.run();
+ * }</pre>
+ */
+public class LoadTest implements AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(LoadTest.class);
+
+	private static final int CHANNEL_COUNT_PER_CLIENT = 4;
+
+	private final LoadTestConfig config;
+	private final LoadTestTraffic[] weightedTraffics;
+
+	private StandInRpcServices standInRpcServices;
+	private StandInRpcServices.Delegate standInRpcServicesDelegate;
+	private RpcContext serverRpcContext;
+	private DirectRpcServer directRpcServer;
+	private final List<RpcContext> clientRpcContexts = new ArrayList<>();
+
+	public LoadTest(final LoadTestConfig config) {
+		this.config = requireNonNull(config, "config");
+
+		final List<LoadTestTraffic> weightedTraffics = new ArrayList<>();
+		for (final LoadTestTraffic traffic : LoadTestTraffic.values()) {
+			for (int i = 0; i < config.getWeight(traffic); ++i)
+				weightedTraffics.add(traffic);
+		}
+		if (weightedTraffics.isEmpty())
+			throw new IllegalArgumentException("All weights are 0! There would be no traffic at all.");
+
+		if (config.getWeight(LoadTestTraffic.FEDERATION) > 0 && config.getClientCount() < 2)
+			throw new IllegalArgumentException("FEDERATION-traffic requires at least 2 clients!");
+
+		this.weightedTraffics = weightedTraffics.toArray(new LoadTestTraffic[weightedTraffics.size()]);
+	}
+
+	public LoadTestConfig getConfig() {
+		return config;
+	}
+
+	/**
+	 * Registers the stand-in services and creates the server and all clients.
+	 * @throws Exception if starting failed.
+	 */
+	public void start() throws Exception {
+		if (serverRpcContext != null)
+			throw new IllegalStateException("Already started!");
+
+		logger.info("start: {}", config);
+		standInRpcServices = new StandInRpcServices(config.getServiceLatency());
+		standInRpcServicesDelegate = standInRpcServices.createDelegate();
+		ServiceRegistry.getInstance(RpcService.class).addDelegate(standInRpcServicesDelegate);
+
+		serverRpcContext = createRpcContext(RpcContextMode.SERVER, "server-");
+		if (LoadTestTransport.HTTP == config.getTransport()) {
+			directRpcServer = new DirectRpcServer(serverRpcContext);
+			directRpcServer.setBindAddress(InetAddress.getLoopbackAddress().getHostAddress());
+			directRpcServer.setPort(0);
+			directRpcServer.setThreadCount(Math.max(2, config.getThreadCount()));
+			directRpcServer.init();
+		}
+
+		for (int i = 0; i < config.getClientCount(); ++i) {
+			final RpcContext clientRpcContext = createRpcContext(RpcContextMode.CLIENT, "pi" + i + '-');
+			clientRpcContext.setRpcClientTransportProvider(createRpcClientTransportProvider());
+			clientRpcContexts.add(clientRpcContext);
+		}
+	}
+
+	private static RpcContext createRpcContext(final RpcContextMode mode, final String hostIdPrefix) {
+		final RpcContext rpcContext = new RpcContext(mode, new HostId(hostIdPrefix + new Uid()));
+		rpcContext.setMetricsLogPeriod(0); // the LoadTestResult contains the server's metrics
+		return rpcContext;
+	}
+
+	private RpcClientTransportProvider createRpcClientTransportProvider() throws Exception {
+		switch (config.getTransport()) {
+			case MOCK:
+				final MockRpcClientTransportProvider mockRpcClientTransportProvider = new MockRpcClientTransportProvider();
+				mockRpcClientTransportProvider.setServerRpcContext(serverRpcContext);
+				return mockRpcClientTransportProvider;
+			case HTTP:
+				final HttpRpcClientTransportProvider httpRpcClientTransportProvider = new HttpRpcClientTransportProvider();
+				httpRpcClientTransportProvider.setServerUrl(new URL("http", InetAddress.getLoopbackAddress().getHostAddress(),
+						directRpcServer.getLocalPort(), "/"));
+				return httpRpcClientTransportProvider;
+			default:
+				throw new IllegalStateException("Unknown transport: " + config.getTransport());
+		}
+	}
+
+	/**
+	 * Warms up and then measures.
+	 * @return the result of the measurement. Never <code>null</code>.
+	 * @throws Exception if the load-test could not be run. A failing request does not cause an exception -- it
+	 * is counted as {@linkplain LoadTestResult#getFailedCount(LoadTestTraffic) failed}.
+	 */
+	public LoadTestResult run() throws Exception {
+		if (serverRpcContext == null)
+			throw new IllegalStateException("Not started!");
+
+		if (config.getWarmUpDuration() > 0) {
+			logger.info("run: Warming up for {} ms.", config.getWarmUpDuration());
+			drive(new MetricRegistry(), config.getWarmUpDuration());
+		}
+
+		logger.info("run: Measuring for {} ms.", config.getDuration());
+		final MetricRegistry metricRegistry = new MetricRegistry();
+		final long duration = drive(metricRegistry, config.getDuration());
+
+		final Map<LoadTestTraffic, MetricValue> traffic2Latency = new EnumMap<>(LoadTestTraffic.class);
+		final Map<LoadTestTraffic, Long> traffic2FailedCount = new EnumMap<>(LoadTestTraffic.class);
+		for (final LoadTestTraffic traffic : LoadTestTraffic.values()) {
+			final List<MetricValue> latencies = metricRegistry.getMetricValues(getLatencyHistogramName(traffic));
+			if (! latencies.isEmpty() && latencies.get(0).getValue() > 0)
+				traffic2Latency.put(traffic, latencies.get(0));
+
+			traffic2FailedCount.put(traffic, metricRegistry.getCounter(getFailedCounterName(traffic)).getCount());
+		}
+		final LoadTestResult result = new LoadTestResult(config, duration, traffic2Latency, traffic2FailedCount,
+				serverRpcContext.getMetricRegistry().getMetricValues());
+		logger.info("run: {}", result);
+		return result;
+	}
+
+	private static String getLatencyHistogramName(final LoadTestTraffic traffic) {
+		return "loadTest." + traffic + ".latency";
+	}
+
+	private static String getFailedCounterName(final LoadTestTraffic traffic) {
+		return "loadTest." + traffic + ".failed";
+	}
+
+	/**
+	 * Issues requests from {@link LoadTestConfig#getThreadCount() threadCount} threads for the given duration.
+	 * @return the actual duration (milliseconds) -- the last requests may take longer.
+	 */
+	private long drive(final MetricRegistry metricRegistry, final long duration) throws Exception {
+		final Map<LoadTestTraffic, LatencyHistogram> traffic2LatencyHistogram = new EnumMap<>(LoadTestTraffic.class);
+		final Map<LoadTestTraffic, Counter> traffic2FailedCounter = new EnumMap<>(LoadTestTraffic.class);
+		for (final LoadTestTraffic traffic : LoadTestTraffic.values()) {
+			traffic2LatencyHistogram.put(traffic, metricRegistry.getLatencyHistogram(getLatencyHistogramName(traffic)));
+			traffic2FailedCounter.put(traffic, metricRegistry.getCounter(getFailedCounterName(traffic)));
+		}
+
+		final ExecutorService executorService = Executors.newFixedThreadPool(config.getThreadCount());
+		try {
+			final long startTimestamp = System.currentTimeMillis();
+			final long endTimestamp = startTimestamp + duration;
+			final List<Future<?>> futures = new ArrayList<>(config.getThreadCount());
+			for (int t = 0; t < config.getThreadCount(); ++t) {
+				futures.add(executorService.submit(() -> {
+					final Random random = ThreadLocalRandom.current();
+					while (System.currentTimeMillis() < endTimestamp) {
+						final LoadTestTraffic traffic = weightedTraffics[random.nextInt(weightedTraffics.length)];
+						final long startNanos = System.nanoTime();
+						try {
+							issueRequest(traffic, random);
+							traffic2LatencyHistogram.get(traffic).record(System.nanoTime() - startNanos);
+						} catch (Exception x) {
+							logger.debug("drive: " + traffic + ": " + x + ' ', x);
+							traffic2FailedCounter.get(traffic).increment();
+						}
+					}
+					return null;
+				}));
+			}
+			for (final Future<?> future : futures)
+				future.get();
+
+			return System.currentTimeMillis() - startTimestamp;
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+
+	private void issueRequest(final LoadTestTraffic traffic, final Random random) throws Exception {
+		final RpcContext clientRpcContext = clientRpcContexts.get(random.nextInt(clientRpcContexts.size()));
+		final String channelId = "dimmer" + random.nextInt(CHANNEL_COUNT_PER_CLIENT);
+		switch (traffic) {
+			case PV_UPLOAD: {
+				final PvStatusEventRequest request = new PvStatusEventRequest();
+				request.setServerHostId(HostId.SERVER);
+				final long now = System.currentTimeMillis();
+				final String deviceName = "inverter-" + clientRpcContext.getLocalHostId();
+				for (int i = 0; i < config.getPvStatusCountPerUpload(); ++i) {
+					final Date measured = new Date(now - (config.getPvStatusCountPerUpload() - i) * 1000L);
+					request.getPvStatuses().add(SyntheticPvStatus.populate(new PvStatus(), deviceName, measured, random));
+				}
+				clientRpcContext.getRpcClient().invoke(request);
+				break;
+			}
+			case INVERSE_READ: {
+				final DimmerActorReadRequest request = new DimmerActorReadRequest();
+				request.setServerHostId(clientRpcContext.getLocalHostId());
+				request.setChannelId(channelId);
+				serverRpcContext.getRpcClient().invoke(request);
+				break;
+			}
+			case INVERSE_WRITE: {
+				final DimmerActorWriteRequest request = new DimmerActorWriteRequest();
+				request.setServerHostId(clientRpcContext.getLocalHostId());
+				request.setChannelId(channelId);
+				request.setDimmerValue(random.nextInt(101));
+				serverRpcContext.getRpcClient().invoke(request);
+				break;
+			}
+			case FEDERATION: {
+				RpcContext otherClientRpcContext;
+				do {
+					otherClientRpcContext = clientRpcContexts.get(random.nextInt(clientRpcContexts.size()));
+				} while (otherClientRpcContext == clientRpcContext);
+
+				final LightControllerState lightControllerState = new LightControllerState();
+				lightControllerState.setLightOn(random.nextBoolean());
+				lightControllerState.setDimmerValue(random.nextInt(101));
+
+				final LightControllerFederationPropagationRequest request = new LightControllerFederationPropagationRequest();
+				request.setServerHostId(otherClientRpcContext.getLocalHostId());
+				request.setChannelId("lightController0");
+				request.setSourceBeanId("lightController0");
+				request.setLightControllerState(lightControllerState);
+				clientRpcContext.getRpcClient().invoke(request);
+				break;
+			}
+			default:
+				throw new IllegalStateException("Unknown traffic: " + traffic);
+		}
+	}
+
+	/**
+	 * Gets the number of {@code PvStatus}-measurements received by the server so far -- including the warm-up.
+	 * @return the number of measurements received. Always &gt;= 0.
+	 */
+	public long getReceivedPvStatusCount() {
+		return standInRpcServices == null ? 0 : standInRpcServices.getReceivedPvStatusCount();
+	}
+
+	@Override
+	public void close() {
+		for (final RpcContext clientRpcContext : clientRpcContexts)
+			clientRpcContext.close();
+
+		clientRpcContexts.clear();
+
+		if (directRpcServer != null) {
+			directRpcServer.close();
+			directRpcServer = null;
+		}
+		if (serverRpcContext != null) {
+			serverRpcContext.close();
+			serverRpcContext = null;
+		}
+		if (standInRpcServicesDelegate != null) {
+			ServiceRegistry.getInstance(RpcService.class).removeDelegate(standInRpcServicesDelegate);
+			standInRpcServicesDelegate = null;
+		}
+	}
+
+	public static void main(final String[] args) throws Exception {
+		final LoadTestConfig config = LoadTestConfig.parse(args);
+		try (LoadTest loadTest = new LoadTest(config)) {
+			loadTest.start();
+			final LoadTestResult result = loadTest.run();
+			System.out.println(result.getReport());
+		}
+		System.exit(0); // the RpcContexts' non-daemon threads would otherwise keep the VM alive
+	}
+}
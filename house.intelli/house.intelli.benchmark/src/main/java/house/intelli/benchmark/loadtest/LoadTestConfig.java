@@ -0,0 +1,205 @@
+package house.intelli.benchmark.loadtest;
+
+import static java.util.Objects.*;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Configuration of a {@link LoadTest}.
+ * <p>
+ * The defaults roughly correspond to one house: a dozen Pis uploading their PV-status every few seconds, while
+ * the server and the Pis switch lights now and then.
+ */
+public class LoadTestConfig {
+
+	private int clientCount = 12;
+
+	private int threadCount = 8;
+
+	private long warmUpDuration = 5000;
+
+	private long duration = 30000;
+
+	private LoadTestTransport transport = LoadTestTransport.MOCK;
+
+	private int pvStatusCountPerUpload = 5;
+
+	private long serviceLatency;
+
+	private final Map<LoadTestTraffic, Integer> traffic2Weight = new EnumMap<>(LoadTestTraffic.class);
+
+	public LoadTestConfig() {
+		traffic2Weight.put(LoadTestTraffic.PV_UPLOAD, 60);
+		traffic2Weight.put(LoadTestTraffic.INVERSE_READ, 15);
+		traffic2Weight.put(LoadTestTraffic.INVERSE_WRITE, 15);
+		traffic2Weight.put(LoadTestTraffic.FEDERATION, 10);
+	}
+
+	/**
+	 * Gets the number of simulated clients (Raspberry Pis) -- each with its own {@code RpcContext}.
+	 * @return the number of simulated clients. Always &gt; 0.
+	 */
+	public int getClientCount() {
+		return clientCount;
+	}
+	public void setClientCount(int clientCount) {
+		if (clientCount < 1)
+			throw new IllegalArgumentException("clientCount < 1");
+
+		this.clientCount = clientCount;
+	}
+
+	/**
+	 * Gets the number of threads issuing requests concurrently. Each thread issues one request after the other
+	 * -- picking the kind of traffic and the client(s) randomly.
+	 * @return the number of threads issuing requests. Always &gt; 0.
+	 */
+	public int getThreadCount() {
+		return threadCount;
+	}
+	public void setThreadCount(int threadCount) {
+		if (threadCount < 1)
+			throw new IllegalArgumentException("threadCount < 1");
+
+		this.threadCount = threadCount;
+	}
+
+	/**
+	 * Gets the duration (milliseconds) of the warm-up, which is not measured.
+	 * @return the duration of the warm-up. Always &gt;= 0.
+	 */
+	public long getWarmUpDuration() {
+		return warmUpDuration;
+	}
+	public void setWarmUpDuration(long warmUpDuration) {
+		if (warmUpDuration < 0)
+			throw new IllegalArgumentException("warmUpDuration < 0");
+
+		this.warmUpDuration = warmUpDuration;
+	}
+
+	/**
+	 * Gets the duration (milliseconds) of the measurement.
+	 * @return the duration of the measurement. Always &gt; 0.
+	 */
+	public long getDuration() {
+		return duration;
+	}
+	public void setDuration(long duration) {
+		if (duration < 1)
+			throw new IllegalArgumentException("duration < 1");
+
+		this.duration = duration;
+	}
+
+	public LoadTestTransport getTransport() {
+		return transport;
+	}
+	public void setTransport(LoadTestTransport transport) {
+		this.transport = requireNonNull(transport, "transport");
+	}
+
+	/**
+	 * Gets the number of {@code PvStatus}-measurements uploaded in one {@code PvStatusEventRequest}.
+	 * @return the number of measurements per upload. Always &gt; 0.
+	 */
+	public int getPvStatusCountPerUpload() {
+		return pvStatusCountPerUpload;
+	}
+	public void setPvStatusCountPerUpload(int pvStatusCountPerUpload) {
+		if (pvStatusCountPerUpload < 1)
+			throw new IllegalArgumentException("pvStatusCountPerUpload < 1");
+
+		this.pvStatusCountPerUpload = pvStatusCountPerUpload;
+	}
+
+	/**
+	 * Gets the time (milliseconds) every stand-in service sleeps -- simulating the database or the hardware.
+	 * @return the simulated processing time of the services. Always &gt;= 0. Default is 0.
+	 */
+	public long getServiceLatency() {
+		return serviceLatency;
+	}
+	public void setServiceLatency(long serviceLatency) {
+		if (serviceLatency < 0)
+			throw new IllegalArgumentException("serviceLatency < 0");
+
+		this.serviceLatency = serviceLatency;
+	}
+
+	/**
+	 * Gets the relative frequency of the given kind of traffic.
+	 * @param traffic the kind of traffic. Must not be <code>null</code>.
+	 * @return the weight of the given kind of traffic. Always &gt;= 0. 0 means it is not issued at all.
+	 */
+	public int getWeight(final LoadTestTraffic traffic) {
+		requireNonNull(traffic, "traffic");
+		final Integer weight = traffic2Weight.get(traffic);
+		return weight == null ? 0 : weight;
+	}
+	public void setWeight(final LoadTestTraffic traffic, final int weight) {
+		requireNonNull(traffic, "traffic");
+		if (weight < 0)
+			throw new IllegalArgumentException("weight < 0");
+
+		traffic2Weight.put(traffic, weight);
+	}
+
+	/**
+	 * Parses the given command-line arguments. Every argument has the form {@code key=value} -- e.g.
+	 * {@code clientCount=50}, {@code transport=HTTP} or {@code weight.FEDERATION=0}.
+	 * @param args the arguments. Must not be <code>null</code>.
+	 * @return the configuration. Never <code>null</code>. Every property not specified has its default.
+	 */
+	public static LoadTestConfig parse(final String[] args) {
+		requireNonNull(args, "args");
+		final LoadTestConfig config = new LoadTestConfig();
+		for (final String arg : args) {
+			final int index = arg.indexOf('=');
+			if (index < 0)
+				throw new IllegalArgumentException("Argument does not have the form key=value: " + arg);
+
+			final String key = arg.substring(0, index).trim();
+			final String value = arg.substring(index + 1).trim();
+			switch (key) {
+				case "clientCount":
+					config.setClientCount(Integer.parseInt(value));
+					break;
+				case "threadCount":
+					config.setThreadCount(Integer.parseInt(value));
+					break;
+				case "warmUpDuration":
+					config.setWarmUpDuration(Long.parseLong(value));
+					break;
+				case "duration":
+					config.setDuration(Long.parseLong(value));
+					break;
+				case "transport":
+					config.setTransport(LoadTestTransport.valueOf(value));
+					break;
+				case "pvStatusCountPerUpload":
+					config.setPvStatusCountPerUpload(Integer.parseInt(value));
+					break;
+				case "serviceLatency":
+					config.setServiceLatency(Long.parseLong(value));
+					break;
+				default:
+					if (key.startsWith("weight.")) {
+						config.setWeight(LoadTestTraffic.valueOf(key.substring("weight.".length())), Integer.parseInt(value));
+						break;
+					}
+					throw new IllegalArgumentException("Unknown key: " + key);
+			}
+		}
+		return config;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[clientCount=" + clientCount + ", threadCount=" + threadCount
+				+ ", warmUpDuration=" + warmUpDuration + ", duration=" + duration + ", transport=" + transport
+				+ ", pvStatusCountPerUpload=" + pvStatusCountPerUpload + ", serviceLatency=" + serviceLatency
+				+ ", traffic2Weight=" + traffic2Weight + ']';
+	}
+}
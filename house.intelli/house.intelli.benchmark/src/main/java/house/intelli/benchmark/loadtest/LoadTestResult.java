@@ -0,0 +1,120 @@
+package house.intelli.benchmark.loadtest;
+
+import static java.util.Objects.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import house.intelli.core.metrics.MetricValue;
+
+/**
+ * Outcome of a {@link LoadTest}: Throughput and latency-percentiles per kind of traffic as well as a snapshot
+ * of the server's metrics at the end of the measurement.
+ */
+public class LoadTestResult {
+
+	private final LoadTestConfig config;
+	private final long duration;
+	private final Map<LoadTestTraffic, MetricValue> traffic2Latency;
+	private final Map<LoadTestTraffic, Long> traffic2FailedCount;
+	private final List<MetricValue> serverMetricValues;
+
+	public LoadTestResult(final LoadTestConfig config, final long duration,
+			final Map<LoadTestTraffic, MetricValue> traffic2Latency, final Map<LoadTestTraffic, Long> traffic2FailedCount,
+			final List<MetricValue> serverMetricValues) {
+		this.config = requireNonNull(config, "config");
+		this.duration = duration;
+		this.traffic2Latency = Collections.unmodifiableMap(new EnumMap<>(requireNonNull(traffic2Latency, "traffic2Latency")));
+		this.traffic2FailedCount = Collections.unmodifiableMap(new EnumMap<>(requireNonNull(traffic2FailedCount, "traffic2FailedCount")));
+		this.serverMetricValues = Collections.unmodifiableList(new ArrayList<>(requireNonNull(serverMetricValues, "serverMetricValues")));
+	}
+
+	public LoadTestConfig getConfig() {
+		return config;
+	}
+
+	/**
+	 * Gets the actual duration (milliseconds) of the measurement.
+	 * @return the actual duration of the measurement.
+	 */
+	public long getDuration() {
+		return duration;
+	}
+
+	/**
+	 * Gets the latencies of the successful requests of the given kind.
+	 * @param traffic the kind of traffic. Must not be <code>null</code>.
+	 * @return the latencies. <code>null</code>, if no request of this kind succeeded.
+	 */
+	public MetricValue getLatency(final LoadTestTraffic traffic) {
+		return traffic2Latency.get(requireNonNull(traffic, "traffic"));
+	}
+
+	public long getCount(final LoadTestTraffic traffic) {
+		final MetricValue latency = getLatency(traffic);
+		return latency == null ? 0 : latency.getValue();
+	}
+
+	public long getFailedCount(final LoadTestTraffic traffic) {
+		final Long failedCount = traffic2FailedCount.get(requireNonNull(traffic, "traffic"));
+		return failedCount == null ? 0 : failedCount;
+	}
+
+	/**
+	 * Gets the number of successful requests of the given kind per second.
+	 * @param traffic the kind of traffic. Must not be <code>null</code>.
+	 * @return the throughput in requests per second.
+	 */
+	public double getThroughput(final LoadTestTraffic traffic) {
+		return getCount(traffic) * 1000d / Math.max(1, duration);
+	}
+
+	public double getTotalThroughput() {
+		double result = 0;
+		for (final LoadTestTraffic traffic : LoadTestTraffic.values())
+			result += getThroughput(traffic);
+
+		return result;
+	}
+
+	/**
+	 * Gets the server's metrics -- e.g. the depth of its inverse queues -- at the end of the measurement.
+	 * @return the server's metrics. Never <code>null</code>.
+	 */
+	public List<MetricValue> getServerMetricValues() {
+		return serverMetricValues;
+	}
+
+	/**
+	 * Formats this result as human-readable table.
+	 * @return the report. Never <code>null</code>.
+	 */
+	public String getReport() {
+		final StringBuilder sb = new StringBuilder();
+		sb.append(config).append('\n');
+		sb.append(String.format("duration=%d ms, totalThroughput=%.1f req/s%n", duration, getTotalThroughput()));
+		sb.append(String.format("%-14s %9s %7s %10s %9s %9s %9s %9s%n",
+				"traffic", "count", "failed", "req/s", "p50[us]", "p90[us]", "p99[us]", "max[us]"));
+		for (final LoadTestTraffic traffic : LoadTestTraffic.values()) {
+			final MetricValue latency = getLatency(traffic);
+			sb.append(String.format("%-14s %9d %7d %10.1f %9d %9d %9d %9d%n",
+					traffic, getCount(traffic), getFailedCount(traffic), getThroughput(traffic),
+					latency == null ? 0 : latency.getP50Micros(), latency == null ? 0 : latency.getP90Micros(),
+					latency == null ? 0 : latency.getP99Micros(), latency == null ? 0 : latency.getMaxMicros()));
+		}
+		sb.append("server metrics:\n");
+		for (final MetricValue metricValue : serverMetricValues)
+			sb.append("  ").append(metricValue).append('\n');
+
+		return sb.toString();
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[duration=" + duration + ", traffic2Latency=" + traffic2Latency
+				+ ", traffic2FailedCount=" + traffic2FailedCount + ']';
+	}
+}
@@ -0,0 +1,25 @@
+package house.intelli.benchmark.loadtest;
+
+/**
+ * Kind of traffic driven by the {@link LoadTest}.
+ */
+public enum LoadTestTraffic {
+	/**
+	 * A Pi uploads the latest measurements of its inverter to the server -- a {@code PvStatusEventRequest}.
+	 */
+	PV_UPLOAD,
+	/**
+	 * The server reads the state of an actor on a Pi -- a {@code DimmerActorReadRequest} travelling through the
+	 * inverse queue.
+	 */
+	INVERSE_READ,
+	/**
+	 * The server switches an actor on a Pi -- a {@code DimmerActorWriteRequest} travelling through the inverse queue.
+	 */
+	INVERSE_WRITE,
+	/**
+	 * A Pi propagates the state of a light-controller to a federated light-controller on another Pi -- a
+	 * {@code LightControllerFederationPropagationRequest} relayed by the server.
+	 */
+	FEDERATION
+}
@@ -0,0 +1,17 @@
+package house.intelli.benchmark.loadtest;
+
+/**
+ * How the simulated clients of the {@link LoadTest} are connected to the server.
+ */
+public enum LoadTestTransport {
+	/**
+	 * In-memory transports passing the messages directly to the server's {@code RpcContext} -- measuring the
+	 * RPC-stack without network and codec.
+	 */
+	MOCK,
+	/**
+	 * Real HTTP over the loopback-interface to a {@code DirectRpcServer} serving the server's {@code RpcContext}
+	 * -- like the {@code RpcServlet} in openHAB.
+	 */
+	HTTP
+}
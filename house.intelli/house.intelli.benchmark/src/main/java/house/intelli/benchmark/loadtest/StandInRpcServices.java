@@ -0,0 +1,136 @@
+package house.intelli.benchmark.loadtest;
+
+import static java.util.Objects.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import house.intelli.core.rpc.AbstractRpcService;
+import house.intelli.core.rpc.RpcService;
+import house.intelli.core.rpc.ThreadSafeRpcService;
+import house.intelli.core.rpc.VoidResponse;
+import house.intelli.core.rpc.dimmer.DimmerActorReadRequest;
+import house.intelli.core.rpc.dimmer.DimmerActorReadResponse;
+import house.intelli.core.rpc.dimmer.DimmerActorWriteRequest;
+import house.intelli.core.rpc.dimmer.DimmerActorWriteResponse;
+import house.intelli.core.rpc.lightcontroller.LightControllerFederationPropagationRequest;
+import house.intelli.core.rpc.pv.PvStatusEventRequest;
+import house.intelli.core.service.AbstractServiceRegistryDelegate;
+
+/**
+ * Stand-ins for the services of the openHAB-server and the Pis -- without PostgreSQL, Spring or hardware.
+ * <p>
+ * They are registered by the {@link LoadTest} via a {@link Delegate} for as long as it runs. Since all
+ * {@code RpcContext}s of the JVM share the same services, the dimmer-values are kept per host.
+ */
+public class StandInRpcServices {
+
+	private final long serviceLatency;
+
+	private final LongAdder receivedPvStatusCount = new LongAdder();
+
+	private final ConcurrentMap<String, Integer> hostAndChannelId2DimmerValue = new ConcurrentHashMap<>();
+
+	public StandInRpcServices(final long serviceLatency) {
+		if (serviceLatency < 0)
+			throw new IllegalArgumentException("serviceLatency < 0");
+
+		this.serviceLatency = serviceLatency;
+	}
+
+	/**
+	 * Gets the number of {@code PvStatus}-measurements received by the server.
+	 * @return the number of measurements received. Always &gt;= 0.
+	 */
+	public long getReceivedPvStatusCount() {
+		return receivedPvStatusCount.sum();
+	}
+
+	public Delegate createDelegate() {
+		return new Delegate();
+	}
+
+	private void simulateLatency() throws InterruptedException {
+		if (serviceLatency > 0)
+			Thread.sleep(serviceLatency);
+	}
+
+	private static String getHostAndChannelId(final AbstractRpcService<?, ?> rpcService, final String channelId) {
+		return rpcService.getRpcContext().getLocalHostId() + "/" + requireNonNull(channelId, "channelId");
+	}
+
+	/**
+	 * Provides the stand-in services to the {@code ServiceRegistry}.
+	 */
+	@SuppressWarnings("rawtypes")
+	public class Delegate extends AbstractServiceRegistryDelegate<RpcService> {
+		@Override
+		public List<RpcService> getServices() {
+			final List<RpcService> result = new ArrayList<>();
+			result.add(new PvStatusEventService());
+			result.add(new DimmerActorReadService());
+			result.add(new DimmerActorWriteService());
+			result.add(new LightControllerFederationPropagationService());
+			return result;
+		}
+	}
+
+	/**
+	 * Stands in for the server's service persisting the measurements in PostgreSQL.
+	 */
+	@ThreadSafeRpcService
+	public class PvStatusEventService extends AbstractRpcService<PvStatusEventRequest, VoidResponse> {
+		@Override
+		public VoidResponse process(final PvStatusEventRequest request) throws Exception {
+			simulateLatency();
+			receivedPvStatusCount.add(request.getPvStatuses().size());
+			return null;
+		}
+	}
+
+	/**
+	 * Stands in for the Pi's service reading the value of a dimmer.
+	 */
+	@ThreadSafeRpcService
+	public class DimmerActorReadService extends AbstractRpcService<DimmerActorReadRequest, DimmerActorReadResponse> {
+		@Override
+		public DimmerActorReadResponse process(final DimmerActorReadRequest request) throws Exception {
+			simulateLatency();
+			final Integer dimmerValue = hostAndChannelId2DimmerValue.get(getHostAndChannelId(this, request.getChannelId()));
+			final DimmerActorReadResponse response = new DimmerActorReadResponse();
+			response.setDimmerValue(dimmerValue == null ? 0 : dimmerValue);
+			return response;
+		}
+	}
+
+	/**
+	 * Stands in for the Pi's service switching a dimmer.
+	 */
+	@ThreadSafeRpcService
+	public class DimmerActorWriteService extends AbstractRpcService<DimmerActorWriteRequest, DimmerActorWriteResponse> {
+		@Override
+		public DimmerActorWriteResponse process(final DimmerActorWriteRequest request) throws Exception {
+			simulateLatency();
+			hostAndChannelId2DimmerValue.put(getHostAndChannelId(this, request.getChannelId()), request.getDimmerValue());
+			final DimmerActorWriteResponse response = new DimmerActorWriteResponse();
+			response.setDimmerValue(request.getDimmerValue());
+			return response;
+		}
+	}
+
+	/**
+	 * Stands in for the Pi's service taking over the state of a federated light-controller.
+	 */
+	@ThreadSafeRpcService
+	public class LightControllerFederationPropagationService extends AbstractRpcService<LightControllerFederationPropagationRequest, VoidResponse> {
+		@Override
+		public VoidResponse process(final LightControllerFederationPropagationRequest request) throws Exception {
+			simulateLatency();
+			requireNonNull(request.getLightControllerState(), "request.lightControllerState");
+			return null;
+		}
+	}
+}
@@ -1,7 +1,15 @@
 package house.intelli.core.jaxb;
 
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
@@ -11,40 +19,230 @@ import org.slf4j.LoggerFactory;
 
 import house.intelli.core.service.ServiceRegistry;
 
+/**
+ * Holder of the {@link JAXBContext} (and related objects) for all classes provided by the
+ * {@link IntelliHouseJaxbContextProvider}s.
+ * <p>
+ * Building a {@code JAXBContext} takes several seconds on a Raspberry Pi. Therefore, it should be
+ * {@linkplain #initializeInBackground() initialized in the background} during start-up. Whenever the
+ * providers change, the context is {@linkplain #reset() rebuilt in the background}, too: Until the new
+ * context is ready, the old one is used, and then it is swapped atomically. If the providers' classes did
+ * not change at all, nothing is rebuilt. Only if there is no context, yet, the caller has to wait.
+ * <p>
+ * All objects belonging to the same context -- the {@linkplain #getClassesToBeBound() classes},
+ * the {@linkplain #getJaxbContext() context} itself and the {@linkplain #getJaxbPool() pool} -- are
+ * swapped together.
+ */
 public class IntelliHouseJaxbContext {
 
 	private static final Logger logger = LoggerFactory.getLogger(IntelliHouseJaxbContext.class);
 
-	private static volatile JAXBContext jaxbContext;
+	private static final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+
+	private static final Object mutex = new Object();
+
+	/**
+	 * Incremented by every {@link #reset()}. Guarded by {@link #mutex}.
+	 */
+	private static long requestedGeneration;
+
+	/**
+	 * The build currently running (or queued) or <code>null</code>. Guarded by {@link #mutex}.
+	 */
+	private static CompletableFuture<Snapshot> pendingBuild;
+
+	private static boolean listenerRegistered;
+
+	private static ExecutorService executorService;
+
+	private static final class Snapshot {
+		public final Set<Class<?>> classesToBeBound;
+		public final JAXBContext jaxbContext;
+		public final JaxbPool jaxbPool;
+
+		public Snapshot(final Set<Class<?>> classesToBeBound, final JAXBContext jaxbContext) {
+			this.classesToBeBound = classesToBeBound;
+			this.jaxbContext = jaxbContext;
+			this.jaxbPool = new JaxbPool(jaxbContext);
+		}
+	}
+
+	/**
+	 * Starts building the context in the background, if it was not yet built (or is being built).
+	 * This method returns immediately. It should be invoked during start-up in order to not make the first
+	 * message wait.
+	 */
+	public static void initializeInBackground() {
+		if (snapshot.get() == null)
+			startBuild(false);
+	}
 
 	public static JAXBContext getJaxbContext() {
-		JAXBContext result = jaxbContext;
-		if (result == null) {
-			final Set<Class<?>> collectedClassesToBeBound = new HashSet<Class<?>>();
+		return getSnapshot().jaxbContext;
+	}
+
+	/**
+	 * Gets the pool of {@code Marshaller}s and {@code Unmarshaller}s for the current {@linkplain #getJaxbContext() context}.
+	 * <p>
+	 * The pool is replaced whenever the context is. Callers should therefore get the pool once per usage and
+	 * release the acquired instance into the same pool.
+	 * @return the pool for the current context. Never <code>null</code>.
+	 */
+	public static JaxbPool getJaxbPool() {
+		return getSnapshot().jaxbPool;
+	}
+
+	/**
+	 * Gets the classes collected from all {@link IntelliHouseJaxbContextProvider}s.
+	 * <p>
+	 * The same instance is returned as long as the context is not replaced. Thus, it may be used as a key
+	 * for caching data derived from it.
+	 * @return the classes to be bound. Never <code>null</code>. Unmodifiable.
+	 */
+	public static Set<Class<?>> getClassesToBeBound() {
+		return getSnapshot().classesToBeBound;
+	}
+
+	/**
+	 * Notifies about a change of the providers. The context is rebuilt in the background, if the classes
+	 * to be bound changed. Until then, the current context is still used.
+	 */
+	public static void reset() {
+		startBuild(true);
+	}
+
+	/**
+	 * Discards the current context completely -- as if the application was just started. Only used by tests.
+	 */
+	static void clear() {
+		awaitPendingBuild();
+		snapshot.set(null);
+	}
+
+	/**
+	 * Tells whether the context is built -- i.e. whether {@link #getJaxbContext()} returns without waiting. Only used by tests.
+	 */
+	static boolean isBuilt() {
+		return snapshot.get() != null;
+	}
+
+	/**
+	 * Waits until the build currently running (if any) is completed.
+	 */
+	static void awaitPendingBuild() {
+		final CompletableFuture<Snapshot> build;
+		synchronized (mutex) {
+			build = pendingBuild;
+		}
+		if (build != null) {
+			try {
+				build.join();
+			} catch (CompletionException x) {
+				// already logged by build()
+			}
+		}
+	}
+
+	private static Snapshot getSnapshot() {
+		final Snapshot result = snapshot.get();
+		if (result != null)
+			return result;
 
-			final ServiceRegistry<IntelliHouseJaxbContextProvider> serviceRegistry = ServiceRegistry.getInstance(IntelliHouseJaxbContextProvider.class);
+		try {
+			return startBuild(false).join();
+		} catch (CompletionException x) {
+			if (x.getCause() instanceof RuntimeException)
+				throw (RuntimeException) x.getCause();
+
+			throw x;
+		}
+	}
 
-			serviceRegistry.addListener(event -> reset());
+	private static CompletableFuture<Snapshot> startBuild(final boolean newGeneration) {
+		synchronized (mutex) {
+			if (newGeneration)
+				++requestedGeneration;
 
-			for (final IntelliHouseJaxbContextProvider provider : serviceRegistry.getServices()) {
-				final Class<?>[] classesToBeBound = provider.getClassesToBeBound();
-				logger.info("getJaxbContext: provider.class={}, classesToBeBound={}", provider.getClass().getName(), classesToBeBound);
-				if (classesToBeBound != null) {
-					for (final Class<?> clazz : classesToBeBound)
-						collectedClassesToBeBound.add(clazz);
+			if (pendingBuild == null)
+				pendingBuild = CompletableFuture.supplyAsync(IntelliHouseJaxbContext::build, getExecutorService());
+
+			return pendingBuild;
+		}
+	}
+
+	/**
+	 * Builds a new {@link Snapshot}, if needed. If a {@link #reset()} happens while building, the
+	 * classes are collected again, hence the last change is never lost.
+	 */
+	private static Snapshot build() {
+		try {
+			while (true) {
+				final long generation;
+				synchronized (mutex) {
+					generation = requestedGeneration;
+				}
+				final Set<Class<?>> classesToBeBound = collectClassesToBeBound();
+				final Snapshot oldSnapshot = snapshot.get();
+				if (oldSnapshot != null && oldSnapshot.classesToBeBound.equals(classesToBeBound))
+					logger.info("build: Classes did not change. Keeping JAXBContext.");
+				else {
+					final long startTimestamp = System.currentTimeMillis();
+					final JAXBContext jaxbContext = JAXBContext.newInstance(classesToBeBound.toArray(new Class<?>[classesToBeBound.size()]));
+					snapshot.set(new Snapshot(classesToBeBound, jaxbContext));
+					logger.info("build: Built JAXBContext in {} ms.", System.currentTimeMillis() - startTimestamp);
+				}
+				synchronized (mutex) {
+					if (requestedGeneration == generation) {
+						pendingBuild = null;
+						return snapshot.get();
+					}
 				}
 			}
-			try {
-				final Class<?>[] ca = collectedClassesToBeBound.toArray(new Class[collectedClassesToBeBound.size()]);
-				jaxbContext = result = JAXBContext.newInstance(ca);
-			} catch (JAXBException x) {
-				throw new RuntimeException(x);
+		} catch (JAXBException | RuntimeException x) {
+			logger.error("build: " + x + ' ', x);
+			synchronized (mutex) {
+				pendingBuild = null;
 			}
+			throw x instanceof RuntimeException ? (RuntimeException) x : new RuntimeException(x);
 		}
-		return result;
 	}
 
-	public static void reset() {
-		jaxbContext = null;
+	private static Set<Class<?>> collectClassesToBeBound() {
+		final Set<Class<?>> collectedClassesToBeBound = new HashSet<Class<?>>();
+
+		final ServiceRegistry<IntelliHouseJaxbContextProvider> serviceRegistry = ServiceRegistry.getInstance(IntelliHouseJaxbContextProvider.class);
+
+		synchronized (mutex) {
+			if (! listenerRegistered) {
+				serviceRegistry.addListener(event -> reset());
+				listenerRegistered = true;
+			}
+		}
+
+		for (final IntelliHouseJaxbContextProvider provider : serviceRegistry.getServices()) {
+			final Class<?>[] classesToBeBound = provider.getClassesToBeBound();
+			logger.info("collectClassesToBeBound: provider.class={}, classesToBeBound={}", provider.getClass().getName(), classesToBeBound);
+			if (classesToBeBound != null) {
+				for (final Class<?> clazz : classesToBeBound)
+					collectedClassesToBeBound.add(clazz);
+			}
+		}
+		return Collections.unmodifiableSet(collectedClassesToBeBound);
+	}
+
+	private static ExecutorService getExecutorService() {
+		synchronized (mutex) {
+			if (executorService == null) {
+				// A single thread, which terminates when idle -- we don't want a thread to linger around forever.
+				final ThreadPoolExecutor tpe = new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+					final Thread thread = new Thread(runnable, IntelliHouseJaxbContext.class.getSimpleName() + ".builder");
+					thread.setDaemon(true);
+					return thread;
+				});
+				tpe.allowCoreThreadTimeOut(true);
+				executorService = tpe;
+			}
+			return executorService;
+		}
 	}
 }
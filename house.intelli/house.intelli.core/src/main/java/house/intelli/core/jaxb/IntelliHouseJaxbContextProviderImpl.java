@@ -3,6 +3,8 @@ package house.intelli.core.jaxb;
 import java.util.HashSet;
 import java.util.Set;
 
+import house.intelli.core.rpc.BatchRequest;
+import house.intelli.core.rpc.BatchResponse;
 import house.intelli.core.rpc.DeferredResponseRequest;
 import house.intelli.core.rpc.DeferringResponse;
 import house.intelli.core.rpc.ErrorResponse;
@@ -12,6 +14,7 @@ import house.intelli.core.rpc.PollInverseRequestsResponse;
 import house.intelli.core.rpc.PutInverseResponseRequest;
 import house.intelli.core.rpc.RpcService;
 import house.intelli.core.rpc.RpcServiceRegistry;
+import house.intelli.core.rpc.StreamInverseRequestsRequest;
 import house.intelli.core.rpc.dimmer.DimmerActorEventRequest;
 import house.intelli.core.rpc.dimmer.DimmerActorReadRequest;
 import house.intelli.core.rpc.dimmer.DimmerActorReadResponse;
@@ -21,6 +24,7 @@ import house.intelli.core.rpc.keybutton.KeyButtonSensorEventRequest;
 import house.intelli.core.rpc.keybutton.KeyButtonSensorRemotePropagationRequest;
 import house.intelli.core.rpc.lightcontroller.LightControllerEventRequest;
 import house.intelli.core.rpc.lightcontroller.LightControllerFederationPropagationRequest;
+import house.intelli.core.rpc.pv.PackedPvStatusEventRequest;
 import house.intelli.core.rpc.pv.PvStatusEventRequest;
 import house.intelli.core.rpc.pv.PvStatusList;
 import house.intelli.core.rpc.relay.RelayActorEventRequest;
@@ -43,6 +47,8 @@ public class IntelliHouseJaxbContextProviderImpl extends AbstractIntelliHouseJax
 
 		// manually add other classes below...
 		// BEGIN framework stuff
+		classes.add(BatchRequest.class);
+		classes.add(BatchResponse.class);
 		classes.add(DeferredResponseRequest.class);
 		classes.add(DeferringResponse.class);
 		classes.add(ErrorResponse.class);
@@ -50,6 +56,7 @@ public class IntelliHouseJaxbContextProviderImpl extends AbstractIntelliHouseJax
 		classes.add(PollInverseRequestsRequest.class);
 		classes.add(PollInverseRequestsResponse.class);
 		classes.add(PutInverseResponseRequest.class);
+		classes.add(StreamInverseRequestsRequest.class);
 		// END framework stuff
 
 		// BEGIN RpcService-related DTOs for which there might be no RpcService registered
@@ -71,6 +78,7 @@ public class IntelliHouseJaxbContextProviderImpl extends AbstractIntelliHouseJax
 		classes.add(LightControllerEventRequest.class);
 		classes.add(LightControllerFederationPropagationRequest.class);
 
+		classes.add(PackedPvStatusEventRequest.class);
 		classes.add(PvStatusEventRequest.class);
 		classes.add(PvStatusList.class);
 		// END RpcService-related DTOs for which there might be no RpcService registered
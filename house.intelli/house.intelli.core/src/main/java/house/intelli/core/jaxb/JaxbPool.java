@@ -0,0 +1,69 @@
+package house.intelli.core.jaxb;
+
+import static java.util.Objects.*;
+
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+
+/**
+ * Pool of {@link Marshaller}s and {@link Unmarshaller}s of one {@link JAXBContext}.
+ * <p>
+ * Creating a {@code Marshaller} or {@code Unmarshaller} is expensive, but they are not thread-safe. Therefore,
+ * they are pooled: A thread {@linkplain #acquireMarshaller() acquires} an instance, uses it exclusively and
+ * {@linkplain #releaseMarshaller(Marshaller) releases} it afterwards. If the usage failed, the instance should
+ * not be released, because its state is unknown.
+ * <p>
+ * A pool belongs to exactly one {@code JAXBContext}. When the {@link IntelliHouseJaxbContext} is reset, a new
+ * pool is created and the old one (including all its instances) becomes garbage -- instances acquired from the
+ * old pool are released into the old pool and thus never handed out by the new one.
+ * <p>
+ * This class is thread-safe.
+ * @see IntelliHouseJaxbContext#getJaxbPool()
+ */
+public class JaxbPool {
+
+	/**
+	 * Maximum number of idle instances kept per type. More instances are created, if more threads use
+	 * this pool concurrently, but the surplus is discarded after use.
+	 */
+	public static final int MAX_IDLE_COUNT = 16;
+
+	private final JAXBContext jaxbContext;
+
+	private final BlockingDeque<Marshaller> idleMarshallers = new LinkedBlockingDeque<>(MAX_IDLE_COUNT);
+
+	private final BlockingDeque<Unmarshaller> idleUnmarshallers = new LinkedBlockingDeque<>(MAX_IDLE_COUNT);
+
+	public JaxbPool(final JAXBContext jaxbContext) {
+		this.jaxbContext = requireNonNull(jaxbContext, "jaxbContext");
+	}
+
+	public JAXBContext getJaxbContext() {
+		return jaxbContext;
+	}
+
+	public Marshaller acquireMarshaller() throws JAXBException {
+		final Marshaller marshaller = idleMarshallers.pollFirst();
+		return marshaller != null ? marshaller : jaxbContext.createMarshaller();
+	}
+
+	public void releaseMarshaller(final Marshaller marshaller) {
+		requireNonNull(marshaller, "marshaller");
+		idleMarshallers.offerFirst(marshaller); // LIFO: the most recently used instance is hot in the CPU-cache.
+	}
+
+	public Unmarshaller acquireUnmarshaller() throws JAXBException {
+		final Unmarshaller unmarshaller = idleUnmarshallers.pollFirst();
+		return unmarshaller != null ? unmarshaller : jaxbContext.createUnmarshaller();
+	}
+
+	public void releaseUnmarshaller(final Unmarshaller unmarshaller) {
+		requireNonNull(unmarshaller, "unmarshaller");
+		idleUnmarshallers.offerFirst(unmarshaller);
+	}
+}
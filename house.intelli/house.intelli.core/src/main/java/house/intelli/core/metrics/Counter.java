@@ -0,0 +1,32 @@
+package house.intelli.core.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonically increasing count of events -- e.g. rejected requests.
+ * <p>
+ * Counting is cheap even under contention: Concurrent threads increment different cells, which are only
+ * summed up when the count is read.
+ */
+public final class Counter {
+
+	private final LongAdder count = new LongAdder();
+
+	Counter() {
+	}
+
+	public void increment() {
+		count.increment();
+	}
+
+	public void add(final long delta) {
+		if (delta < 0)
+			throw new IllegalArgumentException("delta < 0");
+
+		count.add(delta);
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+}
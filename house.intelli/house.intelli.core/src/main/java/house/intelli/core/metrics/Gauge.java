@@ -0,0 +1,19 @@
+package house.intelli.core.metrics;
+
+/**
+ * Current value of something -- e.g. the size of a queue.
+ * <p>
+ * A gauge is only evaluated, when the metrics are read. Hence, it costs nothing on the hot path.
+ * @see MetricRegistry#putGauge(String, Gauge)
+ */
+@FunctionalInterface
+public interface Gauge {
+
+	/**
+	 * Gets the current value.
+	 * <p>
+	 * Invoked by whoever reads the metrics. Thus, it must be thread-safe and quick.
+	 * @return the current value.
+	 */
+	long getValue();
+}
@@ -0,0 +1,22 @@
+package house.intelli.core.metrics;
+
+import java.util.Map;
+
+/**
+ * Current values of a dynamic set of things -- e.g. the sizes of the queues of all hosts currently known.
+ * <p>
+ * Like a {@link Gauge}, it is only evaluated, when the metrics are read.
+ * @see MetricRegistry#putGaugeSet(String, GaugeSet)
+ */
+@FunctionalInterface
+public interface GaugeSet {
+
+	/**
+	 * Gets the current values.
+	 * <p>
+	 * Invoked by whoever reads the metrics. Thus, it must be thread-safe and quick.
+	 * @return the current values keyed by what they belong to (e.g. the host). Never <code>null</code>.
+	 * Each key becomes part of the name of the metric -- see {@link MetricRegistry#putGaugeSet(String, GaugeSet)}.
+	 */
+	Map<String, Long> getValues();
+}
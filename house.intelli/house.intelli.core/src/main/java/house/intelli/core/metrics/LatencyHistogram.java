@@ -0,0 +1,119 @@
+package house.intelli.core.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Distribution of durations -- e.g. how long {@code RpcClient.invoke(...)} takes.
+ * <p>
+ * The durations are counted in buckets of exponentially growing size: Bucket 0 holds all durations below 1 µs,
+ * bucket <code>i</code> (with <code>0 &lt; i &lt; 31</code>) all durations in
+ * [2<sup>i-1</sup> µs, 2<sup>i</sup> µs) and bucket 31 everything longer. Thus, the percentiles are
+ * approximations, which are at most twice the real value -- good enough to see where time is spent.
+ * <p>
+ * Recording is allocation-free and does not lock.
+ */
+public final class LatencyHistogram {
+
+	static final int BUCKET_COUNT = 32;
+
+	private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT];
+	private final LongAdder sumNanos = new LongAdder();
+	private final AtomicLong maxNanos = new AtomicLong();
+
+	LatencyHistogram() {
+		for (int i = 0; i < BUCKET_COUNT; ++i)
+			buckets[i] = new LongAdder();
+	}
+
+	/**
+	 * Records a duration.
+	 * @param durationNanos the duration in nanoseconds -- usually the difference of two {@link System#nanoTime()} values.
+	 * Negative values (which <code>nanoTime()</code> should never produce) are counted as 0.
+	 */
+	public void record(long durationNanos) {
+		if (durationNanos < 0)
+			durationNanos = 0;
+
+		buckets[getBucketIndex(durationNanos)].increment();
+		sumNanos.add(durationNanos);
+
+		long max;
+		while (durationNanos > (max = maxNanos.get())) {
+			if (maxNanos.compareAndSet(max, durationNanos))
+				break;
+		}
+	}
+
+	static int getBucketIndex(final long durationNanos) {
+		final long micros = durationNanos / 1000;
+		return Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(micros));
+	}
+
+	/**
+	 * Gets the upper bound of the given bucket.
+	 * @param bucketIndex the index of the bucket.
+	 * @return the (exclusive) upper bound of the durations in the bucket in microseconds. {@link Long#MAX_VALUE}
+	 * for the last bucket.
+	 */
+	static long getBucketUpperBoundMicros(final int bucketIndex) {
+		if (bucketIndex >= BUCKET_COUNT - 1)
+			return Long.MAX_VALUE;
+
+		return 1L << bucketIndex;
+	}
+
+	public long getCount() {
+		long count = 0;
+		for (final LongAdder bucket : buckets)
+			count += bucket.sum();
+
+		return count;
+	}
+
+	public long getSumNanos() {
+		return sumNanos.sum();
+	}
+
+	public long getMaxNanos() {
+		return maxNanos.get();
+	}
+
+	/**
+	 * Gets the approximate percentiles in one pass.
+	 * @param percentiles the requested percentiles, each in the range (0, 100].
+	 * @return the approximate durations in microseconds in the same order as <code>percentiles</code>. Each value is
+	 * the upper bound of the bucket containing the percentile, but never more than the maximum recorded.
+	 * 0, if nothing was recorded, yet.
+	 */
+	public long[] getPercentilesMicros(final double ... percentiles) {
+		final long[] counts = new long[BUCKET_COUNT];
+		long count = 0;
+		for (int i = 0; i < BUCKET_COUNT; ++i) {
+			counts[i] = buckets[i].sum();
+			count += counts[i];
+		}
+
+		final long maxMicros = (getMaxNanos() + 999) / 1000;
+		final long[] result = new long[percentiles.length];
+		if (count == 0)
+			return result;
+
+		for (int p = 0; p < percentiles.length; ++p) {
+			final double percentile = percentiles[p];
+			if (percentile <= 0 || percentile > 100)
+				throw new IllegalArgumentException("percentile out of range (0, 100]: " + percentile);
+
+			final long rank = (long) Math.ceil(count * percentile / 100);
+			long cumulated = 0;
+			for (int i = 0; i < BUCKET_COUNT; ++i) {
+				cumulated += counts[i];
+				if (cumulated >= rank) {
+					result[p] = Math.min(maxMicros, getBucketUpperBoundMicros(i));
+					break;
+				}
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,46 @@
+package house.intelli.core.metrics;
+
+import static java.util.Objects.*;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * One {@link LatencyHistogram} per type -- e.g. per request-class.
+ * <p>
+ * The histograms are registered as <code>prefix[SimpleName]</code> in the {@link MetricRegistry}. The names are only
+ * built once per type, hence looking up the histogram of a known type neither allocates nor locks.
+ */
+public final class LatencyHistogramsByType {
+
+	private final MetricRegistry metricRegistry;
+	private final String prefix;
+	private final ConcurrentMap<Class<?>, LatencyHistogram> type2LatencyHistogram = new ConcurrentHashMap<>();
+
+	LatencyHistogramsByType(final MetricRegistry metricRegistry, final String prefix) {
+		this.metricRegistry = requireNonNull(metricRegistry, "metricRegistry");
+		this.prefix = requireNonNull(prefix, "prefix");
+	}
+
+	public LatencyHistogram get(final Class<?> type) {
+		requireNonNull(type, "type");
+		LatencyHistogram latencyHistogram = type2LatencyHistogram.get(type);
+		if (latencyHistogram == null) {
+			latencyHistogram = metricRegistry.getLatencyHistogram(prefix + '[' + type.getSimpleName() + ']');
+			final LatencyHistogram old = type2LatencyHistogram.putIfAbsent(type, latencyHistogram);
+			if (old != null)
+				latencyHistogram = old;
+		}
+		return latencyHistogram;
+	}
+
+	/**
+	 * Records a duration for the given type.
+	 * @param type the type. Must not be <code>null</code>.
+	 * @param durationNanos the duration in nanoseconds.
+	 * @see LatencyHistogram#record(long)
+	 */
+	public void record(final Class<?> type, final long durationNanos) {
+		get(type).record(durationNanos);
+	}
+}
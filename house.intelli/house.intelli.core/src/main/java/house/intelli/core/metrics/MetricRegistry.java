@@ -0,0 +1,204 @@
+package house.intelli.core.metrics;
+
+import static java.util.Objects.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Named {@link Counter}s, {@link Gauge}s and {@link LatencyHistogram}s.
+ * <p>
+ * Every {@code RpcContext} has its own registry, because multiple contexts may live in the same JVM (e.g. in tests).
+ * Components existing only once per JVM (like the {@code SessionManager}) use the {@link #getInstance() global} one.
+ * <p>
+ * The metrics should be looked up once and then kept in a field: Looking them up by name is a map-access, while
+ * updating them is allocation-free and does not lock. Names are hierarchical with '.' as separator -- e.g.
+ * "rpcServiceExecutor.rejected".
+ */
+public class MetricRegistry {
+
+	private static final Logger logger = LoggerFactory.getLogger(MetricRegistry.class);
+
+	private static final double[] PERCENTILES = { 50, 90, 99 };
+
+	private static final class Holder {
+		public static final MetricRegistry instance = new MetricRegistry();
+	}
+
+	/**
+	 * Either {@link Counter}, {@link Gauge}, {@link GaugeSet} or {@link LatencyHistogram}.
+	 */
+	private final ConcurrentMap<String, Object> name2Metric = new ConcurrentHashMap<>();
+
+	public MetricRegistry() {
+	}
+
+	/**
+	 * Gets the global registry for metrics existing only once per JVM.
+	 * @return the global registry. Never <code>null</code>.
+	 */
+	public static MetricRegistry getInstance() {
+		return Holder.instance;
+	}
+
+	public Counter getCounter(final String name) {
+		return getOrCreate(name, Counter.class);
+	}
+
+	public LatencyHistogram getLatencyHistogram(final String name) {
+		return getOrCreate(name, LatencyHistogram.class);
+	}
+
+	/**
+	 * Gets the histograms of the given prefix distinguished by type.
+	 * <p>
+	 * In contrast to the other metrics, the returned object is not registered itself (only the histograms are), hence
+	 * it should be obtained once and kept.
+	 * @param prefix the common prefix of the histograms' names. Must not be <code>null</code>.
+	 * @return the histograms. Never <code>null</code>.
+	 */
+	public LatencyHistogramsByType getLatencyHistogramsByType(final String prefix) {
+		return new LatencyHistogramsByType(this, prefix);
+	}
+
+	/**
+	 * Registers the given gauge -- replacing a previously registered one with the same name.
+	 * @param name the name of the gauge. Must not be <code>null</code>.
+	 * @param gauge the gauge. Must not be <code>null</code>.
+	 */
+	public void putGauge(final String name, final Gauge gauge) {
+		name2Metric.put(requireNonNull(name, "name"), requireNonNull(gauge, "gauge"));
+	}
+
+	/**
+	 * Registers the given gauge-set -- replacing a previously registered one with the same name.
+	 * <p>
+	 * Each of its values is reported as separate metric named <code>name[key]</code>.
+	 * @param name the name of the gauge-set. Must not be <code>null</code>.
+	 * @param gaugeSet the gauge-set. Must not be <code>null</code>.
+	 */
+	public void putGaugeSet(final String name, final GaugeSet gaugeSet) {
+		name2Metric.put(requireNonNull(name, "name"), requireNonNull(gaugeSet, "gaugeSet"));
+	}
+
+	public void remove(final String name) {
+		name2Metric.remove(requireNonNull(name, "name"));
+	}
+
+	private <M> M getOrCreate(final String name, final Class<M> metricClass) {
+		requireNonNull(name, "name");
+		Object metric = name2Metric.get(name);
+		if (metric == null) {
+			final Object newMetric = metricClass == Counter.class ? new Counter() : new LatencyHistogram();
+			metric = name2Metric.putIfAbsent(name, newMetric);
+			if (metric == null)
+				metric = newMetric;
+		}
+		if (! metricClass.isInstance(metric))
+			throw new IllegalStateException(String.format("Metric '%s' is a %s, not a %s!",
+					name, metric.getClass().getSimpleName(), metricClass.getSimpleName()));
+
+		return metricClass.cast(metric);
+	}
+
+	/**
+	 * Gets a snapshot of all metrics.
+	 * @return a snapshot of all metrics sorted by name. Never <code>null</code>.
+	 */
+	public List<MetricValue> getMetricValues() {
+		return getMetricValues(null);
+	}
+
+	/**
+	 * Gets a snapshot of the metrics whose names start with the given prefix.
+	 * @param namePrefix the prefix. May be <code>null</code> or empty to get all metrics.
+	 * @return a snapshot of the matching metrics sorted by name. Never <code>null</code>.
+	 */
+	public List<MetricValue> getMetricValues(final String namePrefix) {
+		final SortedMap<String, MetricValue> name2MetricValue = new TreeMap<>();
+		for (final Map.Entry<String, Object> me : name2Metric.entrySet()) {
+			final String name = me.getKey();
+			final Object metric = me.getValue();
+			if (metric instanceof GaugeSet) {
+				final Map<String, Long> values;
+				try {
+					values = ((GaugeSet) metric).getValues();
+				} catch (Exception x) {
+					logger.error("getMetricValues: " + name + ": " + x + ' ', x);
+					continue;
+				}
+				for (final Map.Entry<String, Long> valueEntry : values.entrySet()) {
+					final String valueName = name + '[' + valueEntry.getKey() + ']';
+					if (matches(valueName, namePrefix))
+						name2MetricValue.put(valueName, createMetricValue(valueName, MetricType.GAUGE, valueEntry.getValue()));
+				}
+				continue;
+			}
+
+			if (! matches(name, namePrefix))
+				continue;
+
+			if (metric instanceof Counter)
+				name2MetricValue.put(name, createMetricValue(name, MetricType.COUNTER, ((Counter) metric).getCount()));
+			else if (metric instanceof Gauge) {
+				try {
+					name2MetricValue.put(name, createMetricValue(name, MetricType.GAUGE, ((Gauge) metric).getValue()));
+				} catch (Exception x) {
+					logger.error("getMetricValues: " + name + ": " + x + ' ', x);
+				}
+			}
+			else if (metric instanceof LatencyHistogram)
+				name2MetricValue.put(name, createMetricValue(name, (LatencyHistogram) metric));
+			else
+				throw new IllegalStateException("Unknown metric type: " + metric.getClass().getName());
+		}
+		return new ArrayList<>(name2MetricValue.values());
+	}
+
+	private static boolean matches(final String name, final String namePrefix) {
+		return namePrefix == null || name.startsWith(namePrefix);
+	}
+
+	private static MetricValue createMetricValue(final String name, final MetricType type, final long value) {
+		final MetricValue metricValue = new MetricValue();
+		metricValue.setName(name);
+		metricValue.setType(type);
+		metricValue.setValue(value);
+		return metricValue;
+	}
+
+	private static MetricValue createMetricValue(final String name, final LatencyHistogram latencyHistogram) {
+		final long[] percentilesMicros = latencyHistogram.getPercentilesMicros(PERCENTILES);
+		final MetricValue metricValue = createMetricValue(name, MetricType.HISTOGRAM, latencyHistogram.getCount());
+		metricValue.setSumMicros(latencyHistogram.getSumNanos() / 1000);
+		metricValue.setMaxMicros((latencyHistogram.getMaxNanos() + 999) / 1000);
+		metricValue.setP50Micros(percentilesMicros[0]);
+		metricValue.setP90Micros(percentilesMicros[1]);
+		metricValue.setP99Micros(percentilesMicros[2]);
+		return metricValue;
+	}
+
+	/**
+	 * Logs a snapshot of all metrics -- one line per metric -- with level INFO.
+	 * @param title the title of the snapshot. Must not be <code>null</code>.
+	 */
+	public void logMetricValues(final String title) {
+		requireNonNull(title, "title");
+		if (! logger.isInfoEnabled())
+			return;
+
+		final StringBuilder sb = new StringBuilder();
+		for (final MetricValue metricValue : getMetricValues())
+			sb.append("\n  ").append(metricValue);
+
+		logger.info("{}:{}", title, sb);
+	}
+}
@@ -0,0 +1,17 @@
+package house.intelli.core.metrics;
+
+public enum MetricType {
+	/**
+	 * @see Counter
+	 */
+	COUNTER,
+	/**
+	 * @see Gauge
+	 * @see GaugeSet
+	 */
+	GAUGE,
+	/**
+	 * @see LatencyHistogram
+	 */
+	HISTOGRAM
+}
@@ -0,0 +1,82 @@
+package house.intelli.core.metrics;
+
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Snapshot of a single metric -- used to transfer it and to log it.
+ * <p>
+ * For a {@link MetricType#COUNTER} or a {@link MetricType#GAUGE}, only {@link #getValue() value} is set. For a
+ * {@link MetricType#HISTOGRAM}, {@code value} is the number of recorded durations and the other properties are
+ * populated, too. All durations are in microseconds.
+ */
+@XmlRootElement
+public class MetricValue {
+
+	private String name;
+	private MetricType type;
+	private long value;
+	private long sumMicros;
+	private long maxMicros;
+	private long p50Micros;
+	private long p90Micros;
+	private long p99Micros;
+
+	public String getName() {
+		return name;
+	}
+	public void setName(String name) {
+		this.name = name;
+	}
+	public MetricType getType() {
+		return type;
+	}
+	public void setType(MetricType type) {
+		this.type = type;
+	}
+	public long getValue() {
+		return value;
+	}
+	public void setValue(long value) {
+		this.value = value;
+	}
+	public long getSumMicros() {
+		return sumMicros;
+	}
+	public void setSumMicros(long sumMicros) {
+		this.sumMicros = sumMicros;
+	}
+	public long getMaxMicros() {
+		return maxMicros;
+	}
+	public void setMaxMicros(long maxMicros) {
+		this.maxMicros = maxMicros;
+	}
+	public long getP50Micros() {
+		return p50Micros;
+	}
+	public void setP50Micros(long p50Micros) {
+		this.p50Micros = p50Micros;
+	}
+	public long getP90Micros() {
+		return p90Micros;
+	}
+	public void setP90Micros(long p90Micros) {
+		this.p90Micros = p90Micros;
+	}
+	public long getP99Micros() {
+		return p99Micros;
+	}
+	public void setP99Micros(long p99Micros) {
+		this.p99Micros = p99Micros;
+	}
+
+	@Override
+	public String toString() {
+		if (type != MetricType.HISTOGRAM)
+			return name + '=' + value;
+
+		final long avgMicros = value == 0 ? 0 : sumMicros / value;
+		return name + "[count=" + value + ", avg=" + avgMicros + "µs, p50=" + p50Micros + "µs, p90=" + p90Micros
+				+ "µs, p99=" + p99Micros + "µs, max=" + maxMicros + "µs]";
+	}
+}
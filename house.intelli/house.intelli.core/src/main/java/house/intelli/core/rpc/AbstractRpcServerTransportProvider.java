@@ -29,6 +29,11 @@ public abstract class AbstractRpcServerTransportProvider implements RpcServerTra
 
 	protected abstract RpcServerTransport _createRpcServerTransport();
 
+	@Override
+	public boolean isAuthenticating() {
+		return false;
+	}
+
 	@Override
 	public RpcServerTransportProvider clone() {
 		RpcServerTransportProvider clone;
@@ -0,0 +1,59 @@
+package house.intelli.core.rpc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Request containing multiple independent requests, which are processed in one single round-trip.
+ * <p>
+ * All contained requests must have the same {@code clientHostId} and {@code serverHostId} as this request.
+ * They are processed concurrently -- limited by {@link RpcConst#MAX_BATCH_REQUEST_PARALLELISM} -- unless this
+ * request is {@linkplain #isSequential() sequential}. The {@link BatchResponse} contains one response per
+ * request in the same order -- an {@link ErrorResponse}, if the individual request failed.
+ * @see RpcClient#invokeBatch(List)
+ */
+@XmlRootElement
+public class BatchRequest extends Request<BatchResponse> {
+
+	private List<Request<?>> requests;
+
+	private boolean sequential;
+
+	public List<Request<?>> getRequests() {
+		if (requests == null)
+			requests = new ArrayList<>();
+
+		return requests;
+	}
+	public void setRequests(List<Request<?>> requests) {
+		this.requests = requests;
+	}
+
+	/**
+	 * Are the {@linkplain #getRequests() requests} processed one after the other in their order?
+	 * @return <code>true</code>, if the requests are processed sequentially; <code>false</code>, if they
+	 * are processed concurrently (default).
+	 */
+	public boolean isSequential() {
+		return sequential;
+	}
+	public void setSequential(boolean sequential) {
+		this.sequential = sequential;
+	}
+
+	@Override
+	public boolean isIdempotent() {
+		for (final Request<?> request : getRequests()) {
+			if (! request.isIdempotent())
+				return false;
+		}
+		return true;
+	}
+
+	@Override
+	protected String toString_getProperties() {
+		return super.toString_getProperties() + ", sequential=" + sequential + ", requests=" + requests;
+	}
+}
@@ -0,0 +1,30 @@
+package house.intelli.core.rpc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Response to a {@link BatchRequest} containing one response per request in the same order.
+ */
+@XmlRootElement
+public class BatchResponse extends Response {
+
+	private List<Response> responses;
+
+	public List<Response> getResponses() {
+		if (responses == null)
+			responses = new ArrayList<>();
+
+		return responses;
+	}
+	public void setResponses(List<Response> responses) {
+		this.responses = responses;
+	}
+
+	@Override
+	protected String toString_getProperties() {
+		return super.toString_getProperties() + ", responses=" + responses;
+	}
+}
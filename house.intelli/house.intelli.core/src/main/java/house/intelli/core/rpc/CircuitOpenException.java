@@ -0,0 +1,25 @@
+package house.intelli.core.rpc;
+
+/**
+ * Thrown by the {@link RpcClient} without even trying to invoke, because the target host is known to be
+ * down. See {@link RetryPolicy} for details.
+ */
+@SuppressWarnings("serial")
+public class CircuitOpenException extends RpcException {
+
+	public CircuitOpenException() {
+	}
+
+	public CircuitOpenException(String message) {
+		super(message);
+	}
+
+	public CircuitOpenException(Throwable cause) {
+		super(cause);
+	}
+
+	public CircuitOpenException(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+}
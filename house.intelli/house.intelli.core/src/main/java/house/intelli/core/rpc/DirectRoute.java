@@ -0,0 +1,108 @@
+package house.intelli.core.rpc;
+
+import static java.util.Objects.*;
+
+import java.io.IOException;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Route from one {@link RpcContextMode#CLIENT CLIENT} directly to another one (e.g. on the same LAN) --
+ * bypassing the server, which otherwise relays every request between two clients via its inverse queue.
+ * <p>
+ * If an exchange over this route fails, the route is considered unavailable for
+ * {@link RpcConst#DIRECT_ROUTE_RECHECK_PERIOD} and the {@link RpcClient} falls back to the server-relay.
+ * <p>
+ * Like the {@link RpcClient}, a route keeps a pool of idle transports for re-use.
+ * @see RpcContext#putDirectRpcClientTransportProvider(HostId, RpcClientTransportProvider)
+ * @see DirectRpcServer
+ */
+class DirectRoute implements AutoCloseable {
+	private static final Logger logger = LoggerFactory.getLogger(DirectRoute.class);
+
+	private final HostId hostId;
+	private final RpcClientTransportProvider rpcClientTransportProvider;
+	private final BlockingDeque<RpcClientTransport> idleRpcClientTransports = new LinkedBlockingDeque<>(RpcConst.MAX_IDLE_CLIENT_TRANSPORT_COUNT);
+	private volatile long unavailableUntil;
+	private volatile boolean closed;
+
+	public DirectRoute(final HostId hostId, final RpcClientTransportProvider rpcClientTransportProvider) {
+		this.hostId = requireNonNull(hostId, "hostId");
+		this.rpcClientTransportProvider = requireNonNull(rpcClientTransportProvider, "rpcClientTransportProvider");
+	}
+
+	public HostId getHostId() {
+		return hostId;
+	}
+
+	public RpcClientTransportProvider getRpcClientTransportProvider() {
+		return rpcClientTransportProvider;
+	}
+
+	/**
+	 * Indicates whether this route should be tried. It is not, after it failed -- until the
+	 * {@link RpcConst#DIRECT_ROUTE_RECHECK_PERIOD} passed.
+	 * @return <code>true</code>, if requests should be sent over this route.
+	 */
+	public boolean isAvailable() {
+		return ! closed && System.currentTimeMillis() >= unavailableUntil;
+	}
+
+	/**
+	 * Marks this route as unavailable, because an exchange failed.
+	 * @param x the failure. Must not be <code>null</code>.
+	 */
+	public void markUnavailable(final Throwable x) {
+		requireNonNull(x, "x");
+		unavailableUntil = System.currentTimeMillis() + RpcConst.DIRECT_ROUTE_RECHECK_PERIOD;
+		logger.warn("markUnavailable: Direct route to {} failed! Relaying via server for the next {} ms. {}",
+				hostId, RpcConst.DIRECT_ROUTE_RECHECK_PERIOD, x.toString());
+		closeIdleRpcClientTransports(); // their connections are most likely broken, too
+	}
+
+	/**
+	 * Sends the given request directly to the {@linkplain #getHostId() host} and receives its response.
+	 * @param request the request. Must not be <code>null</code>.
+	 * @return the response. Never <code>null</code>.
+	 * @throws IOException if the exchange failed.
+	 */
+	public Response exchange(final Request<?> request) throws IOException {
+		requireNonNull(request, "request");
+		if (! hostId.equals(request.getServerHostId()))
+			throw new IllegalArgumentException("request.serverHostId != this.hostId");
+
+		RpcClientTransport rpcClientTransport = idleRpcClientTransports.pollFirst();
+		if (rpcClientTransport == null)
+			rpcClientTransport = rpcClientTransportProvider.createRpcClientTransport();
+
+		boolean successful = false;
+		try {
+			rpcClientTransport.sendRequest(request);
+			final Response response = rpcClientTransport.receiveResponse();
+			successful = true;
+			return response;
+		} finally {
+			if (successful && ! closed && idleRpcClientTransports.offerFirst(rpcClientTransport)) {
+				if (closed) // closed concurrently => close() might have missed our transport.
+					closeIdleRpcClientTransports();
+			}
+			else
+				rpcClientTransport.close();
+		}
+	}
+
+	private void closeIdleRpcClientTransports() {
+		RpcClientTransport rpcClientTransport;
+		while ((rpcClientTransport = idleRpcClientTransports.pollFirst()) != null)
+			rpcClientTransport.close();
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+		closeIdleRpcClientTransports();
+	}
+}
@@ -0,0 +1,276 @@
+package house.intelli.core.rpc;
+
+import static java.util.Objects.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import house.intelli.core.rpc.codec.RpcCompressionUtil;
+import house.intelli.core.rpc.codec.RpcMessageCodecUtil;
+
+/**
+ * HTTP-server of a {@link RpcContextMode#CLIENT CLIENT} (e.g. a Raspberry Pi) receiving requests sent directly by
+ * other clients -- instead of relayed by the server.
+ * <p>
+ * It serves the same path as the {@code RpcServlet}. Hence, the other clients configure their
+ * {@linkplain RpcContext#putDirectRpcClientTransportProvider(HostId, RpcClientTransportProvider) direct route}
+ * to this client just like their connection to the server -- only with a different URL.
+ * <p>
+ * Only requests addressed to this client are accepted. They are processed
+ * {@linkplain RpcServer#receiveAndProcessRequestAsync(RpcServerTransport, java.util.concurrent.Executor) asynchronously}
+ * by the {@link RpcContext}'s workers. Therefore, a few threads suffice.
+ * <p>
+ * Requests received from the LAN must be authenticated -- otherwise everybody could e.g. switch the actors.
+ * Hence, an {@linkplain RpcServerTransportProvider#isAuthenticating() authenticating} PGP-{@link RpcServerTransportProvider}
+ * must be configured -- the same PGP-identity and -sessions are used as for the communication with the server.
+ * Plain HTTP is only allowed, if this server is bound to the loopback-interface.
+ * <p>
+ * It may serve a {@link RpcContextMode#SERVER SERVER}, too -- just like the {@code RpcServlet}, but without
+ * servlet-container. This is used to simulate the openHAB-server over loopback-HTTP in load-tests.
+ */
+public class DirectRpcServer implements AutoCloseable {
+	private static final Logger logger = LoggerFactory.getLogger(DirectRpcServer.class);
+
+	/**
+	 * The path of the requests -- the same as the one of the {@code RpcServlet}.
+	 */
+	public static final String CONTEXT_PATH = "/intellihouse/RPC";
+
+	private final RpcContext rpcContext;
+
+	private String bindAddress;
+
+	private int port = RpcConst.DEFAULT_DIRECT_RPC_SERVER_PORT;
+
+	private int threadCount = RpcConst.DEFAULT_DIRECT_RPC_SERVER_THREAD_COUNT;
+
+	private RpcServerTransportProvider rpcServerTransportProvider;
+
+	private HttpServer httpServer;
+
+	private ExecutorService executorService;
+
+	public DirectRpcServer(final RpcContext rpcContext) {
+		this.rpcContext = requireNonNull(rpcContext, "rpcContext");
+	}
+
+	public RpcContext getRpcContext() {
+		return rpcContext;
+	}
+
+	/**
+	 * Gets the local address to listen on.
+	 * @return the local address or <code>null</code> to listen on all interfaces (the default).
+	 */
+	public synchronized String getBindAddress() {
+		return bindAddress;
+	}
+	public synchronized void setBindAddress(String bindAddress) {
+		assertNotStarted();
+		this.bindAddress = bindAddress;
+	}
+
+	/**
+	 * Gets the TCP-port to listen on.
+	 * @return the TCP-port. 0 means any free port. Default is {@link RpcConst#DEFAULT_DIRECT_RPC_SERVER_PORT}.
+	 */
+	public synchronized int getPort() {
+		return port;
+	}
+	public synchronized void setPort(int port) {
+		if (port < 0)
+			throw new IllegalArgumentException("port < 0");
+
+		assertNotStarted();
+		this.port = port;
+	}
+
+	/**
+	 * Gets the TCP-port actually listened on -- e.g. if {@link #getPort() port} is 0.
+	 * @return the TCP-port actually listened on or -1, if this server is not started.
+	 */
+	public synchronized int getLocalPort() {
+		return httpServer == null ? -1 : httpServer.getAddress().getPort();
+	}
+
+	/**
+	 * Gets the number of threads reading requests and sending responses.
+	 * @return the number of threads. Always &gt; 0. Default is {@link RpcConst#DEFAULT_DIRECT_RPC_SERVER_THREAD_COUNT}.
+	 */
+	public synchronized int getThreadCount() {
+		return threadCount;
+	}
+	public synchronized void setThreadCount(int threadCount) {
+		if (threadCount < 1)
+			throw new IllegalArgumentException("threadCount < 1");
+
+		assertNotStarted();
+		this.threadCount = threadCount;
+	}
+
+	/**
+	 * Gets the provider of the transports. It must create {@link ServletRpcServerTransport}s.
+	 * <p>
+	 * Unless the {@link #getBindAddress() bindAddress} is a loopback-address, it must be
+	 * {@linkplain RpcServerTransportProvider#isAuthenticating() authenticating}.
+	 * @return the provider. <code>null</code> means {@link HttpRpcServerTransportProvider} (the default), which is
+	 * only allowed on the loopback-interface.
+	 */
+	public synchronized RpcServerTransportProvider getRpcServerTransportProvider() {
+		return rpcServerTransportProvider;
+	}
+	public synchronized void setRpcServerTransportProvider(RpcServerTransportProvider rpcServerTransportProvider) {
+		assertNotStarted();
+		if (rpcServerTransportProvider != null)
+			rpcServerTransportProvider.setRpcContext(rpcContext);
+
+		this.rpcServerTransportProvider = rpcServerTransportProvider;
+	}
+
+	/**
+	 * Starts listening.
+	 * @throws IOException if the port could not be bound.
+	 * @throws IllegalStateException if the {@link #getRpcServerTransportProvider() rpcServerTransportProvider} is not
+	 * authenticating, but this server is not bound to the loopback-interface.
+	 */
+	public synchronized void init() throws IOException {
+		assertNotStarted();
+		final InetSocketAddress socketAddress = bindAddress == null ? new InetSocketAddress(port) : new InetSocketAddress(bindAddress, port);
+		final boolean loopback = socketAddress.getAddress() != null && socketAddress.getAddress().isLoopbackAddress();
+		if (rpcServerTransportProvider == null && loopback)
+			setRpcServerTransportProvider(new HttpRpcServerTransportProvider());
+
+		if (rpcServerTransportProvider == null || (! rpcServerTransportProvider.isAuthenticating() && ! loopback))
+			throw new IllegalStateException(String.format(
+					"DirectRpcServer[%s] would accept unauthenticated requests on %s! Configure an authenticating rpcServerTransportProvider (e.g. PgpHttpRpcServerTransportProvider) or bind to the loopback-interface.",
+					rpcContext.getLocalHostId(), socketAddress));
+
+		final String name = String.format("DirectRpcServer[%s]", rpcContext.getLocalHostId());
+		final AtomicInteger threadCounter = new AtomicInteger();
+		executorService = Executors.newFixedThreadPool(threadCount, runnable -> {
+			final Thread thread = new Thread(runnable, name + '-' + threadCounter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		httpServer = HttpServer.create(socketAddress, 0);
+		httpServer.setExecutor(executorService);
+		httpServer.createContext(CONTEXT_PATH, this::handle);
+		httpServer.start();
+		logger.info("init: Listening on {} for direct requests.", httpServer.getAddress());
+	}
+
+	protected void handle(final HttpExchange exchange) {
+		final RpcServer rpcServer;
+		final RpcServerTransport rpcServerTransport;
+		try {
+			if (! "POST".equals(exchange.getRequestMethod())) {
+				exchange.sendResponseHeaders(405, -1);
+				exchange.close();
+				return;
+			}
+			final byte[] requestBody = readRequestBody(exchange);
+			if (requestBody == null) {
+				logger.warn("handle: Rejecting request from {}: Body exceeds {} bytes.", exchange.getRemoteAddress(), RpcConst.DIRECT_RPC_SERVER_MAX_REQUEST_SIZE);
+				exchange.sendResponseHeaders(413, -1);
+				exchange.close();
+				return;
+			}
+			// Like the RpcServlet: The header must be set before the response-body is written.
+			exchange.getResponseHeaders().set(RpcMessageCodecUtil.HTTP_HEADER_CODECS, RpcMessageCodecUtil.getCodecOffer());
+			exchange.getResponseHeaders().set(RpcCompressionUtil.HTTP_HEADER_COMPRESSIONS, RpcCompressionUtil.getCompressionOffer());
+			exchange.sendResponseHeaders(200, 0); // chunked
+
+			rpcServerTransport = createRpcServerTransport();
+			if (rpcServerTransport instanceof ServletRpcServerTransport) {
+				final ServletRpcServerTransport transport = (ServletRpcServerTransport) rpcServerTransport;
+				transport.setInputStream(new ByteArrayInputStream(requestBody));
+				transport.setOutputStream(exchange.getResponseBody());
+				transport.setResponseCodec(RpcMessageCodecUtil.negotiateCodec(
+						exchange.getRequestHeaders().getFirst(RpcMessageCodecUtil.HTTP_HEADER_CODECS)));
+				transport.setResponseCompression(RpcCompressionUtil.negotiateCompression(
+						exchange.getRequestHeaders().getFirst(RpcCompressionUtil.HTTP_HEADER_COMPRESSIONS)));
+			}
+			rpcServer = rpcContext.createRpcServer();
+		} catch (Exception x) {
+			logger.error("handle: " + x + ' ', x);
+			exchange.close();
+			return;
+		}
+		// Not waiting for the response: It is sent by one of our few threads, when it is available.
+		rpcServer.receiveAndProcessRequestAsync(rpcServerTransport, executorService).whenComplete((response, x) -> {
+			if (x != null)
+				logger.warn("handle: " + x + ' ', x);
+
+			rpcServerTransport.close();
+			rpcServer.close();
+			exchange.close();
+		});
+	}
+
+	/**
+	 * Reads the request-body -- but not more than {@link RpcConst#DIRECT_RPC_SERVER_MAX_REQUEST_SIZE}.
+	 * @return the request-body or <code>null</code>, if it is too large.
+	 */
+	private static byte[] readRequestBody(final HttpExchange exchange) throws IOException {
+		final String contentLength = exchange.getRequestHeaders().getFirst("Content-Length");
+		if (contentLength != null) {
+			try {
+				if (Long.parseLong(contentLength.trim()) > RpcConst.DIRECT_RPC_SERVER_MAX_REQUEST_SIZE)
+					return null;
+			} catch (NumberFormatException x) {
+				return null;
+			}
+		}
+		final ByteArrayOutputStream requestBody = new ByteArrayOutputStream();
+		final byte[] buf = new byte[8 * 1024];
+		try (InputStream in = exchange.getRequestBody()) {
+			int bytesRead;
+			while ((bytesRead = in.read(buf)) >= 0) {
+				if (requestBody.size() + bytesRead > RpcConst.DIRECT_RPC_SERVER_MAX_REQUEST_SIZE)
+					return null;
+
+				requestBody.write(buf, 0, bytesRead);
+			}
+		}
+		return requestBody.toByteArray();
+	}
+
+	protected RpcServerTransport createRpcServerTransport() {
+		final RpcServerTransportProvider rpcServerTransportProvider = requireNonNull(getRpcServerTransportProvider(), "rpcServerTransportProvider");
+		return rpcServerTransportProvider.createRpcServerTransport();
+	}
+
+	private void assertNotStarted() {
+		if (httpServer != null)
+			throw new IllegalStateException("This DirectRpcServer is already started!");
+	}
+
+	@Override
+	public void close() {
+		final HttpServer httpServer;
+		final ExecutorService executorService;
+		synchronized (this) {
+			httpServer = this.httpServer;
+			executorService = this.executorService;
+			this.httpServer = null;
+			this.executorService = null;
+		}
+		if (httpServer != null)
+			httpServer.stop(0);
+
+		if (executorService != null)
+			executorService.shutdownNow();
+	}
+}
@@ -0,0 +1,136 @@
+package house.intelli.core.rpc;
+
+import static java.util.Objects.*;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Retry-budget and circuit-breaker of one host, shared by all {@link RpcClient}s of an {@link RpcContext}.
+ * See {@link RetryPolicy} for details.
+ */
+class HostRetryState {
+
+	private static final Logger logger = LoggerFactory.getLogger(HostRetryState.class);
+
+	public static enum CircuitState {
+		/**
+		 * Invocations pass normally.
+		 */
+		CLOSED,
+		/**
+		 * Invocations fail fast, until {@link HostRetryState#openUntil} is reached.
+		 */
+		OPEN,
+		/**
+		 * One probe invocation was let through; all others fail fast until its outcome is known.
+		 */
+		HALF_OPEN
+	}
+
+	private final HostId hostId;
+	private final RetryPolicy retryPolicy;
+
+	private double retryTokens;
+	private int consecutiveFailureCount;
+	private int openCount;
+	private CircuitState circuitState = CircuitState.CLOSED;
+	private long openUntil;
+	private long probeStarted;
+
+	public HostRetryState(final HostId hostId, final RetryPolicy retryPolicy) {
+		this.hostId = requireNonNull(hostId, "hostId");
+		this.retryPolicy = requireNonNull(retryPolicy, "retryPolicy");
+		this.retryTokens = retryPolicy.getRetryBudgetCapacity();
+	}
+
+	public synchronized CircuitState getCircuitState() {
+		return circuitState;
+	}
+
+	/**
+	 * Must be invoked before every attempt of an invocation -- the first one as well as every retry.
+	 * @param retry whether this attempt is a retry.
+	 * @throws CircuitOpenException if the circuit is open and the attempt must not be made.
+	 */
+	public synchronized void beforeAttempt(final boolean retry) throws CircuitOpenException {
+		switch (circuitState) {
+			case CLOSED:
+				break;
+			case OPEN:
+				if (System.currentTimeMillis() < openUntil)
+					throw new CircuitOpenException(String.format("Circuit open for host %s! Failing fast for another %d ms.",
+							hostId, openUntil - System.currentTimeMillis()));
+
+				logger.info("beforeAttempt: Circuit half-open for host {}. Letting a probe through.", hostId);
+				circuitState = CircuitState.HALF_OPEN;
+				probeStarted = System.currentTimeMillis();
+				break;
+			case HALF_OPEN:
+				// Safety net: The outcome of a probe should be known long before.
+				if (System.currentTimeMillis() - probeStarted < retryPolicy.getCircuitBreakerMaxOpenDuration())
+					throw new CircuitOpenException(String.format("Circuit half-open for host %s! Waiting for probe.", hostId));
+
+				logger.warn("beforeAttempt: Probe for host {} did not complete in time. Letting another probe through.", hostId);
+				probeStarted = System.currentTimeMillis();
+				break;
+			default:
+				throw new IllegalStateException("Unknown circuitState: " + circuitState);
+		}
+		if (! retry)
+			retryTokens = Math.min(retryPolicy.getRetryBudgetCapacity(), retryTokens + retryPolicy.getRetryBudgetRatio());
+	}
+
+	/**
+	 * Withdraws one token from the retry-budget, if possible.
+	 * @return <code>true</code>, if a retry may be made; <code>false</code>, if the budget is exhausted.
+	 */
+	public synchronized boolean tryAcquireRetry() {
+		if (retryTokens < 1)
+			return false;
+
+		retryTokens -= 1;
+		return true;
+	}
+
+	/**
+	 * Must be invoked after every attempt which reached the host -- even if the remote service failed.
+	 */
+	public synchronized void onSuccess() {
+		if (CircuitState.CLOSED != circuitState)
+			logger.info("onSuccess: Circuit closed for host {}.", hostId);
+
+		circuitState = CircuitState.CLOSED;
+		consecutiveFailureCount = 0;
+		openCount = 0;
+	}
+
+	/**
+	 * Should be invoked as soon as a request was sent to the host, before waiting for its response. Closes
+	 * a half-open circuit, because the host is obviously up again.
+	 */
+	public synchronized void onHostReached() {
+		if (CircuitState.HALF_OPEN == circuitState)
+			onSuccess();
+	}
+
+	/**
+	 * Must be invoked after every attempt which failed, because the host was not reachable.
+	 * @param failureType the type of the failure. Must not be <code>null</code>.
+	 */
+	public synchronized void onFailure(final RetryPolicy.FailureType failureType) {
+		requireNonNull(failureType, "failureType");
+		if (! failureType.isHostDownIndication())
+			return;
+
+		++consecutiveFailureCount;
+		if (CircuitState.HALF_OPEN == circuitState
+				|| (CircuitState.CLOSED == circuitState && consecutiveFailureCount >= retryPolicy.getCircuitBreakerFailureThreshold())) {
+			final long openDuration = retryPolicy.getCircuitOpenDuration(++openCount);
+			logger.warn("onFailure: Circuit opened for host {} after {} consecutive failures. Failing fast for {} ms.",
+					hostId, consecutiveFailureCount, openDuration);
+			circuitState = CircuitState.OPEN;
+			openUntil = System.currentTimeMillis() + openDuration;
+		}
+	}
+}
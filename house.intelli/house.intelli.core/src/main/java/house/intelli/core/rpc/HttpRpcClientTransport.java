@@ -3,21 +3,60 @@ package house.intelli.core.rpc;
 import static house.intelli.core.rpc.RpcConst.*;
 import static java.util.Objects.*;
 
+import java.io.ByteArrayOutputStream;
 import java.io.FilterInputStream;
-import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import house.intelli.core.rpc.codec.RpcCompression;
+import house.intelli.core.rpc.codec.RpcCompressionUtil;
+import house.intelli.core.rpc.codec.RpcMessageCodec;
+import house.intelli.core.rpc.codec.RpcMessageCodecUtil;
+
+/**
+ * {@link RpcClientTransport} sending each message via HTTP-POST.
+ * <p>
+ * The underlying sockets are re-used across messages: After a response was read completely, the
+ * {@link HttpURLConnection} is <i>not</i> {@linkplain HttpURLConnection#disconnect() disconnected}, but
+ * only released. The JRE then keeps the socket in its per-endpoint keep-alive-cache, which evicts
+ * idle sockets after the server's keep-alive-timeout (or 5 seconds, if the server does not specify one)
+ * and transparently opens a new socket, if a cached one turns out to be stale. Only if an exchange
+ * fails or is left incomplete, its connection is disconnected, so that a broken socket is never re-used.
+ * <p>
+ * The maximum number of idle sockets kept per endpoint can be controlled by the JRE's system property
+ * {@code http.maxConnections} (default 5).
+ * <p>
+ * The {@link RpcMessageCodec} is negotiated via the HTTP-header {@link RpcMessageCodecUtil#HTTP_HEADER_CODECS}:
+ * The first request to a server is encoded as XML. The codec selected from the server's response-header
+ * is then remembered per server-URL and used for all following requests. The {@link RpcCompression} is
+ * negotiated the same way via {@link RpcCompressionUtil#HTTP_HEADER_COMPRESSIONS} -- it is applied by
+ * subclasses encrypting the messages, though.
+ * <p>
+ * A request up to {@link RpcConst#HTTP_STREAMING_THRESHOLD} bytes is passed to the {@link HttpURLConnection}
+ * as a whole, which then re-sends it transparently, if a cached socket turns out to be stale. A larger
+ * request (e.g. a backlog of PV-values) is streamed to the socket in chunks of {@link RpcConst#HTTP_CHUNK_SIZE}
+ * bytes -- otherwise, the {@code HttpURLConnection} would buffer it completely.
+ */
 public class HttpRpcClientTransport extends JaxbRpcClientTransport {
+	private static final int DRAIN_BUFFER_SIZE = 4 * 1024;
+
+	private static final ConcurrentMap<String, RpcMessageCodec> serverUrl2RequestCodec = new ConcurrentHashMap<>();
+
+	private static final ConcurrentMap<String, RpcCompression> serverUrl2RequestCompression = new ConcurrentHashMap<>();
+
 	private URL serverUrl;
 
 	private HttpURLConnection connection;
 
 	private boolean requestSent;
 
+	private boolean chunkedStreaming;
+
 	public URL getServerUrl() {
 		return serverUrl;
 	}
@@ -27,18 +66,87 @@ public class HttpRpcClientTransport extends JaxbRpcClientTransport {
 
 	@Override
 	protected OutputStream createRequestOutputStream() throws IOException {
-		closeConnection();
-		final OutputStream out = getConnection().getOutputStream();
-		return new FilterOutputStream(out) {
-			@Override
-			public void close() throws IOException {
-				try {
-					super.close();
-				} finally {
-					requestSent = true;
-				}
+		// If there is still a connection, the previous exchange was not completed => its state is unknown.
+		disconnect();
+		return new RequestOutputStream();
+	}
+
+	/**
+	 * Buffers the request, until it exceeds the {@link RpcConst#HTTP_STREAMING_THRESHOLD}. Only then, the
+	 * connection is opened in chunked streaming-mode. A smaller request is written, when closing.
+	 */
+	private final class RequestOutputStream extends OutputStream {
+		private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		private OutputStream out;
+		private boolean closed;
+
+		@Override
+		public void write(final int b) throws IOException {
+			assertNotClosed();
+			if (out == null && buffer.size() < HTTP_STREAMING_THRESHOLD)
+				buffer.write(b);
+			else
+				getOut().write(b);
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) throws IOException {
+			assertNotClosed();
+			if (out == null && buffer.size() + len <= HTTP_STREAMING_THRESHOLD)
+				buffer.write(b, off, len);
+			else
+				getOut().write(b, off, len);
+		}
+
+		@Override
+		public void flush() throws IOException {
+			if (out != null)
+				out.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (closed)
+				return;
+
+			closed = true;
+			if (out == null)
+				out = openOutputStream(false);
+
+			writeBuffer();
+			out.close();
+			requestSent = true;
+		}
+
+		private OutputStream getOut() throws IOException {
+			if (out == null) {
+				out = openOutputStream(true);
+				writeBuffer();
 			}
-		};
+			return out;
+		}
+
+		private void writeBuffer() throws IOException {
+			if (buffer != null) {
+				buffer.writeTo(out);
+				buffer = null;
+			}
+		}
+
+		private void assertNotClosed() throws IOException {
+			if (closed)
+				throw new IOException("RequestOutputStream already closed!");
+		}
+	}
+
+	private OutputStream openOutputStream(final boolean chunkedStreaming) throws IOException {
+		this.chunkedStreaming = chunkedStreaming;
+		try {
+			return getConnection().getOutputStream();
+		} catch (IOException | RuntimeException x) {
+			disconnect();
+			throw x;
+		}
 	}
 
 	@Override
@@ -46,14 +154,45 @@ public class HttpRpcClientTransport extends JaxbRpcClientTransport {
 		if (! requestSent)
 			throw new IllegalStateException("request not yet sent!");
 
-		final InputStream in = getConnection().getInputStream();
+		final HttpURLConnection connection = getConnection();
+		final InputStream in;
+		try {
+			in = connection.getInputStream();
+		} catch (IOException | RuntimeException x) {
+			// An HTTP error status: Read the error-body completely, so that the socket can still be re-used.
+			releaseConnectionAfterError(connection);
+			// The server might have been updated and not understand our codec anymore => negotiate again.
+			serverUrl2RequestCodec.remove(getServerUrl().toString());
+			serverUrl2RequestCompression.remove(getServerUrl().toString());
+			throw x;
+		}
+		serverUrl2RequestCodec.put(getServerUrl().toString(),
+				RpcMessageCodecUtil.negotiateCodec(connection.getHeaderField(RpcMessageCodecUtil.HTTP_HEADER_CODECS)));
+		final RpcCompression requestCompression =
+				RpcCompressionUtil.negotiateCompression(connection.getHeaderField(RpcCompressionUtil.HTTP_HEADER_COMPRESSIONS));
+		if (requestCompression == null)
+			serverUrl2RequestCompression.remove(getServerUrl().toString());
+		else
+			serverUrl2RequestCompression.put(getServerUrl().toString(), requestCompression);
 		return new FilterInputStream(in) {
+			private boolean closed;
+
 			@Override
 			public void close() throws IOException {
+				if (closed)
+					return;
+
+				closed = true;
+				boolean complete = false;
 				try {
+					drain(in);
 					super.close();
+					complete = true;
 				} finally {
-					closeConnection();
+					if (complete)
+						releaseConnection();
+					else
+						disconnect();
 				}
 			}
 		};
@@ -68,24 +207,79 @@ public class HttpRpcClientTransport extends JaxbRpcClientTransport {
 			connection.setRequestMethod("POST");
 			connection.setRequestProperty("Content-Type", "application/octet-stream");
 			connection.setRequestProperty("Connection", "keep-alive");
+			connection.setRequestProperty(RpcMessageCodecUtil.HTTP_HEADER_CODECS, RpcMessageCodecUtil.getCodecOffer());
+			connection.setRequestProperty(RpcCompressionUtil.HTTP_HEADER_COMPRESSIONS, RpcCompressionUtil.getCompressionOffer());
 			connection.setUseCaches(false);
 			connection.setDoOutput(true);
 			connection.setAllowUserInteraction(false);
+			if (chunkedStreaming)
+				connection.setChunkedStreamingMode(HTTP_CHUNK_SIZE);
+
 			connection.connect();
 		}
 		return connection;
 	}
 
-	protected void closeConnection() {
+	@Override
+	protected RpcMessageCodec getRequestCodec() {
+		final URL serverUrl = getServerUrl();
+		final RpcMessageCodec requestCodec = serverUrl == null ? null : serverUrl2RequestCodec.get(serverUrl.toString());
+		return requestCodec != null ? requestCodec : super.getRequestCodec();
+	}
+
+	/**
+	 * Gets the compression negotiated with the server. It is not applied here, but by subclasses encrypting
+	 * the messages.
+	 * @return the negotiated compression or <code>null</code>, if nothing was negotiated, yet, or the server does
+	 * not support it (legacy format).
+	 */
+	protected RpcCompression getRequestCompression() {
+		final URL serverUrl = getServerUrl();
+		return serverUrl == null ? null : serverUrl2RequestCompression.get(serverUrl.toString());
+	}
+
+	/**
+	 * Releases the current connection after a complete exchange. The socket is kept open and put into
+	 * the JRE's keep-alive-cache.
+	 */
+	protected void releaseConnection() {
+		connection = null;
+	}
+
+	private void releaseConnectionAfterError(final HttpURLConnection connection) {
+		final InputStream errorStream = connection.getErrorStream();
+		if (errorStream == null) {
+			disconnect();
+			return;
+		}
+		try {
+			drain(errorStream);
+			errorStream.close();
+			releaseConnection();
+		} catch (IOException x) {
+			disconnect();
+		}
+	}
+
+	/**
+	 * Disconnects the current connection, thus closing the underlying socket. This is done only, if the
+	 * exchange failed or was not completed.
+	 */
+	protected void disconnect() {
 		if (connection != null) {
 			connection.disconnect();
 			connection = null;
 		}
 	}
 
+	private static void drain(final InputStream in) throws IOException {
+		final byte[] buf = new byte[DRAIN_BUFFER_SIZE];
+		while (in.read(buf) >= 0);
+	}
+
 	@Override
 	public void close() {
-		closeConnection();
+		disconnect();
 		super.close();
 	}
 }
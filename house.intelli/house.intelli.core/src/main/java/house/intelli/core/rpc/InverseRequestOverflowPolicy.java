@@ -0,0 +1,20 @@
+package house.intelli.core.rpc;
+
+/**
+ * Policy deciding what happens to an inverse request, if the queue of the client it is addressed to is full.
+ * @see RpcContext#getInverseRequestOverflowPolicy()
+ */
+public enum InverseRequestOverflowPolicy {
+	/**
+	 * The new request is rejected with a {@link RequestRejectedException}, which is sent back to its caller.
+	 * The requests already enqueued are kept.
+	 */
+	REJECT_NEW,
+
+	/**
+	 * The oldest request is dropped to make room for the new one. Its caller obtains a
+	 * {@link RequestRejectedException}. This suits requests which are superseded by newer ones -- e.g.
+	 * commands for a Pi being offline for a long time.
+	 */
+	DROP_OLDEST
+}
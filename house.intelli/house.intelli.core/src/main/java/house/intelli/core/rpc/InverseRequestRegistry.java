@@ -6,47 +6,120 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import house.intelli.core.Uid;
+import house.intelli.core.metrics.Counter;
+import house.intelli.core.metrics.MetricRegistry;
 
+/**
+ * Holds the inverse requests until the client they are addressed to polls them.
+ * <p>
+ * Every client-host has its own queue with its own monitor: Enqueuing a request wakes only the pollers of
+ * this one host, and a flood of requests for one host does not slow down the others. Within a queue, the
+ * requests are delivered in the order they were enqueued.
+ * <p>
+ * A queue holds at most {@link RpcContext#getInverseRequestQueueCapacity() inverseRequestQueueCapacity}
+ * requests -- e.g. for a Pi being offline for a long time. If it is full, the
+ * {@link RpcContext#getInverseRequestOverflowPolicy() inverseRequestOverflowPolicy} applies.
+ * <p>
+ * The requests are polled either blocking via {@link #pollRequests(HostId, long)} or without occupying a
+ * thread via {@link #pollRequestsAsync(HostId, long)}.
+ * <p>
+ * Its metrics are registered in the {@link RpcContext#getMetricRegistry() metricRegistry} with the prefix
+ * "inverseRequestRegistry.".
+ */
 public class InverseRequestRegistry {
 
 	private static final Logger logger = LoggerFactory.getLogger(InverseRequestRegistry.class);
 
-	private static final long EVICT_PERIOD = 60L * 60L * 1000L;
-
 	private final RpcContext rpcContext;
-	private final Object mutex = new Object();
-	private final Map<HostId, Map<Uid, Request<?>>> serverHostId2RequestId2Request = new HashMap<>();
-	private final Map<Uid, EvictDescriptor> requestId2EvictDescriptor = new HashMap<>();
-
-	private final Timer evictTimer;
-	private final TimerTask evictTimerTask;
-
-	private static class EvictDescriptor {
-		public final HostId serverHostId;
-		public final Uid requestId;
-		public final long created = System.currentTimeMillis();
-		public final long timeout;
-		public final long timeoutElapsed;
-
-		public EvictDescriptor(Request<?> request) {
-			requireNonNull(request, "request");
-			serverHostId = requireNonNull(request.getServerHostId(), "request.serverHostId");
-			requestId = requireNonNull(request.getRequestId(), "request.requestId");
-			if (request.getTimeout() == Request.TIMEOUT_UNDEFINED)
-				timeout = RpcConst.DEFAULT_REQUEST_TIMEOUT;
-			else
-				timeout = request.getTimeout();
-
-			timeoutElapsed = created + timeout;
+	private final ConcurrentMap<HostId, HostQueue> serverHostId2HostQueue = new ConcurrentHashMap<>();
+
+	private final TimingWheel timingWheel;
+	private final int queueCapacity;
+	private final InverseRequestOverflowPolicy overflowPolicy;
+
+	private final Counter rejectedCounter;
+	private final Counter droppedCounter;
+	private final Counter evictedCounter;
+
+	/**
+	 * Queue of one host. All its fields are guarded by its own monitor, which is also used for waiting.
+	 * <p>
+	 * Lock-order: The {@link InverseRequestRegistry#serverHostId2HostQueue} (when computing an entry) before
+	 * the {@code HostQueue}.
+	 */
+	private static final class HostQueue {
+		public final LinkedHashMap<Uid, Request<?>> requestId2Request = new LinkedHashMap<>();
+		/**
+		 * Evicts every request nobody polled in time. Each request is evicted individually close to its timeout --
+		 * there is no periodic sweep over all requests.
+		 */
+		public final Map<Uid, TimingWheel.Timeout> requestId2EvictTimeout = new HashMap<>();
+		public int waiterCount;
+		/**
+		 * Asynchronous pollers in the order they arrived. The first one obtains the next requests.
+		 */
+		public final LinkedHashMap<CompletableFuture<List<Request<?>>>, TimingWheel.Timeout> asyncWaiter2Timeout = new LinkedHashMap<>();
+
+		public boolean isIdle() {
+			return requestId2Request.isEmpty() && waiterCount == 0 && asyncWaiter2Timeout.isEmpty();
+		}
+
+		/**
+		 * Removes all requests, which were not yet polled.
+		 * @return the requests not yet expired in the order they were enqueued. Never <code>null</code>.
+		 */
+		public List<Request<?>> drain() {
+			final List<Request<?>> result = new ArrayList<>(requestId2Request.size());
+			for (final Request<?> request : requestId2Request.values()) {
+				// The caller gave up already -- handing it to the client would be a waste.
+				if (request.isExpired())
+					logger.info("pollRequests: Dropping expired request: {}", request);
+				else
+					result.add(request);
+			}
+			for (final TimingWheel.Timeout evictTimeout : requestId2EvictTimeout.values())
+				evictTimeout.cancel();
+
+			requestId2Request.clear();
+			requestId2EvictTimeout.clear();
+			return result;
+		}
+
+		/**
+		 * Hands all requests to the first asynchronous poller, if there is one.
+		 * @param putBack receives the requests, if the poller was cancelled concurrently (before the completion
+		 * was performed). Must not be <code>null</code>.
+		 * @return the completion to be performed -- outside of this queue's monitor -- or <code>null</code>.
+		 */
+		public Runnable handOverToAsyncWaiter(final Consumer<List<Request<?>>> putBack) {
+			if (asyncWaiter2Timeout.isEmpty() || requestId2Request.isEmpty())
+				return null;
+
+			final List<Request<?>> requests = drain();
+			if (requests.isEmpty())
+				return null;
+
+			final Iterator<Map.Entry<CompletableFuture<List<Request<?>>>, TimingWheel.Timeout>> iterator = asyncWaiter2Timeout.entrySet().iterator();
+			final Map.Entry<CompletableFuture<List<Request<?>>>, TimingWheel.Timeout> entry = iterator.next();
+			iterator.remove();
+			entry.getValue().cancel();
+			final CompletableFuture<List<Request<?>>> future = entry.getKey();
+			return () -> {
+				if (! future.complete(Collections.unmodifiableList(requests)))
+					putBack.accept(requests);
+			};
 		}
 	}
 
@@ -56,88 +129,341 @@ public class InverseRequestRegistry {
 
 	protected InverseRequestRegistry(RpcContext rpcContext) {
 		this.rpcContext = requireNonNull(rpcContext, "rpcContext");
-		evictTimer = new Timer(String.format("RpcServiceExecutor[%s].evictTimer", rpcContext.getLocalHostId()), true);
-		evictTimerTask = new TimerTask() {
-			@Override
-			public void run() {
-				try {
-					evict();
-				} catch (Throwable x) {
-					logger.error("evictTimerTask.run: " + x + ' ', x);
-				}
-			}
-		};
-		evictTimer.schedule(evictTimerTask, EVICT_PERIOD, EVICT_PERIOD);
+		timingWheel = rpcContext.getTimingWheel();
+		queueCapacity = rpcContext.getInverseRequestQueueCapacity();
+		overflowPolicy = rpcContext.getInverseRequestOverflowPolicy();
+
+		final MetricRegistry metricRegistry = rpcContext.getMetricRegistry();
+		rejectedCounter = metricRegistry.getCounter("inverseRequestRegistry.rejected");
+		droppedCounter = metricRegistry.getCounter("inverseRequestRegistry.dropped");
+		evictedCounter = metricRegistry.getCounter("inverseRequestRegistry.evicted");
+		metricRegistry.putGauge("inverseRequestRegistry.requests", this::getRequestCount);
+		metricRegistry.putGauge("inverseRequestRegistry.waiters", this::getWaiterCount);
+		metricRegistry.putGaugeSet("inverseRequestRegistry.hostRequests", this::getRequestCounts);
 	}
 
+	/**
+	 * Enqueues the given request for the client it is addressed to.
+	 * @param request the request. Must not be <code>null</code>.
+	 * @throws RequestRejectedException if the client's queue is full and the
+	 * {@link InverseRequestOverflowPolicy#REJECT_NEW REJECT_NEW}-policy applies.
+	 */
 	public void putRequest(final Request<?> request) {
 		requireNonNull(request, "request");
 		final HostId serverHostId = requireNonNull(request.getServerHostId(), "request.serverHostId");
 		final Uid requestId = requireNonNull(request.getRequestId(), "request.requestId");
-		synchronized (mutex) {
-			Map<Uid, Request<?>> requestId2Request = serverHostId2RequestId2Request.get(serverHostId);
-			if (requestId2Request == null) {
-				requestId2Request = new HashMap<>();
-				serverHostId2RequestId2Request.put(serverHostId, requestId2Request);
+		final Request<?>[] droppedRequest = new Request<?>[1];
+		final Runnable[] completion = new Runnable[1];
+		serverHostId2HostQueue.compute(serverHostId, (hostId, hostQueue) -> {
+			if (hostQueue == null)
+				hostQueue = new HostQueue();
+
+			synchronized (hostQueue) {
+				final Request<?> old = hostQueue.requestId2Request.get(requestId);
+				if (old != null) {
+					if (old != request)
+						throw new IllegalArgumentException("There was already another request with the same requestId! WTF?! requestId=" + requestId);
+
+					return hostQueue;
+				}
+
+				if (hostQueue.requestId2Request.size() >= queueCapacity) {
+					switch (overflowPolicy) {
+						case REJECT_NEW:
+							rejectedCounter.increment();
+							throw new RequestRejectedException(String.format(
+									"Inverse request queue for host %s is full! Rejected request: %s", serverHostId, request));
+						case DROP_OLDEST:
+							droppedRequest[0] = removeFirst(hostQueue);
+							droppedCounter.increment();
+							break;
+						default:
+							throw new IllegalStateException("Unknown overflowPolicy: " + overflowPolicy);
+					}
+				}
+
+				hostQueue.requestId2Request.put(requestId, request);
+				scheduleEviction(hostQueue, serverHostId, request);
+				completion[0] = hostQueue.handOverToAsyncWaiter(this::putRequestsBack);
+				hostQueue.notifyAll();
 			}
-			Request<?> old = requestId2Request.put(requestId, request);
-			if (old != null && old != request)
-				throw new IllegalArgumentException("There was already another request with the same requestId! WTF?! requestId=" + requestId);
+			return hostQueue;
+		});
 
-			requestId2EvictDescriptor.put(requestId, new EvictDescriptor(request));
+		if (completion[0] != null)
+			completion[0].run();
 
-			mutex.notifyAll();
-		}
+		if (droppedRequest[0] != null)
+			rejectDroppedRequest(droppedRequest[0]);
+	}
+
+	/**
+	 * Puts the given requests -- which were polled, but could not be delivered -- back to the head of their
+	 * queue, thus preserving the order. They are not subject to the queue's capacity, because they were
+	 * admitted before.
+	 * @param requests the requests to put back. Must not be <code>null</code>. They must all be addressed
+	 * to the same host and be in the order they were polled.
+	 */
+	public void putRequestsBack(final List<Request<?>> requests) {
+		requireNonNull(requests, "requests");
+		if (requests.isEmpty())
+			return;
+
+		final HostId serverHostId = requireNonNull(requests.get(0).getServerHostId(), "requests[0].serverHostId");
+		final Runnable[] completion = new Runnable[1];
+		serverHostId2HostQueue.compute(serverHostId, (hostId, hostQueue) -> {
+			if (hostQueue == null)
+				hostQueue = new HostQueue();
+
+			synchronized (hostQueue) {
+				final LinkedHashMap<Uid, Request<?>> requestId2Request = new LinkedHashMap<>();
+				for (final Request<?> request : requests) {
+					if (! serverHostId.equals(request.getServerHostId()))
+						throw new IllegalArgumentException("requests are addressed to different hosts!");
+
+					if (requestId2Request.put(request.getRequestId(), request) == null
+							&& ! hostQueue.requestId2Request.containsKey(request.getRequestId()))
+						scheduleEviction(hostQueue, serverHostId, request);
+				}
+				requestId2Request.putAll(hostQueue.requestId2Request);
+				hostQueue.requestId2Request.clear();
+				hostQueue.requestId2Request.putAll(requestId2Request);
+				completion[0] = hostQueue.handOverToAsyncWaiter(this::putRequestsBack);
+				hostQueue.notifyAll();
+			}
+			return hostQueue;
+		});
+
+		if (completion[0] != null)
+			completion[0].run();
 	}
 
+	/**
+	 * Polls all requests enqueued for the given host -- waiting for at least one, if there is none.
+	 * @param serverHostId the host whose requests to poll. Must not be <code>null</code>.
+	 * @param timeout the maximum time in milliseconds to wait for a request.
+	 * @return the requests in the order they were enqueued. Never <code>null</code>, but maybe empty.
+	 */
 	public List<Request<?>> pollRequests(final HostId serverHostId, final long timeout) {
 		requireNonNull(serverHostId, "serverHostId");
 		if (timeout < 0)
 			throw new IllegalArgumentException("timeout < 0");
 
 		final long startTimestamp = System.currentTimeMillis();
-		synchronized (mutex) {
-			while (true) {
-				Map<Uid, Request<?>> requestId2Request = serverHostId2RequestId2Request.remove(serverHostId);
-				if (requestId2Request != null && ! requestId2Request.isEmpty()) {
-					List<Request<?>> result = new ArrayList<>(requestId2Request.values());
-					requestId2Request.keySet().forEach(requestId -> requestId2EvictDescriptor.remove(requestId));
-					return Collections.unmodifiableList(result);
-				}
+		final HostQueue hostQueue = serverHostId2HostQueue.compute(serverHostId, (hostId, q) -> {
+			if (q == null)
+				q = new HostQueue();
 
-				final long elapsedTime = System.currentTimeMillis() - startTimestamp;
-				if (elapsedTime > timeout)
-					return Collections.emptyList();
+			synchronized (q) {
+				++q.waiterCount;
+			}
+			return q;
+		});
+		try {
+			synchronized (hostQueue) {
+				while (true) {
+					if (! hostQueue.requestId2Request.isEmpty()) {
+						final List<Request<?>> result = hostQueue.drain();
+						if (! result.isEmpty())
+							return Collections.unmodifiableList(result);
+					}
 
-				long remainingTime = timeout - elapsedTime;
-				if (remainingTime > 0) {
-					try {
-						mutex.wait(remainingTime);
-					} catch (InterruptedException e) {
-						logger.info("pollRequests: " + e, e);
+					final long elapsedTime = System.currentTimeMillis() - startTimestamp;
+					if (elapsedTime > timeout)
 						return Collections.emptyList();
+
+					long remainingTime = timeout - elapsedTime;
+					if (remainingTime > 0) {
+						try {
+							hostQueue.wait(remainingTime);
+						} catch (InterruptedException e) {
+							logger.info("pollRequests: " + e, e);
+							return Collections.emptyList();
+						}
 					}
 				}
 			}
+		} finally {
+			synchronized (hostQueue) {
+				--hostQueue.waiterCount;
+			}
+			removeHostQueueIfIdle(serverHostId);
 		}
 	}
 
-	protected void evict() {
-		final long now = System.currentTimeMillis();
-		synchronized (mutex) {
-			for (Iterator<EvictDescriptor> it = requestId2EvictDescriptor.values().iterator(); it.hasNext(); ) {
-				EvictDescriptor evictDescriptor = it.next();
-				if (evictDescriptor.timeoutElapsed < now) {
-					Map<Uid, Request<?>> requestId2Request = serverHostId2RequestId2Request.get(evictDescriptor.serverHostId);
-					if (requestId2Request != null) {
-						requestId2Request.remove(evictDescriptor.requestId);
+	/**
+	 * Polls all requests enqueued for the given host like {@link #pollRequests(HostId, long)} -- but instead
+	 * of blocking the current thread, the returned future is completed as soon as a request is enqueued.
+	 * <p>
+	 * The future is completed by the thread enqueuing the request or -- with an empty list after the
+	 * timeout -- by the {@link TimingWheel}'s thread. Thus, dependent actions should be quick or run
+	 * asynchronously.
+	 * @param serverHostId the host whose requests to poll. Must not be <code>null</code>.
+	 * @param timeout the maximum time in milliseconds to wait for a request.
+	 * @return the future completed with the requests in the order they were enqueued. Never <code>null</code>.
+	 * It is never completed exceptionally, but may be cancelled by the caller.
+	 */
+	public CompletableFuture<List<Request<?>>> pollRequestsAsync(final HostId serverHostId, final long timeout) {
+		requireNonNull(serverHostId, "serverHostId");
+		if (timeout < 0)
+			throw new IllegalArgumentException("timeout < 0");
 
-						if (requestId2Request.isEmpty())
-							serverHostId2RequestId2Request.remove(evictDescriptor.serverHostId);
-					}
-					it.remove();
+		final CompletableFuture<List<Request<?>>> future = new CompletableFuture<>();
+		final List<Request<?>> requests = new ArrayList<>();
+		serverHostId2HostQueue.compute(serverHostId, (hostId, hostQueue) -> {
+			if (hostQueue == null)
+				hostQueue = new HostQueue();
+
+			synchronized (hostQueue) {
+				if (! hostQueue.requestId2Request.isEmpty())
+					requests.addAll(hostQueue.drain());
+
+				if (requests.isEmpty() && timeout > 0) {
+					hostQueue.asyncWaiter2Timeout.put(future, timingWheel.schedule(
+							() -> removeAsyncWaiter(serverHostId, future), System.currentTimeMillis() + timeout));
 				}
 			}
+			return hostQueue;
+		});
+
+		if (! requests.isEmpty())
+			future.complete(Collections.unmodifiableList(requests));
+		else if (timeout == 0) {
+			removeHostQueueIfIdle(serverHostId);
+			future.complete(Collections.emptyList());
+		}
+		else // a cancelled future must not obtain requests anymore
+			future.whenComplete((result, x) -> removeAsyncWaiter(serverHostId, future));
+
+		return future;
+	}
+
+	private void removeAsyncWaiter(final HostId serverHostId, final CompletableFuture<List<Request<?>>> future) {
+		final HostQueue hostQueue = serverHostId2HostQueue.get(serverHostId);
+		if (hostQueue != null) {
+			final TimingWheel.Timeout timeout;
+			synchronized (hostQueue) {
+				timeout = hostQueue.asyncWaiter2Timeout.remove(future);
+			}
+			if (timeout != null)
+				timeout.cancel();
+
+			removeHostQueueIfIdle(serverHostId);
+		}
+		future.complete(Collections.emptyList()); // no effect, if completed already
+	}
+
+	private void scheduleEviction(final HostQueue hostQueue, final HostId serverHostId, final Request<?> request) {
+		final Uid requestId = request.getRequestId();
+		final long timeout = request.getTimeout() == Request.TIMEOUT_UNDEFINED ? RpcConst.DEFAULT_REQUEST_TIMEOUT : request.getTimeout();
+		hostQueue.requestId2EvictTimeout.put(requestId, timingWheel.schedule(
+				() -> evict(serverHostId, requestId), System.currentTimeMillis() + timeout));
+	}
+
+	private static Request<?> removeFirst(final HostQueue hostQueue) {
+		final Iterator<Request<?>> iterator = hostQueue.requestId2Request.values().iterator();
+		final Request<?> request = iterator.next();
+		iterator.remove();
+		final TimingWheel.Timeout evictTimeout = hostQueue.requestId2EvictTimeout.remove(request.getRequestId());
+		if (evictTimeout != null)
+			evictTimeout.cancel();
+
+		return request;
+	}
+
+	/**
+	 * Answers a request dropped to make room for a newer one, thus its caller does not wait in vain.
+	 */
+	private void rejectDroppedRequest(final Request<?> request) {
+		logger.warn("putRequest: Inverse request queue for host {} is full! Dropping oldest request: {}", request.getServerHostId(), request);
+		final ErrorResponse errorResponse = new ErrorResponse(RemoteExceptionUtil.createError(new RequestRejectedException(
+				"Inverse request queue for host " + request.getServerHostId() + " overflowed! Dropped request: " + request)));
+		errorResponse.copyRequestCoordinates(request);
+		try {
+			rpcContext.getRpcServiceExecutor().putResponse(errorResponse);
+		} catch (RuntimeException x) {
+			logger.warn("rejectDroppedRequest: " + x + ' ', x);
+		}
+	}
+
+	private void evict(final HostId serverHostId, final Uid requestId) {
+		final HostQueue hostQueue = serverHostId2HostQueue.get(serverHostId);
+		if (hostQueue == null)
+			return;
+
+		synchronized (hostQueue) {
+			hostQueue.requestId2EvictTimeout.remove(requestId);
+			if (hostQueue.requestId2Request.remove(requestId) != null)
+				evictedCounter.increment();
+		}
+		removeHostQueueIfIdle(serverHostId);
+	}
+
+	private void removeHostQueueIfIdle(final HostId serverHostId) {
+		serverHostId2HostQueue.computeIfPresent(serverHostId, (hostId, hostQueue) -> {
+			synchronized (hostQueue) {
+				return hostQueue.isIdle() ? null : hostQueue;
+			}
+		});
+	}
+
+	/**
+	 * Gets the number of inverse requests currently waiting to be polled.
+	 * @return the number of inverse requests currently waiting to be polled. Always &gt;= 0.
+	 */
+	public int getRequestCount() {
+		int result = 0;
+		for (final HostQueue hostQueue : serverHostId2HostQueue.values()) {
+			synchronized (hostQueue) {
+				result += hostQueue.requestId2Request.size();
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the number of pollers currently waiting for inverse requests -- blocking as well as asynchronous ones.
+	 * @return the number of pollers currently waiting. Always &gt;= 0.
+	 */
+	public int getWaiterCount() {
+		int result = 0;
+		for (final HostQueue hostQueue : serverHostId2HostQueue.values()) {
+			synchronized (hostQueue) {
+				result += hostQueue.waiterCount + hostQueue.asyncWaiter2Timeout.size();
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the number of inverse requests currently waiting to be polled by the given host.
+	 * @param serverHostId the host. Must not be <code>null</code>.
+	 * @return the number of inverse requests currently waiting to be polled by the given host. Always &gt;= 0.
+	 */
+	public int getRequestCount(final HostId serverHostId) {
+		requireNonNull(serverHostId, "serverHostId");
+		final HostQueue hostQueue = serverHostId2HostQueue.get(serverHostId);
+		if (hostQueue == null)
+			return 0;
+
+		synchronized (hostQueue) {
+			return hostQueue.requestId2Request.size();
+		}
+	}
+
+	/**
+	 * Gets the number of inverse requests currently waiting to be polled -- per host.
+	 * @return the number of inverse requests keyed by the {@link HostId} of the host which is to poll
+	 * them. Never <code>null</code>. Hosts without queue are missing.
+	 */
+	public Map<String, Long> getRequestCounts() {
+		final Map<String, Long> result = new HashMap<>();
+		for (final Map.Entry<HostId, HostQueue> me : serverHostId2HostQueue.entrySet()) {
+			final HostQueue hostQueue = me.getValue();
+			synchronized (hostQueue) {
+				result.put(me.getKey().toString(), (long) hostQueue.requestId2Request.size());
+			}
 		}
+		return result;
 	}
 }
@@ -0,0 +1,157 @@
+package house.intelli.core.rpc;
+
+import static java.util.Objects.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.ListIterator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Thread delivering the responses of inverse requests to the server in {@link RpcContextMode#CLIENT CLIENT}-mode.
+ * <p>
+ * While a {@link PutInverseResponseRequest} is in flight, the responses completing in the meantime are
+ * queued and then coalesced into the next request. Thus, responses are delivered immediately, if there
+ * are few, and a burst of responses (e.g. when the server reads the state of all channels during start-up)
+ * causes only few requests.
+ * <p>
+ * If a delivery fails, its responses are retried with increasing delay until their requests time out.
+ */
+class InverseResponseSender extends Thread {
+
+	private static final long SLEEP_ON_ERROR_MIN = 250L;
+	private static final long SLEEP_ON_ERROR_MAX = 10000L;
+
+	/**
+	 * Maximum number of responses coalesced into one {@link PutInverseResponseRequest}.
+	 */
+	private static final int MAX_BATCH_SIZE = 100;
+
+	private static final Logger logger = LoggerFactory.getLogger(InverseResponseSender.class);
+
+	private final RpcContext rpcContext;
+
+	/**
+	 * The responses waiting for delivery. Guarded by itself.
+	 */
+	private final Deque<PendingInverseResponse> pendingInverseResponses = new ArrayDeque<>();
+
+	private volatile boolean interrupted;
+
+	private static final class PendingInverseResponse {
+		public final Response inverseResponse;
+		public final long timeoutTimestamp;
+
+		public PendingInverseResponse(final Response inverseResponse, final long timeoutTimestamp) {
+			this.inverseResponse = inverseResponse;
+			this.timeoutTimestamp = timeoutTimestamp;
+		}
+	}
+
+	public InverseResponseSender(final RpcContext rpcContext, final String name) {
+		this.rpcContext = requireNonNull(rpcContext, "rpcContext");
+		setName(requireNonNull(name, "name"));
+		setDaemon(true);
+	}
+
+	/**
+	 * Enqueues the given response for delivery. This method returns immediately.
+	 * @param inverseResponse the response to be delivered. Must not be <code>null</code>.
+	 * @param timeoutTimestamp when the delivery is given up, because the inverse request timed out.
+	 */
+	public void putInverseResponse(final Response inverseResponse, final long timeoutTimestamp) {
+		requireNonNull(inverseResponse, "inverseResponse");
+		synchronized (pendingInverseResponses) {
+			pendingInverseResponses.addLast(new PendingInverseResponse(inverseResponse, timeoutTimestamp));
+			pendingInverseResponses.notifyAll();
+		}
+	}
+
+	@Override
+	public void run() {
+		long sleepOnError = SLEEP_ON_ERROR_MIN;
+		while (! isInterrupted()) {
+			final List<PendingInverseResponse> batch = takeBatch();
+			if (batch.isEmpty())
+				continue;
+
+			try {
+				send(batch);
+				sleepOnError = SLEEP_ON_ERROR_MIN;
+			} catch (Throwable x) {
+				logger.error("run: " + x + ' ', x);
+				putBack(batch);
+				try {
+					sleep(sleepOnError); // prevent hammering onto the server and spamming the log
+				} catch (InterruptedException e) {
+					// ignore
+				}
+				sleepOnError = Math.min(sleepOnError * 2, SLEEP_ON_ERROR_MAX);
+			}
+		}
+	}
+
+	private List<PendingInverseResponse> takeBatch() {
+		final List<PendingInverseResponse> batch = new ArrayList<>();
+		synchronized (pendingInverseResponses) {
+			while (pendingInverseResponses.isEmpty()) {
+				if (isInterrupted())
+					return batch;
+
+				try {
+					pendingInverseResponses.wait();
+				} catch (InterruptedException e) {
+					// ignore -- checking isInterrupted() above
+				}
+			}
+			PendingInverseResponse pendingInverseResponse;
+			while (batch.size() < MAX_BATCH_SIZE && (pendingInverseResponse = pendingInverseResponses.pollFirst()) != null)
+				batch.add(pendingInverseResponse);
+		}
+		return batch;
+	}
+
+	private void send(final List<PendingInverseResponse> batch) throws Exception {
+		final PutInverseResponseRequest request = new PutInverseResponseRequest();
+		request.setServerHostId(HostId.SERVER);
+		if (batch.size() == 1)
+			request.setInverseResponse(batch.get(0).inverseResponse);
+		else {
+			for (final PendingInverseResponse pendingInverseResponse : batch)
+				request.getInverseResponses().add(pendingInverseResponse.inverseResponse);
+		}
+		rpcContext.getRpcClient().invoke(request);
+	}
+
+	/**
+	 * Puts the responses of a failed delivery back to the front of the queue -- except for those, whose
+	 * requests timed out in the meantime.
+	 */
+	private void putBack(final List<PendingInverseResponse> batch) {
+		final long now = System.currentTimeMillis();
+		synchronized (pendingInverseResponses) {
+			for (final ListIterator<PendingInverseResponse> it = batch.listIterator(batch.size()); it.hasPrevious(); ) {
+				final PendingInverseResponse pendingInverseResponse = it.previous();
+				if (pendingInverseResponse.timeoutTimestamp < now)
+					logger.warn("putBack: Inverse request timed out! Discarding inverse response: {}", pendingInverseResponse.inverseResponse);
+				else
+					pendingInverseResponses.addFirst(pendingInverseResponse);
+			}
+		}
+	}
+
+	@Override
+	public void interrupt() {
+		interrupted = true;
+		super.interrupt();
+	}
+
+	@Override
+	public boolean isInterrupted() {
+		return interrupted;
+	}
+}
@@ -2,19 +2,27 @@ package house.intelli.core.rpc;
 
 import static java.util.Objects.*;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.PushbackInputStream;
 
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.JAXBException;
-import javax.xml.bind.Marshaller;
-import javax.xml.bind.Unmarshaller;
+import house.intelli.core.rpc.codec.RpcMessageCodec;
+import house.intelli.core.rpc.codec.RpcMessageCodecUtil;
 
-import house.intelli.core.jaxb.IntelliHouseJaxbContext;
+/**
+ * {@link RpcClientTransport} encoding the messages with an {@link RpcMessageCodec}.
+ * <p>
+ * Requests are encoded with the {@linkplain #getRequestCodec() request-codec}, which is JAXB-XML by
+ * default. The codec of a response is detected automatically.
+ * <p>
+ * Multiple responses sent for the same request in the {@link ResponseStreamFormat} are detected
+ * automatically, too: The response-stream is then kept open until the last response was received.
+ */
+public abstract class JaxbRpcClientTransport extends AbstractRpcClientTransport implements StreamingRpcClientTransport {
 
-public abstract class JaxbRpcClientTransport extends AbstractRpcClientTransport {
-	private JAXBContext jaxbContext;
+	private InputStream responseStream;
 
 	protected abstract OutputStream createRequestOutputStream() throws IOException;
 
@@ -23,32 +31,70 @@ public abstract class JaxbRpcClientTransport extends AbstractRpcClientTransport
 	@Override
 	public void sendRequest(final Request<?> request) throws IOException {
 		requireNonNull(request, "request");
-		JAXBContext jaxbContext = getJaxbContext();
+		// An incomplete response-stream is not read any further. Like any other incomplete exchange, it is
+		// discarded by the subclass, when creating the next request's OutputStream (or when closing).
+		responseStream = null;
+		final RpcMessageCodec requestCodec = getRequestCodec();
 		try (OutputStream outputStream = createRequestOutputStream()) {
-			Marshaller marshaller = jaxbContext.createMarshaller();
-			marshaller.marshal(request, outputStream);
-		} catch (JAXBException e) {
-			throw new IOException(e);
+			requestCodec.encode(request, outputStream);
 		}
 	}
 
 	@Override
 	public Response receiveResponse() throws IOException {
-		JAXBContext jaxbContext = getJaxbContext();
-		Object unmarshalled;
-		try (InputStream inputStream = createResponseInputStream()) {
-			Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
-			unmarshalled = unmarshaller.unmarshal(inputStream);
-		} catch (JAXBException e) {
-			throw new IOException(e);
+		if (responseStream != null)
+			return receiveStreamedResponse();
+
+		final Object decoded;
+		boolean streamed = false;
+		final PushbackInputStream inputStream = new PushbackInputStream(createResponseInputStream(), 1);
+		try {
+			final int firstByte = inputStream.read();
+			if (firstByte >= 0)
+				inputStream.unread(firstByte);
+
+			if (firstByte == (ResponseStreamFormat.MAGIC[0] & 0xff)) {
+				ResponseStreamFormat.readMagic(inputStream);
+				responseStream = inputStream;
+				streamed = true;
+				return receiveStreamedResponse();
+			}
+			decoded = RpcMessageCodecUtil.decode(inputStream);
+		} finally {
+			if (! streamed)
+				inputStream.close();
 		}
-		return (Response) unmarshalled;
+		return (Response) decoded;
 	}
 
-	protected JAXBContext getJaxbContext() {
-		if (jaxbContext == null)
-			jaxbContext = IntelliHouseJaxbContext.getJaxbContext();
+	private Response receiveStreamedResponse() throws IOException {
+		final ResponseStreamFormat.Frame frame;
+		try {
+			frame = ResponseStreamFormat.readFrame(responseStream);
+		} catch (IOException | RuntimeException x) {
+			responseStream = null;
+			throw x;
+		}
+		if (! frame.more) {
+			final InputStream in = responseStream;
+			responseStream = null;
+			in.close();
+		}
+
+		return (Response) RpcMessageCodecUtil.decode(new ByteArrayInputStream(frame.encodedMessage));
+	}
+
+	@Override
+	public boolean isMoreResponsesExpected() {
+		return responseStream != null;
+	}
 
-		return jaxbContext;
+	/**
+	 * Gets the codec used to encode the next request. Subclasses may override this method in order to
+	 * use the codec negotiated with the server.
+	 * @return the codec used to encode the next request. Never <code>null</code>.
+	 */
+	protected RpcMessageCodec getRequestCodec() {
+		return RpcMessageCodecUtil.getXmlCodec();
 	}
 }
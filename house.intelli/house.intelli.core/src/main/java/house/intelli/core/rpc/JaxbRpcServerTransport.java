@@ -1,18 +1,34 @@
 package house.intelli.core.rpc;
 
+import static java.util.Objects.*;
+
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.JAXBException;
-import javax.xml.bind.Marshaller;
-import javax.xml.bind.Unmarshaller;
+import house.intelli.core.rpc.codec.RpcCompression;
+import house.intelli.core.rpc.codec.RpcMessageCodec;
+import house.intelli.core.rpc.codec.RpcMessageCodecUtil;
+
+/**
+ * {@link RpcServerTransport} encoding the messages with an {@link RpcMessageCodec}.
+ * <p>
+ * The codec of a request is detected automatically. Responses are encoded with the
+ * {@linkplain #getResponseCodec() response-codec}, which is JAXB-XML by default.
+ * <p>
+ * As soon as a {@linkplain #sendStreamedResponse(Response) streamed response} is sent, all responses of
+ * this exchange are written as frames in the {@link ResponseStreamFormat}.
+ */
+public abstract class JaxbRpcServerTransport extends AbstractRpcServerTransport implements StreamingRpcServerTransport {
+
+	private RpcMessageCodec responseCodec = RpcMessageCodecUtil.getXmlCodec();
+
+	private RpcCompression responseCompression;
 
-import house.intelli.core.jaxb.IntelliHouseJaxbContext;
+	private boolean streaming;
 
-public abstract class JaxbRpcServerTransport extends AbstractRpcServerTransport {
-	private JAXBContext jaxbContext;
+	private boolean sendingStreamedResponse;
 
 	protected abstract InputStream createRequestInputStream() throws IOException;
 
@@ -20,32 +36,65 @@ public abstract class JaxbRpcServerTransport extends AbstractRpcServerTransport
 
 	@Override
 	public Request<?> receiveRequest() throws IOException {
-		JAXBContext jaxbContext = getJaxbContext();
-		Object unmarshalled;
+		final Object decoded;
 		try (InputStream inputStream = createRequestInputStream()) {
-			Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
-			unmarshalled = unmarshaller.unmarshal(inputStream);
-		} catch (JAXBException x) {
-			throw new IOException(x);
+			decoded = RpcMessageCodecUtil.decode(inputStream);
 		}
-		return (Request<?>) unmarshalled;
+		return (Request<?>) decoded;
 	}
 
 	@Override
 	public void sendResponse(Response response) throws IOException {
-		JAXBContext jaxbContext = getJaxbContext();
+		requireNonNull(response, "response");
+		final RpcMessageCodec responseCodec = getResponseCodec();
+		if (! streaming && ! sendingStreamedResponse) {
+			try (OutputStream outputStream = createResponseOutputStream()) {
+				responseCodec.encode(response, outputStream);
+			}
+			return;
+		}
+
+		final ByteArrayOutputStream encodedResponse = new ByteArrayOutputStream();
+		responseCodec.encode(response, encodedResponse);
 		try (OutputStream outputStream = createResponseOutputStream()) {
-			Marshaller marshaller = jaxbContext.createMarshaller();
-			marshaller.marshal(response, outputStream);
-		} catch (JAXBException x) {
-			throw new IOException(x);
+			if (! streaming)
+				ResponseStreamFormat.writeMagic(outputStream);
+
+			streaming = true;
+			ResponseStreamFormat.writeFrame(outputStream, encodedResponse, sendingStreamedResponse);
+		}
+	}
+
+	@Override
+	public void sendStreamedResponse(final Response response) throws IOException {
+		requireNonNull(response, "response");
+		// Delegating to sendResponse(...), because subclasses (e.g. encrypting ones) intercept it.
+		sendingStreamedResponse = true;
+		try {
+			sendResponse(response);
+		} finally {
+			sendingStreamedResponse = false;
 		}
 	}
 
-	protected JAXBContext getJaxbContext() {
-		if (jaxbContext == null)
-			jaxbContext = IntelliHouseJaxbContext.getJaxbContext();
+	public RpcMessageCodec getResponseCodec() {
+		return responseCodec;
+	}
+
+	public void setResponseCodec(RpcMessageCodec responseCodec) {
+		this.responseCodec = requireNonNull(responseCodec, "responseCodec");
+	}
+
+	/**
+	 * Gets the compression negotiated with the client. It is not applied here, but by subclasses encrypting the
+	 * messages.
+	 * @return the negotiated compression or <code>null</code>, if the client did not announce any (legacy format).
+	 */
+	public RpcCompression getResponseCompression() {
+		return responseCompression;
+	}
 
-		return jaxbContext;
+	public void setResponseCompression(RpcCompression responseCompression) {
+		this.responseCompression = responseCompression;
 	}
 }
@@ -3,11 +3,19 @@ package house.intelli.core.rpc;
 import static java.util.Objects.*;
 
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Thread receiving the inverse requests from the server in {@link RpcContextMode#CLIENT CLIENT}-mode.
+ * <p>
+ * If {@linkplain RpcContext#isInverseRequestStreamEnabled() enabled}, the inverse requests are received via
+ * a {@link StreamInverseRequestsRequest}, i.e. the server sends them as soon as they are enqueued. If the
+ * stream fails, this thread falls back to polling them via {@link PollInverseRequestsRequest}s for
+ * {@link RpcConst#INVERSE_REQUEST_STREAM_RETRY_DELAY}, before it tries to stream again.
+ */
 public class PollInverseRequestsThread extends Thread {
 
 	private static final long SLEEP_ON_ERROR_MIN = 250L;
@@ -15,15 +23,18 @@ public class PollInverseRequestsThread extends Thread {
 
 	private static final Logger logger = LoggerFactory.getLogger(PollInverseRequestsThread.class);
 
-	private final ExecutorService executorService = Executors.newCachedThreadPool(); // TODO use fixed-size and make size configurable?!
+	private ExecutorService executorService;
 
 	private final RpcContext rpcContext;
 
+	private final InverseResponseSender inverseResponseSender;
+
 	private volatile boolean interrupted;
 
 	public PollInverseRequestsThread(final RpcContext rpcContext) {
 		this.rpcContext = requireNonNull(rpcContext, "rpcContext");
 		this.setName(getClass().getSimpleName() + '-' + rpcContext.getLocalHostId());
+		this.inverseResponseSender = new InverseResponseSender(rpcContext, getName() + ".sender");
 	}
 
 	public RpcContext getRpcContext() {
@@ -48,16 +59,34 @@ public class PollInverseRequestsThread extends Thread {
 
 		sleepOnError = SLEEP_ON_ERROR_MIN;
 
+		// Created lazily here (and not in the constructor), because the RpcContext's worker-properties are
+		// usually configured *after* the RpcContext (and thus this thread) was created.
+		executorService = rpcContext.createWorkerExecutorService(getName());
+		inverseResponseSender.start();
+
+		long streamRetryTimestamp = 0;
 		while (! isInterrupted()) {
 			try {
-				try (RpcClient rpcClient = rpcContext.createRpcClient()) {
+				if (rpcContext.isInverseRequestStreamEnabled() && System.currentTimeMillis() >= streamRetryTimestamp) {
+					try {
+						StreamInverseRequestsRequest request = new StreamInverseRequestsRequest();
+						request.setServerHostId(HostId.SERVER);
+						PollInverseRequestsResponse response = rpcContext.getRpcClient().invokeStreaming(request, this::putStreamedInverseRequests);
+						putInverseRequests(response);
+					} catch (Throwable x) {
+						if (isInterrupted()) // the RpcContext was closed => the stream was aborted intentionally
+							break;
+
+						logger.warn("run: Streaming inverse requests failed! Falling back to polling. " + x, x);
+						streamRetryTimestamp = System.currentTimeMillis() + RpcConst.INVERSE_REQUEST_STREAM_RETRY_DELAY;
+						continue;
+					}
+				}
+				else {
 					PollInverseRequestsRequest request = new PollInverseRequestsRequest();
 					request.setServerHostId(HostId.SERVER);
-					PollInverseRequestsResponse response = rpcClient.invoke(request);
-
-					// We pass these requests to an Executor. This thread must not block!
-					for (Request<?> inverseRequest : response.getInverseRequests())
-						putInverseRequest(inverseRequest);
+					PollInverseRequestsResponse response = rpcContext.getRpcClient().invoke(request);
+					putInverseRequests(response);
 				}
 				sleepOnError = SLEEP_ON_ERROR_MIN;
 			} catch (Throwable x) {
@@ -72,28 +101,70 @@ public class PollInverseRequestsThread extends Thread {
 		}
 	}
 
+	private void putStreamedInverseRequests(final PollInverseRequestsResponse response) {
+		// The stream lasts up to INVERSE_REQUEST_STREAM_TIMEOUT => abort it, if the RpcContext was closed meanwhile.
+		if (isInterrupted())
+			throw new IllegalStateException("Interrupted! Aborting the stream of inverse requests.");
+
+		putInverseRequests(response);
+	}
+
+	private void putInverseRequests(final PollInverseRequestsResponse response) {
+		// We pass these requests to an Executor. This thread must not block! It only does,
+		// if the RejectionPolicy is CALLER_RUNS and all workers are busy -- which is intended back-pressure.
+		if (response != null) {
+			for (Request<?> inverseRequest : response.getInverseRequests())
+				putInverseRequest(inverseRequest);
+		}
+	}
+
 	protected void putInverseRequest(final Request<?> inverseRequest) {
 		requireNonNull(inverseRequest, "inverseRequest");
 
-		executorService.submit(new Runnable() {
-			@Override
-			public void run() {
-				try {
-					Response inverseResponse;
-					if (rpcContext.isServerLocal(inverseRequest))
-						inverseResponse = processLocally(inverseRequest);
-					else
-						throw new UnsupportedOperationException("Inverse-channel does not support forwarding!");
-
-					putInverseResponse(inverseResponse);
-				} catch (Throwable x) {
-					Error error = RemoteExceptionUtil.createError(x);
-					ErrorResponse errorResponse = new ErrorResponse(error);
-					errorResponse.copyRequestCoordinates(inverseRequest);
-					putInverseResponse(errorResponse);
-				}
+		if (inverseRequest.isExpired()) { // the server gave up already -- nobody would receive the response
+			logger.info("putInverseRequest: Dropping expired inverse request: {}", inverseRequest);
+			return;
+		}
+
+		if (inverseRequest instanceof BatchRequest && rpcContext.isServerLocal(inverseRequest)) {
+			// No worker waits for the batch -- its requests are processed by the workers themselves.
+			try {
+				rpcContext.getRpcServiceExecutor().processBatchLocally((BatchRequest) inverseRequest)
+				.thenAccept(inverseResponse -> putInverseResponse(inverseRequest, inverseResponse));
+			} catch (Throwable x) {
+				putInverseErrorResponse(inverseRequest, x);
 			}
-		});
+			return;
+		}
+
+		try {
+			executorService.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						Response inverseResponse;
+						if (rpcContext.isServerLocal(inverseRequest))
+							inverseResponse = processLocally(inverseRequest);
+						else
+							throw new UnsupportedOperationException("Inverse-channel does not support forwarding!");
+
+						putInverseResponse(inverseRequest, inverseResponse);
+					} catch (Throwable x) {
+						putInverseErrorResponse(inverseRequest, x);
+					}
+				}
+			});
+		} catch (RejectedExecutionException x) {
+			logger.warn("putInverseRequest: Rejecting inverse request, because all workers are busy and the queue is full: {}", inverseRequest);
+			putInverseErrorResponse(inverseRequest, new RequestRejectedException("All workers are busy and the queue is full! Rejected inverse request: " + inverseRequest, x));
+		}
+	}
+
+	private void putInverseErrorResponse(final Request<?> inverseRequest, final Throwable x) {
+		Error error = RemoteExceptionUtil.createError(x);
+		ErrorResponse errorResponse = new ErrorResponse(error);
+		errorResponse.copyRequestCoordinates(inverseRequest);
+		putInverseResponse(inverseRequest, errorResponse);
 	}
 
 	protected Response processLocally(final Request<?> inverseRequest) throws Exception {
@@ -101,22 +172,22 @@ public class PollInverseRequestsThread extends Thread {
 		return rpcContext.getRpcServiceExecutor().processLocally(inverseRequest);
 	}
 
-	protected void putInverseResponse(final Response inverseResponse) {
+	/**
+	 * Enqueues the given response for delivery to the server. Responses completing at about the same time
+	 * are delivered together; failed deliveries are retried until the inverse request times out.
+	 * @param inverseRequest the inverse request, which was processed. Must not be <code>null</code>.
+	 * @param inverseResponse the response to be delivered. Must not be <code>null</code>.
+	 */
+	protected void putInverseResponse(final Request<?> inverseRequest, final Response inverseResponse) {
+		requireNonNull(inverseRequest, "inverseRequest");
 		requireNonNull(inverseResponse, "inverseResponse");
-		try (RpcClient rpcClient = rpcContext.createRpcClient()) {
-			PutInverseResponseRequest request = new PutInverseResponseRequest();
-			request.setServerHostId(HostId.SERVER);
-			request.setInverseResponse(inverseResponse);
-			rpcClient.invoke(request);
-		} catch (Exception x) {
-			logger.error("putInverseResponse: " + x + ' ', x);
-			// TODO handle this otherwise, too? we should retry later!!!
-		}
+		inverseResponseSender.putInverseResponse(inverseResponse, inverseRequest.getDeadline());
 	}
 
 	@Override
 	public void interrupt() {
 		interrupted = true;
+		inverseResponseSender.interrupt();
 		super.interrupt();
 	}
 
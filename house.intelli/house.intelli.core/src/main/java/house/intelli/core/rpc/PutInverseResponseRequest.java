@@ -1,12 +1,23 @@
 package house.intelli.core.rpc;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.xml.bind.annotation.XmlRootElement;
 
+/**
+ * Request delivering the responses of inverse requests to the server.
+ * <p>
+ * A single response is passed as {@link #getInverseResponse() inverseResponse}. Multiple responses, which
+ * completed at about the same time, are coalesced into {@link #getInverseResponses() inverseResponses}.
+ */
 @XmlRootElement
 public class PutInverseResponseRequest extends Request<VoidResponse> {
 
 	private Response inverseResponse;
 
+	private List<Response> inverseResponses;
+
 	public Response getInverseResponse() {
 		return inverseResponse;
 	}
@@ -15,8 +26,24 @@ public class PutInverseResponseRequest extends Request<VoidResponse> {
 		this.inverseResponse = inverseResponse;
 	}
 
+	public List<Response> getInverseResponses() {
+		if (inverseResponses == null)
+			inverseResponses = new ArrayList<>();
+
+		return inverseResponses;
+	}
+
+	public void setInverseResponses(List<Response> inverseResponses) {
+		this.inverseResponses = inverseResponses;
+	}
+
 	@Override
 	public boolean isIdempotent() { // It's not really idempotent, but the worst-case-scenario is leaving garbage that isn't fetched anymore.
 		return true;
 	}
+
+	@Override
+	protected String toString_getProperties() {
+		return super.toString_getProperties() + ", inverseResponse=" + inverseResponse + ", inverseResponses=" + inverseResponses;
+	}
 }
@@ -0,0 +1,19 @@
+package house.intelli.core.rpc;
+
+/**
+ * Policy deciding what happens to a request, if all worker threads are busy and the queue is full.
+ * @see RpcContext#getWorkerRejectionPolicy()
+ */
+public enum RejectionPolicy {
+	/**
+	 * The request is rejected with a {@link RequestRejectedException}, which is sent back to the client.
+	 * The client may retry later.
+	 */
+	REJECT,
+
+	/**
+	 * The request is processed by the thread trying to enqueue it. This slows down the caller (e.g. the
+	 * servlet thread), thus applying back-pressure to the client.
+	 */
+	CALLER_RUNS
+}
@@ -1,8 +1,13 @@
 package house.intelli.core.rpc;
 
+import static java.util.Objects.*;
+
+import java.beans.Introspector;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 
+import javax.xml.bind.annotation.XmlRootElement;
+
 public final class RemoteExceptionUtil {
 
 	private RemoteExceptionUtil() { }
@@ -80,6 +85,41 @@ public final class RemoteExceptionUtil {
 		}
 	}
 
+	/**
+	 * Determines whether the given exception -- thrown when invoking a request of the given type -- means that the
+	 * server does not support this request-type: Either there is no service for it or the server does not even know
+	 * the type and thus failed to decode the request.
+	 * <p>
+	 * Any other failure (e.g. the service failed or the connection broke) does not mean this.
+	 * @param throwable the exception thrown by the invocation. Must not be <code>null</code>.
+	 * @param requestType the type of the request invoked. Must not be <code>null</code>.
+	 * @return <code>true</code>, if the server does not support the request-type; <code>false</code> otherwise.
+	 */
+	public static boolean isRequestTypeUnsupported(final Throwable throwable, final Class<? extends Request<?>> requestType) {
+		requireNonNull(throwable, "throwable");
+		requireNonNull(requestType, "requestType");
+		final String noRpcServiceMessage = RpcServiceExecutor.NO_RPC_SERVICE_MESSAGE_PREFIX + requestType.getName();
+		// The message of JAXB's UnmarshalException, if the root-element is not bound in the JAXBContext.
+		final String unexpectedElementMessage = String.format("local:\"%s\"", getXmlRootElementName(requestType));
+		Throwable t = throwable;
+		while (t != null) {
+			final String message = t.getMessage();
+			if (message != null && (message.contains(noRpcServiceMessage) || message.contains(unexpectedElementMessage)))
+				return true;
+
+			t = t.getCause();
+		}
+		return false;
+	}
+
+	private static String getXmlRootElementName(final Class<?> requestType) {
+		final XmlRootElement xmlRootElement = requestType.getAnnotation(XmlRootElement.class);
+		if (xmlRootElement != null && ! "##default".equals(xmlRootElement.name()))
+			return xmlRootElement.name();
+
+		return Introspector.decapitalize(requestType.getSimpleName());
+	}
+
 	private static <T> T getObjectOrNull(final Class<T> clazz, Class<?>[] argumentTypes, final Object ... arguments) {
 		T result = null;
 		if (argumentTypes == null)
@@ -2,6 +2,7 @@ package house.intelli.core.rpc;
 
 import java.util.Date;
 
+import javax.xml.bind.Unmarshaller;
 import javax.xml.bind.annotation.XmlTransient;
 
 public abstract class Request<RES extends Response> extends RpcMessage {
@@ -12,6 +13,14 @@ public abstract class Request<RES extends Response> extends RpcMessage {
 
 	private long timeout = TIMEOUT_UNDEFINED;
 
+	private long lowLevelTimeout = TIMEOUT_UNDEFINED;
+
+	/**
+	 * The deadline according to the local clock. 0, if not (yet) known -- it is then derived from
+	 * {@link #created} and {@link #timeout}.
+	 */
+	private long localDeadline;
+
 	public Date getCreated() {
 		return created;
 	}
@@ -35,6 +44,101 @@ public abstract class Request<RES extends Response> extends RpcMessage {
 		this.timeout = timeout;
 	}
 
+	/**
+	 * Gets the absolute point in time according to the local clock (milliseconds since 1970-01-01 UTC), after
+	 * which nobody waits for the response anymore.
+	 * <p>
+	 * On the host creating the request, the deadline is derived from {@link #getCreated() created} and
+	 * {@link #getTimeout() timeout}. It is propagated to every host the request passes (e.g. via the
+	 * {@link InverseRequestRegistry} to a Raspberry Pi) as {@linkplain #getRemainingTimeout() remaining timeout},
+	 * which the receiver adds to its own clock. Thus, the hosts' clocks need not be synchronized -- a Raspberry Pi
+	 * without RTC lives in 1970 until NTP synchronized its clock.
+	 * @return the deadline. {@link Long#MAX_VALUE}, if it is unknown, because {@link #getCreated() created} is not
+	 * yet assigned.
+	 */
+	@XmlTransient
+	public long getDeadline() {
+		if (localDeadline != 0)
+			return localDeadline;
+
+		if (created == null)
+			return Long.MAX_VALUE;
+
+		return created.getTime() + getEffectiveTimeout();
+	}
+	/**
+	 * Sets the {@linkplain #getDeadline() deadline} according to the local clock -- e.g. when a request is
+	 * derived from another one.
+	 * @param deadline the deadline. {@link Long#MAX_VALUE}, if unknown.
+	 */
+	public void setDeadline(long deadline) {
+		this.localDeadline = deadline == Long.MAX_VALUE ? 0 : deadline;
+	}
+
+	long getEffectiveTimeout() {
+		return timeout == TIMEOUT_UNDEFINED ? RpcConst.DEFAULT_REQUEST_TIMEOUT : timeout;
+	}
+
+	/**
+	 * Gets the time in milliseconds remaining until the {@linkplain #getDeadline() deadline}.
+	 * <p>
+	 * This is transferred instead of the deadline itself, because the clocks of sender and receiver may differ.
+	 * It is computed, when the request is encoded, and converted back into a deadline according to the
+	 * receiver's clock, when it is decoded. The time in transit is thus not accounted for, which is negligible
+	 * compared to a timeout.
+	 * @return the remaining time in milliseconds; 0, if the deadline passed already. <code>null</code>, if
+	 * the deadline is unknown.
+	 */
+	public Long getRemainingTimeout() {
+		final long deadline = getDeadline();
+		if (deadline == Long.MAX_VALUE)
+			return null;
+
+		return Math.max(0L, deadline - System.currentTimeMillis());
+	}
+	public void setRemainingTimeout(Long remainingTimeout) {
+		if (remainingTimeout != null)
+			this.localDeadline = System.currentTimeMillis() + Math.max(0L, remainingTimeout);
+	}
+
+	/**
+	 * Invoked by JAXB after unmarshalling. An older peer does not send the
+	 * {@linkplain #getRemainingTimeout() remaining timeout} -- its {@link #getCreated() created} is from a
+	 * foreign clock and therefore only used to know that the timeout started: it is counted from now on.
+	 */
+	void afterUnmarshal(final Unmarshaller unmarshaller, final Object parent) {
+		if (localDeadline == 0 && created != null)
+			localDeadline = System.currentTimeMillis() + getEffectiveTimeout();
+	}
+
+	/**
+	 * Indicates whether the {@linkplain #getDeadline() deadline} has passed.
+	 * @return <code>true</code>, if the deadline has passed; <code>false</code> otherwise.
+	 */
+	@XmlTransient
+	public boolean isExpired() {
+		return System.currentTimeMillis() > getDeadline();
+	}
+
+	/**
+	 * Gets the maximum time in milliseconds the server may make the client wait within one exchange, before
+	 * answering with a {@link DeferringResponse}. If not specified ({@link #TIMEOUT_UNDEFINED}), the
+	 * {@link RpcConst#LOW_LEVEL_TIMEOUT LOW_LEVEL_TIMEOUT} is used. A greater value is ignored.
+	 * <p>
+	 * An {@linkplain RpcClient#invokeAsync(Request) asynchronous invocation} uses a short time, because
+	 * every exchange occupies one of the few I/O threads.
+	 * @return the maximum time in milliseconds the server may make the client wait within one exchange.
+	 */
+	public long getLowLevelTimeout() {
+		return lowLevelTimeout;
+	}
+	public void setLowLevelTimeout(long lowLevelTimeout) {
+		if (lowLevelTimeout < 0)
+			throw new IllegalArgumentException("lowLevelTimeout < 0");
+
+		this.lowLevelTimeout = lowLevelTimeout;
+	}
+
 	@XmlTransient
 	public boolean isIdempotent() {
 		return false;
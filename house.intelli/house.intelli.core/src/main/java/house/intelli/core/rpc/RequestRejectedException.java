@@ -0,0 +1,29 @@
+package house.intelli.core.rpc;
+
+/**
+ * Thrown, if a request cannot be processed, because the {@link RpcServiceExecutor} is overloaded.
+ * <p>
+ * This happens, if all worker threads are busy and the queue is full (see
+ * {@link RpcContext#getWorkerQueueCapacity()}). The client may retry later.
+ */
+@RetriableError
+public class RequestRejectedException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public RequestRejectedException() {
+	}
+
+	public RequestRejectedException(String message) {
+		super(message);
+	}
+
+	public RequestRejectedException(Throwable cause) {
+		super(cause);
+	}
+
+	public RequestRejectedException(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+}
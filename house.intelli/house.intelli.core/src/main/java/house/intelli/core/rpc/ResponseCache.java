@@ -0,0 +1,112 @@
+package house.intelli.core.rpc;
+
+import static java.util.Objects.*;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import house.intelli.core.Uid;
+
+/**
+ * Bounded, time-limited cache of the responses recently produced by an {@link RpcServiceExecutor}, keyed by
+ * {@linkplain Response#getRequestId() request-ID}.
+ * <p>
+ * A client re-sending a request -- e.g. because its transport timed out -- is served from this cache
+ * instead of having the service process the request again. Likewise, a client polling the response of a
+ * {@link DeferringResponse} obtains it, even if it was already picked up by an exchange that got lost.
+ * <p>
+ * The entries are kept in insertion-order. Whenever a response is put, the oldest entries are evicted, if
+ * they expired or if there are too many. Thus, eviction is incremental and never sweeps the whole cache.
+ * A request re-sent after its response was evicted is processed again.
+ */
+final class ResponseCache {
+
+	private final int maxSize;
+	private final long timeToLive;
+
+	private final LinkedHashMap<Uid, Entry> requestId2Entry = new LinkedHashMap<>();
+
+	private static final class Entry {
+		public final Response response;
+		public final long expiry;
+
+		public Entry(final Response response, final long expiry) {
+			this.response = response;
+			this.expiry = expiry;
+		}
+	}
+
+	public ResponseCache(final int maxSize, final long timeToLive) {
+		if (maxSize < 0)
+			throw new IllegalArgumentException("maxSize < 0");
+
+		if (timeToLive < 0)
+			throw new IllegalArgumentException("timeToLive < 0");
+
+		this.maxSize = maxSize;
+		this.timeToLive = timeToLive;
+	}
+
+	/**
+	 * Determines, whether the given response may be served to a client re-sending its request.
+	 * <p>
+	 * A {@link RequestRejectedException} must not be cached, because the client retries the rejected request
+	 * exactly in order to have it processed this time.
+	 * @param response the response. Must not be <code>null</code>.
+	 * @return <code>true</code>, if the response may be cached; <code>false</code> otherwise.
+	 */
+	public static boolean isCacheable(final Response response) {
+		requireNonNull(response, "response");
+		if (response instanceof DeferringResponse)
+			return false;
+
+		if (response instanceof ErrorResponse) {
+			final Error error = ((ErrorResponse) response).getError();
+			if (error != null && RequestRejectedException.class.getName().equals(error.getClassName()))
+				return false;
+		}
+		return true;
+	}
+
+	public synchronized void put(final Response response) {
+		final Uid requestId = requireNonNull(requireNonNull(response, "response").getRequestId(), "response.requestId");
+		if (maxSize == 0)
+			return;
+
+		final long now = System.currentTimeMillis();
+		requestId2Entry.remove(requestId); // re-insert at the end
+		requestId2Entry.put(requestId, new Entry(response, now + timeToLive));
+
+		final Iterator<Entry> iterator = requestId2Entry.values().iterator();
+		while (iterator.hasNext()) {
+			final Entry entry = iterator.next();
+			if (requestId2Entry.size() <= maxSize && entry.expiry > now)
+				break;
+
+			iterator.remove();
+		}
+	}
+
+	/**
+	 * Gets the cached response of the request with the given ID.
+	 * @param requestId the request's ID. Must not be <code>null</code>.
+	 * @return the response or <code>null</code>, if there is none or it expired.
+	 */
+	public synchronized Response get(final Uid requestId) {
+		requireNonNull(requestId, "requestId");
+		final Entry entry = requestId2Entry.get(requestId);
+		if (entry == null)
+			return null;
+
+		if (entry.expiry <= System.currentTimeMillis()) {
+			requestId2Entry.remove(requestId);
+			return null;
+		}
+		return entry.response;
+	}
+
+	public synchronized int size() {
+		return requestId2Entry.size();
+	}
+
+}
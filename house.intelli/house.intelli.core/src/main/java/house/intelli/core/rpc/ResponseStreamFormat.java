@@ -0,0 +1,67 @@
+package house.intelli.core.rpc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Format of multiple responses sent within one exchange by the {@link JaxbRpcServerTransport}.
+ * <p>
+ * The stream starts with the {@link #MAGIC}, which never occurs at the beginning of a single encoded
+ * message. Then follow the frames: Each frame consists of a flag (1, if more frames follow, 0 for the
+ * last frame), the length of the encoded message (int) and the encoded message itself.
+ */
+final class ResponseStreamFormat {
+
+	static final byte[] MAGIC = { (byte) 0xff, 'i', 'h', 's' };
+
+	private static final int MAX_FRAME_LENGTH = 64 * 1024 * 1024;
+
+	private ResponseStreamFormat() {
+	}
+
+	static void writeMagic(final OutputStream out) throws IOException {
+		out.write(MAGIC);
+	}
+
+	static void readMagic(final InputStream in) throws IOException {
+		final byte[] magic = new byte[MAGIC.length];
+		new DataInputStream(in).readFully(magic);
+		if (! Arrays.equals(MAGIC, magic))
+			throw new IOException("Stream does not start with magic!");
+	}
+
+	static void writeFrame(final OutputStream out, final ByteArrayOutputStream encodedMessage, final boolean more) throws IOException {
+		final DataOutputStream dout = new DataOutputStream(out);
+		dout.writeByte(more ? 1 : 0);
+		dout.writeInt(encodedMessage.size());
+		encodedMessage.writeTo(dout);
+		dout.flush();
+	}
+
+	static Frame readFrame(final InputStream in) throws IOException {
+		final DataInputStream din = new DataInputStream(in);
+		final boolean more = din.readBoolean();
+		final int length = din.readInt();
+		if (length < 0 || length > MAX_FRAME_LENGTH)
+			throw new IOException("Frame length out of range: " + length);
+
+		final byte[] encodedMessage = new byte[length];
+		din.readFully(encodedMessage);
+		return new Frame(more, encodedMessage);
+	}
+
+	static final class Frame {
+		public final boolean more;
+		public final byte[] encodedMessage;
+
+		public Frame(final boolean more, final byte[] encodedMessage) {
+			this.more = more;
+			this.encodedMessage = encodedMessage;
+		}
+	}
+}
@@ -0,0 +1,316 @@
+package house.intelli.core.rpc;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Policy deciding whether and when the {@link RpcClient} retries a failed invocation -- and when it stops
+ * trying altogether for a while.
+ * <p>
+ * Failures are {@linkplain #classify(Throwable) classified} into {@link FailureType}s. Whether a failure is
+ * retried depends on its type and on whether the request is {@linkplain Request#isIdempotent() idempotent}:
+ * A request which certainly did not reach the service (connection refused, rejected by an overloaded
+ * server, {@link RetriableError}) is always retried. A request which might have been processed (e.g. a read
+ * timeout) is only retried, if it is idempotent. An error thrown by the remote service itself is never
+ * retried -- it would only fail again.
+ * <p>
+ * The delay before a retry grows exponentially and is fully jittered: It is a random value between 0 and
+ * {@code min(maxBackoff, initialBackoff * backoffMultiplier^(retryCount-1))}. Thus, many clients failing at
+ * the same time -- e.g. because the server restarts -- do not retry in lockstep. A reset connection (e.g. a
+ * stale keep-alive connection) is retried once immediately.
+ * <p>
+ * Retries are limited per host by a budget: Every invocation deposits {@link #getRetryBudgetRatio() retryBudgetRatio}
+ * tokens (up to {@link #getRetryBudgetCapacity() retryBudgetCapacity}) and every retry withdraws one. Hence,
+ * retries can never multiply the load of a struggling host.
+ * <p>
+ * After {@link #getCircuitBreakerFailureThreshold() circuitBreakerFailureThreshold} consecutive failures
+ * indicating that a host is down, its circuit opens: All invocations fail fast with a
+ * {@link CircuitOpenException} for a (jittered) {@link #getCircuitBreakerOpenDuration() circuitBreakerOpenDuration}.
+ * Then, one single probe invocation is let through. If it succeeds, the circuit closes again; otherwise it opens
+ * again -- for twice as long, up to {@link #getCircuitBreakerMaxOpenDuration() circuitBreakerMaxOpenDuration}.
+ * <p>
+ * An instance must be configured before it is passed to {@link RpcContext#setRetryPolicy(RetryPolicy)}.
+ */
+public class RetryPolicy {
+
+	/**
+	 * Kind of failure of an invocation.
+	 */
+	public static enum FailureType {
+		/**
+		 * The connection could not be established -- the request was certainly not sent. The host is most
+		 * likely down.
+		 */
+		CONNECTION_REFUSED(true, true),
+		/**
+		 * The connection broke -- e.g. reset by the peer or a stale keep-alive connection. The request might
+		 * have been processed.
+		 */
+		CONNECTION_RESET(false, true),
+		/**
+		 * No response arrived in time. The request might have been processed.
+		 */
+		TIMEOUT(false, true),
+		/**
+		 * The server rejected the request, because it is overloaded. The request was not processed.
+		 */
+		OVERLOAD(true, false),
+		/**
+		 * Any other failure marked with {@link RetriableError}.
+		 */
+		RETRIABLE(true, false),
+		/**
+		 * Any other failure -- e.g. an exception thrown by the remote service. It is not retried.
+		 */
+		FATAL(false, false);
+
+		private final boolean retriableForAnyRequest;
+		private final boolean hostDownIndication;
+
+		private FailureType(boolean retriableForAnyRequest, boolean hostDownIndication) {
+			this.retriableForAnyRequest = retriableForAnyRequest;
+			this.hostDownIndication = hostDownIndication;
+		}
+
+		/**
+		 * Indicates whether a failure of this type is retried even for a request which is not idempotent.
+		 * @return <code>true</code>, if the request was certainly not processed.
+		 */
+		public boolean isRetriableForAnyRequest() {
+			return retriableForAnyRequest;
+		}
+
+		/**
+		 * Indicates whether a failure of this type counts towards opening the host's circuit.
+		 * @return <code>true</code>, if the host might be down.
+		 */
+		public boolean isHostDownIndication() {
+			return hostDownIndication;
+		}
+	}
+
+	private int maxRetryCount = 3;
+
+	private long initialBackoff = 200L;
+
+	private long maxBackoff = 10000L;
+
+	private double backoffMultiplier = 2.0;
+
+	private double retryBudgetRatio = 0.2;
+
+	private int retryBudgetCapacity = 10;
+
+	private int circuitBreakerFailureThreshold = 5;
+
+	private long circuitBreakerOpenDuration = 5000L;
+
+	private long circuitBreakerMaxOpenDuration = 60000L;
+
+	/**
+	 * Gets the maximum number of retries of one invocation.
+	 * @return the maximum number of retries. Always &gt;= 0. Default is 3.
+	 */
+	public int getMaxRetryCount() {
+		return maxRetryCount;
+	}
+	public void setMaxRetryCount(int maxRetryCount) {
+		if (maxRetryCount < 0)
+			throw new IllegalArgumentException("maxRetryCount < 0");
+
+		this.maxRetryCount = maxRetryCount;
+	}
+
+	/**
+	 * Gets the upper bound (milliseconds) of the delay before the first retry.
+	 * @return the upper bound of the delay before the first retry. Always &gt;= 0. Default is 200.
+	 */
+	public long getInitialBackoff() {
+		return initialBackoff;
+	}
+	public void setInitialBackoff(long initialBackoff) {
+		if (initialBackoff < 0)
+			throw new IllegalArgumentException("initialBackoff < 0");
+
+		this.initialBackoff = initialBackoff;
+	}
+
+	/**
+	 * Gets the upper bound (milliseconds) of the delay before any retry.
+	 * @return the upper bound of the delay before any retry. Always &gt;= 0. Default is 10000.
+	 */
+	public long getMaxBackoff() {
+		return maxBackoff;
+	}
+	public void setMaxBackoff(long maxBackoff) {
+		if (maxBackoff < 0)
+			throw new IllegalArgumentException("maxBackoff < 0");
+
+		this.maxBackoff = maxBackoff;
+	}
+
+	/**
+	 * Gets the factor by which the upper bound of the delay grows with every retry.
+	 * @return the factor. Always &gt;= 1. Default is 2.
+	 */
+	public double getBackoffMultiplier() {
+		return backoffMultiplier;
+	}
+	public void setBackoffMultiplier(double backoffMultiplier) {
+		if (backoffMultiplier < 1)
+			throw new IllegalArgumentException("backoffMultiplier < 1");
+
+		this.backoffMultiplier = backoffMultiplier;
+	}
+
+	/**
+	 * Gets the number of retry-tokens every invocation deposits into its host's budget.
+	 * @return the number of retry-tokens deposited per invocation. Always &gt;= 0. Default is 0.2 -- i.e.
+	 * at most one retry per 5 invocations in the long run.
+	 */
+	public double getRetryBudgetRatio() {
+		return retryBudgetRatio;
+	}
+	public void setRetryBudgetRatio(double retryBudgetRatio) {
+		if (retryBudgetRatio < 0)
+			throw new IllegalArgumentException("retryBudgetRatio < 0");
+
+		this.retryBudgetRatio = retryBudgetRatio;
+	}
+
+	/**
+	 * Gets the maximum number of retry-tokens in a host's budget. A budget starts full.
+	 * @return the maximum number of retry-tokens. Always &gt;= 0. Default is 10.
+	 */
+	public int getRetryBudgetCapacity() {
+		return retryBudgetCapacity;
+	}
+	public void setRetryBudgetCapacity(int retryBudgetCapacity) {
+		if (retryBudgetCapacity < 0)
+			throw new IllegalArgumentException("retryBudgetCapacity < 0");
+
+		this.retryBudgetCapacity = retryBudgetCapacity;
+	}
+
+	/**
+	 * Gets the number of consecutive failures {@linkplain FailureType#isHostDownIndication() indicating}
+	 * that a host is down, after which its circuit opens.
+	 * @return the number of consecutive failures opening the circuit. Always &gt; 0. Default is 5.
+	 */
+	public int getCircuitBreakerFailureThreshold() {
+		return circuitBreakerFailureThreshold;
+	}
+	public void setCircuitBreakerFailureThreshold(int circuitBreakerFailureThreshold) {
+		if (circuitBreakerFailureThreshold < 1)
+			throw new IllegalArgumentException("circuitBreakerFailureThreshold < 1");
+
+		this.circuitBreakerFailureThreshold = circuitBreakerFailureThreshold;
+	}
+
+	/**
+	 * Gets how long (milliseconds) a circuit stays open the first time, before a probe is let through.
+	 * The actual duration is jittered between half and the full value.
+	 * @return how long a circuit stays open the first time. Always &gt; 0. Default is 5000.
+	 */
+	public long getCircuitBreakerOpenDuration() {
+		return circuitBreakerOpenDuration;
+	}
+	public void setCircuitBreakerOpenDuration(long circuitBreakerOpenDuration) {
+		if (circuitBreakerOpenDuration < 1)
+			throw new IllegalArgumentException("circuitBreakerOpenDuration < 1");
+
+		this.circuitBreakerOpenDuration = circuitBreakerOpenDuration;
+	}
+
+	/**
+	 * Gets how long (milliseconds) a circuit stays open at most -- after multiple failed probes.
+	 * @return how long a circuit stays open at most. Always &gt; 0. Default is 60000.
+	 */
+	public long getCircuitBreakerMaxOpenDuration() {
+		return circuitBreakerMaxOpenDuration;
+	}
+	public void setCircuitBreakerMaxOpenDuration(long circuitBreakerMaxOpenDuration) {
+		if (circuitBreakerMaxOpenDuration < 1)
+			throw new IllegalArgumentException("circuitBreakerMaxOpenDuration < 1");
+
+		this.circuitBreakerMaxOpenDuration = circuitBreakerMaxOpenDuration;
+	}
+
+	/**
+	 * Classifies the given failure.
+	 * @param x the failure. Must not be <code>null</code>.
+	 * @return the type of the failure. Never <code>null</code>.
+	 */
+	public FailureType classify(final Throwable x) {
+		// An exception thrown by the remote side is re-thrown locally with a RemoteException as cause. Its
+		// type must not be mistaken for a local transport-failure -- e.g. a service's IOException.
+		boolean remote = false;
+		for (Throwable t = x; t != null; t = t.getCause()) {
+			final RetriableError retriableError = t.getClass().getAnnotation(RetriableError.class);
+			if (retriableError != null)
+				return ! retriableError.value() ? FailureType.FATAL
+						: t instanceof RequestRejectedException ? FailureType.OVERLOAD : FailureType.RETRIABLE;
+
+			if (t instanceof RemoteException)
+				remote = true;
+		}
+		if (remote || x instanceof CircuitOpenException)
+			return FailureType.FATAL;
+
+		for (Throwable t = x; t != null; t = t.getCause()) {
+			if (t instanceof ConnectException || t instanceof NoRouteToHostException || t instanceof UnknownHostException)
+				return FailureType.CONNECTION_REFUSED;
+
+			if (t instanceof SocketTimeoutException || t instanceof RpcTimeoutException)
+				return FailureType.TIMEOUT;
+		}
+		for (Throwable t = x; t != null; t = t.getCause()) {
+			if (t instanceof EOFException || (t instanceof IOException && ! (t instanceof RpcException)))
+				return FailureType.CONNECTION_RESET;
+		}
+		return FailureType.FATAL;
+	}
+
+	/**
+	 * Indicates whether a failure of the given type may be retried for the given request.
+	 * @param request the request. Must not be <code>null</code>.
+	 * @param failureType the type of the failure. Must not be <code>null</code>.
+	 * @return <code>true</code>, if the invocation may be retried.
+	 */
+	public boolean isRetriable(final Request<?> request, final FailureType failureType) {
+		if (FailureType.FATAL == failureType)
+			return false;
+
+		return failureType.isRetriableForAnyRequest() || request.isIdempotent();
+	}
+
+	/**
+	 * Computes the delay before the given retry.
+	 * @param retryCount the number of the retry (1 for the first retry).
+	 * @param failureType the type of the failure being retried. Must not be <code>null</code>.
+	 * @return the delay in milliseconds. Always &gt;= 0.
+	 */
+	public long getBackoff(final int retryCount, final FailureType failureType) {
+		if (retryCount <= 1 && FailureType.CONNECTION_RESET == failureType)
+			return 0; // most likely a stale keep-alive connection => a new connection will do
+
+		final double bound = Math.min(maxBackoff, initialBackoff * Math.pow(backoffMultiplier, Math.max(0, retryCount - 1)));
+		return (long) (ThreadLocalRandom.current().nextDouble() * bound);
+	}
+
+	/**
+	 * Computes how long a circuit stays open.
+	 * @param openCount the number of times the circuit opened consecutively (1 for the first time).
+	 * @return the duration in milliseconds. Always &gt; 0.
+	 */
+	public long getCircuitOpenDuration(final int openCount) {
+		final double bound = Math.min(circuitBreakerMaxOpenDuration,
+				circuitBreakerOpenDuration * Math.pow(2, Math.max(0, Math.min(30, openCount - 1))));
+		return Math.max(1, (long) (bound / 2 + ThreadLocalRandom.current().nextDouble() * bound / 2));
+	}
+}
@@ -1,19 +1,49 @@
 package house.intelli.core.rpc;
 
 import static java.util.Objects.*;
-import static house.intelli.core.util.Util.*;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import house.intelli.core.Uid;
+import house.intelli.core.metrics.Counter;
+import house.intelli.core.metrics.LatencyHistogramsByType;
+import house.intelli.core.metrics.MetricRegistry;
 
 /**
  * Client to invoke {@link RpcService}s.
  * <p>
- * Instances of this class are <b>not thread-safe!</b>
+ * Instances of this class are thread-safe: Multiple threads may {@linkplain #invoke(Request) invoke}
+ * concurrently. Every invocation uses its own {@link RpcClientTransport} exclusively, which is taken from
+ * a pool of idle transports (or newly created, if there is none) and put back after a successful exchange.
+ * A transport whose exchange failed is closed, because its state is unknown.
+ * <p>
+ * Failed invocations are retried according to the context's {@link RpcContext#getRetryPolicy() RetryPolicy}.
+ * <p>
+ * In {@link RpcContextMode#CLIENT CLIENT}-mode, a request to another client is sent directly, if a
+ * {@linkplain RpcContext#putDirectRpcClientTransportProvider(HostId, RpcClientTransportProvider) direct route}
+ * to it is configured. If this fails, the request is relayed by the server instead.
+ * <p>
+ * Usually, the shared instance returned by {@link RpcContext#getRpcClient()} should be used.
+ * <p>
+ * The duration of every successful invocation -- including retries -- is recorded per request-type in the
+ * {@link RpcContext#getMetricRegistry() metricRegistry} as "rpcClient.invoke[SimpleName]".
  * @author mn
  */
 public class RpcClient implements AutoCloseable {
@@ -21,7 +51,15 @@ public class RpcClient implements AutoCloseable {
 
 	private final RpcContext rpcContext;
 	private final RpcClientTransportProvider rpcClientTransportProvider;
-	private RpcClientTransport rpcClientTransport;
+	private final BlockingDeque<RpcClientTransport> idleRpcClientTransports = new LinkedBlockingDeque<>(RpcConst.MAX_IDLE_CLIENT_TRANSPORT_COUNT);
+	private final Set<AsyncInvocation<?>> asyncInvocations = ConcurrentHashMap.newKeySet();
+	private final Set<RpcClientTransport> streamingRpcClientTransports = ConcurrentHashMap.newKeySet();
+	private volatile ScheduledExecutorService asyncExecutorService;
+	private volatile boolean closed;
+
+	private final LatencyHistogramsByType invokeLatencyHistograms;
+	private final Counter failedCounter;
+	private final Counter retryCounter;
 
 	protected RpcClient(final RpcContext rpcContext) {
 		this.rpcContext = requireNonNull(rpcContext, "rpcContext");
@@ -29,72 +67,165 @@ public class RpcClient implements AutoCloseable {
 			this.rpcClientTransportProvider = requireNonNull(this.rpcContext.getRpcClientTransportProvider(), "rpcContext.rpcClientTransportProvider");
 		else
 			this.rpcClientTransportProvider = null;
+
+		final MetricRegistry metricRegistry = rpcContext.getMetricRegistry();
+		invokeLatencyHistograms = metricRegistry.getLatencyHistogramsByType("rpcClient.invoke");
+		failedCounter = metricRegistry.getCounter("rpcClient.failed");
+		retryCounter = metricRegistry.getCounter("rpcClient.retries");
 	}
 
 	public <REQ extends Request<RES>, RES extends Response> RES invoke(final REQ request) throws RpcException {
 		requireNonNull(request, "request");
+		assertNotClosed();
 		prepareRequest(request);
 
-		final long timeoutTimestamp = request.getCreated().getTime() + request.getTimeout();
+		final long startNanos = System.nanoTime();
+		final HostRetryState hostRetryState = getHostRetryState(request);
 		int retryCount = 0;
-		final int maxRetryCount = 3;
 		while (true) {
+			hostRetryState.beforeAttempt(retryCount > 0);
 			try {
 				RES response = _invoke(request);
+				hostRetryState.onSuccess();
+				invokeLatencyHistograms.record(request.getClass(), System.nanoTime() - startNanos);
 				return response;
 			} catch (Throwable x) {
 				logger.error("invoke: " + x + ' ', x);
 
-				if (System.currentTimeMillis() > timeoutTimestamp)
-					throw x;
-
-				if (! isRetriableError(x) && ! isRetriableRequest(request))
-					throw x;
-
-				if (++retryCount > maxRetryCount)
+				final long retryDelay = onAttemptFailed(request, hostRetryState, x, ++retryCount);
+				if (retryDelay < 0) {
+					failedCounter.increment();
 					throw x;
+				}
 
-				logger.info("invoke: RETRYING! retryCount={}", retryCount);
-				try {
-					Thread.sleep(1000L);
-				} catch (InterruptedException e) {
-					doNothing();
+				logger.info("invoke: RETRYING in {} ms! retryCount={}", retryDelay, retryCount);
+				if (retryDelay > 0) {
+					try {
+						Thread.sleep(retryDelay);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						failedCounter.increment();
+						throw x;
+					}
 				}
 			}
 		}
 	}
 
-	private boolean isRetriableRequest(Request<?> request) {
-		return request.isIdempotent();
+	/**
+	 * Invokes multiple independent requests in one single round-trip.
+	 * <p>
+	 * All requests must have the same {@code serverHostId}. They are sent in one {@link BatchRequest}, which
+	 * is retried and deferred just like any other request passed to {@link #invoke(Request)}. To obtain the
+	 * individual {@link ErrorResponse}s instead of an exception, invoke a {@code BatchRequest} directly.
+	 * @param requests the requests. Must not be <code>null</code> and must not contain <code>null</code>.
+	 * @return the responses in the same order as the requests. Never <code>null</code>. An element is
+	 * <code>null</code>, if the service returned <code>null</code>.
+	 * @throws RpcException if the invocation failed -- or any of the requests, in which case the first
+	 * failure is thrown.
+	 * @see RpcConst#MAX_BATCH_REQUEST_SIZE
+	 */
+	public <REQ extends Request<RES>, RES extends Response> List<RES> invokeBatch(final List<REQ> requests) throws RpcException {
+		requireNonNull(requests, "requests");
+		if (requests.isEmpty())
+			return new ArrayList<>(0);
+
+		final BatchRequest batchRequest = new BatchRequest();
+		batchRequest.setServerHostId(requireNonNull(requests.get(0).getServerHostId(), "requests[0].serverHostId"));
+		long timeout = 0;
+		for (final REQ request : requests) {
+			requireNonNull(request, "requests[i]");
+			if (! batchRequest.getServerHostId().equals(request.getServerHostId()))
+				throw new IllegalArgumentException("requests[i].serverHostId != requests[0].serverHostId");
+
+			prepareRequest(request);
+			timeout = Math.max(timeout, request.getTimeout());
+			batchRequest.getRequests().add(request);
+		}
+		batchRequest.setTimeout(timeout);
+
+		final BatchResponse batchResponse = invoke(batchRequest);
+		requireNonNull(batchResponse, "batchResponse");
+		if (batchResponse.getResponses().size() != requests.size())
+			throw new IllegalStateException(String.format("batchResponse.responses.size != requests.size :: %d != %d",
+					batchResponse.getResponses().size(), requests.size()));
+
+		final List<RES> result = new ArrayList<>(requests.size());
+		for (final Response response : batchResponse.getResponses())
+			result.add(toResult(response));
+
+		return result;
+	}
+
+	/**
+	 * Gets the retry-budget and circuit-breaker of the host the given request is exchanged with. In
+	 * {@link RpcContextMode#CLIENT CLIENT}-mode, this is always the server -- even if it only relays the request.
+	 */
+	private HostRetryState getHostRetryState(final Request<?> request) {
+		final HostId hostId = RpcContextMode.CLIENT == rpcContext.getMode() ? HostId.SERVER : request.getServerHostId();
+		return rpcContext.getHostRetryState(hostId);
 	}
 
-	private boolean isRetriableError(final Throwable x) {
-		Throwable t = x;
-		while (t != null) {
-			RetriableError annotation = t.getClass().getAnnotation(RetriableError.class);
-			if (annotation != null) {
-				return annotation.value();
-			}
-			t = t.getCause();
+	/**
+	 * Records a failed attempt and decides, whether it is retried -- according to the {@link RetryPolicy}.
+	 * @param request the request. Must not be <code>null</code>.
+	 * @param hostRetryState the host's retry-state. Must not be <code>null</code>.
+	 * @param x the failure. Must not be <code>null</code>.
+	 * @param retryCount the number of the retry to be made (1 for the first retry).
+	 * @return the delay (milliseconds) before the retry or -1, if the invocation must not be retried.
+	 */
+	private long onAttemptFailed(final Request<?> request, final HostRetryState hostRetryState, final Throwable x, final int retryCount) {
+		if (x instanceof CircuitOpenException) // the attempt was not even made
+			return -1;
+
+		final RetryPolicy retryPolicy = rpcContext.getRetryPolicy();
+		final RetryPolicy.FailureType failureType = retryPolicy.classify(x);
+		recordFailure(hostRetryState, failureType);
+
+		if (closed || ! retryPolicy.isRetriable(request, failureType) || retryCount > retryPolicy.getMaxRetryCount())
+			return -1;
+
+		final long retryDelay = retryPolicy.getBackoff(retryCount, failureType);
+		if (System.currentTimeMillis() + retryDelay > request.getDeadline())
+			return -1;
+
+		if (! hostRetryState.tryAcquireRetry()) {
+			logger.warn("onAttemptFailed: Retry-budget exhausted! Not retrying: {}", request);
+			return -1;
 		}
-		return false;
+		retryCounter.increment();
+		return retryDelay;
+	}
+
+	private static void recordFailure(final HostRetryState hostRetryState, final RetryPolicy.FailureType failureType) {
+		if (failureType.isHostDownIndication())
+			hostRetryState.onFailure(failureType);
+		else // the host was reached -- e.g. the remote service threw an exception
+			hostRetryState.onSuccess();
 	}
 
 	protected <REQ extends Request<RES>, RES extends Response> RES _invoke(final REQ request) throws RpcException {
 		requireNonNull(request, "request");
 
-		final long timeoutTimestamp = request.getCreated().getTime() + request.getTimeout();
+		final long timeoutTimestamp = request.getDeadline();
 		DeferredResponseRequest deferredResponseRequest = null;
+		DirectRoute directRoute = getAvailableDirectRoute(request);
 		try {
 			while (true) {
 				Request<?> req = deferredResponseRequest != null ? deferredResponseRequest : request;
 				logger.debug("invoke: Sending request: {}", req);
 
-				Response response;
+				Response response = null;
 				if (RpcContextMode.CLIENT == rpcContext.getMode()) {
-					final RpcClientTransport rpcClientTransport = getRpcClientTransport();
-					rpcClientTransport.sendRequest(req);
-					response = rpcClientTransport.receiveResponse();
+					if (directRoute != null) {
+						response = exchangeDirectly(directRoute, request, req);
+						if (response == null) { // falling back to the server-relay
+							directRoute = null;
+							req = request;
+						}
+					}
+					if (response == null)
+						response = exchange(req);
 				}
 				else {
 					final RpcServiceExecutor rpcServiceExecutor = rpcContext.getRpcServiceExecutor();
@@ -110,27 +241,326 @@ public class RpcClient implements AutoCloseable {
 					if (System.currentTimeMillis() > timeoutTimestamp)
 						throw new RpcTimeoutException(String.format("Request timed out: %s", request));
 
-					deferredResponseRequest = new DeferredResponseRequest();
-					deferredResponseRequest.copyRequestCoordinates(request);
-					deferredResponseRequest.setCreated(new Date());
-					deferredResponseRequest.setTimeout(Math.max(1, timeoutTimestamp - System.currentTimeMillis()));
+					deferredResponseRequest = createDeferredResponseRequest(request, timeoutTimestamp);
 					continue;
 				}
 
-				if (response instanceof ErrorResponse) {
-					ErrorResponse errorResponse = (ErrorResponse) response;
-					Error error = requireNonNull(errorResponse.getError(), "errorResponse.error");
-					RemoteExceptionUtil.throwOriginalExceptionIfPossible(error);
-					throw new RemoteException(error);
+				return toResult(response);
+			}
+		} catch (RpcException x) {
+			throw x;
+		} catch (RuntimeException x) {
+			throw x;
+		} catch (Exception x) {
+			throw new RpcException(x);
+		}
+	}
+
+	private Response exchange(final Request<?> request) throws IOException {
+		final RpcClientTransport rpcClientTransport = acquireRpcClientTransport();
+		boolean successful = false;
+		try {
+			rpcClientTransport.sendRequest(request);
+			getHostRetryState(request).onHostReached(); // a long-running probe must not keep the circuit half-open
+			final Response response = rpcClientTransport.receiveResponse();
+			successful = true;
+			return response;
+		} finally {
+			if (successful)
+				releaseRpcClientTransport(rpcClientTransport);
+			else
+				rpcClientTransport.close();
+		}
+	}
+
+	private DirectRoute getAvailableDirectRoute(final Request<?> request) {
+		if (RpcContextMode.CLIENT != rpcContext.getMode())
+			return null;
+
+		return rpcContext.getAvailableDirectRoute(request.getServerHostId());
+	}
+
+	/**
+	 * Exchanges a request over a direct route to another client. If this fails, the route is
+	 * {@linkplain DirectRoute#markUnavailable(Throwable) marked unavailable}.
+	 * @param directRoute the direct route. Must not be <code>null</code>.
+	 * @param request the original request. Must not be <code>null</code>.
+	 * @param req the request to be sent -- either the original one or a {@link DeferredResponseRequest}
+	 * fetching its response. Must not be <code>null</code>.
+	 * @return the response or <code>null</code>, if the direct route failed and the original request should
+	 * be relayed by the server instead.
+	 * @throws IOException if the direct route failed and the original request must not be relayed, because
+	 * the other client might have processed it already and it is not idempotent.
+	 */
+	private Response exchangeDirectly(final DirectRoute directRoute, final Request<?> request, final Request<?> req) throws IOException {
+		try {
+			return directRoute.exchange(req);
+		} catch (IOException | RuntimeException x) {
+			directRoute.markUnavailable(x);
+			// A DeferringResponse was received before => the other client has the original request already.
+			final boolean maybeProcessed = req != request || ! rpcContext.getRetryPolicy().classify(x).isRetriableForAnyRequest();
+			if (maybeProcessed && ! request.isIdempotent())
+				throw x;
+
+			logger.info("exchangeDirectly: Relaying via server: {}", request);
+			return null;
+		}
+	}
+
+	private static DeferredResponseRequest createDeferredResponseRequest(final Request<?> request, final long timeoutTimestamp) {
+		final DeferredResponseRequest deferredResponseRequest = new DeferredResponseRequest();
+		deferredResponseRequest.copyRequestCoordinates(request);
+		deferredResponseRequest.setCreated(new Date());
+		deferredResponseRequest.setTimeout(Math.max(1, timeoutTimestamp - System.currentTimeMillis()));
+		deferredResponseRequest.setLowLevelTimeout(request.getLowLevelTimeout());
+		return deferredResponseRequest;
+	}
+
+	/**
+	 * Invokes a request asynchronously.
+	 * <p>
+	 * In contrast to {@link #invoke(Request)}, no thread waits for the response: In {@link RpcContextMode#CLIENT
+	 * CLIENT}-mode, the exchanges are performed by a small, fixed number of {@linkplain RpcContext#getAsyncIoThreadCount()
+	 * I/O threads}. Every exchange is short ({@link RpcContext#getAsyncLowLevelTimeout()}) and a deferred response is
+	 * polled again later -- interleaved with the exchanges of all other outstanding invocations. In
+	 * {@link RpcContextMode#SERVER SERVER}-mode, the future is completed directly, when the inverse response arrives.
+	 * <p>
+	 * Failed invocations are retried like in {@link #invoke(Request)}.
+	 * @param request the request. Must not be <code>null</code>.
+	 * @return the future of the response. Never <code>null</code>. It is completed with <code>null</code>, if
+	 * the service returned <code>null</code>, and exceptionally, if the invocation failed or timed out.
+	 */
+	public <REQ extends Request<RES>, RES extends Response> CompletableFuture<RES> invokeAsync(final REQ request) {
+		requireNonNull(request, "request");
+		assertNotClosed();
+		prepareRequest(request);
+		if (RpcContextMode.CLIENT == rpcContext.getMode() && request.getLowLevelTimeout() == Request.TIMEOUT_UNDEFINED)
+			request.setLowLevelTimeout(rpcContext.getAsyncLowLevelTimeout());
+
+		final long startNanos = System.nanoTime();
+		final AsyncInvocation<RES> asyncInvocation = new AsyncInvocation<>(request);
+		asyncInvocations.add(asyncInvocation);
+		asyncInvocation.future.whenComplete((response, x) -> {
+			asyncInvocations.remove(asyncInvocation);
+			if (x == null)
+				invokeLatencyHistograms.record(request.getClass(), System.nanoTime() - startNanos);
+			else
+				failedCounter.increment();
+		});
+		if (closed) { // closed concurrently => close() might have missed our invocation.
+			asyncInvocation.future.completeExceptionally(new IllegalStateException("This RpcClient instance is already closed!"));
+			return asyncInvocation.future;
+		}
+		asyncInvocation.attempt();
+
+		// In SERVER-mode, there is no exchange noticing the timeout. In CLIENT-mode, this is just a safety net.
+		final ScheduledFuture<?> timeoutFuture = getAsyncExecutorService().schedule(() -> {
+			asyncInvocation.future.completeExceptionally(new RpcTimeoutException(String.format("Request timed out: %s", request)));
+		}, Math.max(0, asyncInvocation.timeoutTimestamp - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+		asyncInvocation.future.whenComplete((response, x) -> timeoutFuture.cancel(false));
+
+		return asyncInvocation.future;
+	}
+
+	/**
+	 * State of one {@linkplain #invokeAsync(Request) asynchronous invocation}. Its methods are invoked by
+	 * one thread at a time -- the next step is only scheduled, when the current one is done.
+	 */
+	private final class AsyncInvocation<RES extends Response> {
+		public final CompletableFuture<RES> future = new CompletableFuture<>();
+		private final Request<RES> request;
+		public final long timeoutTimestamp;
+		private DeferredResponseRequest deferredResponseRequest;
+		private long deferredPollDelay;
+		private final HostRetryState hostRetryState;
+		private DirectRoute directRoute;
+		private int retryCount;
+
+		public AsyncInvocation(final Request<RES> request) {
+			this.request = requireNonNull(request, "request");
+			this.timeoutTimestamp = request.getDeadline();
+			this.hostRetryState = getHostRetryState(request);
+		}
+
+		public void attempt() {
+			try {
+				hostRetryState.beforeAttempt(retryCount > 0);
+				deferredResponseRequest = null;
+				deferredPollDelay = 0;
+				directRoute = getAvailableDirectRoute(request);
+				if (RpcContextMode.CLIENT == rpcContext.getMode()) {
+					getAsyncExecutorService().execute(this::exchangeOnce);
+					return;
+				}
+				// The response is put by a worker thread, which should not run the caller's callbacks.
+				rpcContext.getRpcServiceExecutor().putRequestAsync(request).whenCompleteAsync((response, x) -> {
+					if (x != null)
+						onFailure(x);
+					else
+						onResponse(response);
+				}, getAsyncExecutorService());
+			} catch (Throwable x) {
+				onFailure(x);
+			}
+		}
+
+		private void exchangeOnce() {
+			if (future.isDone()) // e.g. cancelled
+				return;
+
+			Request<?> req = deferredResponseRequest != null ? deferredResponseRequest : request;
+			logger.debug("invokeAsync: Sending request: {}", req);
+			Response response = null;
+			try {
+				if (directRoute != null) {
+					response = exchangeDirectly(directRoute, request, req);
+					if (response == null) { // falling back to the server-relay
+						directRoute = null;
+						req = request;
+					}
+				}
+				if (response == null)
+					response = exchange(req);
+			} catch (Throwable x) {
+				onFailure(x);
+				return;
+			}
+			logger.debug("invokeAsync: Received response: {}", response);
+			onResponse(response);
+		}
+
+		private void onResponse(final Response response) {
+			try {
+				if (response instanceof DeferringResponse) {
+					if (System.currentTimeMillis() > timeoutTimestamp)
+						throw new RpcTimeoutException(String.format("Request timed out: %s", request));
+
+					deferredResponseRequest = createDeferredResponseRequest(request, timeoutTimestamp);
+					getAsyncExecutorService().schedule(this::exchangeOnce, deferredPollDelay, TimeUnit.MILLISECONDS);
+					deferredPollDelay = Math.min(RpcConst.ASYNC_MAX_DEFERRED_POLL_DELAY, Math.max(10, deferredPollDelay * 2));
+					return;
 				}
+				final RES res = toResult(response);
+				hostRetryState.onSuccess();
+				future.complete(res);
+			} catch (Throwable x) {
+				onFailure(x);
+			}
+		}
+
+		private void onFailure(final Throwable x) {
+			logger.error("invokeAsync: " + x + ' ', x);
+			final long retryDelay = onAttemptFailed(request, hostRetryState, x, ++retryCount);
+			if (retryDelay < 0) {
+				future.completeExceptionally(x);
+				return;
+			}
+			logger.info("invokeAsync: RETRYING in {} ms! retryCount={}", retryDelay, retryCount);
+			try {
+				getAsyncExecutorService().schedule(this::attempt, retryDelay, TimeUnit.MILLISECONDS);
+			} catch (RuntimeException e) {
+				future.completeExceptionally(x);
+			}
+		}
+	}
 
-				if (response instanceof NullResponse) {
-					return null;
+	/**
+	 * Gets the executor running the I/O threads of the {@linkplain #invokeAsync(Request) asynchronous invocations}.
+	 * It is created on first use.
+	 * @return the executor. Never <code>null</code>.
+	 */
+	protected ScheduledExecutorService getAsyncExecutorService() {
+		ScheduledExecutorService asyncExecutorService = this.asyncExecutorService;
+		if (asyncExecutorService == null) {
+			synchronized (this) {
+				asyncExecutorService = this.asyncExecutorService;
+				if (asyncExecutorService == null) {
+					assertNotClosed();
+					final String name = String.format("RpcClient[%s].io", rpcContext.getLocalHostId());
+					final AtomicInteger threadCounter = new AtomicInteger();
+					final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(rpcContext.getAsyncIoThreadCount(), runnable -> {
+						final Thread thread = new Thread(runnable, name + '-' + threadCounter.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					});
+					executor.setRemoveOnCancelPolicy(true); // the timeouts are usually cancelled
+					this.asyncExecutorService = asyncExecutorService = executor;
 				}
+			}
+		}
+		return asyncExecutorService;
+	}
 
-				@SuppressWarnings("unchecked")
-				RES res = (RES) response;
-				return res;
+	boolean isAsyncExecutorServiceCreated() {
+		return asyncExecutorService != null;
+	}
+
+	/**
+	 * Invokes a request, for which the server may send multiple responses.
+	 * <p>
+	 * If the {@link RpcClientTransport} is a {@link StreamingRpcClientTransport}, every intermediate response
+	 * is passed to the given consumer as soon as it arrives, while the final response is returned. Otherwise,
+	 * or if the server does not stream, there is only the final response.
+	 * <p>
+	 * In contrast to {@link #invoke(Request)}, the invocation is neither retried nor deferred.
+	 * @param request the request. Must not be <code>null</code>.
+	 * @param streamedResponseConsumer the consumer of the intermediate responses. Must not be <code>null</code>.
+	 * @return the final response.
+	 * @throws RpcException if the invocation failed -- possibly after some intermediate responses were consumed.
+	 */
+	public <REQ extends Request<RES>, RES extends Response> RES invokeStreaming(final REQ request, final Consumer<? super RES> streamedResponseConsumer) throws RpcException {
+		requireNonNull(request, "request");
+		requireNonNull(streamedResponseConsumer, "streamedResponseConsumer");
+		assertNotClosed();
+		if (RpcContextMode.CLIENT != rpcContext.getMode())
+			throw new UnsupportedOperationException("Streaming is only supported in CLIENT-mode!");
+
+		prepareRequest(request);
+		final HostRetryState hostRetryState = getHostRetryState(request);
+		hostRetryState.beforeAttempt(false);
+		try {
+			final RES res = _invokeStreaming(request, streamedResponseConsumer);
+			hostRetryState.onSuccess();
+			return res;
+		} catch (RpcException | RuntimeException x) {
+			recordFailure(hostRetryState, rpcContext.getRetryPolicy().classify(x));
+			throw x;
+		}
+	}
+
+	private <REQ extends Request<RES>, RES extends Response> RES _invokeStreaming(final REQ request, final Consumer<? super RES> streamedResponseConsumer) throws RpcException {
+		try {
+			final RpcClientTransport rpcClientTransport = acquireRpcClientTransport();
+			// A stream is open for a long time => close() must close it, instead of waiting for it to end.
+			streamingRpcClientTransports.add(rpcClientTransport);
+			boolean successful = false;
+			try {
+				assertNotClosed(); // closed concurrently => close() might have missed our transport.
+				logger.debug("invokeStreaming: Sending request: {}", request);
+				rpcClientTransport.sendRequest(request);
+				getHostRetryState(request).onHostReached();
+				while (true) {
+					final Response response = rpcClientTransport.receiveResponse();
+					logger.debug("invokeStreaming: Received response: {}", response);
+
+					if (response instanceof DeferringResponse)
+						throw new IllegalStateException("Server deferred a streaming request: " + request);
+
+					final RES res = toResult(response);
+					if (rpcClientTransport instanceof StreamingRpcClientTransport
+							&& ((StreamingRpcClientTransport) rpcClientTransport).isMoreResponsesExpected()) {
+						streamedResponseConsumer.accept(res);
+						continue;
+					}
+					successful = true;
+					return res;
+				}
+			} finally {
+				streamingRpcClientTransports.remove(rpcClientTransport);
+				if (successful)
+					releaseRpcClientTransport(rpcClientTransport);
+				else
+					rpcClientTransport.close();
 			}
 		} catch (RpcException x) {
 			throw x;
@@ -141,6 +571,23 @@ public class RpcClient implements AutoCloseable {
 		}
 	}
 
+	private <RES extends Response> RES toResult(final Response response) throws RemoteException {
+		if (response instanceof ErrorResponse) {
+			ErrorResponse errorResponse = (ErrorResponse) response;
+			Error error = requireNonNull(errorResponse.getError(), "errorResponse.error");
+			RemoteExceptionUtil.throwOriginalExceptionIfPossible(error);
+			throw new RemoteException(error);
+		}
+
+		if (response instanceof NullResponse) {
+			return null;
+		}
+
+		@SuppressWarnings("unchecked")
+		RES res = (RES) response;
+		return res;
+	}
+
 	protected void prepareRequest(Request<?> request) {
 		requireNonNull(request, "request");
 		requireNonNull(request.getServerHostId(), "request.serverHostId");
@@ -158,19 +605,64 @@ public class RpcClient implements AutoCloseable {
 			request.setTimeout(RpcConst.DEFAULT_REQUEST_TIMEOUT);
 	}
 
-	public RpcClientTransport getRpcClientTransport() {
-		if (rpcClientTransport == null)
-			rpcClientTransport = requireNonNull(rpcClientTransportProvider, "rpcClientTransportProvider").createRpcClientTransport();
+	/**
+	 * Takes an idle transport from the pool or creates a new one, if there is none.
+	 * <p>
+	 * The caller uses the transport exclusively, until it passes it to {@link #releaseRpcClientTransport(RpcClientTransport)}
+	 * or closes it.
+	 * @return the transport. Never <code>null</code>.
+	 */
+	protected RpcClientTransport acquireRpcClientTransport() {
+		final RpcClientTransport rpcClientTransport = idleRpcClientTransports.pollFirst();
+		if (rpcClientTransport != null)
+			return rpcClientTransport;
+
+		return requireNonNull(rpcClientTransportProvider, "rpcClientTransportProvider").createRpcClientTransport();
+	}
+
+	/**
+	 * Puts the given transport back into the pool after a successful exchange. If the pool is full or this
+	 * client was closed, the transport is closed instead.
+	 * @param rpcClientTransport the transport. Must not be <code>null</code>.
+	 */
+	protected void releaseRpcClientTransport(final RpcClientTransport rpcClientTransport) {
+		requireNonNull(rpcClientTransport, "rpcClientTransport");
+		// LIFO: The most recently used transport is re-used first, because its connection is most likely still alive.
+		if (closed || ! idleRpcClientTransports.offerFirst(rpcClientTransport)) {
+			rpcClientTransport.close();
+			return;
+		}
+		if (closed) // closed concurrently => close() might have missed our transport.
+			closeIdleRpcClientTransports();
+	}
+
+	private void closeIdleRpcClientTransports() {
+		RpcClientTransport rpcClientTransport;
+		while ((rpcClientTransport = idleRpcClientTransports.pollFirst()) != null)
+			rpcClientTransport.close();
+	}
 
-		return rpcClientTransport;
+	protected void assertNotClosed() {
+		if (closed)
+			throw new IllegalStateException("This RpcClient instance is already closed!");
 	}
 
 	@Override
 	public void close() {
-		final RpcClientTransport rct = rpcClientTransport;
-		if (rct != null) {
-			rct.close();
-			rpcClientTransport = null;
+		closed = true;
+		closeIdleRpcClientTransports();
+
+		for (final RpcClientTransport rpcClientTransport : streamingRpcClientTransports)
+			rpcClientTransport.close(); // makes the streaming thread's receiveResponse() fail
+
+		final ScheduledExecutorService asyncExecutorService;
+		synchronized (this) {
+			asyncExecutorService = this.asyncExecutorService;
 		}
+		if (asyncExecutorService != null)
+			asyncExecutorService.shutdownNow();
+
+		for (final AsyncInvocation<?> asyncInvocation : asyncInvocations)
+			asyncInvocation.future.completeExceptionally(new IllegalStateException("This RpcClient instance was closed!"));
 	}
-}
\ No newline at end of file
+}
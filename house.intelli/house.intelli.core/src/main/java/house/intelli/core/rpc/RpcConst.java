@@ -26,4 +26,192 @@ public interface RpcConst {
 
 	int TRANSPORT_READ_TIMEOUT = LOW_LEVEL_TIMEOUT + (20 * 1000);
 
+	/**
+	 * Maximum size (bytes) of a request the {@link HttpRpcClientTransport} buffers completely. A larger one is
+	 * streamed to the socket in chunks of {@link #HTTP_CHUNK_SIZE}.
+	 */
+	int HTTP_STREAMING_THRESHOLD = 64 * 1024;
+
+	/**
+	 * Size (bytes) of the chunks a large request is streamed with.
+	 * @see #HTTP_STREAMING_THRESHOLD
+	 */
+	int HTTP_CHUNK_SIZE = 8 * 1024;
+
+	/**
+	 * How long (milliseconds) does the {@link RpcServer} keep a stream of inverse requests open. Then, the
+	 * stream ends and the client opens a new one.
+	 * @see StreamInverseRequestsRequest
+	 */
+	int INVERSE_REQUEST_STREAM_TIMEOUT = 10 * 60 * 1000;
+
+	/**
+	 * How long (milliseconds) does the client fall back to polling inverse requests, after a stream failed,
+	 * before it tries to open a new stream.
+	 * @see StreamInverseRequestsRequest
+	 */
+	int INVERSE_REQUEST_STREAM_RETRY_DELAY = 60 * 1000;
+
+	/**
+	 * Default maximum number of threads processing requests in {@link RpcContextMode#SERVER SERVER}-mode.
+	 * @see RpcContext#getWorkerPoolSize()
+	 */
+	int DEFAULT_SERVER_WORKER_POOL_SIZE = 64;
+
+	/**
+	 * Default maximum number of requests waiting for a worker thread in {@link RpcContextMode#SERVER SERVER}-mode.
+	 * @see RpcContext#getWorkerQueueCapacity()
+	 */
+	int DEFAULT_SERVER_WORKER_QUEUE_CAPACITY = 1000;
+
+	/**
+	 * Default maximum number of threads processing requests in {@link RpcContextMode#CLIENT CLIENT}-mode.
+	 * <p>
+	 * This is much smaller than {@link #DEFAULT_SERVER_WORKER_POOL_SIZE}, because clients are usually
+	 * small devices (e.g. Raspberry Pis) with very limited memory.
+	 * @see RpcContext#getWorkerPoolSize()
+	 */
+	int DEFAULT_CLIENT_WORKER_POOL_SIZE = 8;
+
+	/**
+	 * Default maximum number of requests waiting for a worker thread in {@link RpcContextMode#CLIENT CLIENT}-mode.
+	 * @see RpcContext#getWorkerQueueCapacity()
+	 */
+	int DEFAULT_CLIENT_WORKER_QUEUE_CAPACITY = 100;
+
+	/**
+	 * How long (milliseconds) an idle worker thread is kept alive before it is terminated.
+	 */
+	long WORKER_KEEP_ALIVE_TIME = 60 * 1000;
+
+	/**
+	 * Maximum number of requests of one {@link BatchRequest} being processed concurrently.
+	 * <p>
+	 * This keeps a large batch from occupying all worker threads (and filling the queue), which would
+	 * cause other requests to be rejected.
+	 * @see BatchRequest#isSequential()
+	 */
+	int MAX_BATCH_REQUEST_PARALLELISM = 4;
+
+	/**
+	 * Maximum number of requests in one {@link BatchRequest}.
+	 */
+	int MAX_BATCH_REQUEST_SIZE = 1000;
+
+	/**
+	 * Default number of I/O threads performing the exchanges of {@linkplain RpcClient#invokeAsync(Request)
+	 * asynchronous invocations}.
+	 * @see RpcContext#getAsyncIoThreadCount()
+	 */
+	int DEFAULT_ASYNC_IO_THREAD_COUNT = 2;
+
+	/**
+	 * Default of how long (milliseconds) the {@link RpcServer} can make the {@link RpcClient} wait within one
+	 * exchange of an {@linkplain RpcClient#invokeAsync(Request) asynchronous invocation}.
+	 * <p>
+	 * This is shorter than {@link #LOW_LEVEL_TIMEOUT}, because the exchange blocks one of the few I/O threads. But it
+	 * is long enough for a request relayed by the server to another client (e.g. from one Raspberry Pi to another)
+	 * to complete within its first exchange. A slower request is polled.
+	 * @see RpcContext#getAsyncLowLevelTimeout()
+	 * @see Request#getLowLevelTimeout()
+	 */
+	int DEFAULT_ASYNC_LOW_LEVEL_TIMEOUT = 2 * 1000;
+
+	/**
+	 * Maximum delay (milliseconds) between two polls for the response of an {@linkplain RpcClient#invokeAsync(Request)
+	 * asynchronous invocation}. The delay starts short and is doubled with every {@link DeferringResponse}.
+	 */
+	int ASYNC_MAX_DEFERRED_POLL_DELAY = 1000;
+
+	/**
+	 * Maximum number of idle {@link RpcClientTransport}s kept by an {@link RpcClient} for re-use.
+	 * <p>
+	 * More transports are created, if more invocations are in-flight concurrently, but the surplus
+	 * is closed after use.
+	 */
+	int MAX_IDLE_CLIENT_TRANSPORT_COUNT = 8;
+
+	/**
+	 * Duration (milliseconds) of one tick of the {@link TimingWheel} expiring deadlines and evicting stale
+	 * book-keeping. This is the precision of both.
+	 * @see RpcContext#getTimingWheel()
+	 */
+	long TIMING_WHEEL_TICK_DURATION = 10;
+
+	/**
+	 * Maximum duration (milliseconds) a response is kept after its request timed out, in case the caller polls
+	 * late. The grace period is never longer than the request's timeout itself.
+	 */
+	long MAX_EVICT_GRACE_PERIOD = LOW_LEVEL_TIMEOUT;
+
+	/**
+	 * Number of buckets of the {@link TimingWheel}. One revolution takes this many
+	 * {@linkplain #TIMING_WHEEL_TICK_DURATION ticks}.
+	 * @see RpcContext#getTimingWheel()
+	 */
+	int TIMING_WHEEL_SIZE = 1024;
+
+	/**
+	 * Default maximum number of inverse requests waiting for one client to poll them.
+	 * @see RpcContext#getInverseRequestQueueCapacity()
+	 */
+	int DEFAULT_INVERSE_REQUEST_QUEUE_CAPACITY = 1000;
+
+	/**
+	 * Maximum number of responses an {@link RpcServiceExecutor} keeps after they were picked up, in case their
+	 * requests are re-sent. The oldest are evicted first.
+	 * @see ResponseCache
+	 */
+	int RESPONSE_CACHE_MAX_SIZE = 1000;
+
+	/**
+	 * How long (milliseconds) an {@link RpcServiceExecutor} keeps a response after it was produced, in case its
+	 * request is re-sent. A client notices a lost response only after its transport timed out -- hence,
+	 * this must be longer than {@link #TRANSPORT_READ_TIMEOUT}.
+	 * @see ResponseCache
+	 */
+	long RESPONSE_CACHE_TIME_TO_LIVE = 2 * TRANSPORT_READ_TIMEOUT;
+
+	/**
+	 * How long (milliseconds) a {@linkplain RpcContext#putDirectRpcClientTransportProvider(HostId, RpcClientTransportProvider)
+	 * direct route} to another client is not tried, after an exchange over it failed. Meanwhile, all requests
+	 * to this client are relayed by the server.
+	 */
+	long DIRECT_ROUTE_RECHECK_PERIOD = 60 * 1000;
+
+	/**
+	 * Default TCP-port of the {@link DirectRpcServer}, which receives requests sent directly by other clients.
+	 */
+	int DEFAULT_DIRECT_RPC_SERVER_PORT = 8484;
+
+	/**
+	 * Default number of threads of the {@link DirectRpcServer}. They only read requests and send responses --
+	 * the requests are processed by the workers and nobody waits for them.
+	 */
+	int DEFAULT_DIRECT_RPC_SERVER_THREAD_COUNT = 2;
+
+	/**
+	 * Maximum size (bytes) of a request-body accepted by the {@link DirectRpcServer}. Requests between clients
+	 * are small -- the body is buffered before it is authenticated, hence a larger one is rejected.
+	 */
+	int DIRECT_RPC_SERVER_MAX_REQUEST_SIZE = 1024 * 1024;
+
+	/**
+	 * Default period (milliseconds) in which the metrics of an {@link RpcContext} are logged. 0 disables logging.
+	 * @see RpcContext#getMetricsLogPeriod()
+	 */
+	long DEFAULT_METRICS_LOG_PERIOD = 60 * 60 * 1000;
+
+	/**
+	 * Messages (encoded) smaller than this number of bytes are not compressed, if {@code LZ4} was negotiated.
+	 * @see house.intelli.core.rpc.codec.RpcCompressionUtil#selectCompression(house.intelli.core.rpc.codec.RpcCompression, int)
+	 */
+	int LZ4_COMPRESSION_THRESHOLD = 1024;
+
+	/**
+	 * Messages (encoded) smaller than this number of bytes are not compressed, if only {@code DEFLATE} was negotiated.
+	 * @see house.intelli.core.rpc.codec.RpcCompressionUtil#selectCompression(house.intelli.core.rpc.codec.RpcCompression, int)
+	 */
+	int DEFLATE_COMPRESSION_THRESHOLD = 2048;
+
 }
@@ -2,23 +2,93 @@ package house.intelli.core.rpc;
 
 import static java.util.Objects.*;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import house.intelli.core.jaxb.IntelliHouseJaxbContext;
+import house.intelli.core.metrics.MetricRegistry;
+
 public class RpcContext implements AutoCloseable {
+	private static final Logger logger = LoggerFactory.getLogger(RpcContext.class);
+
 	private final RpcContextMode mode;
 
 	private final HostId localHostId;
 
 	private RpcClientTransportProvider rpcClientTransportProvider;
 
+	private RpcClient rpcClient;
+
 	private RpcServiceExecutor rpcServiceExecutor;
 
 	private InverseRequestRegistry inverseRequestRegistry;
 
+	private TimingWheel timingWheel;
+
 	private final PollInverseRequestsThread pollInverseRequestsThread;
 
+	private int workerPoolSize;
+
+	private int workerQueueCapacity;
+
+	private RejectionPolicy workerRejectionPolicy = RejectionPolicy.REJECT;
+
+	private volatile boolean inverseRequestStreamEnabled = true;
+
+	private int inverseRequestQueueCapacity = RpcConst.DEFAULT_INVERSE_REQUEST_QUEUE_CAPACITY;
+
+	private InverseRequestOverflowPolicy inverseRequestOverflowPolicy = InverseRequestOverflowPolicy.REJECT_NEW;
+
+	private int asyncIoThreadCount = RpcConst.DEFAULT_ASYNC_IO_THREAD_COUNT;
+
+	private volatile int asyncLowLevelTimeout = RpcConst.DEFAULT_ASYNC_LOW_LEVEL_TIMEOUT;
+
+	private volatile RetryPolicy retryPolicy = new RetryPolicy();
+
+	private final ConcurrentMap<HostId, HostRetryState> hostId2HostRetryState = new ConcurrentHashMap<>();
+
+	private final ConcurrentMap<HostId, DirectRoute> hostId2DirectRoute = new ConcurrentHashMap<>();
+
+	private final MetricRegistry metricRegistry = new MetricRegistry();
+
+	private long metricsLogPeriod = RpcConst.DEFAULT_METRICS_LOG_PERIOD;
+
+	private TimingWheel.Timeout metricsLogTimeout;
+
 	public RpcContext(final RpcContextMode mode, HostId localHostId) {
 		this.mode = requireNonNull(mode, "mode");
 		this.localHostId = requireNonNull(localHostId, "localHostId");
 
+		switch (mode) {
+			case SERVER:
+				workerPoolSize = RpcConst.DEFAULT_SERVER_WORKER_POOL_SIZE;
+				workerQueueCapacity = RpcConst.DEFAULT_SERVER_WORKER_QUEUE_CAPACITY;
+				break;
+			case CLIENT:
+				workerPoolSize = RpcConst.DEFAULT_CLIENT_WORKER_POOL_SIZE;
+				workerQueueCapacity = RpcConst.DEFAULT_CLIENT_WORKER_QUEUE_CAPACITY;
+				break;
+			default:
+				throw new IllegalStateException("Unknown mode: " + mode);
+		}
+
+		// Building the JAXBContext takes long -- the first message should not have to wait for it.
+		IntelliHouseJaxbContext.initializeInBackground();
+
 		if (RpcContextMode.CLIENT == mode) {
 			pollInverseRequestsThread = new PollInverseRequestsThread(this);
 			pollInverseRequestsThread.start();
@@ -53,19 +123,410 @@ public class RpcContext implements AutoCloseable {
 
 			rpcClientTransportProvider.setRpcContext(this);
 		}
-		this.rpcClientTransportProvider = rpcClientTransportProvider;
+		final RpcClient oldRpcClient;
+		synchronized (this) {
+			this.rpcClientTransportProvider = rpcClientTransportProvider;
+			// The shared RpcClient is bound to the old provider => replace it lazily.
+			oldRpcClient = rpcClient;
+			rpcClient = null;
+		}
+		if (oldRpcClient != null)
+			oldRpcClient.close();
+	}
+
+	/**
+	 * Gets the maximum number of threads processing requests concurrently.
+	 * <p>
+	 * The default depends on the {@link #getMode() mode}: {@link RpcConst#DEFAULT_SERVER_WORKER_POOL_SIZE}
+	 * or {@link RpcConst#DEFAULT_CLIENT_WORKER_POOL_SIZE}.
+	 * <p>
+	 * This property (as well as the other worker-properties) must be configured, before this context is used.
+	 * @return the maximum number of threads processing requests concurrently. Always &gt; 0.
+	 */
+	public synchronized int getWorkerPoolSize() {
+		return workerPoolSize;
 	}
+	public synchronized void setWorkerPoolSize(int workerPoolSize) {
+		if (workerPoolSize < 1)
+			throw new IllegalArgumentException("workerPoolSize < 1");
 
+		assertRpcServiceExecutorNotYetCreated();
+		this.workerPoolSize = workerPoolSize;
+	}
+
+	/**
+	 * Gets the maximum number of requests waiting for a worker thread, if all {@linkplain #getWorkerPoolSize() workers}
+	 * are busy. If this queue is full, the {@link #getWorkerRejectionPolicy() workerRejectionPolicy} applies.
+	 * <p>
+	 * The default depends on the {@link #getMode() mode}: {@link RpcConst#DEFAULT_SERVER_WORKER_QUEUE_CAPACITY}
+	 * or {@link RpcConst#DEFAULT_CLIENT_WORKER_QUEUE_CAPACITY}.
+	 * @return the maximum number of requests waiting for a worker thread. Always &gt;= 0.
+	 */
+	public synchronized int getWorkerQueueCapacity() {
+		return workerQueueCapacity;
+	}
+	public synchronized void setWorkerQueueCapacity(int workerQueueCapacity) {
+		if (workerQueueCapacity < 0)
+			throw new IllegalArgumentException("workerQueueCapacity < 0");
+
+		assertRpcServiceExecutorNotYetCreated();
+		this.workerQueueCapacity = workerQueueCapacity;
+	}
+
+	/**
+	 * Gets the policy deciding what happens to a request, if all workers are busy and the queue is full.
+	 * @return the rejection-policy. Never <code>null</code>. Default is {@link RejectionPolicy#REJECT REJECT}.
+	 */
+	public synchronized RejectionPolicy getWorkerRejectionPolicy() {
+		return workerRejectionPolicy;
+	}
+	public synchronized void setWorkerRejectionPolicy(RejectionPolicy workerRejectionPolicy) {
+		requireNonNull(workerRejectionPolicy, "workerRejectionPolicy");
+		assertRpcServiceExecutorNotYetCreated();
+		this.workerRejectionPolicy = workerRejectionPolicy;
+	}
+
+	/**
+	 * Indicates whether inverse requests are received via a stream (in {@link RpcContextMode#CLIENT CLIENT}-mode).
+	 * <p>
+	 * If enabled (the default), the server sends every inverse request as soon as it is enqueued over a
+	 * {@link StreamInverseRequestsRequest}'s open exchange. If disabled -- or if the stream fails -- the
+	 * inverse requests are polled.
+	 * @return <code>true</code>, if inverse requests are streamed; <code>false</code>, if they are polled.
+	 */
+	public boolean isInverseRequestStreamEnabled() {
+		return inverseRequestStreamEnabled;
+	}
+	public void setInverseRequestStreamEnabled(boolean inverseRequestStreamEnabled) {
+		this.inverseRequestStreamEnabled = inverseRequestStreamEnabled;
+	}
+
+	/**
+	 * Gets the maximum number of inverse requests waiting for one client to poll them. If a client's queue is
+	 * full, the {@link #getInverseRequestOverflowPolicy() inverseRequestOverflowPolicy} applies.
+	 * @return the maximum number of inverse requests per client. Always &gt; 0. Default is
+	 * {@link RpcConst#DEFAULT_INVERSE_REQUEST_QUEUE_CAPACITY}.
+	 */
+	public synchronized int getInverseRequestQueueCapacity() {
+		return inverseRequestQueueCapacity;
+	}
+	public synchronized void setInverseRequestQueueCapacity(int inverseRequestQueueCapacity) {
+		if (inverseRequestQueueCapacity < 1)
+			throw new IllegalArgumentException("inverseRequestQueueCapacity < 1");
+
+		assertInverseRequestRegistryNotYetCreated();
+		this.inverseRequestQueueCapacity = inverseRequestQueueCapacity;
+	}
+
+	/**
+	 * Gets the policy deciding what happens to an inverse request, if the queue of its client is full.
+	 * @return the overflow-policy. Never <code>null</code>. Default is {@link InverseRequestOverflowPolicy#REJECT_NEW REJECT_NEW}.
+	 */
+	public synchronized InverseRequestOverflowPolicy getInverseRequestOverflowPolicy() {
+		return inverseRequestOverflowPolicy;
+	}
+	public synchronized void setInverseRequestOverflowPolicy(InverseRequestOverflowPolicy inverseRequestOverflowPolicy) {
+		requireNonNull(inverseRequestOverflowPolicy, "inverseRequestOverflowPolicy");
+		assertInverseRequestRegistryNotYetCreated();
+		this.inverseRequestOverflowPolicy = inverseRequestOverflowPolicy;
+	}
+
+	/**
+	 * Gets the number of I/O threads performing the exchanges of {@linkplain RpcClient#invokeAsync(Request)
+	 * asynchronous invocations}.
+	 * <p>
+	 * This property must be configured, before the first asynchronous invocation. Afterwards, changing it causes an
+	 * {@link IllegalStateException}.
+	 * @return the number of I/O threads. Always &gt; 0. Default is {@link RpcConst#DEFAULT_ASYNC_IO_THREAD_COUNT}.
+	 */
+	public synchronized int getAsyncIoThreadCount() {
+		return asyncIoThreadCount;
+	}
+	public synchronized void setAsyncIoThreadCount(int asyncIoThreadCount) {
+		if (asyncIoThreadCount < 1)
+			throw new IllegalArgumentException("asyncIoThreadCount < 1");
+
+		assertAsyncExecutorServiceNotYetCreated();
+		this.asyncIoThreadCount = asyncIoThreadCount;
+	}
+
+	/**
+	 * Gets how long (milliseconds) the {@link RpcServer} can make the {@link RpcClient} wait within one exchange of
+	 * an {@linkplain RpcClient#invokeAsync(Request) asynchronous invocation} in {@link RpcContextMode#CLIENT
+	 * CLIENT}-mode.
+	 * <p>
+	 * Every exchange blocks one of the {@linkplain #getAsyncIoThreadCount() I/O threads}: A shorter timeout lets
+	 * the I/O threads interleave more outstanding invocations, but a request not completed within it is polled --
+	 * costing additional exchanges and delaying its response by up to the poll-delay.
+	 * <p>
+	 * This is only the default: A {@linkplain Request#getLowLevelTimeout() low-level timeout} set explicitly on the
+	 * request is not overridden.
+	 * @return the low-level timeout of asynchronous invocations. Always &gt; 0. Default is
+	 * {@link RpcConst#DEFAULT_ASYNC_LOW_LEVEL_TIMEOUT}.
+	 */
+	public int getAsyncLowLevelTimeout() {
+		return asyncLowLevelTimeout;
+	}
+	public void setAsyncLowLevelTimeout(int asyncLowLevelTimeout) {
+		if (asyncLowLevelTimeout < 1)
+			throw new IllegalArgumentException("asyncLowLevelTimeout < 1");
+
+		this.asyncLowLevelTimeout = asyncLowLevelTimeout;
+	}
+
+	/**
+	 * Gets the policy deciding whether and when failed invocations are retried.
+	 * @return the retry-policy. Never <code>null</code>.
+	 */
+	public RetryPolicy getRetryPolicy() {
+		return retryPolicy;
+	}
+	/**
+	 * Sets the policy deciding whether and when failed invocations are retried. This resets the retry-budgets and
+	 * circuit-breakers of all hosts.
+	 * @param retryPolicy the retry-policy. Must not be <code>null</code>.
+	 */
+	public void setRetryPolicy(RetryPolicy retryPolicy) {
+		this.retryPolicy = requireNonNull(retryPolicy, "retryPolicy");
+		hostId2HostRetryState.clear();
+	}
+
+	/**
+	 * Gets the retry-budget and circuit-breaker of the given host.
+	 * @param hostId the host. Must not be <code>null</code>.
+	 * @return the retry-state of the given host. Never <code>null</code>.
+	 */
+	HostRetryState getHostRetryState(final HostId hostId) {
+		requireNonNull(hostId, "hostId");
+		return hostId2HostRetryState.computeIfAbsent(hostId, id -> new HostRetryState(id, retryPolicy));
+	}
+
+	/**
+	 * Gets the provider of the transports sending requests directly to the given host -- instead of via the server.
+	 * @param hostId the host. Must not be <code>null</code>.
+	 * @return the provider or <code>null</code>, if requests to this host are relayed by the server.
+	 * @see #putDirectRpcClientTransportProvider(HostId, RpcClientTransportProvider)
+	 */
+	public RpcClientTransportProvider getDirectRpcClientTransportProvider(final HostId hostId) {
+		requireNonNull(hostId, "hostId");
+		final DirectRoute directRoute = hostId2DirectRoute.get(hostId);
+		return directRoute == null ? null : directRoute.getRpcClientTransportProvider();
+	}
+
+	/**
+	 * Configures a direct route to another {@link RpcContextMode#CLIENT CLIENT} -- e.g. a Raspberry Pi on the
+	 * same LAN, which runs a {@link DirectRpcServer}.
+	 * <p>
+	 * By default, the server relays every request between two clients via its inverse queue, which roughly
+	 * doubles the latency. With a direct route, the {@link RpcClient} sends the requests addressed to the given
+	 * host directly. If this fails, it falls back to the server-relay automatically -- for
+	 * {@link RpcConst#DIRECT_ROUTE_RECHECK_PERIOD}.
+	 * <p>
+	 * The provider may be the same kind as the {@link #getRpcClientTransportProvider() rpcClientTransportProvider}
+	 * -- e.g. a PGP-provider, thus using the same PGP-identity and -sessions. Only its URL references the other
+	 * client.
+	 * @param hostId the other client. Must not be <code>null</code>.
+	 * @param directRpcClientTransportProvider the provider of the transports to the other client or <code>null</code>
+	 * to remove the direct route.
+	 */
+	public void putDirectRpcClientTransportProvider(final HostId hostId, final RpcClientTransportProvider directRpcClientTransportProvider) {
+		requireNonNull(hostId, "hostId");
+		assertNotClosed();
+		if (RpcContextMode.CLIENT != mode)
+			throw new IllegalStateException("Direct routes are only supported in CLIENT-mode!");
+
+		if (localHostId.equals(hostId) || HostId.SERVER.equals(hostId))
+			throw new IllegalArgumentException("hostId must reference another client: " + hostId);
+
+		final DirectRoute oldDirectRoute;
+		if (directRpcClientTransportProvider == null)
+			oldDirectRoute = hostId2DirectRoute.remove(hostId);
+		else {
+			if (directRpcClientTransportProvider.getRpcContext() != null && directRpcClientTransportProvider.getRpcContext() != this)
+				throw new IllegalArgumentException("directRpcClientTransportProvider is already bound to different RpcContext!");
+
+			directRpcClientTransportProvider.setRpcContext(this);
+			oldDirectRoute = hostId2DirectRoute.put(hostId, new DirectRoute(hostId, directRpcClientTransportProvider));
+		}
+		if (oldDirectRoute != null)
+			oldDirectRoute.close();
+	}
+
+	/**
+	 * Gets all direct routes to other clients.
+	 * @return the providers of the direct routes, keyed by the host they lead to. Never <code>null</code>.
+	 * @see #putDirectRpcClientTransportProvider(HostId, RpcClientTransportProvider)
+	 */
+	public Map<HostId, RpcClientTransportProvider> getDirectRpcClientTransportProviders() {
+		final Map<HostId, RpcClientTransportProvider> result = new HashMap<>();
+		for (final DirectRoute directRoute : hostId2DirectRoute.values())
+			result.put(directRoute.getHostId(), directRoute.getRpcClientTransportProvider());
+
+		return result;
+	}
+	/**
+	 * Replaces all direct routes to other clients.
+	 * @param directRpcClientTransportProviders the providers of the direct routes, keyed by the host they lead
+	 * to. May be <code>null</code>, which is the same as an empty map.
+	 * @see #putDirectRpcClientTransportProvider(HostId, RpcClientTransportProvider)
+	 */
+	public void setDirectRpcClientTransportProviders(final Map<HostId, RpcClientTransportProvider> directRpcClientTransportProviders) {
+		for (final HostId hostId : hostId2DirectRoute.keySet()) {
+			if (directRpcClientTransportProviders == null || ! directRpcClientTransportProviders.containsKey(hostId))
+				putDirectRpcClientTransportProvider(hostId, null);
+		}
+		if (directRpcClientTransportProviders != null) {
+			for (final Map.Entry<HostId, RpcClientTransportProvider> me : directRpcClientTransportProviders.entrySet())
+				putDirectRpcClientTransportProvider(me.getKey(), me.getValue());
+		}
+	}
+
+	/**
+	 * Gets the direct route to the given host, if there is one and it is currently available.
+	 * @param hostId the host. Must not be <code>null</code>.
+	 * @return the direct route or <code>null</code>, if requests to this host must be relayed by the server.
+	 */
+	DirectRoute getAvailableDirectRoute(final HostId hostId) {
+		requireNonNull(hostId, "hostId");
+		final DirectRoute directRoute = hostId2DirectRoute.get(hostId);
+		return directRoute != null && directRoute.isAvailable() ? directRoute : null;
+	}
+
+	/**
+	 * Gets the metrics of this context -- e.g. the queue-lengths of the {@link RpcServiceExecutor} and the
+	 * latencies of the {@link RpcClient} per request-type.
+	 * <p>
+	 * They can be queried remotely via a {@link house.intelli.core.rpc.metrics.MetricsRequest MetricsRequest} and
+	 * are logged every {@link #getMetricsLogPeriod() metricsLogPeriod}.
+	 * @return the metrics of this context. Never <code>null</code>.
+	 */
+	public MetricRegistry getMetricRegistry() {
+		return metricRegistry;
+	}
+
+	/**
+	 * Gets the period (milliseconds) in which the {@linkplain #getMetricRegistry() metrics} of this context (and
+	 * the {@linkplain MetricRegistry#getInstance() global} ones) are logged with level INFO.
+	 * <p>
+	 * Logging starts together with the {@link #getTimingWheel() timingWheel}, i.e. as soon as this context is
+	 * actually used.
+	 * @return the period in milliseconds. 0 means logging is disabled. Default is
+	 * {@link RpcConst#DEFAULT_METRICS_LOG_PERIOD}.
+	 */
+	public synchronized long getMetricsLogPeriod() {
+		return metricsLogPeriod;
+	}
+	public synchronized void setMetricsLogPeriod(long metricsLogPeriod) {
+		if (metricsLogPeriod < 0)
+			throw new IllegalArgumentException("metricsLogPeriod < 0");
+
+		this.metricsLogPeriod = metricsLogPeriod;
+		if (metricsLogTimeout != null) {
+			metricsLogTimeout.cancel();
+			metricsLogTimeout = null;
+		}
+		if (timingWheel != null)
+			scheduleMetricsLog();
+	}
+
+	private synchronized void scheduleMetricsLog() {
+		if (metricsLogPeriod == 0 || closed)
+			return;
+
+		metricsLogTimeout = getTimingWheel().schedule(this::logMetrics, System.currentTimeMillis() + metricsLogPeriod);
+	}
+
+	private void logMetrics() {
+		try {
+			metricRegistry.logMetricValues(String.format("RpcContext[%s].metrics", localHostId));
+			MetricRegistry.getInstance().logMetricValues("global metrics");
+		} catch (Exception x) {
+			logger.error("logMetrics: " + x + ' ', x);
+		}
+		scheduleMetricsLog();
+	}
+
+	private void assertRpcServiceExecutorNotYetCreated() {
+		if (rpcServiceExecutor != null)
+			throw new IllegalStateException("rpcServiceExecutor already created! Too late to configure the workers!");
+	}
+
+	private void assertAsyncExecutorServiceNotYetCreated() {
+		if (rpcClient != null && rpcClient.isAsyncExecutorServiceCreated())
+			throw new IllegalStateException("rpcClient.asyncExecutorService already created! Too late to configure the I/O threads!");
+	}
+
+	private void assertInverseRequestRegistryNotYetCreated() {
+		if (inverseRequestRegistry != null)
+			throw new IllegalStateException("inverseRequestRegistry already created! Too late to configure its queues!");
+	}
+
+	/**
+	 * Creates a new bounded {@link ExecutorService} according to the worker-properties of this context.
+	 * @param name the name of the executor. Used as prefix for the thread names. Must not be <code>null</code>.
+	 * @return a new {@link ExecutorService}. Never <code>null</code>.
+	 */
+	protected synchronized ExecutorService createWorkerExecutorService(final String name) {
+		requireNonNull(name, "name");
+		final BlockingQueue<Runnable> queue = workerQueueCapacity == 0
+				? new SynchronousQueue<>() : new ArrayBlockingQueue<>(workerQueueCapacity);
+
+		final RejectedExecutionHandler rejectedExecutionHandler;
+		switch (workerRejectionPolicy) {
+			case REJECT:
+				rejectedExecutionHandler = new ThreadPoolExecutor.AbortPolicy();
+				break;
+			case CALLER_RUNS:
+				rejectedExecutionHandler = new ThreadPoolExecutor.CallerRunsPolicy();
+				break;
+			default:
+				throw new IllegalStateException("Unknown workerRejectionPolicy: " + workerRejectionPolicy);
+		}
+
+		final AtomicInteger threadCounter = new AtomicInteger();
+		final ThreadFactory threadFactory = runnable -> new Thread(runnable, name + ".worker-" + threadCounter.incrementAndGet());
+
+		final ThreadPoolExecutor executor = new ThreadPoolExecutor(workerPoolSize, workerPoolSize,
+				RpcConst.WORKER_KEEP_ALIVE_TIME, TimeUnit.MILLISECONDS, queue, threadFactory, rejectedExecutionHandler);
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	/**
+	 * Gets the {@link RpcClient} shared by all users of this context.
+	 * <p>
+	 * The shared client is thread-safe and should be used for all invocations. It must <b>not</b> be
+	 * closed by the caller -- it is closed together with this context.
+	 * @return the shared {@link RpcClient}. Never <code>null</code>.
+	 */
+	public synchronized RpcClient getRpcClient() {
+		assertNotClosed();
+		if (rpcClient == null)
+			rpcClient = new RpcClient(this);
+
+		return rpcClient;
+	}
+
+	/**
+	 * Creates a new {@link RpcClient}, which must be closed by the caller.
+	 * <p>
+	 * Usually, {@link #getRpcClient()} should be used instead.
+	 * @return a new {@link RpcClient}. Never <code>null</code>.
+	 */
 	public RpcClient createRpcClient() {
 		assertNotClosed();
 		return new RpcClient(this);
 	}
 
+	/**
+	 * Creates a new {@link RpcServer}.
+	 * <p>
+	 * In {@link RpcContextMode#CLIENT CLIENT}-mode, the server only processes requests sent directly by other
+	 * clients -- see {@link DirectRpcServer}.
+	 * @return a new {@link RpcServer}. Never <code>null</code>.
+	 */
 	public RpcServer createRpcServer() {
 		assertNotClosed();
-		if (RpcContextMode.SERVER != mode)
-			throw new IllegalStateException("RpcContextMode.SERVER != mode == " + mode);
-
 		return new RpcServer(this);
 	}
 
@@ -85,6 +546,21 @@ public class RpcContext implements AutoCloseable {
 		return inverseRequestRegistry;
 	}
 
+	/**
+	 * Gets the {@link TimingWheel} shared by all components of this context -- e.g. to expire deadlines and
+	 * to evict stale book-keeping. It is closed together with this context.
+	 * @return the shared {@link TimingWheel}. Never <code>null</code>.
+	 */
+	public synchronized TimingWheel getTimingWheel() {
+		assertNotClosed();
+		if (timingWheel == null) {
+			timingWheel = new TimingWheel(String.format("RpcContext[%s].timingWheel", localHostId),
+					RpcConst.TIMING_WHEEL_TICK_DURATION, RpcConst.TIMING_WHEEL_SIZE);
+			scheduleMetricsLog();
+		}
+		return timingWheel;
+	}
+
 	public boolean isServerLocal(final Request<?> request) {
 		requireNonNull(request, "request");
 		assertNotClosed();
@@ -109,5 +585,22 @@ public class RpcContext implements AutoCloseable {
 			pollInverseRequestsThread.interrupt();
 
 		closed = true;
+
+		final RpcClient rpcClient;
+		final TimingWheel timingWheel;
+		synchronized (this) {
+			rpcClient = this.rpcClient;
+			this.rpcClient = null;
+			timingWheel = this.timingWheel;
+			this.timingWheel = null;
+		}
+		if (rpcClient != null)
+			rpcClient.close();
+
+		if (timingWheel != null)
+			timingWheel.close();
+
+		for (final DirectRoute directRoute : hostId2DirectRoute.values())
+			directRoute.close();
 	}
 }
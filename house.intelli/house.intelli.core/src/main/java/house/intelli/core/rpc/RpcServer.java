@@ -3,7 +3,13 @@ package house.intelli.core.rpc;
 import static house.intelli.core.rpc.RpcConst.*;
 import static java.util.Objects.*;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,6 +19,10 @@ import house.intelli.core.Uid;
 /**
  * Server object to process invocation requests on the server-side.
  * <p>
+ * A request is either processed blocking via {@link #receiveAndProcessRequest(RpcServerTransport)} or
+ * asynchronously via {@link #receiveAndProcessRequestAsync(RpcServerTransport, Executor)}. The latter does
+ * not occupy a thread while waiting -- e.g. for inverse requests or for a response.
+ * <p>
  * Instances of this class are <b>not thread-safe!</b>
  * @author mn
  */
@@ -38,7 +48,15 @@ public class RpcServer implements AutoCloseable {
 			response = null;
 			try {
 				request = rpcServerTransport.receiveRequest();
-				response = process(request);
+				if (request.isExpired()) // the client gave up already
+					throw new RpcTimeoutException("Request expired before dispatch: " + request);
+
+				assertSupportedInMode(request);
+
+				if (request instanceof StreamInverseRequestsRequest && rpcServerTransport instanceof StreamingRpcServerTransport)
+					response = streamInverseRequests((StreamInverseRequestsRequest) request, (StreamingRpcServerTransport) rpcServerTransport);
+				else
+					response = process(request);
 			} catch (Exception x) {
 				logger.error("receiveAndProcessRequest: " + x + ' ', x);
 				Error error = RemoteExceptionUtil.createError(x);
@@ -59,37 +77,188 @@ public class RpcServer implements AutoCloseable {
 		}
 	}
 
+	/**
+	 * Receives and processes a request like {@link #receiveAndProcessRequest(RpcServerTransport)}, but without
+	 * blocking the current thread while waiting: A long poll (e.g. a {@link PollInverseRequestsRequest}, a
+	 * {@link StreamInverseRequestsRequest} or a request whose response is not yet available) is parked and
+	 * resumed as soon as there is something to send.
+	 * <p>
+	 * Only reading the request happens on the current thread. All responses -- the final one as well as
+	 * streamed ones -- are sent by the given executor, e.g. a servlet container's
+	 * {@code AsyncContext.start(Runnable)}.
+	 * @param rpcServerTransport the transport. Must not be <code>null</code>.
+	 * @param executor the executor sending the responses. Must not be <code>null</code>.
+	 * @return the future completed, after the final response was sent. It is completed exceptionally, if
+	 * sending failed. Never <code>null</code>. {@linkplain CompletableFuture#cancel(boolean) Cancelling} it (e.g.
+	 * because the connection was closed) stops waiting: A parked poll or stream does not obtain inverse requests
+	 * anymore.
+	 */
+	public CompletableFuture<Response> receiveAndProcessRequestAsync(final RpcServerTransport rpcServerTransport, final Executor executor) {
+		requireNonNull(rpcServerTransport, "rpcServerTransport");
+		requireNonNull(executor, "executor");
+		if (rpcServerTransport.getRpcContext() != this.rpcContext)
+			throw new IllegalArgumentException("rpcServerTransport.rpcContext != this.rpcContext");
+
+		request = null;
+		response = null;
+		CompletableFuture<Response> responseFuture;
+		try {
+			request = rpcServerTransport.receiveRequest();
+			if (request.isExpired()) // the client gave up already
+				throw new RpcTimeoutException("Request expired before dispatch: " + request);
+
+			assertSupportedInMode(request);
+
+			if (request instanceof StreamInverseRequestsRequest && rpcServerTransport instanceof StreamingRpcServerTransport)
+				responseFuture = streamInverseRequestsAsync((StreamInverseRequestsRequest) request, (StreamingRpcServerTransport) rpcServerTransport, executor);
+			else
+				responseFuture = processAsync(request);
+		} catch (Exception x) {
+			responseFuture = new CompletableFuture<>();
+			responseFuture.completeExceptionally(x);
+		}
+
+		final CompletableFuture<Response> result = new CompletableFuture<>();
+		final CompletableFuture<Response> _responseFuture = responseFuture;
+		result.whenComplete((r, x) -> {
+			if (result.isCancelled())
+				_responseFuture.cancel(false);
+		});
+		responseFuture.whenComplete((r, x) -> {
+			if (result.isCancelled()) { // nobody is listening anymore
+				if (r instanceof PollInverseRequestsResponse)
+					rpcContext.getInverseRequestRegistry().putRequestsBack(((PollInverseRequestsResponse) r).getInverseRequests());
+
+				return;
+			}
+			if (x != null) {
+				logger.error("receiveAndProcessRequestAsync: " + x + ' ', x);
+				r = createErrorResponse(x);
+			}
+			response = requireNonNull(r, "response");
+			try {
+				executor.execute(() -> {
+					try {
+						rpcServerTransport.sendResponse(response);
+						result.complete(response);
+					} catch (Throwable y) {
+						result.completeExceptionally(y);
+					}
+				});
+			} catch (Throwable y) {
+				result.completeExceptionally(y);
+			}
+		});
+		return result;
+	}
+
+	private Response createErrorResponse(Throwable x) {
+		if (x instanceof CompletionException && x.getCause() != null)
+			x = x.getCause();
+
+		final Response response = new ErrorResponse(RemoteExceptionUtil.createError(x));
+		if (request != null)
+			response.copyRequestCoordinates(request);
+
+		return response;
+	}
+
+	/**
+	 * Processes the given request like {@link #process(Request)} -- but without blocking while waiting.
+	 * @param request the request. Must not be <code>null</code>.
+	 * @return the future completed with the response. Never <code>null</code>.
+	 */
+	protected CompletableFuture<Response> processAsync(final Request<?> request) {
+		requireNonNull(request, "request");
+		if (request.getTimeout() == Request.TIMEOUT_UNDEFINED || request.getTimeout() < 0)
+			request.setTimeout(RpcConst.DEFAULT_REQUEST_TIMEOUT);
+
+		final Uid requestId = requireNonNull(request.getRequestId(), "request.requestId");
+		final long timeout = getPollTimeout(request);
+		final RpcServiceExecutor rpcServiceExecutor = rpcContext.getRpcServiceExecutor();
+
+		if (request instanceof PollInverseRequestsRequest || request instanceof StreamInverseRequestsRequest) {
+			assertServerLocal(request);
+			final InverseRequestRegistry inverseRequestRegistry = rpcContext.getInverseRequestRegistry();
+			final CompletableFuture<List<Request<?>>> requestsFuture = inverseRequestRegistry.pollRequestsAsync(request.getClientHostId(), timeout);
+			final CompletableFuture<Response> responseFuture = requestsFuture.thenApply(requests -> createPollInverseRequestsResponse(request, requests));
+			responseFuture.whenComplete((r, x) -> {
+				if (requestsFuture.cancel(false)) // a cancelled poll must not obtain requests anymore
+					return;
+
+				// The requests arrived, but the response was cancelled before it could carry them => nobody got them.
+				if (responseFuture.isCancelled() && ! requestsFuture.isCompletedExceptionally())
+					inverseRequestRegistry.putRequestsBack(requestsFuture.join());
+			});
+			return responseFuture;
+		}
+
+		if (request instanceof PutInverseResponseRequest) // never waits
+			return CompletableFuture.completedFuture(process(request));
+
+		// Not putting a DeferredResponseRequest! It fetches the response of an old request -- which might have been
+		// relayed to another client. In CLIENT-mode, assertSupportedInMode(...) already rejected other hosts.
+		if (! (request instanceof DeferredResponseRequest))
+			rpcServiceExecutor.putRequest(request);
+
+		return rpcServiceExecutor.pollResponseAsync(requestId, timeout).thenApply(response -> {
+			if (response == null) {
+				response = new DeferringResponse();
+				response.copyRequestCoordinates(request);
+			}
+			return response;
+		});
+	}
+
+	private static long getPollTimeout(final Request<?> request) {
+		final long lowLevelTimeout = request.getLowLevelTimeout() == Request.TIMEOUT_UNDEFINED
+				? LOW_LEVEL_TIMEOUT : Math.min(LOW_LEVEL_TIMEOUT, request.getLowLevelTimeout());
+		return Math.min(lowLevelTimeout, request.getTimeout());
+	}
+
 	protected Response process(final Request<?> request) {
 		requireNonNull(request, "request");
 		if (request.getTimeout() == Request.TIMEOUT_UNDEFINED || request.getTimeout() < 0)
 			request.setTimeout(RpcConst.DEFAULT_REQUEST_TIMEOUT);
 
 		final Uid requestId = requireNonNull(request.getRequestId(), "request.requestId");
-		final long timeout = Math.min(LOW_LEVEL_TIMEOUT, request.getTimeout());
+		final long timeout = getPollTimeout(request);
 		final RpcServiceExecutor rpcServiceExecutor = rpcContext.getRpcServiceExecutor();
 
-		if (request instanceof PollInverseRequestsRequest) {
+		// A StreamInverseRequestsRequest reaches this point only, if the transport cannot stream.
+		if (request instanceof PollInverseRequestsRequest || request instanceof StreamInverseRequestsRequest) {
 			assertServerLocal(request);
 			final List<Request<?>> requests = rpcContext.getInverseRequestRegistry().pollRequests(request.getClientHostId(), timeout);
-			PollInverseRequestsResponse response = new PollInverseRequestsResponse();
-			response.setInverseRequests(requests);
-			response.copyRequestCoordinates(request);
-			return response;
+			return createPollInverseRequestsResponse(request, requests);
 		}
 
 		if (request instanceof PutInverseResponseRequest) {
 			assertServerLocal(request);
 			PutInverseResponseRequest pirRequest = (PutInverseResponseRequest) request;
-			Response inverseResponse = requireNonNull(pirRequest.getInverseResponse(), "putInverseResponseRequest.inverseResponse");
-			rpcServiceExecutor.putResponse(inverseResponse);
+			final List<Response> inverseResponses = new ArrayList<>(pirRequest.getInverseResponses());
+			if (pirRequest.getInverseResponse() != null)
+				inverseResponses.add(pirRequest.getInverseResponse());
+
+			if (inverseResponses.isEmpty())
+				throw new IllegalArgumentException("putInverseResponseRequest contains no inverseResponse!");
+
+			for (final Response inverseResponse : inverseResponses) {
+				// One response arriving too late (e.g. its request was evicted) must not affect the others.
+				// It must not cause the client to retry, either.
+				try {
+					rpcServiceExecutor.putResponse(inverseResponse);
+				} catch (RuntimeException x) {
+					logger.warn("process: Discarding inverse response: " + x + ' ', x);
+				}
+			}
 			Response response = new NullResponse();
 			response.copyRequestCoordinates(request);
 			return response;
 		}
 
-		if (request instanceof DeferredResponseRequest)
-			assertServerLocal(request); // not putting this request! we're fetching a response for an old request.
-		else
+		// Not putting a DeferredResponseRequest! It fetches the response of an old request -- which might have been
+		// relayed to another client. In CLIENT-mode, assertSupportedInMode(...) already rejected other hosts.
+		if (! (request instanceof DeferredResponseRequest))
 			rpcServiceExecutor.putRequest(request);
 
 		Response response = rpcServiceExecutor.pollResponse(requestId, timeout);
@@ -101,6 +270,106 @@ public class RpcServer implements AutoCloseable {
 		return response;
 	}
 
+	/**
+	 * Sends every inverse request to the client as soon as it is enqueued, until the stream times out.
+	 * <p>
+	 * If no inverse request is enqueued within {@link RpcConst#LOW_LEVEL_TIMEOUT}, an empty response is sent
+	 * as heart-beat, thus keeping the transport from timing out.
+	 * <p>
+	 * If sending fails, the inverse requests are put back into the {@link InverseRequestRegistry}. The client
+	 * then obtains them via its fallback: polling. An inverse request might thus be delivered twice, if
+	 * it reached the client, but sending failed nevertheless.
+	 * @param request the request opening the stream. Must not be <code>null</code>.
+	 * @param rpcServerTransport the transport to send the streamed responses with. Must not be <code>null</code>.
+	 * @return the final response, which ends the stream. Never <code>null</code>.
+	 * @throws IOException if sending failed.
+	 */
+	protected Response streamInverseRequests(final StreamInverseRequestsRequest request, final StreamingRpcServerTransport rpcServerTransport) throws IOException {
+		requireNonNull(request, "request");
+		requireNonNull(rpcServerTransport, "rpcServerTransport");
+		assertServerLocal(request);
+		if (request.getTimeout() == Request.TIMEOUT_UNDEFINED || request.getTimeout() < 0)
+			request.setTimeout(RpcConst.DEFAULT_REQUEST_TIMEOUT);
+
+		final InverseRequestRegistry inverseRequestRegistry = rpcContext.getInverseRequestRegistry();
+		final long endTimestamp = System.currentTimeMillis() + Math.min(INVERSE_REQUEST_STREAM_TIMEOUT, request.getTimeout());
+		long remainingTime;
+		while ((remainingTime = endTimestamp - System.currentTimeMillis()) > 0) {
+			final List<Request<?>> requests = inverseRequestRegistry.pollRequests(request.getClientHostId(), Math.min(LOW_LEVEL_TIMEOUT, remainingTime));
+			try {
+				rpcServerTransport.sendStreamedResponse(createPollInverseRequestsResponse(request, requests));
+			} catch (IOException | RuntimeException x) {
+				inverseRequestRegistry.putRequestsBack(requests);
+
+				throw x;
+			}
+		}
+		return createPollInverseRequestsResponse(request, Collections.emptyList());
+	}
+
+	/**
+	 * Streams the inverse requests like {@link #streamInverseRequests(StreamInverseRequestsRequest, StreamingRpcServerTransport)}
+	 * -- but without blocking while waiting. Every streamed response is sent by the given executor.
+	 * @param request the request opening the stream. Must not be <code>null</code>.
+	 * @param rpcServerTransport the transport to send the streamed responses with. Must not be <code>null</code>.
+	 * @param executor the executor sending the streamed responses. Must not be <code>null</code>.
+	 * @return the future completed with the final response, which ends the stream. Never <code>null</code>.
+	 */
+	protected CompletableFuture<Response> streamInverseRequestsAsync(final StreamInverseRequestsRequest request,
+			final StreamingRpcServerTransport rpcServerTransport, final Executor executor) {
+		requireNonNull(request, "request");
+		requireNonNull(rpcServerTransport, "rpcServerTransport");
+		requireNonNull(executor, "executor");
+		assertServerLocal(request);
+		if (request.getTimeout() == Request.TIMEOUT_UNDEFINED || request.getTimeout() < 0)
+			request.setTimeout(RpcConst.DEFAULT_REQUEST_TIMEOUT);
+
+		final long endTimestamp = System.currentTimeMillis() + Math.min(INVERSE_REQUEST_STREAM_TIMEOUT, request.getTimeout());
+		final CompletableFuture<Response> result = new CompletableFuture<>();
+		continueStreamingInverseRequests(request, rpcServerTransport, executor, endTimestamp, result);
+		return result;
+	}
+
+	private void continueStreamingInverseRequests(final StreamInverseRequestsRequest request,
+			final StreamingRpcServerTransport rpcServerTransport, final Executor executor,
+			final long endTimestamp, final CompletableFuture<Response> result) {
+		final long remainingTime = endTimestamp - System.currentTimeMillis();
+		if (remainingTime <= 0) {
+			result.complete(createPollInverseRequestsResponse(request, Collections.emptyList()));
+			return;
+		}
+		final InverseRequestRegistry inverseRequestRegistry = rpcContext.getInverseRequestRegistry();
+		inverseRequestRegistry.pollRequestsAsync(request.getClientHostId(), Math.min(LOW_LEVEL_TIMEOUT, remainingTime))
+		.thenAccept(requests -> {
+			if (result.isDone()) { // cancelled => the stream is gone
+				inverseRequestRegistry.putRequestsBack(requests);
+				return;
+			}
+			try {
+				executor.execute(() -> {
+					try {
+						rpcServerTransport.sendStreamedResponse(createPollInverseRequestsResponse(request, requests));
+					} catch (Throwable x) {
+						inverseRequestRegistry.putRequestsBack(requests);
+						result.completeExceptionally(x);
+						return;
+					}
+					continueStreamingInverseRequests(request, rpcServerTransport, executor, endTimestamp, result);
+				});
+			} catch (Throwable x) {
+				inverseRequestRegistry.putRequestsBack(requests);
+				result.completeExceptionally(x);
+			}
+		});
+	}
+
+	private static PollInverseRequestsResponse createPollInverseRequestsResponse(final Request<?> request, final List<Request<?>> inverseRequests) {
+		PollInverseRequestsResponse response = new PollInverseRequestsResponse();
+		response.setInverseRequests(inverseRequests);
+		response.copyRequestCoordinates(request);
+		return response;
+	}
+
 	/**
 	 * Gets the last request after an invocation of {@link #receiveAndProcessRequest(RpcServerTransport)}.
 	 * @return the last request or <code>null</code>.
@@ -120,6 +389,24 @@ public class RpcServer implements AutoCloseable {
 	public void close() {
 	}
 
+	/**
+	 * In {@link RpcContextMode#CLIENT CLIENT}-mode, only requests sent directly by other clients are supported
+	 * -- and they must be addressed to this client. A client neither relays requests nor has an inverse queue.
+	 * @param request the request. Must not be <code>null</code>.
+	 * @see DirectRpcServer
+	 */
+	protected void assertSupportedInMode(final Request<?> request) {
+		requireNonNull(request, "request");
+		if (RpcContextMode.CLIENT != rpcContext.getMode())
+			return;
+
+		if (request instanceof PollInverseRequestsRequest || request instanceof StreamInverseRequestsRequest
+				|| request instanceof PutInverseResponseRequest)
+			throw new UnsupportedOperationException("A client does not support inverse requests: " + request);
+
+		assertServerLocal(request);
+	}
+
 	protected void assertServerLocal(final Request request) {
 		requireNonNull(request, "request");
 		if (! rpcContext.isServerLocal(request))
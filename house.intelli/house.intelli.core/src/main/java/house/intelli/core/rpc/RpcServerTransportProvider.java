@@ -7,5 +7,13 @@ public interface RpcServerTransportProvider extends Cloneable {
 
 	RpcServerTransport createRpcServerTransport();
 
+	/**
+	 * Indicates whether the transports created by this provider authenticate the sender of every request
+	 * (e.g. by OpenPGP). Only such a provider may be exposed to the network -- a plain one allows everybody
+	 * on the LAN to e.g. switch the actors.
+	 * @return <code>true</code>, if the sender of every request is authenticated; <code>false</code> otherwise.
+	 */
+	boolean isAuthenticating();
+
 	RpcServerTransportProvider clone();
 }
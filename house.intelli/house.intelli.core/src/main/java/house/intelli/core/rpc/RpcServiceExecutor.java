@@ -1,109 +1,505 @@
 package house.intelli.core.rpc;
 
+import static house.intelli.core.util.Util.*;
 import static java.util.Objects.*;
 
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import house.intelli.core.Uid;
-
+import house.intelli.core.metrics.Counter;
+import house.intelli.core.metrics.LatencyHistogram;
+import house.intelli.core.metrics.LatencyHistogramsByType;
+import house.intelli.core.metrics.MetricRegistry;
+
+/**
+ * Executor keeping track of all requests currently being processed and their responses.
+ * <p>
+ * Every request is represented by its own {@link PendingRequest} holding a {@link CompletableFuture}
+ * for the response. Thus, a caller waiting in {@link #pollResponse(Uid, long)} is only woken up when the
+ * response for <i>its</i> request arrives -- and not whenever any other request completes.
+ * <p>
+ * Requests are processed by a bounded pool of worker threads configured via {@link RpcContext#getWorkerPoolSize()},
+ * {@link RpcContext#getWorkerQueueCapacity()} and {@link RpcContext#getWorkerRejectionPolicy()}. A rejected
+ * request is answered with a {@link RequestRejectedException}, which the client may retry.
+ * <p>
+ * A request put again with the same {@linkplain Request#getRequestId() request-ID} -- e.g. re-sent by a client
+ * whose transport timed out -- is not processed again. It shares the original's response, which is kept in
+ * a {@link ResponseCache} for a while after it was picked up.
+ * <p>
+ * Its metrics are registered in the {@link RpcContext#getMetricRegistry() metricRegistry} with the prefix
+ * "rpcServiceExecutor.".
+ */
 public class RpcServiceExecutor {
 
 	private static final Logger logger = LoggerFactory.getLogger(RpcServiceExecutor.class);
 
-	private static final long EVICT_PERIOD = 60L * 60L * 1000L;
+	/**
+	 * Beginning of the message thrown, if there is no service for a request. It must not be changed, because
+	 * {@link RemoteExceptionUtil#isRequestTypeUnsupported(Throwable, Class)} recognises it -- also from older peers.
+	 */
+	static final String NO_RPC_SERVICE_MESSAGE_PREFIX = "There is no RpcService registered for this requestType: ";
 
 	private final RpcContext rpcContext;
-	private final ExecutorService executorService = Executors.newCachedThreadPool(); // TODO use fixed-size and make size configurable?!
-
-	private final Object mutex = new Object();
-	private final Map<Uid, Request> requestId2Request = new HashMap<>();
-	private final Map<Uid, Response> requestId2Response = new HashMap<>();
-	private final Map<Uid, EvictDescriptor> requestId2EvictDescriptor = new HashMap<>();
-
-	private final Timer evictTimer;
-	private final TimerTask evictTimerTask;
+	private final ExecutorService executorService;
+
+	private final ConcurrentMap<Uid, PendingRequest> requestId2PendingRequest = new ConcurrentHashMap<>();
+
+	private final ResponseCache responseCache = new ResponseCache(RpcConst.RESPONSE_CACHE_MAX_SIZE, RpcConst.RESPONSE_CACHE_TIME_TO_LIVE);
+
+	/**
+	 * The {@linkplain ThreadSafeRpcService thread-safe} services bound to our {@link #rpcContext}. The value
+	 * is only valid, if its {@code dispatch} is still the registry's current one.
+	 */
+	private final ConcurrentMap<Class<?>, BoundRpcService> requestType2BoundRpcService = new ConcurrentHashMap<>();
+
+	/**
+	 * Completes the pending requests at their {@linkplain Request#getDeadline() deadline}, interrupts
+	 * the services still processing them and evicts the abandoned {@link PendingRequest}s.
+	 */
+	private final TimingWheel timingWheel;
+
+	private static enum AttachResult {
+		/**
+		 * The request was associated -- it must be processed.
+		 */
+		ATTACHED,
+		/**
+		 * Another request with the same ID was associated before -- this duplicate must not be processed.
+		 */
+		DUPLICATE,
+		/**
+		 * The placeholder was discarded concurrently -- the caller must retry with a new instance.
+		 */
+		DISCARDED
+	}
 
-	private static class EvictDescriptor {
+	/**
+	 * Book-keeping for a single request.
+	 * <p>
+	 * An instance is created either by {@link RpcServiceExecutor#putRequest(Request) putRequest(...)} or
+	 * by {@link RpcServiceExecutor#pollResponse(Uid, long) pollResponse(...)} -- whichever comes first.
+	 * In the latter case, it is a placeholder without {@link #request}, which is discarded again, if the
+	 * poll times out without any request having been put in the meantime.
+	 */
+	private static class PendingRequest {
 		public final Uid requestId;
-		public final long created = System.currentTimeMillis();
-		public final long timeout;
-		public final long timeoutElapsed;
+		public final CompletableFuture<Response> responseFuture = new CompletableFuture<>();
+		private Request<?> request;
+		private boolean cacheResponse;
+		private long evictTimestamp;
+		private boolean discarded;
+		private boolean expired;
+		private TimingWheel.Timeout evictTimeout;
+
+		public PendingRequest(final Uid requestId) {
+			this.requestId = requireNonNull(requestId, "requestId");
+			this.evictTimestamp = getEvictTimestamp(RpcConst.DEFAULT_REQUEST_TIMEOUT);
+		}
 
-		public EvictDescriptor(Request request) {
+		/**
+		 * Associates the given request with this instance.
+		 * @param request the request. Must not be <code>null</code>.
+		 * @param cacheResponse whether to put the response into the {@link ResponseCache}.
+		 * @return whether the request was associated. Never <code>null</code>.
+		 */
+		public synchronized AttachResult attachRequest(final Request<?> request, final boolean cacheResponse) {
 			requireNonNull(request, "request");
-			requestId = requireNonNull(request.getRequestId(), "request.requestId");
-			if (request.getTimeout() == Request.TIMEOUT_UNDEFINED)
-				timeout = RpcConst.DEFAULT_REQUEST_TIMEOUT;
-			else
-				timeout = request.getTimeout();
+			if (discarded)
+				return AttachResult.DISCARDED;
+
+			if (this.request != null) {
+				assertSameClient(this.request.getClientHostId(), request);
+				return AttachResult.DUPLICATE;
+			}
 
-			timeoutElapsed = created + timeout;
+			this.request = request;
+			this.cacheResponse = cacheResponse;
+			final long timeout = request.getTimeout() == Request.TIMEOUT_UNDEFINED ? RpcConst.DEFAULT_REQUEST_TIMEOUT : request.getTimeout();
+			this.evictTimestamp = getEvictTimestamp(timeout);
+			return AttachResult.ATTACHED;
+		}
+
+		/**
+		 * Completes the response.
+		 * @param response the response. Must not be <code>null</code>.
+		 * @param responseCache the cache to put the response into, before anyone waiting is notified. Must not
+		 * be <code>null</code>.
+		 */
+		public synchronized void completeResponse(final Response response, final ResponseCache responseCache) {
+			requireNonNull(response, "response");
+			if (request == null)
+				throw new IllegalArgumentException("There is no request waiting with requestId=" + requestId);
+
+			if (expired) { // nobody is interested anymore
+				logger.debug("completeResponse: Discarding response of expired request: {}", response);
+				return;
+			}
+
+			if (responseFuture.isDone())
+				throw new IllegalArgumentException("There was already another response with the same requestId! WTF?! requestId=" + requestId);
+
+			// A duplicate arriving after the poller removed this instance must find the response in the cache.
+			if (cacheResponse && ResponseCache.isCacheable(response))
+				responseCache.put(response);
+
+			responseFuture.complete(response);
+		}
+
+		/**
+		 * Completes the response with an {@link RpcTimeoutException}, if it is not yet completed. A response
+		 * arriving later is discarded silently.
+		 */
+		public synchronized void expire() {
+			if (request == null || responseFuture.isDone())
+				return;
+
+			expired = true;
+			responseFuture.complete(createErrorResponse(request, new RpcTimeoutException("Deadline passed: " + request)));
+		}
+
+		/**
+		 * Marks this instance as discarded, if it is a mere placeholder without request and response.
+		 * @return <code>true</code>, if this instance was discarded; <code>false</code> otherwise.
+		 */
+		public synchronized boolean discardIfPlaceholder() {
+			if (request != null || responseFuture.isDone())
+				return false;
+
+			discarded = true;
+			return true;
+		}
+
+		/**
+		 * Gets the timestamp when this instance is evicted. This is after the request's timeout -- by a grace
+		 * period allowing a caller to still pick up the response (e.g. an {@link RpcTimeoutException}), if it
+		 * polls late.
+		 * @return the timestamp when this instance is evicted.
+		 */
+		public synchronized long getEvictTimestamp() {
+			return evictTimestamp;
+		}
+
+		private static long getEvictTimestamp(final long timeout) {
+			return System.currentTimeMillis() + timeout + Math.min(timeout, RpcConst.MAX_EVICT_GRACE_PERIOD);
+		}
+
+		public synchronized void setEvictTimeout(final TimingWheel.Timeout evictTimeout) {
+			this.evictTimeout = evictTimeout;
+		}
+
+		public synchronized void cancelEviction() {
+			if (evictTimeout != null)
+				evictTimeout.cancel();
+
+			evictTimeout = null;
 		}
 	}
 
+	private final Counter rejectedCounter;
+	private final Counter expiredCounter;
+	private final Counter duplicateCounter;
+	private final LatencyHistogram queueWaitLatencyHistogram;
+	private final LatencyHistogramsByType processLatencyHistograms;
+
 	protected RpcServiceExecutor(RpcContext rpcContext) {
 		this.rpcContext = requireNonNull(rpcContext, "rpcContext");
-		evictTimer = new Timer(String.format("RpcServiceExecutor[%s].evictTimer", rpcContext.getLocalHostId()), true);
-		evictTimerTask = new TimerTask() {
-			@Override
-			public void run() {
-				try {
-					evict();
-				} catch (Throwable x) {
-					logger.error("evictTimerTask.run: " + x + ' ', x);
-				}
-			}
-		};
-		evictTimer.schedule(evictTimerTask, EVICT_PERIOD, EVICT_PERIOD);
+		executorService = rpcContext.createWorkerExecutorService(String.format("RpcServiceExecutor[%s]", rpcContext.getLocalHostId()));
+		timingWheel = rpcContext.getTimingWheel();
+
+		final MetricRegistry metricRegistry = rpcContext.getMetricRegistry();
+		rejectedCounter = metricRegistry.getCounter("rpcServiceExecutor.rejected");
+		expiredCounter = metricRegistry.getCounter("rpcServiceExecutor.expired");
+		duplicateCounter = metricRegistry.getCounter("rpcServiceExecutor.duplicate");
+		queueWaitLatencyHistogram = metricRegistry.getLatencyHistogram("rpcServiceExecutor.queueWait");
+		processLatencyHistograms = metricRegistry.getLatencyHistogramsByType("rpcServiceExecutor.process");
+		metricRegistry.putGauge("rpcServiceExecutor.pendingRequests", this::getPendingRequestCount);
+		metricRegistry.putGauge("rpcServiceExecutor.cachedResponses", this::getCachedResponseCount);
+		if (executorService instanceof ThreadPoolExecutor) {
+			final ThreadPoolExecutor threadPoolExecutor = (ThreadPoolExecutor) executorService;
+			metricRegistry.putGauge("rpcServiceExecutor.queuedRequests", () -> threadPoolExecutor.getQueue().size());
+			metricRegistry.putGauge("rpcServiceExecutor.activeWorkers", threadPoolExecutor::getActiveCount);
+		}
 	}
 
 	public void putRequest(final Request request) {
 		requireNonNull(request, "request");
-		final Uid requestId = requireNonNull(request.getRequestId(), "request.requestId");
-		synchronized (mutex) {
-			if (requestId2Response.containsKey(requestId))
-				throw new IllegalArgumentException("There is already a response with the same requestId! WTF?! requestId=" + requestId);
+		putPendingRequest(request, true);
+	}
 
-			Request old = requestId2Request.put(requestId, request);
-			if (old != null && old != request)
-				throw new IllegalArgumentException("There was already another request with the same requestId! WTF?! requestId=" + requestId);
+	/**
+	 * Puts the given request like {@link #putRequest(Request)}, but instead of having to
+	 * {@linkplain #pollResponse(Uid, long) poll} its response, the caller obtains a future.
+	 * @param request the request. Must not be <code>null</code>.
+	 * @return the future of the response. Never <code>null</code>. It is never completed exceptionally -- an
+	 * error is signaled by an {@link ErrorResponse}. If the request's {@linkplain Request#getDeadline() deadline}
+	 * passes before the response arrives, it is completed with an {@link ErrorResponse} wrapping an
+	 * {@link RpcTimeoutException} -- a response arriving later is discarded.
+	 */
+	public CompletableFuture<Response> putRequestAsync(final Request request) {
+		requireNonNull(request, "request");
+		final PendingRequest pendingRequest = putPendingRequest(request, true);
+		return pendingRequest.responseFuture.whenComplete((response, x) -> removePendingRequest(pendingRequest));
+	}
 
-			requestId2EvictDescriptor.put(requestId, new EvictDescriptor(request));
+	/**
+	 * Associates the given request with its {@link PendingRequest} and processes it -- unless it is a duplicate
+	 * of a request put before.
+	 * @param request the request. Must not be <code>null</code>.
+	 * @param cacheResponse whether to put the response into the {@link ResponseCache}. The requests of a
+	 * {@link BatchRequest} are not cached individually -- only the whole batch is.
+	 * @return the book-keeping of the request. Never <code>null</code>. If the request is a duplicate, this
+	 * is the original's -- possibly already completed with the response from the {@link ResponseCache}.
+	 */
+	private PendingRequest putPendingRequest(final Request<?> request, final boolean cacheResponse) {
+		final Uid requestId = requireNonNull(request.getRequestId(), "request.requestId");
+		while (true) {
+			final PendingRequest pendingRequest = getOrCreatePendingRequest(requestId);
+			switch (pendingRequest.attachRequest(request, cacheResponse)) {
+				case ATTACHED:
+					// The request's timeout replaces the placeholder's default timeout.
+					pendingRequest.cancelEviction();
+					scheduleEviction(pendingRequest);
+
+					// Whoever waits for the response -- a poller or a batch -- stops waiting at the deadline.
+					final TimingWheel.Timeout deadlineTimeout = scheduleAtDeadline(request, pendingRequest::expire);
+					if (deadlineTimeout != null)
+						pendingRequest.responseFuture.whenComplete((response, x) -> deadlineTimeout.cancel());
+
+					// The response is put into the cache before the original's PendingRequest is removed. Hence, if
+					// we had to create a new one, a response already produced must be in the cache.
+					final Response cachedResponse = responseCache.get(requestId);
+					if (cachedResponse != null) {
+						assertSameClient(cachedResponse.getClientHostId(), request);
+						duplicateCounter.increment();
+						logger.debug("putPendingRequest: Serving duplicate request from cache: {}", request);
+						pendingRequest.completeResponse(cachedResponse, responseCache);
+					}
+					else
+						executeRequest(request);
+
+					return pendingRequest;
+				case DUPLICATE:
+					logger.debug("putPendingRequest: Not processing duplicate request: {}", request);
+					duplicateCounter.increment();
+					return pendingRequest;
+				case DISCARDED:
+					// A placeholder created by pollResponse(...) was discarded concurrently => retry with a new one.
+					removePendingRequest(pendingRequest);
+					break;
+				default:
+					throw new IllegalStateException("Unknown AttachResult!");
+			}
+		}
+	}
 
-			mutex.notifyAll();
+	/**
+	 * Makes sure, a request re-sent with the same ID does not stem from another client -- which must not obtain
+	 * the original's response.
+	 */
+	private static void assertSameClient(final HostId originalClientHostId, final Request<?> request) {
+		if (! equal(originalClientHostId, request.getClientHostId()))
+			throw new IllegalArgumentException("There was already another request with the same requestId, but a different clientHostId! WTF?! requestId=" + request.getRequestId());
+	}
+
+	private void executeRequest(final Request request) {
+		try {
+			if (putRequestIntoInverseRequestRegistryIfApplicable(request))
+				return;
+		} catch (RequestRejectedException x) {
+			logger.warn("putRequest: Rejecting request, because the inverse request queue is full: {}", request);
+			rejectedCounter.increment();
+			putErrorResponse(request, x);
+			return;
 		}
 
-		if (putRequestIntoInverseRequestRegistryIfApplicable(request))
+		if (request instanceof BatchRequest && rpcContext.isServerLocal(request)) {
+			new BatchRequestProcessor((BatchRequest) request, this::putResponse).start();
 			return;
+		}
 
-		executorService.submit(new Runnable() {
-			@Override
-			public void run() {
-				try {
-					Response response;
-					if (rpcContext.isServerLocal(request))
-						response = processLocally(request);
-					else
-						response = processRemotely(request);
-
-					putResponse(response);
-				} catch (Throwable x) {
-					Error error = RemoteExceptionUtil.createError(x);
-					ErrorResponse errorResponse = new ErrorResponse(error);
-					errorResponse.copyRequestCoordinates(request);
-					putResponse(errorResponse);
+		try {
+			final long enqueuedNanos = System.nanoTime();
+			executorService.execute(new Runnable() {
+				@Override
+				public void run() {
+					queueWaitLatencyHistogram.record(System.nanoTime() - enqueuedNanos);
+
+					// If the request expired -- either waiting in the queue or while being processed -- the
+					// waiting caller already got an RpcTimeoutException and nobody is interested in the result.
+					try {
+						if (request.isExpired()) {
+							logger.debug("putRequest.run: Dropping request expired before dispatch: {}", request);
+							expiredCounter.increment();
+							return;
+						}
+
+						Response response;
+						if (rpcContext.isServerLocal(request))
+							response = processLocally(request);
+						else
+							response = processRemotely(request);
+
+						if (request.isExpired())
+							logger.debug("putRequest.run: Discarding response of expired request: {}", request);
+						else
+							putResponse(response);
+					} catch (Throwable x) {
+						if (request.isExpired())
+							logger.debug("putRequest.run: Discarding error of expired request: {}", request);
+						else
+							putErrorResponse(request, x);
+					}
 				}
+			});
+		} catch (RejectedExecutionException x) {
+			logger.warn("putRequest: Rejecting request, because all workers are busy and the queue is full: {}", request);
+			rejectedCounter.increment();
+			putErrorResponse(request, new RequestRejectedException("All workers are busy and the queue is full! Rejected request: " + request, x));
+		}
+	}
+
+	private void putErrorResponse(final Request request, final Throwable x) {
+		putResponse(createErrorResponse(request, x));
+	}
+
+	private static ErrorResponse createErrorResponse(final Request<?> request, final Throwable x) {
+		Error error = RemoteExceptionUtil.createError(x);
+		ErrorResponse errorResponse = new ErrorResponse(error);
+		errorResponse.copyRequestCoordinates(request);
+		return errorResponse;
+	}
+
+	/**
+	 * Processes the requests of one {@link BatchRequest} and passes the {@link BatchResponse} to a consumer,
+	 * after all of them completed.
+	 * <p>
+	 * No worker thread is blocked while waiting: At most {@link RpcConst#MAX_BATCH_REQUEST_PARALLELISM} requests
+	 * (or only one, if the batch is {@linkplain BatchRequest#isSequential() sequential}) are put at the same time.
+	 * Whenever one of them completes, the next one is put.
+	 */
+	private final class BatchRequestProcessor {
+		private final BatchRequest batchRequest;
+		private final Consumer<Response> responseConsumer;
+		private final List<Request<?>> requests;
+		private final Response[] responses;
+		private int nextIndex;
+		private int completedCount;
+
+		public BatchRequestProcessor(final BatchRequest batchRequest, final Consumer<Response> responseConsumer) {
+			this.batchRequest = requireNonNull(batchRequest, "batchRequest");
+			this.responseConsumer = requireNonNull(responseConsumer, "responseConsumer");
+			this.requests = new ArrayList<>(batchRequest.getRequests());
+			this.responses = new Response[requests.size()];
+		}
+
+		public void start() {
+			if (requests.size() > RpcConst.MAX_BATCH_REQUEST_SIZE) {
+				responseConsumer.accept(createErrorResponse(batchRequest, new IllegalArgumentException(String.format(
+						"batchRequest.requests.size > %d: %d", RpcConst.MAX_BATCH_REQUEST_SIZE, requests.size()))));
+				return;
 			}
-		});
+			if (requests.isEmpty()) {
+				complete();
+				return;
+			}
+			final int parallelism = batchRequest.isSequential() ? 1
+					: Math.min(RpcConst.MAX_BATCH_REQUEST_PARALLELISM, rpcContext.getWorkerPoolSize());
+			for (int i = 0; i < parallelism; ++i)
+				putNextRequest();
+		}
+
+		private void putNextRequest() {
+			final int index;
+			synchronized (this) {
+				if (nextIndex >= requests.size())
+					return;
+
+				index = nextIndex++;
+			}
+			final Request<?> request = requests.get(index);
+			final PendingRequest pendingRequest;
+			try {
+				prepareRequest(request);
+				pendingRequest = putPendingRequest(request, false);
+			} catch (RuntimeException x) {
+				logger.warn("putNextRequest: Rejecting request of batch: " + x + ' ', x);
+				onResponse(index, null, createErrorResponse(request == null ? batchRequest : request, x));
+				return;
+			}
+			pendingRequest.responseFuture.thenAccept(response -> onResponse(index, pendingRequest, response));
+		}
+
+		private void prepareRequest(final Request<?> request) {
+			requireNonNull(request, "request");
+			if (request instanceof BatchRequest || request instanceof DeferredResponseRequest
+					|| request instanceof PollInverseRequestsRequest || request instanceof StreamInverseRequestsRequest
+					|| request instanceof PutInverseResponseRequest)
+				throw new IllegalArgumentException("Request-type not supported within a batch: " + request.getClass().getName());
+
+			// The batch's host-IDs are authenticated by the transport -- the contained requests' ones are not!
+			if (request.getClientHostId() == null)
+				request.setClientHostId(batchRequest.getClientHostId());
+			else if (! request.getClientHostId().equals(batchRequest.getClientHostId()))
+				throw new IllegalArgumentException("request.clientHostId != batchRequest.clientHostId");
+
+			if (request.getServerHostId() == null)
+				request.setServerHostId(batchRequest.getServerHostId());
+			else if (! request.getServerHostId().equals(batchRequest.getServerHostId()))
+				throw new IllegalArgumentException("request.serverHostId != batchRequest.serverHostId");
+
+			if (request.getRequestId() == null)
+				request.setRequestId(new Uid());
+
+			if (request.getTimeout() == Request.TIMEOUT_UNDEFINED || request.getTimeout() < 0)
+				request.setTimeout(batchRequest.getTimeout());
+
+			if (request.getCreated() == null && request.getDeadline() == Long.MAX_VALUE) {
+				request.setCreated(batchRequest.getCreated());
+				// created is from the sender's clock => derive the deadline from the batch's local one.
+				final long batchDeadline = batchRequest.getDeadline();
+				if (batchDeadline != Long.MAX_VALUE)
+					request.setDeadline(batchDeadline - batchRequest.getEffectiveTimeout() + request.getEffectiveTimeout());
+			}
+		}
+
+		private void onResponse(final int index, final PendingRequest pendingRequest, final Response response) {
+			if (pendingRequest != null)
+				removePendingRequest(pendingRequest);
+
+			final boolean complete;
+			synchronized (this) {
+				responses[index] = response;
+				complete = ++completedCount == responses.length;
+			}
+			if (complete)
+				complete();
+			else
+				putNextRequest();
+		}
+
+		private void complete() {
+			final BatchResponse batchResponse = new BatchResponse();
+			synchronized (this) {
+				batchResponse.getResponses().addAll(Arrays.asList(responses));
+			}
+			batchResponse.copyRequestCoordinates(batchRequest);
+			responseConsumer.accept(batchResponse);
+		}
 	}
 
 	protected boolean putRequestIntoInverseRequestRegistryIfApplicable(final Request request) {
@@ -121,13 +517,30 @@ public class RpcServiceExecutor {
 		}
 	}
 
+	/**
+	 * Processes the given batch locally -- without tracking it like {@link #putRequest(Request)} does.
+	 * <p>
+	 * In contrast to {@link #processLocally(Request)}, this method does not block. This is essential,
+	 * because the contained requests are processed by the same worker threads.
+	 * @param batchRequest the batch. Must not be <code>null</code>.
+	 * @return the future of the {@link BatchResponse} -- or an {@link ErrorResponse}, if the batch as a whole
+	 * was rejected. Never <code>null</code>.
+	 */
+	protected CompletableFuture<Response> processBatchLocally(final BatchRequest batchRequest) {
+		requireNonNull(batchRequest, "batchRequest");
+		if (! rpcContext.isServerLocal(batchRequest))
+			throw new IllegalArgumentException("batchRequest is not local: " + batchRequest);
+
+		final CompletableFuture<Response> responseFuture = new CompletableFuture<>();
+		new BatchRequestProcessor(batchRequest, responseFuture::complete).start();
+		return responseFuture;
+	}
+
 	protected Response processRemotely(final Request request) throws Exception {
 		try {
 			switch (rpcContext.getMode()) {
 				case CLIENT:
-					try (RpcClient rpcClient = rpcContext.createRpcClient()) {
-						return rpcClient.invoke(request);
-					}
+					return rpcContext.getRpcClient().invoke(request);
 				case SERVER:
 					throw new IllegalStateException("This should have been processed by putRequestIntoInverseRequestRegistryIfApplicable(...)!");
 				default:
@@ -139,16 +552,79 @@ public class RpcServiceExecutor {
 		}
 	}
 
+	private static final class BoundRpcService {
+		public final RpcServiceRegistry.Dispatch dispatch;
+		public final RpcService<Request, Response> rpcService;
+
+		public BoundRpcService(final RpcServiceRegistry.Dispatch dispatch, final RpcService<Request, Response> rpcService) {
+			this.dispatch = dispatch;
+			this.rpcService = rpcService;
+		}
+	}
+
+	/**
+	 * Gets the service processing the given request-type, bound to our {@link RpcContext}.
+	 * <p>
+	 * A {@linkplain ThreadSafeRpcService thread-safe} service is cloned only once and then re-used.
+	 * Every other service is cloned for every invocation.
+	 * @param requestType the type of the request. Must not be <code>null</code>.
+	 * @return the service or <code>null</code>, if there is none for the given request-type.
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	protected RpcService<Request, Response> getRpcService(final Class<?> requestType) {
+		final RpcServiceRegistry.Dispatch dispatch = RpcServiceRegistry.getInstance().getDispatch(requestType);
+		if (dispatch == null)
+			return null;
+
+		if (dispatch.threadSafe) {
+			final BoundRpcService boundRpcService = requestType2BoundRpcService.get(requestType);
+			if (boundRpcService != null && boundRpcService.dispatch == dispatch)
+				return boundRpcService.rpcService;
+		}
+
+		final RpcService rpcService = dispatch.rpcService.clone();
+		rpcService.setRpcContext(rpcContext);
+
+		if (dispatch.threadSafe) // if another thread was faster, we simply replace its instance -- both are fine
+			requestType2BoundRpcService.put(requestType, new BoundRpcService(dispatch, rpcService));
+
+		return rpcService;
+	}
+
+	/**
+	 * Processes the given request by the responsible {@link RpcService} on the current thread.
+	 * <p>
+	 * If the request's {@linkplain Request#getDeadline() deadline} has already passed, it is not processed
+	 * at all. If the deadline passes while the service is processing it, the current thread is
+	 * {@linkplain Thread#interrupt() interrupted}.
+	 * @param request the request. Must not be <code>null</code>.
+	 * @return the response. Never <code>null</code>.
+	 * @throws Exception if processing failed.
+	 */
 	public Response processLocally(final Request request) throws Exception {
 		try {
-			RpcServiceRegistry rpcServiceRegistry = RpcServiceRegistry.getInstance();
-			RpcService<Request, Response> rpcService = rpcServiceRegistry.getRpcService(request.getClass());
-			if (rpcService == null)
-				throw new IllegalArgumentException("There is no RpcService registered for this requestType: " + request.getClass().getName());
-
-			rpcService.setRpcContext(rpcContext);
+			if (request.isExpired()) {
+				expiredCounter.increment();
+				throw new RpcTimeoutException("Request expired before dispatch: " + request);
+			}
 
-			Response response = rpcService.process(request);
+			RpcService<Request, Response> rpcService = getRpcService(request.getClass());
+			if (rpcService == null)
+				throw new IllegalArgumentException(NO_RPC_SERVICE_MESSAGE_PREFIX + request.getClass().getName());
+
+			final DeadlineInterrupter deadlineInterrupter = new DeadlineInterrupter(Thread.currentThread());
+			final TimingWheel.Timeout deadlineTimeout = scheduleAtDeadline(request, deadlineInterrupter::interrupt);
+			final long startNanos = System.nanoTime();
+			Response response;
+			try {
+				response = rpcService.process(request);
+			} finally {
+				processLatencyHistograms.record(request.getClass(), System.nanoTime() - startNanos);
+				if (deadlineTimeout != null)
+					deadlineTimeout.cancel();
+
+				deadlineInterrupter.done();
+			}
 			if (response == null)
 				response = new NullResponse();
 
@@ -160,35 +636,141 @@ public class RpcServiceExecutor {
 		}
 	}
 
+	/**
+	 * Interrupts a thread processing a request, when its deadline passes -- but only as long as it is still
+	 * processing this request, because the thread is re-used afterwards.
+	 */
+	private static final class DeadlineInterrupter {
+		private final Thread thread;
+		private boolean done;
+		private boolean interrupted;
+
+		public DeadlineInterrupter(final Thread thread) {
+			this.thread = requireNonNull(thread, "thread");
+		}
+
+		public synchronized void interrupt() {
+			if (done)
+				return;
+
+			logger.warn("interrupt: Deadline passed! Interrupting thread: {}", thread.getName());
+			interrupted = true;
+			thread.interrupt();
+		}
+
+		/**
+		 * Marks the processing as done. Must be invoked on the processing thread.
+		 */
+		public synchronized void done() {
+			done = true;
+			if (interrupted)
+				Thread.interrupted(); // clear the flag -- the thread is re-used
+		}
+	}
+
+	/**
+	 * Schedules the given runnable to be run at the given request's {@linkplain Request#getDeadline() deadline}.
+	 * @param request the request. Must not be <code>null</code>.
+	 * @param runnable the runnable. Must not be <code>null</code>.
+	 * @return the handle to cancel the runnable or <code>null</code>, if the request has no deadline.
+	 */
+	private TimingWheel.Timeout scheduleAtDeadline(final Request<?> request, final Runnable runnable) {
+		if (request.getDeadline() == Long.MAX_VALUE)
+			return null;
+
+		return timingWheel.schedule(runnable, request.getDeadline());
+	}
+
+	private PendingRequest getOrCreatePendingRequest(final Uid requestId) {
+		return requestId2PendingRequest.computeIfAbsent(requestId, id -> {
+			final PendingRequest pendingRequest = new PendingRequest(id);
+			scheduleEviction(pendingRequest);
+			return pendingRequest;
+		});
+	}
+
+	private void removePendingRequest(final PendingRequest pendingRequest) {
+		requestId2PendingRequest.remove(pendingRequest.requestId, pendingRequest);
+		pendingRequest.cancelEviction();
+	}
+
+	/**
+	 * Schedules the eviction of the given {@link PendingRequest}, in case nobody ever picks up its response
+	 * -- e.g. because the caller died.
+	 */
+	private void scheduleEviction(final PendingRequest pendingRequest) {
+		pendingRequest.setEvictTimeout(timingWheel.schedule(() -> evict(pendingRequest), pendingRequest.getEvictTimestamp()));
+	}
+
 	public Response pollResponse(final Uid requestId, final long timeout) {
 		requireNonNull(requestId, "requestId");
 		if (timeout < 0)
 			throw new IllegalArgumentException("timeout < 0");
 
-		final long startTimestamp = System.currentTimeMillis();
-		synchronized (mutex) {
-			while (true) {
-				final Response response = requestId2Response.remove(requestId);
-				if (response != null) {
-					requestId2EvictDescriptor.remove(requestId);
-					return response;
-				}
+		PendingRequest pendingRequest = requestId2PendingRequest.get(requestId);
+		if (pendingRequest == null) {
+			// The response might have been picked up already -- by an exchange which never reached the client.
+			final Response cachedResponse = responseCache.get(requestId);
+			if (cachedResponse != null)
+				return cachedResponse;
 
-				final long elapsedTime = System.currentTimeMillis() - startTimestamp;
-				if (elapsedTime > timeout)
-					return null;
+			pendingRequest = getOrCreatePendingRequest(requestId);
+		}
+		try {
+			final Response response = pendingRequest.responseFuture.get(timeout, TimeUnit.MILLISECONDS);
+			removePendingRequest(pendingRequest);
+			return response;
+		} catch (TimeoutException e) {
+			if (pendingRequest.discardIfPlaceholder())
+				removePendingRequest(pendingRequest);
+
+			return null;
+		} catch (InterruptedException e) {
+			logger.warn("pollResponse: " + e, e);
+			return null;
+		} catch (ExecutionException e) { // should never happen, because we never complete exceptionally
+			throw new IllegalStateException(e);
+		}
+	}
 
-				long remainingTime = timeout - elapsedTime;
-				if (remainingTime > 0) {
-					try {
-						mutex.wait(remainingTime);
-					} catch (InterruptedException e) {
-						logger.warn("pollResponse: " + e, e);
-						return null;
-					}
-				}
-			}
+	/**
+	 * Polls the response of the request with the given ID like {@link #pollResponse(Uid, long)} -- but instead
+	 * of blocking the current thread, the returned future is completed as soon as the response is available.
+	 * <p>
+	 * The future is completed by the thread producing the response or -- with <code>null</code> after the
+	 * timeout -- by the {@link TimingWheel}'s thread. Thus, dependent actions should be quick or run
+	 * asynchronously.
+	 * @param requestId the request's ID. Must not be <code>null</code>.
+	 * @param timeout the maximum time in milliseconds to wait for the response.
+	 * @return the future completed with the response or with <code>null</code>, if it did not arrive in time.
+	 * Never <code>null</code>. It is never completed exceptionally.
+	 */
+	public CompletableFuture<Response> pollResponseAsync(final Uid requestId, final long timeout) {
+		requireNonNull(requestId, "requestId");
+		if (timeout < 0)
+			throw new IllegalArgumentException("timeout < 0");
+
+		PendingRequest pendingRequest = requestId2PendingRequest.get(requestId);
+		if (pendingRequest == null) {
+			final Response cachedResponse = responseCache.get(requestId);
+			if (cachedResponse != null)
+				return CompletableFuture.completedFuture(cachedResponse);
+
+			pendingRequest = getOrCreatePendingRequest(requestId);
 		}
+		final PendingRequest _pendingRequest = pendingRequest;
+		final CompletableFuture<Response> result = new CompletableFuture<>();
+		final TimingWheel.Timeout pollTimeout = timingWheel.schedule(() -> {
+			if (result.complete(null) && _pendingRequest.discardIfPlaceholder())
+				removePendingRequest(_pendingRequest);
+		}, System.currentTimeMillis() + timeout);
+
+		pendingRequest.responseFuture.thenAccept(response -> {
+			pollTimeout.cancel();
+			if (result.complete(response))
+				removePendingRequest(_pendingRequest);
+		});
+		return result;
 	}
 
 	public void putResponse(final Response response) {
@@ -197,30 +779,36 @@ public class RpcServiceExecutor {
 		requireNonNull(response.getClientHostId(), "response.clientHostId");
 		requireNonNull(response.getServerHostId(), "response.serverHostId");
 
-		synchronized (mutex) {
-			final Request request = requestId2Request.remove(requestId);
-			if (request == null)
-				throw new IllegalArgumentException("There is no request waiting with requestId=" + requestId);
+		final PendingRequest pendingRequest = requestId2PendingRequest.get(requestId);
+		if (pendingRequest == null)
+			throw new IllegalArgumentException("There is no request waiting with requestId=" + requestId);
 
-			Response old = requestId2Response.put(requestId, response);
-			if (old != null && old != response)
-				throw new IllegalArgumentException("There was already another response with the same requestId! WTF?! requestId=" + requestId);
+		pendingRequest.completeResponse(response, responseCache);
+	}
 
-			mutex.notifyAll();
+	private void evict(final PendingRequest pendingRequest) {
+		// The wheel measures time with System.nanoTime(), which might deviate slightly from the wall-clock.
+		if (pendingRequest.getEvictTimestamp() > System.currentTimeMillis()) {
+			scheduleEviction(pendingRequest);
+			return;
 		}
+		if (requestId2PendingRequest.remove(pendingRequest.requestId, pendingRequest))
+			logger.debug("evict: Evicted abandoned request: requestId={}", pendingRequest.requestId);
 	}
 
-	protected void evict() {
-		final long now = System.currentTimeMillis();
-		synchronized (mutex) {
-			for (Iterator<EvictDescriptor> it = requestId2EvictDescriptor.values().iterator(); it.hasNext(); ) {
-				EvictDescriptor evictDescriptor = it.next();
-				if (evictDescriptor.timeoutElapsed < now) {
-					requestId2Request.remove(evictDescriptor.requestId);
-					requestId2Response.remove(evictDescriptor.requestId);
-					it.remove();
-				}
-			}
-		}
+	/**
+	 * Gets the number of requests currently tracked -- being processed or waiting for their response to be polled.
+	 * @return the number of requests currently tracked. Always &gt;= 0.
+	 */
+	public int getPendingRequestCount() {
+		return requestId2PendingRequest.size();
+	}
+
+	/**
+	 * Gets the number of responses currently kept for requests which might be re-sent.
+	 * @return the number of responses in the {@link ResponseCache}. Always &gt;= 0.
+	 */
+	public int getCachedResponseCount() {
+		return responseCache.size();
 	}
 }
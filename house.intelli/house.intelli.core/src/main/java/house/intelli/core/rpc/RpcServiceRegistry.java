@@ -8,21 +8,65 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 import house.intelli.core.jaxb.IntelliHouseJaxbContext;
 import house.intelli.core.service.ServiceRegistry;
 import house.intelli.core.service.ServiceRegistryListener;
 
+/**
+ * Registry of all {@link RpcService}s.
+ * <p>
+ * Looking up the service for a request does not lock: All services are held in an immutable
+ * {@link Snapshot}, which is replaced atomically whenever the services change. Its dispatch-table maps
+ * each request-type directly to its service -- the registered request-types are entered when loading,
+ * sub-classes are entered on first use.
+ */
 public class RpcServiceRegistry {
 
 	private final Object mutex = new Object();
-	private final Map<Class<?>, List<RpcService<Request<?>, Response>>> requestType2RpcServices = new HashMap<>();
+
+	private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
 
 	@SuppressWarnings("rawtypes")
 	private final ServiceRegistryListener<RpcService> serviceRegistryListener = event -> reset();
 
 	private static final RpcServiceRegistry instance = new RpcServiceRegistry();
 
+	/**
+	 * Entry of the dispatch-table.
+	 */
+	static final class Dispatch {
+		/**
+		 * Entry for request-types without service. Never returned by {@link RpcServiceRegistry#getDispatch(Class)}.
+		 */
+		static final Dispatch NONE = new Dispatch(null);
+
+		/**
+		 * The registered service. Must never be used directly, but only be {@linkplain RpcService#clone() cloned}.
+		 */
+		public final RpcService<Request<?>, Response> rpcService;
+		public final boolean threadSafe;
+
+		private Dispatch(final RpcService<Request<?>, Response> rpcService) {
+			this.rpcService = rpcService;
+			this.threadSafe = rpcService != null && rpcService.getClass().isAnnotationPresent(ThreadSafeRpcService.class);
+		}
+	}
+
+	private static final class Snapshot {
+		public final Map<Class<?>, List<RpcService<Request<?>, Response>>> requestType2RpcServices;
+		public final ConcurrentMap<Class<?>, Dispatch> requestType2Dispatch = new ConcurrentHashMap<>();
+
+		public Snapshot(final Map<Class<?>, List<RpcService<Request<?>, Response>>> requestType2RpcServices) {
+			this.requestType2RpcServices = requestType2RpcServices;
+			for (final Map.Entry<Class<?>, List<RpcService<Request<?>, Response>>> me : requestType2RpcServices.entrySet())
+				requestType2Dispatch.put(me.getKey(), new Dispatch(me.getValue().get(0)));
+		}
+	}
+
 	public static RpcServiceRegistry getInstance() {
 		return instance;
 	}
@@ -32,42 +76,64 @@ public class RpcServiceRegistry {
 
 	public List<RpcService<?, ?>> getRpcServices() {
 		List<RpcService<?, ?>> result = new ArrayList<>();
-		synchronized (mutex) {
-			if (requestType2RpcServices.isEmpty())
-				load();
-
-			for (List<RpcService<Request<?>, Response>> services : requestType2RpcServices.values()) {
-				for (RpcService<Request<?>, Response> service : services) {
-					result.add(service.clone());
-				}
+		for (List<RpcService<Request<?>, Response>> services : getSnapshot().requestType2RpcServices.values()) {
+			for (RpcService<Request<?>, Response> service : services) {
+				result.add(service.clone());
 			}
 		}
 		return result;
 	}
 
 	public <REQ extends Request<?>, RES extends Response> RpcService<REQ, RES> getRpcService(final Class<? extends REQ> requestType) {
-		Class<?> rt = requireNonNull(requestType, "requestType");
-		synchronized (mutex) {
-			if (requestType2RpcServices.isEmpty())
-				load();
-
-			while (rt != Object.class) {
-				List<RpcService<Request<?>, Response>> list = requestType2RpcServices.get(rt);
-				if (list != null && ! list.isEmpty()) {
-					RpcService<Request<?>, Response> rpcService = list.get(0);
-					@SuppressWarnings("unchecked")
-					RpcService<REQ, RES> result = (RpcService<REQ, RES>) rpcService.clone();
-					return result;
+		final Dispatch dispatch = getDispatch(requestType);
+		if (dispatch == null)
+			return null;
+
+		@SuppressWarnings("unchecked")
+		RpcService<REQ, RES> result = (RpcService<REQ, RES>) dispatch.rpcService.clone();
+		return result;
+	}
+
+	/**
+	 * Gets the dispatch-table's entry for the given request-type.
+	 * @param requestType the type of the request. Must not be <code>null</code>.
+	 * @return the entry or <code>null</code>, if there is no service for the given request-type.
+	 */
+	Dispatch getDispatch(final Class<?> requestType) {
+		requireNonNull(requestType, "requestType");
+		final Snapshot snapshot = getSnapshot();
+		Dispatch dispatch = snapshot.requestType2Dispatch.get(requestType);
+		if (dispatch == null) {
+			dispatch = Dispatch.NONE;
+			for (Class<?> rt = requestType.getSuperclass(); rt != null && rt != Object.class; rt = rt.getSuperclass()) {
+				// Every entry -- registered or entered on first use -- is already resolved for all its super-classes.
+				final Dispatch d = snapshot.requestType2Dispatch.get(rt);
+				if (d != null) {
+					dispatch = d;
+					break;
 				}
+			}
+			snapshot.requestType2Dispatch.putIfAbsent(requestType, dispatch);
+		}
+		return dispatch == Dispatch.NONE ? null : dispatch;
+	}
 
-				rt = rt.getSuperclass();
+	private Snapshot getSnapshot() {
+		Snapshot result = snapshot.get();
+		if (result == null) {
+			synchronized (mutex) { // only one thread should load -- the others wait for it
+				result = snapshot.get();
+				if (result == null) {
+					result = load();
+					snapshot.set(result);
+				}
 			}
 		}
-		return null;
+		return result;
 	}
 
 	@SuppressWarnings({ "rawtypes", "unchecked" })
-	protected void load() {
+	private Snapshot load() {
 		Map<Class<?>, List<RpcService<Request<?>, Response>>> requestType2RpcServices = new HashMap<>();
 
 		final ServiceRegistry<RpcService> serviceRegistry = ServiceRegistry.getInstance(RpcService.class);
@@ -88,10 +154,7 @@ public class RpcServiceRegistry {
 		for (List<RpcService<Request<?>, Response>> list : requestType2RpcServices.values())
 			Collections.sort(list, rpcServiceComparator);
 
-		synchronized (mutex) {
-			this.requestType2RpcServices.clear();
-			this.requestType2RpcServices.putAll(requestType2RpcServices);
-		}
+		return new Snapshot(Collections.unmodifiableMap(requestType2RpcServices));
 	}
 
 	private static Comparator<RpcService<?, ?>> rpcServiceComparator = new Comparator<RpcService<?,?>>() {
@@ -107,7 +170,7 @@ public class RpcServiceRegistry {
 
 	public void reset() {
 		synchronized (mutex) {
-			this.requestType2RpcServices.clear();
+			snapshot.set(null);
 		}
 		IntelliHouseJaxbContext.reset();
 	}
@@ -3,6 +3,9 @@ package house.intelli.core.rpc;
 import java.io.InputStream;
 import java.io.OutputStream;
 
+import house.intelli.core.rpc.codec.RpcCompression;
+import house.intelli.core.rpc.codec.RpcMessageCodec;
+
 /**
  * {@link RpcServerTransport}s used in servlets and similar situations.
  * <p>
@@ -20,4 +23,23 @@ public interface ServletRpcServerTransport extends RpcServerTransport {
 
 	void setOutputStream(OutputStream outputStream);
 
+	/**
+	 * Gets the codec used to encode the response. This is usually negotiated by the servlet based on
+	 * the HTTP-headers of the request.
+	 * @return the codec used to encode the response. Never <code>null</code>.
+	 */
+	RpcMessageCodec getResponseCodec();
+
+	void setResponseCodec(RpcMessageCodec responseCodec);
+
+	/**
+	 * Gets the compression negotiated for the response. Like the {@linkplain #getResponseCodec() codec}, this is
+	 * usually negotiated by the servlet. It is applied only by transports encrypting the messages, because
+	 * compressing after encrypting is useless.
+	 * @return the negotiated compression or <code>null</code>, if the client did not announce any (legacy format).
+	 */
+	RpcCompression getResponseCompression();
+
+	void setResponseCompression(RpcCompression responseCompression);
+
 }
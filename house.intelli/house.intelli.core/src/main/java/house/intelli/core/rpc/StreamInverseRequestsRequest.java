@@ -0,0 +1,17 @@
+package house.intelli.core.rpc;
+
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Request opening a stream of inverse requests.
+ * <p>
+ * In contrast to a {@link PollInverseRequestsRequest}, the server does not answer with a single response,
+ * but keeps the exchange open and sends one {@link PollInverseRequestsResponse} whenever inverse requests are
+ * enqueued -- as long as the transport is a {@link StreamingRpcServerTransport}. Otherwise, this request
+ * is handled exactly like a {@link PollInverseRequestsRequest}.
+ * @see RpcConst#INVERSE_REQUEST_STREAM_TIMEOUT
+ */
+@XmlRootElement
+public class StreamInverseRequestsRequest extends Request<PollInverseRequestsResponse> {
+
+}
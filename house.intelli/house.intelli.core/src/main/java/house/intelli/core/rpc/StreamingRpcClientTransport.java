@@ -0,0 +1,18 @@
+package house.intelli.core.rpc;
+
+/**
+ * {@link RpcClientTransport} capable of receiving multiple responses for one request.
+ * <p>
+ * If the server sent intermediate responses (via {@link StreamingRpcServerTransport#sendStreamedResponse(Response)}),
+ * each invocation of {@link #receiveResponse()} returns the next one, blocking until it arrives.
+ * @see StreamingRpcServerTransport
+ */
+public interface StreamingRpcClientTransport extends RpcClientTransport {
+
+	/**
+	 * Indicates whether the response returned by the last {@link #receiveResponse()} was an intermediate one.
+	 * @return <code>true</code>, if more responses belonging to the same request follow; <code>false</code>,
+	 * if the last response was the final one (or not streamed at all).
+	 */
+	boolean isMoreResponsesExpected();
+}
@@ -0,0 +1,20 @@
+package house.intelli.core.rpc;
+
+import java.io.IOException;
+
+/**
+ * {@link RpcServerTransport} capable of sending multiple responses for one request.
+ * <p>
+ * Every response passed to {@link #sendStreamedResponse(Response)} is delivered to the client immediately,
+ * while the exchange stays open. The exchange is completed by the final {@link #sendResponse(Response)}.
+ * @see StreamingRpcClientTransport
+ */
+public interface StreamingRpcServerTransport extends RpcServerTransport {
+
+	/**
+	 * Sends an intermediate response and flushes it to the client.
+	 * @param response the response. Must not be <code>null</code>.
+	 * @throws IOException if sending failed -- e.g. because the client closed the connection.
+	 */
+	void sendStreamedResponse(Response response) throws IOException;
+}
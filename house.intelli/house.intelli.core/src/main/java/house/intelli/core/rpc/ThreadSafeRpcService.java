@@ -0,0 +1,24 @@
+package house.intelli.core.rpc;
+
+import static java.lang.annotation.ElementType.*;
+import static java.lang.annotation.RetentionPolicy.*;
+
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an {@link RpcService} as thread-safe -- usually, because it is stateless.
+ * <p>
+ * Such a service is not {@linkplain RpcService#clone() cloned} for every invocation. Instead, a single
+ * instance per {@link RpcContext} processes all requests concurrently.
+ * <p>
+ * This instance is a copy taken on first use. Do not annotate a service whose fields are re-assigned after
+ * registration (e.g. dynamic OSGi references bound via setter/unsetter), because the copy would keep the stale value.
+ */
+@Retention(RUNTIME)
+@Target(TYPE)
+@Inherited
+public @interface ThreadSafeRpcService {
+
+}
@@ -0,0 +1,243 @@
+package house.intelli.core.rpc;
+
+import static java.util.Objects.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hashed timing-wheel running tasks at (approximately) a given timestamp.
+ * <p>
+ * Time is divided into ticks of {@link #getTickDuration() tickDuration} milliseconds. Every task is put
+ * into the bucket of the tick it expires in -- modulo the {@link #getWheelSize() wheelSize}. A single
+ * daemon thread advances the wheel tick by tick and only looks at the current bucket. Thus, scheduling
+ * and cancelling are O(1), there is no global lock and no sweep over all tasks. A task expiring more
+ * than one revolution in the future simply stays in its bucket, until its tick is reached.
+ * <p>
+ * The tasks are run on the wheel's thread and must therefore be quick.
+ * <p>
+ * While no task is scheduled, the thread sleeps -- it does not tick in vain.
+ */
+public class TimingWheel implements AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(TimingWheel.class);
+
+	private final long tickDuration;
+	private final long tickDurationNanos;
+	private final Bucket[] buckets;
+	private final long startNanos = System.nanoTime();
+	private final AtomicInteger size = new AtomicInteger();
+	private final Object idleMutex = new Object();
+	private final Thread thread;
+
+	/**
+	 * The last tick whose bucket is (being) processed. Written only by the wheel's thread -- while
+	 * holding the lock of this tick's bucket.
+	 */
+	private volatile long processedTick;
+
+	private volatile boolean closed;
+
+	private static final class Bucket {
+		public final Set<Timeout> timeouts = new HashSet<>();
+	}
+
+	/**
+	 * Handle of a scheduled task.
+	 */
+	public static final class Timeout {
+		private final Bucket bucket;
+		private final long expiryTick;
+		private final Runnable task;
+		private final TimingWheel timingWheel;
+
+		private Timeout(final TimingWheel timingWheel, final Bucket bucket, final long expiryTick, final Runnable task) {
+			this.timingWheel = timingWheel;
+			this.bucket = bucket;
+			this.expiryTick = expiryTick;
+			this.task = task;
+		}
+
+		/**
+		 * Cancels the task, if it did not yet run.
+		 * @return <code>true</code>, if the task was cancelled; <code>false</code>, if it was already run
+		 * (or is just running) or cancelled before.
+		 */
+		public boolean cancel() {
+			if (bucket == null)
+				return false;
+
+			final boolean removed;
+			synchronized (bucket) {
+				removed = bucket.timeouts.remove(this);
+			}
+			if (removed)
+				timingWheel.size.decrementAndGet();
+
+			return removed;
+		}
+	}
+
+	/**
+	 * Creates and starts a new timing-wheel.
+	 * @param name the name of the wheel's thread. Must not be <code>null</code>.
+	 * @param tickDuration the duration (milliseconds) of one tick. This is the precision of the wheel.
+	 * Must be &gt; 0.
+	 * @param wheelSize the number of buckets. Must be &gt; 0.
+	 */
+	public TimingWheel(final String name, final long tickDuration, final int wheelSize) {
+		requireNonNull(name, "name");
+		if (tickDuration <= 0)
+			throw new IllegalArgumentException("tickDuration <= 0");
+
+		if (wheelSize <= 0)
+			throw new IllegalArgumentException("wheelSize <= 0");
+
+		this.tickDuration = tickDuration;
+		this.tickDurationNanos = TimeUnit.MILLISECONDS.toNanos(tickDuration);
+		this.buckets = new Bucket[wheelSize];
+		for (int i = 0; i < wheelSize; ++i)
+			buckets[i] = new Bucket();
+
+		thread = new Thread(this::run, name);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	public long getTickDuration() {
+		return tickDuration;
+	}
+
+	public int getWheelSize() {
+		return buckets.length;
+	}
+
+	/**
+	 * Gets the number of tasks currently scheduled.
+	 * @return the number of tasks currently scheduled. Always &gt;= 0.
+	 */
+	public int getSize() {
+		return size.get();
+	}
+
+	/**
+	 * Schedules the given task to be run at the given timestamp -- or within the next tick, if the
+	 * timestamp already passed.
+	 * <p>
+	 * If this wheel is already closed, the task is never run.
+	 * @param task the task to be run. Must not be <code>null</code>.
+	 * @param timestamp the timestamp (like {@link System#currentTimeMillis()}) when to run the task.
+	 * @return the handle allowing to cancel the task. Never <code>null</code>.
+	 */
+	public Timeout schedule(final Runnable task, final long timestamp) {
+		requireNonNull(task, "task");
+		if (closed) {
+			logger.debug("schedule: Already closed! Ignoring task: {}", task);
+			return new Timeout(this, null, 0, task);
+		}
+
+		final long delayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, timestamp - System.currentTimeMillis()));
+		final long desiredTick = (System.nanoTime() - startNanos + delayNanos + tickDurationNanos - 1) / tickDurationNanos;
+		while (true) {
+			final long expiryTick = Math.max(desiredTick, processedTick + 1);
+			final Bucket bucket = getBucket(expiryTick);
+			final Timeout timeout = new Timeout(this, bucket, expiryTick, task);
+			synchronized (bucket) {
+				// The wheel's thread advances processedTick while holding the lock of the new tick's bucket. If
+				// it passed our tick in the meantime, this bucket might already be processed => next tick.
+				if (expiryTick <= processedTick)
+					continue;
+
+				bucket.timeouts.add(timeout);
+			}
+			if (size.getAndIncrement() == 0) {
+				synchronized (idleMutex) {
+					idleMutex.notifyAll();
+				}
+			}
+			return timeout;
+		}
+	}
+
+	private Bucket getBucket(final long tick) {
+		return buckets[(int) (tick % buckets.length)];
+	}
+
+	private long getCurrentTick() {
+		return (System.nanoTime() - startNanos) / tickDurationNanos;
+	}
+
+	private void run() {
+		while (! closed) {
+			try {
+				final long currentTick = getCurrentTick();
+				// If we are late (or were idle), we process every bucket once -- at most one revolution.
+				for (long tick = Math.max(processedTick + 1, currentTick - buckets.length + 1); tick <= currentTick; ++tick)
+					processTick(tick, currentTick);
+
+				if (size.get() == 0) {
+					synchronized (idleMutex) {
+						while (size.get() == 0 && ! closed)
+							idleMutex.wait();
+					}
+					continue;
+				}
+
+				final long nextTickNanos = startNanos + (currentTick + 1) * tickDurationNanos;
+				final long sleepNanos = nextTickNanos - System.nanoTime();
+				if (sleepNanos > 0)
+					TimeUnit.NANOSECONDS.sleep(sleepNanos);
+			} catch (InterruptedException x) {
+				if (! closed)
+					logger.warn("run: " + x + ' ', x);
+			} catch (Throwable x) {
+				logger.error("run: " + x + ' ', x);
+			}
+		}
+	}
+
+	/**
+	 * Runs the expired tasks of the given tick's bucket.
+	 * @param tick the tick whose bucket to process.
+	 * @param currentTick the current tick. Every task with an expiry-tick up to this one is run.
+	 */
+	private void processTick(final long tick, final long currentTick) {
+		final Bucket bucket = getBucket(tick);
+		final List<Timeout> expired = new ArrayList<>();
+		synchronized (bucket) {
+			processedTick = tick;
+			for (final Iterator<Timeout> it = bucket.timeouts.iterator(); it.hasNext(); ) {
+				final Timeout timeout = it.next();
+				if (timeout.expiryTick <= currentTick) {
+					it.remove();
+					expired.add(timeout);
+				}
+			}
+		}
+		if (expired.isEmpty())
+			return;
+
+		size.addAndGet(-expired.size());
+		for (final Timeout timeout : expired) {
+			try {
+				timeout.task.run();
+			} catch (Throwable x) {
+				logger.error("processTick: " + x + ' ', x);
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+		thread.interrupt();
+	}
+}
@@ -0,0 +1,84 @@
+package house.intelli.core.rpc.codec;
+
+import static java.util.Objects.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import house.intelli.core.rpc.RpcMessage;
+
+/**
+ * {@link RpcMessageCodec} using a compact, schema-driven binary encoding (see {@link BinarySchema}).
+ * <p>
+ * Every message starts with the {@link #MAGIC} (whose first byte is 0 and thus never the beginning of
+ * an XML document), a version byte and the {@linkplain BinarySchema#getFingerprint() fingerprint} of the
+ * schema. A message encoded with a different schema is rejected with a {@link BinarySchemaMismatchException}.
+ */
+public class BinaryRpcMessageCodec implements RpcMessageCodec {
+
+	public static final String NAME = "binary";
+
+	public static final byte[] MAGIC = { 0, 'i', 'h', 'b' };
+
+	public static final int VERSION = 1;
+
+	private final BinarySchema binarySchema;
+
+	public BinaryRpcMessageCodec(final BinarySchema binarySchema) {
+		this.binarySchema = requireNonNull(binarySchema, "binarySchema");
+	}
+
+	public BinarySchema getBinarySchema() {
+		return binarySchema;
+	}
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	@Override
+	public void encode(final RpcMessage rpcMessage, final OutputStream out) throws IOException {
+		requireNonNull(rpcMessage, "rpcMessage");
+		requireNonNull(out, "out");
+		// Encoded into memory first, because the OutputStream is usually unbuffered and the schema writes single bytes.
+		final ByteArrayOutputStream bout = new ByteArrayOutputStream(512);
+		final DataOutputStream dout = new DataOutputStream(bout);
+		dout.write(MAGIC);
+		dout.writeByte(VERSION);
+		dout.writeLong(binarySchema.getFingerprint());
+		binarySchema.write(dout, rpcMessage);
+		dout.flush();
+		bout.writeTo(out);
+	}
+
+	@Override
+	public RpcMessage decode(final InputStream in) throws IOException {
+		requireNonNull(in, "in");
+		final DataInputStream din = new DataInputStream(in);
+		final byte[] magic = new byte[MAGIC.length];
+		din.readFully(magic);
+		for (int i = 0; i < MAGIC.length; ++i) {
+			if (magic[i] != MAGIC[i])
+				throw new IOException("Input is not binary-encoded! Magic does not match!");
+		}
+		final int version = din.readUnsignedByte();
+		if (version != VERSION)
+			throw new IOException("Unsupported version: " + version);
+
+		final long fingerprint = din.readLong();
+		if (fingerprint != binarySchema.getFingerprint())
+			throw new BinarySchemaMismatchException(String.format("Schema fingerprint %s does not match local schema %s!",
+					RpcMessageCodecUtil.toHex(fingerprint), RpcMessageCodecUtil.toHex(binarySchema.getFingerprint())));
+
+		final Object object = binarySchema.read(din);
+		if (! (object instanceof RpcMessage))
+			throw new IOException("Decoded object is not an RpcMessage: " + object);
+
+		return (RpcMessage) object;
+	}
+}
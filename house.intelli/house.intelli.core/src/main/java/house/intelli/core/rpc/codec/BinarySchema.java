@@ -0,0 +1,999 @@
+package house.intelli.core.rpc.codec;
+
+import static java.util.Objects.*;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import javax.xml.bind.annotation.XmlTransient;
+import javax.xml.bind.annotation.adapters.XmlAdapter;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
+
+import house.intelli.core.Uid;
+
+/**
+ * Schema of the binary encoding used by {@link BinaryRpcMessageCodec}.
+ * <p>
+ * The schema is derived from the same classes as the {@code IntelliHouseJaxbContext} and follows the
+ * JAXB-mapping: Every bean-property with a public getter and setter (or a getter returning a collection)
+ * is encoded, unless it is annotated with {@link XmlTransient @XmlTransient}. Classes annotated with
+ * {@link XmlJavaTypeAdapter @XmlJavaTypeAdapter} (mapping to {@code String}) are encoded via their adapter.
+ * <p>
+ * The properties are encoded in alphabetical order without any names or tags. Thus, both sides must use
+ * exactly the same schema, which is ensured by comparing the {@link #getFingerprint() fingerprint}.
+ * <p>
+ * Instances of this class are immutable and thread-safe.
+ */
+public class BinarySchema {
+
+	private final Set<Class<?>> rootClasses;
+
+	private final List<ClassDescriptor> classDescriptors;
+
+	private final Map<Class<?>, ClassDescriptor> class2ClassDescriptor;
+
+	private final Map<Class<?>, ValueType> class2ValueType = new HashMap<>();
+
+	private final long fingerprint;
+
+	/**
+	 * Creates a new schema for the given classes and all classes reachable from them.
+	 * @param rootClasses the classes to be supported. Must not be <code>null</code>. Classes which
+	 * cannot be instantiated (abstract classes or classes without public default-constructor) are ignored.
+	 * @throws IllegalArgumentException if a property has a type, which is not supported.
+	 */
+	public BinarySchema(final Set<Class<?>> rootClasses) throws IllegalArgumentException {
+		this.rootClasses = requireNonNull(rootClasses, "rootClasses");
+
+		final Map<String, Class<?>> className2Class = new TreeMap<>();
+		final LinkedList<Class<?>> classesToProcess = new LinkedList<>(rootClasses);
+		final Set<Class<?>> processedClasses = new HashSet<>();
+		while (! classesToProcess.isEmpty()) {
+			final Class<?> clazz = classesToProcess.poll();
+			if (! processedClasses.add(clazz))
+				continue;
+
+			if (! isInstantiable(clazz))
+				continue;
+
+			className2Class.put(clazz.getName(), clazz);
+			for (final Method getter : getGetters(clazz))
+				collectReferencedBeanClasses(getter.getGenericReturnType(), classesToProcess);
+		}
+
+		final List<ClassDescriptor> classDescriptors = new ArrayList<>(className2Class.size());
+		final Map<Class<?>, ClassDescriptor> class2ClassDescriptor = new HashMap<>();
+		for (final Class<?> clazz : className2Class.values()) {
+			final ClassDescriptor classDescriptor = new ClassDescriptor(clazz, classDescriptors.size());
+			classDescriptors.add(classDescriptor);
+			class2ClassDescriptor.put(clazz, classDescriptor);
+		}
+		this.classDescriptors = Collections.unmodifiableList(classDescriptors);
+		this.class2ClassDescriptor = Collections.unmodifiableMap(class2ClassDescriptor);
+
+		for (final ClassDescriptor classDescriptor : classDescriptors)
+			classDescriptor.initProperties();
+
+		this.fingerprint = calculateFingerprint();
+	}
+
+	public Set<Class<?>> getRootClasses() {
+		return rootClasses;
+	}
+
+	/**
+	 * Gets all classes which can be encoded, sorted by name.
+	 * @return all classes which can be encoded. Never <code>null</code>.
+	 */
+	public List<Class<?>> getClasses() {
+		final List<Class<?>> result = new ArrayList<>(classDescriptors.size());
+		for (final ClassDescriptor classDescriptor : classDescriptors)
+			result.add(classDescriptor.clazz);
+
+		return result;
+	}
+
+	/**
+	 * Gets the fingerprint of this schema. Two schemas having the same fingerprint produce and understand
+	 * exactly the same encoding.
+	 * @return the fingerprint of this schema.
+	 */
+	public long getFingerprint() {
+		return fingerprint;
+	}
+
+	/**
+	 * Writes the given object (and all objects referenced by it).
+	 * @param out the destination. Must not be <code>null</code>. It is neither flushed nor closed.
+	 * @param object the object to be written. May be <code>null</code>.
+	 * @throws IOException if writing failed or the object's class is not supported by this schema.
+	 */
+	public void write(final OutputStream out, final Object object) throws IOException {
+		requireNonNull(out, "out");
+		writeObject(new BinaryOutput(out), object);
+	}
+
+	/**
+	 * Reads an object written by {@link #write(OutputStream, Object)}.
+	 * @param in the source. Must not be <code>null</code>. It is not closed.
+	 * @return the object read. May be <code>null</code>.
+	 * @throws IOException if reading failed or the input is malformed.
+	 */
+	public Object read(final InputStream in) throws IOException {
+		requireNonNull(in, "in");
+		return readObject(new BinaryInput(in));
+	}
+
+	private void writeObject(final BinaryOutput out, final Object object) throws IOException {
+		if (object == null) {
+			writeVarInt(out, 0);
+			return;
+		}
+		final ClassDescriptor classDescriptor = class2ClassDescriptor.get(object.getClass());
+		if (classDescriptor == null)
+			throw new IOException("Class not supported by schema: " + object.getClass().getName());
+
+		writeVarInt(out, classDescriptor.index + 1);
+		for (final PropertyDescriptor propertyDescriptor : classDescriptor.propertyDescriptors)
+			propertyDescriptor.valueType.write(out, propertyDescriptor.getValue(object));
+	}
+
+	private Object readObject(final BinaryInput in) throws IOException {
+		final int classIndex = readVarInt(in) - 1;
+		if (classIndex < 0)
+			return null;
+
+		if (classIndex >= classDescriptors.size())
+			throw new IOException("classIndex out of range: " + classIndex);
+
+		if (in.depth >= MAX_OBJECT_DEPTH)
+			throw new IOException("Objects nested deeper than maximum: " + MAX_OBJECT_DEPTH);
+
+		final ClassDescriptor classDescriptor = classDescriptors.get(classIndex);
+		final Object object = classDescriptor.newInstance();
+		++in.depth;
+		try {
+			for (final PropertyDescriptor propertyDescriptor : classDescriptor.propertyDescriptors)
+				propertyDescriptor.setValue(object, propertyDescriptor.valueType.read(in));
+		} finally {
+			--in.depth;
+		}
+		return object;
+	}
+
+	private long calculateFingerprint() {
+		final StringBuilder sb = new StringBuilder();
+		for (final ClassDescriptor classDescriptor : classDescriptors) {
+			sb.append(classDescriptor.clazz.getName()).append('{');
+			for (final PropertyDescriptor propertyDescriptor : classDescriptor.propertyDescriptors)
+				sb.append(propertyDescriptor.name).append(':').append(propertyDescriptor.valueType.getDescription()).append(';');
+
+			sb.append('}');
+		}
+		final byte[] hash;
+		try {
+			hash = MessageDigest.getInstance("SHA-256").digest(sb.toString().getBytes(StandardCharsets.UTF_8));
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+		long result = 0;
+		for (int i = 0; i < 8; ++i)
+			result = (result << 8) | (hash[i] & 0xff);
+
+		return result;
+	}
+
+	private static boolean isInstantiable(final Class<?> clazz) {
+		if (clazz.isInterface() || clazz.isEnum() || clazz.isArray() || clazz.isPrimitive())
+			return false;
+
+		if (Modifier.isAbstract(clazz.getModifiers()) || ! Modifier.isPublic(clazz.getModifiers()))
+			return false;
+
+		if (isSimpleType(clazz))
+			return false;
+
+		try {
+			return Modifier.isPublic(clazz.getConstructor().getModifiers());
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	private static boolean isSimpleType(final Class<?> clazz) {
+		return clazz.isPrimitive() || clazz.isEnum() || clazz == String.class || clazz == byte[].class
+				|| clazz == Date.class || clazz == Uid.class
+				|| Number.class.isAssignableFrom(clazz) || clazz == Boolean.class || clazz == Character.class
+				|| clazz.isAnnotationPresent(XmlJavaTypeAdapter.class);
+	}
+
+	private static void collectReferencedBeanClasses(final Type type, final Collection<Class<?>> result) {
+		final Class<?> rawType = getRawType(type);
+		if (Collection.class.isAssignableFrom(rawType)) {
+			collectReferencedBeanClasses(getCollectionElementType(type), result);
+			return;
+		}
+		if (! isSimpleType(rawType))
+			result.add(rawType);
+	}
+
+	private static List<Method> getGetters(final Class<?> clazz) {
+		final List<Method> result = new ArrayList<>();
+		for (final Method method : clazz.getMethods()) {
+			if (Modifier.isStatic(method.getModifiers()) || method.getParameterCount() != 0)
+				continue;
+
+			if (method.getDeclaringClass() == Object.class)
+				continue;
+
+			final String propertyName = getPropertyName(method);
+			if (propertyName == null)
+				continue;
+
+			if (method.isAnnotationPresent(XmlTransient.class))
+				continue;
+
+			if (getSetter(clazz, method, propertyName) == null && ! Collection.class.isAssignableFrom(method.getReturnType()))
+				continue; // read-only properties are ignored (like JAXB does)
+
+			result.add(method);
+		}
+		result.sort(Comparator.comparing(BinarySchema::getPropertyName));
+		return result;
+	}
+
+	private static String getPropertyName(final Method getter) {
+		final String methodName = getter.getName();
+		String name = null;
+		if (methodName.startsWith("get") && methodName.length() > 3)
+			name = methodName.substring(3);
+		else if (methodName.startsWith("is") && methodName.length() > 2 && getter.getReturnType() == boolean.class)
+			name = methodName.substring(2);
+
+		if (name == null || getter.getReturnType() == void.class)
+			return null;
+
+		return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+	}
+
+	private static Method getSetter(final Class<?> clazz, final Method getter, final String propertyName) {
+		final String setterName = "set" + Character.toUpperCase(propertyName.charAt(0)) + propertyName.substring(1);
+		try {
+			return clazz.getMethod(setterName, getter.getReturnType());
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	private static Class<?> getRawType(final Type type) {
+		if (type instanceof Class<?>)
+			return (Class<?>) type;
+
+		if (type instanceof ParameterizedType)
+			return getRawType(((ParameterizedType) type).getRawType());
+
+		if (type instanceof WildcardType)
+			return getRawType(((WildcardType) type).getUpperBounds()[0]);
+
+		throw new IllegalArgumentException("Unsupported type: " + type);
+	}
+
+	private static Type getCollectionElementType(final Type collectionType) {
+		if (! (collectionType instanceof ParameterizedType))
+			throw new IllegalArgumentException("Collection type is not parameterized: " + collectionType);
+
+		return ((ParameterizedType) collectionType).getActualTypeArguments()[0];
+	}
+
+	private ValueType getValueType(final Type type) {
+		final Class<?> rawType = getRawType(type);
+		if (Collection.class.isAssignableFrom(rawType))
+			return new CollectionValueType(rawType, getValueType(getCollectionElementType(type)));
+
+		ValueType valueType = class2ValueType.get(rawType);
+		if (valueType == null) {
+			valueType = createValueType(rawType);
+			class2ValueType.put(rawType, valueType);
+		}
+		return valueType;
+	}
+
+	private ValueType createValueType(final Class<?> clazz) {
+		if (clazz == boolean.class) return new BooleanValueType(false);
+		if (clazz == Boolean.class) return new BooleanValueType(true);
+		if (clazz == byte.class) return new ByteValueType(false);
+		if (clazz == Byte.class) return new ByteValueType(true);
+		if (clazz == short.class) return new ShortValueType(false);
+		if (clazz == Short.class) return new ShortValueType(true);
+		if (clazz == char.class) return new CharValueType(false);
+		if (clazz == Character.class) return new CharValueType(true);
+		if (clazz == int.class) return new IntValueType(false);
+		if (clazz == Integer.class) return new IntValueType(true);
+		if (clazz == long.class) return new LongValueType(false);
+		if (clazz == Long.class) return new LongValueType(true);
+		if (clazz == float.class) return new FloatValueType(false);
+		if (clazz == Float.class) return new FloatValueType(true);
+		if (clazz == double.class) return new DoubleValueType(false);
+		if (clazz == Double.class) return new DoubleValueType(true);
+		if (clazz == String.class) return new StringValueType();
+		if (clazz == byte[].class) return new ByteArrayValueType();
+		if (clazz == Date.class) return new DateValueType();
+		if (clazz == Uid.class) return new UidValueType();
+		if (clazz.isEnum()) return new EnumValueType(clazz);
+		if (clazz.isAnnotationPresent(XmlJavaTypeAdapter.class)) return new AdapterValueType(clazz);
+		if (clazz.isPrimitive() || clazz.isArray() || Number.class.isAssignableFrom(clazz))
+			throw new IllegalArgumentException("Unsupported type: " + clazz.getName());
+
+		return new ObjectValueType(clazz);
+	}
+
+	private class ClassDescriptor {
+		public final Class<?> clazz;
+		public final int index;
+		private final Constructor<?> constructor;
+		public List<PropertyDescriptor> propertyDescriptors;
+
+		public ClassDescriptor(final Class<?> clazz, final int index) {
+			this.clazz = requireNonNull(clazz, "clazz");
+			this.index = index;
+			try {
+				this.constructor = clazz.getConstructor();
+			} catch (NoSuchMethodException e) {
+				throw new IllegalArgumentException(e);
+			}
+		}
+
+		public void initProperties() {
+			final List<PropertyDescriptor> propertyDescriptors = new ArrayList<>();
+			for (final Method getter : getGetters(clazz)) {
+				final String propertyName = getPropertyName(getter);
+				final Method setter = getSetter(clazz, getter, propertyName);
+				final ValueType valueType;
+				try {
+					valueType = getValueType(getter.getGenericReturnType());
+				} catch (IllegalArgumentException x) {
+					throw new IllegalArgumentException(String.format("%s.%s: %s", clazz.getName(), propertyName, x.getMessage()), x);
+				}
+				propertyDescriptors.add(new PropertyDescriptor(propertyName, getter, setter, valueType));
+			}
+			this.propertyDescriptors = Collections.unmodifiableList(propertyDescriptors);
+		}
+
+		public Object newInstance() throws IOException {
+			try {
+				return constructor.newInstance();
+			} catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+				throw new IOException("Instantiating " + clazz.getName() + " failed: " + e, e);
+			}
+		}
+	}
+
+	private static class PropertyDescriptor {
+		public final String name;
+		private final Method getter;
+		private final Method setter;
+		public final ValueType valueType;
+
+		public PropertyDescriptor(final String name, final Method getter, final Method setter, final ValueType valueType) {
+			this.name = requireNonNull(name, "name");
+			this.getter = requireNonNull(getter, "getter");
+			this.setter = setter;
+			this.valueType = requireNonNull(valueType, "valueType");
+		}
+
+		public Object getValue(final Object object) throws IOException {
+			try {
+				return getter.invoke(object);
+			} catch (IllegalAccessException | InvocationTargetException e) {
+				throw new IOException("Reading property " + name + " of " + object.getClass().getName() + " failed: " + e, e);
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		public void setValue(final Object object, final Object value) throws IOException {
+			try {
+				if (setter != null) {
+					if (value != null || ! getter.getReturnType().isPrimitive())
+						setter.invoke(object, value);
+				}
+				else if (value != null) { // getter-only collection
+					final Collection<Object> collection = (Collection<Object>) getter.invoke(object);
+					collection.clear();
+					collection.addAll((Collection<Object>) value);
+				}
+			} catch (IllegalAccessException | InvocationTargetException e) {
+				throw new IOException("Writing property " + name + " of " + object.getClass().getName() + " failed: " + e, e);
+			}
+		}
+	}
+
+	private static abstract class ValueType {
+		public abstract String getDescription();
+		public abstract void write(BinaryOutput out, Object value) throws IOException;
+		public abstract Object read(BinaryInput in) throws IOException;
+	}
+
+	/**
+	 * Base class for primitives and their wrappers. A wrapper is preceded by a flag indicating <code>null</code>.
+	 */
+	private static abstract class PrimitiveValueType extends ValueType {
+		private final boolean nullable;
+
+		protected PrimitiveValueType(final boolean nullable) {
+			this.nullable = nullable;
+		}
+
+		@Override
+		public String getDescription() {
+			return nullable ? getPrimitiveName() + '?' : getPrimitiveName();
+		}
+
+		@Override
+		public void write(final BinaryOutput out, final Object value) throws IOException {
+			if (nullable) {
+				out.writeBoolean(value != null);
+				if (value == null)
+					return;
+			}
+			writePrimitive(out, requireNonNull(value, "value"));
+		}
+
+		@Override
+		public Object read(final BinaryInput in) throws IOException {
+			if (nullable && ! in.readBoolean())
+				return null;
+
+			return readPrimitive(in);
+		}
+
+		protected abstract String getPrimitiveName();
+		protected abstract void writePrimitive(BinaryOutput out, Object value) throws IOException;
+		protected abstract Object readPrimitive(BinaryInput in) throws IOException;
+	}
+
+	private static class BooleanValueType extends PrimitiveValueType {
+		public BooleanValueType(boolean nullable) { super(nullable); }
+		@Override protected String getPrimitiveName() { return "boolean"; }
+		@Override protected void writePrimitive(BinaryOutput out, Object value) throws IOException { out.writeBoolean((Boolean) value); }
+		@Override protected Object readPrimitive(BinaryInput in) throws IOException { return in.readBoolean(); }
+	}
+
+	private static class ByteValueType extends PrimitiveValueType {
+		public ByteValueType(boolean nullable) { super(nullable); }
+		@Override protected String getPrimitiveName() { return "byte"; }
+		@Override protected void writePrimitive(BinaryOutput out, Object value) throws IOException { out.writeByte((Byte) value); }
+		@Override protected Object readPrimitive(BinaryInput in) throws IOException { return in.readByte(); }
+	}
+
+	private static class ShortValueType extends PrimitiveValueType {
+		public ShortValueType(boolean nullable) { super(nullable); }
+		@Override protected String getPrimitiveName() { return "short"; }
+		@Override protected void writePrimitive(BinaryOutput out, Object value) throws IOException { writeVarLong(out, zigZag((Short) value)); }
+		@Override protected Object readPrimitive(BinaryInput in) throws IOException { return (short) unZigZag(readVarLong(in)); }
+	}
+
+	private static class CharValueType extends PrimitiveValueType {
+		public CharValueType(boolean nullable) { super(nullable); }
+		@Override protected String getPrimitiveName() { return "char"; }
+		@Override protected void writePrimitive(BinaryOutput out, Object value) throws IOException { writeVarInt(out, (Character) value); }
+		@Override protected Object readPrimitive(BinaryInput in) throws IOException { return (char) readVarInt(in); }
+	}
+
+	private static class IntValueType extends PrimitiveValueType {
+		public IntValueType(boolean nullable) { super(nullable); }
+		@Override protected String getPrimitiveName() { return "int"; }
+		@Override protected void writePrimitive(BinaryOutput out, Object value) throws IOException { writeVarLong(out, zigZag((Integer) value)); }
+		@Override protected Object readPrimitive(BinaryInput in) throws IOException { return (int) unZigZag(readVarLong(in)); }
+	}
+
+	private static class LongValueType extends PrimitiveValueType {
+		public LongValueType(boolean nullable) { super(nullable); }
+		@Override protected String getPrimitiveName() { return "long"; }
+		@Override protected void writePrimitive(BinaryOutput out, Object value) throws IOException { writeVarLong(out, zigZag((Long) value)); }
+		@Override protected Object readPrimitive(BinaryInput in) throws IOException { return unZigZag(readVarLong(in)); }
+	}
+
+	/**
+	 * Most floating point values (e.g. measured voltages) have only a few decimal places. If such a value can
+	 * be restored exactly from {@code decimal / scale} (with scale 1, 10 or 100), {@code (zigZag(decimal) << 2) | scaleIndex}
+	 * is encoded as varint -- usually 1 to 3 bytes. Otherwise, a 0-byte followed by the raw IEEE-754-value is written.
+	 */
+	private static final int[] DECIMAL_SCALES = { 0, 1, 10, 100 }; // index 0 means raw
+	private static final long MAX_DECIMAL = 1L << 40;
+
+	private static void writeDecimalOrRaw(final BinaryOutput out, final double value, final boolean isFloat) throws IOException {
+		for (int scaleIndex = 1; scaleIndex < DECIMAL_SCALES.length; ++scaleIndex) {
+			final double scaled = value * DECIMAL_SCALES[scaleIndex];
+			if (Double.isNaN(scaled) || Math.abs(scaled) >= MAX_DECIMAL)
+				break;
+
+			final long decimal = Math.round(scaled);
+			if (isDecimalExact(decimal, scaleIndex, value, isFloat)) {
+				writeVarLong(out, (zigZag(decimal) << 2) | scaleIndex);
+				return;
+			}
+		}
+		out.writeByte(0);
+		if (isFloat)
+			out.writeFloat((float) value);
+		else
+			out.writeDouble(value);
+	}
+
+	private static boolean isDecimalExact(final long decimal, final int scaleIndex, final double value, final boolean isFloat) {
+		final double restored = (double) decimal / DECIMAL_SCALES[scaleIndex];
+		if (isFloat)
+			return Float.floatToIntBits((float) restored) == Float.floatToIntBits((float) value);
+		else
+			return Double.doubleToLongBits(restored) == Double.doubleToLongBits(value);
+	}
+
+	/**
+	 * @return the decimal value or <code>null</code>, if the raw IEEE-754-value follows.
+	 */
+	private static Double readDecimalOrNull(final BinaryInput in) throws IOException {
+		final long v = readVarLong(in);
+		final int scaleIndex = (int) (v & 3);
+		if (scaleIndex == 0) {
+			if (v != 0)
+				throw new IOException("Malformed decimal: " + v);
+
+			return null;
+		}
+		return (double) unZigZag(v >>> 2) / DECIMAL_SCALES[scaleIndex];
+	}
+
+	private static class FloatValueType extends PrimitiveValueType {
+		public FloatValueType(boolean nullable) { super(nullable); }
+		@Override protected String getPrimitiveName() { return "float"; }
+		@Override protected void writePrimitive(BinaryOutput out, Object value) throws IOException { writeDecimalOrRaw(out, (Float) value, true); }
+
+		@Override
+		protected Object readPrimitive(BinaryInput in) throws IOException {
+			final Double decimal = readDecimalOrNull(in);
+			return decimal == null ? in.readFloat() : (float) decimal.doubleValue();
+		}
+	}
+
+	private static class DoubleValueType extends PrimitiveValueType {
+		public DoubleValueType(boolean nullable) { super(nullable); }
+		@Override protected String getPrimitiveName() { return "double"; }
+		@Override protected void writePrimitive(BinaryOutput out, Object value) throws IOException { writeDecimalOrRaw(out, (Double) value, false); }
+
+		@Override
+		protected Object readPrimitive(BinaryInput in) throws IOException {
+			final Double decimal = readDecimalOrNull(in);
+			return decimal == null ? in.readDouble() : decimal;
+		}
+	}
+
+	private static class StringValueType extends ValueType {
+		@Override
+		public String getDescription() {
+			return "String";
+		}
+
+		/**
+		 * Strings occurring multiple times in the same message (e.g. the device-name in every {@code PvStatus})
+		 * are written only once. Every further occurrence is a reference to the first one: 0 is <code>null</code>,
+		 * an even number {@code (length + 1) << 1} introduces a new string and an odd number {@code (index << 1) | 1}
+		 * references a string already written.
+		 */
+		@Override
+		public void write(final BinaryOutput out, final Object value) throws IOException {
+			if (value == null) {
+				writeVarInt(out, 0);
+				return;
+			}
+			final String string = (String) value;
+			final Integer index = out.string2Index.get(string);
+			if (index != null) {
+				writeVarInt(out, (index << 1) | 1);
+				return;
+			}
+			if (out.string2Index.size() < MAX_STRING_TABLE_SIZE)
+				out.string2Index.put(string, out.string2Index.size());
+
+			final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+			writeVarInt(out, (bytes.length + 1) << 1);
+			out.write(bytes);
+		}
+
+		@Override
+		public Object read(final BinaryInput in) throws IOException {
+			final int v = readVarInt(in);
+			if (v == 0)
+				return null;
+
+			if ((v & 1) != 0) {
+				final int index = v >>> 1;
+				if (index >= in.strings.size())
+					throw new IOException("string-index out of range: " + index);
+
+				return in.strings.get(index);
+			}
+			final byte[] bytes = readBytes(in, (v >>> 1) - 1);
+			final String string = new String(bytes, StandardCharsets.UTF_8);
+			if (in.strings.size() < MAX_STRING_TABLE_SIZE)
+				in.strings.add(string);
+
+			return string;
+		}
+	}
+
+	private static class ByteArrayValueType extends ValueType {
+		@Override
+		public String getDescription() {
+			return "byte[]";
+		}
+
+		@Override
+		public void write(final BinaryOutput out, final Object value) throws IOException {
+			writeBytes(out, (byte[]) value);
+		}
+
+		@Override
+		public Object read(final BinaryInput in) throws IOException {
+			return readBytes(in);
+		}
+	}
+
+	private static class DateValueType extends ValueType {
+		@Override
+		public String getDescription() {
+			return "Date";
+		}
+
+		@Override
+		public void write(final BinaryOutput out, final Object value) throws IOException {
+			out.writeBoolean(value != null);
+			if (value != null)
+				writeVarLong(out, zigZag(((Date) value).getTime()));
+		}
+
+		@Override
+		public Object read(final BinaryInput in) throws IOException {
+			return in.readBoolean() ? new Date(unZigZag(readVarLong(in))) : null;
+		}
+	}
+
+	private static class UidValueType extends ValueType {
+		@Override
+		public String getDescription() {
+			return "Uid";
+		}
+
+		@Override
+		public void write(final BinaryOutput out, final Object value) throws IOException {
+			out.writeBoolean(value != null);
+			if (value != null)
+				out.write(((Uid) value).toBytes());
+		}
+
+		@Override
+		public Object read(final BinaryInput in) throws IOException {
+			if (! in.readBoolean())
+				return null;
+
+			final byte[] bytes = new byte[Uid.LENGTH_BYTES];
+			in.readFully(bytes);
+			return new Uid(bytes);
+		}
+	}
+
+	private static class EnumValueType extends ValueType {
+		private final Class<?> enumClass;
+		private final Object[] constants;
+
+		public EnumValueType(final Class<?> enumClass) {
+			this.enumClass = requireNonNull(enumClass, "enumClass");
+			this.constants = enumClass.getEnumConstants();
+		}
+
+		@Override
+		public String getDescription() {
+			final StringBuilder sb = new StringBuilder(enumClass.getName()).append('[');
+			for (final Object constant : constants)
+				sb.append(((Enum<?>) constant).name()).append(',');
+
+			return sb.append(']').toString();
+		}
+
+		@Override
+		public void write(final BinaryOutput out, final Object value) throws IOException {
+			writeVarInt(out, value == null ? 0 : ((Enum<?>) value).ordinal() + 1);
+		}
+
+		@Override
+		public Object read(final BinaryInput in) throws IOException {
+			final int ordinal = readVarInt(in) - 1;
+			if (ordinal < 0)
+				return null;
+
+			if (ordinal >= constants.length)
+				throw new IOException("ordinal out of range for " + enumClass.getName() + ": " + ordinal);
+
+			return constants[ordinal];
+		}
+	}
+
+	/**
+	 * Value encoded as {@code String} via the class' {@link XmlJavaTypeAdapter} -- e.g. {@code HostId}.
+	 */
+	private static class AdapterValueType extends ValueType {
+		private final Class<?> clazz;
+		private final XmlAdapter<Object, Object> adapter;
+		private final StringValueType stringValueType = new StringValueType();
+
+		@SuppressWarnings("unchecked")
+		public AdapterValueType(final Class<?> clazz) {
+			this.clazz = requireNonNull(clazz, "clazz");
+			final Class<?> adapterClass = clazz.getAnnotation(XmlJavaTypeAdapter.class).value();
+			try {
+				this.adapter = (XmlAdapter<Object, Object>) adapterClass.getConstructor().newInstance();
+			} catch (ReflectiveOperationException e) {
+				throw new IllegalArgumentException("Instantiating XmlAdapter " + adapterClass.getName() + " failed: " + e, e);
+			}
+		}
+
+		@Override
+		public String getDescription() {
+			return "adapted:" + clazz.getName();
+		}
+
+		@Override
+		public void write(final BinaryOutput out, final Object value) throws IOException {
+			if (value == null) {
+				stringValueType.write(out, null);
+				return;
+			}
+			final Object marshalled;
+			try {
+				marshalled = adapter.marshal(value);
+			} catch (Exception e) {
+				throw new IOException("Marshalling " + clazz.getName() + " failed: " + e, e);
+			}
+			if (marshalled != null && ! (marshalled instanceof String))
+				throw new IOException("XmlAdapter of " + clazz.getName() + " does not marshal to String!");
+
+			stringValueType.write(out, marshalled);
+		}
+
+		@Override
+		public Object read(final BinaryInput in) throws IOException {
+			final Object marshalled = stringValueType.read(in);
+			if (marshalled == null)
+				return null;
+
+			try {
+				return adapter.unmarshal(marshalled);
+			} catch (Exception e) {
+				throw new IOException("Unmarshalling " + clazz.getName() + " failed: " + e, e);
+			}
+		}
+	}
+
+	private static class CollectionValueType extends ValueType {
+		private final Class<?> collectionClass;
+		private final ValueType elementValueType;
+
+		public CollectionValueType(final Class<?> collectionClass, final ValueType elementValueType) {
+			this.collectionClass = requireNonNull(collectionClass, "collectionClass");
+			this.elementValueType = requireNonNull(elementValueType, "elementValueType");
+			if (collectionClass != List.class && collectionClass != Set.class && collectionClass != SortedSet.class
+					&& collectionClass != Collection.class)
+				throw new IllegalArgumentException("Unsupported collection type: " + collectionClass.getName());
+		}
+
+		@Override
+		public String getDescription() {
+			return collectionClass.getSimpleName() + '<' + elementValueType.getDescription() + '>';
+		}
+
+		@Override
+		public void write(final BinaryOutput out, final Object value) throws IOException {
+			if (value == null) {
+				writeVarInt(out, 0);
+				return;
+			}
+			final Collection<?> collection = (Collection<?>) value;
+			writeVarInt(out, collection.size() + 1);
+			for (final Object element : collection)
+				elementValueType.write(out, element);
+		}
+
+		@Override
+		public Object read(final BinaryInput in) throws IOException {
+			final int size = readVarInt(in) - 1;
+			if (size < 0)
+				return null;
+
+			final Collection<Object> collection;
+			if (collectionClass == SortedSet.class)
+				collection = new TreeSet<>();
+			else if (collectionClass == Set.class)
+				collection = new HashSet<>();
+			else
+				collection = new ArrayList<>(); // not pre-sized: size is untrusted input
+
+			for (int i = 0; i < size; ++i)
+				collection.add(elementValueType.read(in));
+
+			return collection;
+		}
+	}
+
+	/**
+	 * Reference to a bean. The concrete type is encoded, because the declared type might be abstract
+	 * (e.g. {@code Response}).
+	 */
+	private class ObjectValueType extends ValueType {
+		private final Class<?> declaredClass;
+
+		public ObjectValueType(final Class<?> declaredClass) {
+			this.declaredClass = requireNonNull(declaredClass, "declaredClass");
+		}
+
+		@Override
+		public String getDescription() {
+			return "ref:" + declaredClass.getName();
+		}
+
+		@Override
+		public void write(final BinaryOutput out, final Object value) throws IOException {
+			writeObject(out, value);
+		}
+
+		@Override
+		public Object read(final BinaryInput in) throws IOException {
+			final Object object = readObject(in);
+			if (object != null && ! declaredClass.isInstance(object))
+				throw new IOException(String.format("Decoded %s is not an instance of %s!", object.getClass().getName(), declaredClass.getName()));
+
+			return object;
+		}
+	}
+
+	private static final int MAX_STRING_TABLE_SIZE = 1024;
+
+	/**
+	 * Maximum nesting of objects -- e.g. an {@code Error}'s causes. Decoding recurses, hence an unlimited depth
+	 * would allow a small malicious message to cause a {@link StackOverflowError}.
+	 */
+	private static final int MAX_OBJECT_DEPTH = 64;
+
+	/**
+	 * Maximum length of a single {@code byte[]} or {@code String}. The input is not yet authenticated when it is
+	 * decoded, hence a declared length must never cause a large allocation on its own.
+	 */
+	private static final int MAX_BYTES_LENGTH = 64 * 1024 * 1024;
+
+	/**
+	 * Bytes are read in chunks of this size, thus memory is only allocated for data actually received.
+	 */
+	private static final int READ_CHUNK_SIZE = 64 * 1024;
+
+	/**
+	 * Output of a single message. Holds the state needed to write back-references.
+	 */
+	private static class BinaryOutput extends DataOutputStream {
+		public final Map<String, Integer> string2Index = new HashMap<>();
+
+		public BinaryOutput(final OutputStream out) {
+			super(out);
+		}
+	}
+
+	/**
+	 * Input of a single message. Holds the state needed to resolve back-references and the current nesting depth.
+	 */
+	private static class BinaryInput extends DataInputStream {
+		public final List<String> strings = new ArrayList<>();
+		public int depth;
+
+		public BinaryInput(final InputStream in) {
+			super(in);
+		}
+	}
+
+	private static void writeBytes(final BinaryOutput out, final byte[] bytes) throws IOException {
+		if (bytes == null) {
+			writeVarInt(out, 0);
+			return;
+		}
+		writeVarInt(out, bytes.length + 1);
+		out.write(bytes);
+	}
+
+	private static byte[] readBytes(final BinaryInput in) throws IOException {
+		final int length = readVarInt(in) - 1;
+		if (length < 0)
+			return null;
+
+		return readBytes(in, length);
+	}
+
+	private static byte[] readBytes(final BinaryInput in, final int length) throws IOException {
+		if (length > MAX_BYTES_LENGTH)
+			throw new IOException("length exceeds maximum: " + length);
+
+		byte[] bytes = new byte[Math.min(length, READ_CHUNK_SIZE)];
+		in.readFully(bytes);
+		while (bytes.length < length) {
+			final int offset = bytes.length;
+			bytes = Arrays.copyOf(bytes, offset + Math.min(length - offset, Math.max(offset, READ_CHUNK_SIZE)));
+			in.readFully(bytes, offset, bytes.length - offset);
+		}
+		return bytes;
+	}
+
+	private static long zigZag(final long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private static long unZigZag(final long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	static void writeVarInt(final BinaryOutput out, final int value) throws IOException {
+		if (value < 0)
+			throw new IllegalArgumentException("value < 0");
+
+		writeVarLong(out, value);
+	}
+
+	static int readVarInt(final BinaryInput in) throws IOException {
+		final long value = readVarLong(in);
+		if (value < 0 || value > Integer.MAX_VALUE)
+			throw new IOException("varint out of range: " + value);
+
+		return (int) value;
+	}
+
+	static void writeVarLong(final BinaryOutput out, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	static long readVarLong(final BinaryInput in) throws IOException {
+		long result = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			final int b = in.readUnsignedByte();
+			result |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return result;
+		}
+		throw new IOException("Malformed varint!");
+	}
+}
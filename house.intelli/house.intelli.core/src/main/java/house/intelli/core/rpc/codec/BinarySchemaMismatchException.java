@@ -0,0 +1,33 @@
+package house.intelli.core.rpc.codec;
+
+import java.io.IOException;
+
+import house.intelli.core.rpc.RetriableError;
+
+/**
+ * Thrown by {@link BinaryRpcMessageCodec}, if a message was encoded with a different {@link BinarySchema}.
+ * <p>
+ * This happens, if the set of DTOs changed on one side (e.g. a bundle was updated) after the codec was
+ * negotiated. The client then falls back to XML and negotiates again, hence the request may be retried.
+ */
+@RetriableError
+public class BinarySchemaMismatchException extends IOException {
+
+	private static final long serialVersionUID = 1L;
+
+	public BinarySchemaMismatchException() {
+	}
+
+	public BinarySchemaMismatchException(String message) {
+		super(message);
+	}
+
+	public BinarySchemaMismatchException(Throwable cause) {
+		super(cause);
+	}
+
+	public BinarySchemaMismatchException(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+}
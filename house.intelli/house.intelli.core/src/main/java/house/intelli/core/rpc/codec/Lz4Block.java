@@ -0,0 +1,246 @@
+package house.intelli.core.rpc.codec;
+
+import static java.util.Objects.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Pure-Java implementation of the <a href="https://github.com/lz4/lz4/blob/dev/doc/lz4_Block_format.md">LZ4
+ * block format</a>.
+ * <p>
+ * LZ4 trades compression-ratio for speed: It compresses many times faster than deflate and decompresses
+ * even faster -- which matters on a Raspberry Pi 1 uploading a large PV-backlog. The compressor is the
+ * simple greedy one (like {@code LZ4_compress_fast} with acceleration 1) and does not need any native library.
+ * <p>
+ * Only the block is handled here. The framing (i.e. the uncompressed length) is up to the caller -- see
+ * {@link RpcCompressionUtil}.
+ */
+public final class Lz4Block {
+
+	private static final int MIN_MATCH = 4;
+
+	/** The last 5 bytes of a block are always literals. */
+	private static final int LAST_LITERALS = 5;
+
+	/** The last match must start at least 12 bytes before the end of the block. */
+	private static final int MF_LIMIT = 12;
+
+	private static final int MAX_DISTANCE = 0xFFFF;
+
+	private static final int RUN_MASK = 0x0F;
+
+	private static final int HASH_LOG = 12;
+
+	private static final int SKIP_STRENGTH = 6;
+
+	private Lz4Block() {
+	}
+
+	/**
+	 * Gets the maximum size of a block compressing {@code length} bytes -- i.e. of incompressible data.
+	 * @param length the number of bytes to be compressed. Must be &gt;= 0.
+	 * @return the maximum size of the compressed block.
+	 */
+	public static int getMaxCompressedLength(final int length) {
+		if (length < 0)
+			throw new IllegalArgumentException("length < 0");
+
+		return length + length / 255 + 16;
+	}
+
+	/**
+	 * Compresses the given data into one block.
+	 * @param src the data to be compressed. Must not be <code>null</code>.
+	 * @param srcOffset the offset of the data in {@code src}.
+	 * @param srcLength the length of the data.
+	 * @param dest the destination. Must not be <code>null</code>. Must have room for at least
+	 * {@link #getMaxCompressedLength(int) getMaxCompressedLength(srcLength)} bytes after {@code destOffset}.
+	 * @param destOffset the offset in {@code dest} at which the block is written.
+	 * @return the size of the compressed block.
+	 */
+	public static int compress(final byte[] src, final int srcOffset, final int srcLength, final byte[] dest, final int destOffset) {
+		requireNonNull(src, "src");
+		requireNonNull(dest, "dest");
+		checkRange(src.length, srcOffset, srcLength, "src");
+		checkRange(dest.length, destOffset, getMaxCompressedLength(srcLength), "dest");
+
+		final int srcEnd = srcOffset + srcLength;
+		int anchor = srcOffset;
+		int op = destOffset;
+
+		if (srcLength > MF_LIMIT) {
+			final int matchLimit = srcEnd - LAST_LITERALS;
+			final int mfLimit = srcEnd - MF_LIMIT;
+			final int[] hashTable = new int[1 << HASH_LOG];
+			Arrays.fill(hashTable, -1);
+
+			int ip = srcOffset;
+			while (ip < mfLimit) {
+				final int sequence = readInt(src, ip);
+				final int hash = hash(sequence);
+				int ref = hashTable[hash];
+				hashTable[hash] = ip;
+				if (ref < 0 || ip - ref > MAX_DISTANCE || readInt(src, ref) != sequence) {
+					// The longer we do not find a match, the faster we skip -- incompressible data is thus passed quickly.
+					ip += 1 + ((ip - anchor) >>> SKIP_STRENGTH);
+					continue;
+				}
+
+				while (ip > anchor && ref > srcOffset && src[ip - 1] == src[ref - 1]) {
+					--ip;
+					--ref;
+				}
+
+				int matchLength = MIN_MATCH;
+				while (ip + matchLength < matchLimit && src[ip + matchLength] == src[ref + matchLength])
+					++matchLength;
+
+				op = writeSequence(src, anchor, ip - anchor, ip - ref, matchLength, dest, op);
+				ip += matchLength;
+				anchor = ip;
+
+				// Make the position just before the next search known, too -- this improves the ratio of repetitive data.
+				if (ip - 2 < mfLimit)
+					hashTable[hash(readInt(src, ip - 2))] = ip - 2;
+			}
+		}
+
+		final int literalLength = srcEnd - anchor;
+		final int tokenPos = op++;
+		dest[tokenPos] = (byte) (Math.min(literalLength, RUN_MASK) << 4);
+		op = writeLength(literalLength, dest, op);
+		System.arraycopy(src, anchor, dest, op, literalLength);
+		op += literalLength;
+		return op - destOffset;
+	}
+
+	/**
+	 * Decompresses one block.
+	 * @param src the block. Must not be <code>null</code>.
+	 * @param srcOffset the offset of the block in {@code src}.
+	 * @param srcLength the size of the block.
+	 * @param dest the destination. Must not be <code>null</code>.
+	 * @param destOffset the offset in {@code dest} at which the decompressed data is written.
+	 * @param destLength the exact length of the decompressed data.
+	 * @throws IOException if the block is malformed or does not decompress to exactly {@code destLength} bytes.
+	 */
+	public static void decompress(final byte[] src, final int srcOffset, final int srcLength,
+			final byte[] dest, final int destOffset, final int destLength) throws IOException {
+		requireNonNull(src, "src");
+		requireNonNull(dest, "dest");
+		checkRange(src.length, srcOffset, srcLength, "src");
+		checkRange(dest.length, destOffset, destLength, "dest");
+
+		final int srcEnd = srcOffset + srcLength;
+		final int destEnd = destOffset + destLength;
+		int ip = srcOffset;
+		int op = destOffset;
+		while (true) {
+			if (ip >= srcEnd)
+				throw new IOException("Malformed LZ4 block: Missing token at " + (ip - srcOffset));
+
+			final int token = src[ip++] & 0xFF;
+
+			int literalLength = token >>> 4;
+			if (literalLength == RUN_MASK) {
+				int b;
+				do {
+					if (ip >= srcEnd)
+						throw new IOException("Malformed LZ4 block: Truncated literal-length at " + (ip - srcOffset));
+
+					b = src[ip++] & 0xFF;
+					literalLength += b;
+				} while (b == 0xFF && literalLength > 0);
+			}
+			if (literalLength < 0 || literalLength > srcEnd - ip || literalLength > destEnd - op)
+				throw new IOException("Malformed LZ4 block: Literals exceed bounds at " + (ip - srcOffset));
+
+			System.arraycopy(src, ip, dest, op, literalLength);
+			ip += literalLength;
+			op += literalLength;
+
+			if (ip == srcEnd)
+				break; // The last sequence consists of literals only.
+
+			if (ip + 2 > srcEnd)
+				throw new IOException("Malformed LZ4 block: Truncated offset at " + (ip - srcOffset));
+
+			final int offset = (src[ip] & 0xFF) | ((src[ip + 1] & 0xFF) << 8);
+			ip += 2;
+			if (offset == 0 || offset > op - destOffset)
+				throw new IOException("Malformed LZ4 block: Invalid offset " + offset + " at " + (ip - srcOffset));
+
+			int matchLength = token & RUN_MASK;
+			if (matchLength == RUN_MASK) {
+				int b;
+				do {
+					if (ip >= srcEnd)
+						throw new IOException("Malformed LZ4 block: Truncated match-length at " + (ip - srcOffset));
+
+					b = src[ip++] & 0xFF;
+					matchLength += b;
+				} while (b == 0xFF && matchLength > 0);
+			}
+			matchLength += MIN_MATCH;
+			if (matchLength < MIN_MATCH || matchLength > destEnd - op)
+				throw new IOException("Malformed LZ4 block: Match exceeds bounds at " + (ip - srcOffset));
+
+			int ref = op - offset;
+			if (offset >= matchLength) {
+				System.arraycopy(dest, ref, dest, op, matchLength);
+				op += matchLength;
+			}
+			else { // overlapping => the repetition must be copied byte by byte
+				final int matchEnd = op + matchLength;
+				while (op < matchEnd)
+					dest[op++] = dest[ref++];
+			}
+		}
+
+		if (op != destEnd)
+			throw new IOException("Malformed LZ4 block: Decompressed " + (op - destOffset) + " bytes, but expected " + destLength);
+	}
+
+	private static int writeSequence(final byte[] src, final int literalOffset, final int literalLength,
+			final int matchOffset, final int matchLength, final byte[] dest, int op) {
+		final int tokenPos = op++;
+		final int matchLengthCode = matchLength - MIN_MATCH;
+		dest[tokenPos] = (byte) ((Math.min(literalLength, RUN_MASK) << 4) | Math.min(matchLengthCode, RUN_MASK));
+		op = writeLength(literalLength, dest, op);
+		System.arraycopy(src, literalOffset, dest, op, literalLength);
+		op += literalLength;
+		dest[op++] = (byte) matchOffset;
+		dest[op++] = (byte) (matchOffset >>> 8);
+		return writeLength(matchLengthCode, dest, op);
+	}
+
+	/**
+	 * Writes the bytes following the token, if the length does not fit into its 4 bits.
+	 */
+	private static int writeLength(final int length, final byte[] dest, int op) {
+		if (length < RUN_MASK)
+			return op;
+
+		int remaining = length - RUN_MASK;
+		while (remaining >= 0xFF) {
+			dest[op++] = (byte) 0xFF;
+			remaining -= 0xFF;
+		}
+		dest[op++] = (byte) remaining;
+		return op;
+	}
+
+	private static int readInt(final byte[] b, final int i) {
+		return (b[i] & 0xFF) | ((b[i + 1] & 0xFF) << 8) | ((b[i + 2] & 0xFF) << 16) | ((b[i + 3] & 0xFF) << 24);
+	}
+
+	private static int hash(final int sequence) {
+		return (sequence * -1640531535) >>> (32 - HASH_LOG);
+	}
+
+	private static void checkRange(final int arrayLength, final int offset, final int length, final String name) {
+		if (offset < 0 || length < 0 || offset > arrayLength - length)
+			throw new IndexOutOfBoundsException(String.format("%s: offset=%d, length=%d, arrayLength=%d", name, offset, length, arrayLength));
+	}
+}
@@ -0,0 +1,50 @@
+package house.intelli.core.rpc.codec;
+
+/**
+ * Compression of an encoded {@code RpcMessage}. Which one is used, is decided per message by
+ * {@link RpcCompressionUtil#selectCompression(RpcCompression, int)}.
+ */
+public enum RpcCompression {
+
+	/**
+	 * The message is not compressed. Used for small messages, for which the compression costs more than it saves.
+	 */
+	NONE("none"),
+
+	/**
+	 * {@linkplain Lz4Block LZ4} -- fast, but with a lower ratio than deflate. Used for bulk data, if supported by the peer.
+	 */
+	LZ4("lz4"),
+
+	/**
+	 * Deflate in the gzip-format. The fallback, if the peer does not support {@link #LZ4}.
+	 */
+	DEFLATE("deflate");
+
+	private final String name;
+
+	private RpcCompression(final String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Gets the name as announced in the HTTP-header {@link RpcCompressionUtil#HTTP_HEADER_COMPRESSIONS}.
+	 * @return the name. Never <code>null</code>.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Gets the compression with the given {@linkplain #getName() name}.
+	 * @param name the name. May be <code>null</code>.
+	 * @return the compression or <code>null</code>, if the name is unknown.
+	 */
+	public static RpcCompression fromName(final String name) {
+		for (final RpcCompression compression : values()) {
+			if (compression.name.equals(name))
+				return compression;
+		}
+		return null;
+	}
+}
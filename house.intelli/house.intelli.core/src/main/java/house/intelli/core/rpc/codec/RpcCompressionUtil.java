@@ -0,0 +1,211 @@
+package house.intelli.core.rpc.codec;
+
+import static house.intelli.core.rpc.RpcConst.*;
+import static java.util.Objects.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import house.intelli.core.util.ExposedByteArrayOutputStream;
+
+/**
+ * Utility methods for selecting, negotiating and applying the {@link RpcCompression}.
+ * <p>
+ * Each side announces the compressions it supports in the HTTP-header {@link #HTTP_HEADER_COMPRESSIONS} --
+ * e.g. {@code "lz4, deflate"}. If the peer does not send the header at all, because it is an older version,
+ * {@link #negotiateCompression(String)} returns <code>null</code> and the sender must use the legacy format
+ * (gzipped XML).
+ * <p>
+ * The compression is then selected per message by its size (see {@link #selectCompression(RpcCompression, int)}).
+ * The receiving side does not need to know which compression was used, because {@link #decompress(byte[])}
+ * detects it from the first bytes:
+ * <ul>
+ * <li>{@link RpcCompression#LZ4}: {@link #LZ4_MAGIC}, the uncompressed length (4 bytes, big-endian) and the
+ * {@linkplain Lz4Block LZ4-block}.
+ * <li>{@link RpcCompression#DEFLATE}: gzip.
+ * <li>{@link RpcCompression#NONE}: the encoded message itself -- starting with '&lt;' (XML) or
+ * {@link BinaryRpcMessageCodec#MAGIC}.
+ * </ul>
+ */
+public final class RpcCompressionUtil {
+
+	public static final String HTTP_HEADER_COMPRESSIONS = "X-IntelliHouse-Compressions";
+
+	public static final byte[] LZ4_MAGIC = { 4, 'i', 'h', 'z' };
+
+	private static final int LZ4_HEADER_LENGTH = LZ4_MAGIC.length + 4;
+
+	/**
+	 * LZ4 cannot expand data by more than this factor. A larger uncompressed length is thus corrupt -- and
+	 * rejected before the buffer is allocated.
+	 */
+	private static final int LZ4_MAX_RATIO = 255;
+
+	private static final int GZIP_BUFFER_SIZE = 8 * 1024;
+
+	private static final String COMPRESSION_OFFER = RpcCompression.LZ4.getName() + ", " + RpcCompression.DEFLATE.getName();
+
+	private RpcCompressionUtil() {
+	}
+
+	/**
+	 * Gets the value for the HTTP-header {@link #HTTP_HEADER_COMPRESSIONS} announcing the compressions supported locally.
+	 * @return the compressions supported locally. Never <code>null</code>.
+	 */
+	public static String getCompressionOffer() {
+		return COMPRESSION_OFFER;
+	}
+
+	/**
+	 * Selects the best compression supported by both sides for bulk data.
+	 * @param peerOffer the compressions supported by the peer, as announced in the HTTP-header
+	 * {@link #HTTP_HEADER_COMPRESSIONS}. May be <code>null</code>.
+	 * @return the compression to be used for large messages sent to the peer. <code>null</code>, if the peer
+	 * did not announce anything -- the legacy format must be used then.
+	 */
+	public static RpcCompression negotiateCompression(final String peerOffer) {
+		if (peerOffer == null)
+			return null;
+
+		boolean deflate = false;
+		for (final String name : peerOffer.split(",")) {
+			final RpcCompression compression = RpcCompression.fromName(name.trim());
+			if (compression == RpcCompression.LZ4)
+				return compression;
+
+			if (compression == RpcCompression.DEFLATE)
+				deflate = true;
+		}
+		// Every version announcing its compressions understands uncompressed messages.
+		return deflate ? RpcCompression.DEFLATE : RpcCompression.NONE;
+	}
+
+	/**
+	 * Selects the compression of a single message.
+	 * <p>
+	 * Small messages -- e.g. a {@code PollInverseRequestsRequest} or switching a light -- are not compressed, because
+	 * the compression costs more than it saves. The thresholds were chosen with the {@code RpcCompressionBenchmark}.
+	 * @param negotiatedCompression the compression {@linkplain #negotiateCompression(String) negotiated} with the peer.
+	 * Must not be <code>null</code>.
+	 * @param length the length of the encoded message.
+	 * @return the compression to be used for this message. Never <code>null</code>.
+	 * @see house.intelli.core.rpc.RpcConst#LZ4_COMPRESSION_THRESHOLD
+	 * @see house.intelli.core.rpc.RpcConst#DEFLATE_COMPRESSION_THRESHOLD
+	 */
+	public static RpcCompression selectCompression(final RpcCompression negotiatedCompression, final int length) {
+		requireNonNull(negotiatedCompression, "negotiatedCompression");
+		switch (negotiatedCompression) {
+			case LZ4:
+				return length < LZ4_COMPRESSION_THRESHOLD ? RpcCompression.NONE : RpcCompression.LZ4;
+			case DEFLATE:
+				return length < DEFLATE_COMPRESSION_THRESHOLD ? RpcCompression.NONE : RpcCompression.DEFLATE;
+			default:
+				return RpcCompression.NONE;
+		}
+	}
+
+	/**
+	 * Compresses the given encoded message.
+	 * <p>
+	 * If the compressed message would not be smaller (e.g. encrypted or random data), the message is
+	 * returned uncompressed.
+	 * @param compression the compression to be used. Must not be <code>null</code>.
+	 * @param data the encoded message. Must not be <code>null</code>.
+	 * @param offset the offset of the message in {@code data}.
+	 * @param length the length of the message.
+	 * @return the compressed message, ready to be passed to {@link #decompress(byte[])} by the receiver. Never
+	 * <code>null</code>. The buffer may be {@code data} itself, if the message is not compressed.
+	 * @throws IOException if compressing failed.
+	 */
+	public static ByteBuffer compress(final RpcCompression compression, final byte[] data, final int offset, final int length) throws IOException {
+		requireNonNull(compression, "compression");
+		requireNonNull(data, "data");
+		final ByteBuffer compressed;
+		switch (compression) {
+			case NONE:
+				return ByteBuffer.wrap(data, offset, length);
+			case LZ4:
+				compressed = compressLz4(data, offset, length);
+				break;
+			case DEFLATE:
+				compressed = compressDeflate(data, offset, length);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown compression: " + compression);
+		}
+		return compressed.remaining() < length ? compressed : ByteBuffer.wrap(data, offset, length);
+	}
+
+	private static ByteBuffer compressLz4(final byte[] data, final int offset, final int length) {
+		final byte[] buf = new byte[LZ4_HEADER_LENGTH + Lz4Block.getMaxCompressedLength(length)];
+		System.arraycopy(LZ4_MAGIC, 0, buf, 0, LZ4_MAGIC.length);
+		ByteBuffer.wrap(buf, LZ4_MAGIC.length, 4).putInt(length);
+		final int blockLength = Lz4Block.compress(data, offset, length, buf, LZ4_HEADER_LENGTH);
+		return ByteBuffer.wrap(buf, 0, LZ4_HEADER_LENGTH + blockLength);
+	}
+
+	private static ByteBuffer compressDeflate(final byte[] data, final int offset, final int length) throws IOException {
+		final ExposedByteArrayOutputStream bout = new ExposedByteArrayOutputStream(Math.max(32, length / 4));
+		try (GZIPOutputStream gzOut = new GZIPOutputStream(bout, GZIP_BUFFER_SIZE) {
+			{
+				// The default level is considerably slower, but hardly compresses RPC-messages better.
+				def.setLevel(Deflater.BEST_SPEED);
+			}
+		}) {
+			gzOut.write(data, offset, length);
+		}
+		return ByteBuffer.wrap(bout.getBuffer(), 0, bout.size());
+	}
+
+	/**
+	 * Gets the encoded message from the given (possibly compressed) data -- detecting the compression from
+	 * the first bytes.
+	 * @param data the received data. Must not be <code>null</code>.
+	 * @return the encoded message to be passed to {@link RpcMessageCodecUtil#decode(InputStream)}. Never <code>null</code>.
+	 * @throws IOException if the data is malformed.
+	 */
+	public static InputStream decompress(final byte[] data) throws IOException {
+		requireNonNull(data, "data");
+		if (isGzipped(data))
+			return new GZIPInputStream(new ByteArrayInputStream(data), GZIP_BUFFER_SIZE);
+
+		if (isLz4(data)) {
+			if (data.length < LZ4_HEADER_LENGTH)
+				throw new IOException("Malformed LZ4 data: Header truncated!");
+
+			final int length = ByteBuffer.wrap(data, LZ4_MAGIC.length, 4).getInt();
+			final int blockLength = data.length - LZ4_HEADER_LENGTH;
+			if (length < 0 || (long) length > (long) blockLength * LZ4_MAX_RATIO)
+				throw new IOException("Malformed LZ4 data: Invalid uncompressed length: " + length);
+
+			final byte[] decompressed = new byte[length];
+			Lz4Block.decompress(data, LZ4_HEADER_LENGTH, blockLength, decompressed, 0, length);
+			return new ByteArrayInputStream(decompressed);
+		}
+		return new ByteArrayInputStream(data);
+	}
+
+	/**
+	 * Detects the legacy format and {@link RpcCompression#DEFLATE}.
+	 */
+	private static boolean isGzipped(final byte[] data) {
+		return data.length >= 2 && (data[0] & 0xFF) == (GZIPInputStream.GZIP_MAGIC & 0xFF)
+				&& (data[1] & 0xFF) == ((GZIPInputStream.GZIP_MAGIC >> 8) & 0xFF);
+	}
+
+	private static boolean isLz4(final byte[] data) {
+		if (data.length < LZ4_MAGIC.length)
+			return false;
+
+		for (int i = 0; i < LZ4_MAGIC.length; ++i) {
+			if (data[i] != LZ4_MAGIC[i])
+				return false;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,39 @@
+package house.intelli.core.rpc.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import house.intelli.core.rpc.RpcMessage;
+
+/**
+ * Codec converting an {@link RpcMessage} into bytes and back.
+ * <p>
+ * Implementations must be thread-safe.
+ * @see RpcMessageCodecUtil
+ */
+public interface RpcMessageCodec {
+
+	/**
+	 * Gets the name of this codec, which is used in the negotiation between client and server.
+	 * @return the name of this codec. Never <code>null</code>.
+	 */
+	String getName();
+
+	/**
+	 * Encodes the given message. The given {@code OutputStream} is not closed.
+	 * @param rpcMessage the message to be encoded. Must not be <code>null</code>.
+	 * @param out the destination. Must not be <code>null</code>.
+	 * @throws IOException if encoding or writing failed.
+	 */
+	void encode(RpcMessage rpcMessage, OutputStream out) throws IOException;
+
+	/**
+	 * Decodes a message. The given {@code InputStream} is not closed.
+	 * @param in the source. Must not be <code>null</code>.
+	 * @return the decoded message. Never <code>null</code>.
+	 * @throws IOException if reading or decoding failed.
+	 */
+	RpcMessage decode(InputStream in) throws IOException;
+
+}
@@ -0,0 +1,136 @@
+package house.intelli.core.rpc.codec;
+
+import static java.util.Objects.*;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import house.intelli.core.jaxb.IntelliHouseJaxbContext;
+import house.intelli.core.rpc.RpcMessage;
+
+/**
+ * Utility methods for selecting and negotiating the {@link RpcMessageCodec}.
+ * <p>
+ * Each side announces the codecs it supports in the HTTP-header {@link #HTTP_HEADER_CODECS} -- e.g.
+ * {@code "binary;schema=0123456789abcdef, xml"}. The binary codec is only used, if both sides have the
+ * same schema-fingerprint. Otherwise (or if the peer does not send the header at all, because it is an
+ * older version), {@linkplain #getXmlCodec() XML} is used.
+ * <p>
+ * The receiving side does not need to know which codec was negotiated, because {@link #decode(InputStream)}
+ * detects the format from the first byte.
+ */
+public final class RpcMessageCodecUtil {
+	private static final Logger logger = LoggerFactory.getLogger(RpcMessageCodecUtil.class);
+
+	public static final String HTTP_HEADER_CODECS = "X-IntelliHouse-Codecs";
+
+	private static final String SCHEMA_PARAM = "schema=";
+
+	private static final XmlRpcMessageCodec xmlCodec = new XmlRpcMessageCodec();
+
+	private static final Object binaryCodecMutex = new Object();
+	private static Set<Class<?>> binaryCodecClassesToBeBound;
+	private static BinaryRpcMessageCodec binaryCodec;
+
+	private RpcMessageCodecUtil() {
+	}
+
+	public static RpcMessageCodec getXmlCodec() {
+		return xmlCodec;
+	}
+
+	/**
+	 * Gets the binary codec for the current {@linkplain IntelliHouseJaxbContext#getClassesToBeBound() DTOs}.
+	 * @return the binary codec or <code>null</code>, if the DTOs cannot be mapped by a {@link BinarySchema}.
+	 */
+	public static BinaryRpcMessageCodec getBinaryCodec() {
+		final Set<Class<?>> classesToBeBound = IntelliHouseJaxbContext.getClassesToBeBound();
+		synchronized (binaryCodecMutex) {
+			if (binaryCodecClassesToBeBound != classesToBeBound) {
+				binaryCodecClassesToBeBound = classesToBeBound;
+				try {
+					binaryCodec = new BinaryRpcMessageCodec(new BinarySchema(classesToBeBound));
+				} catch (RuntimeException x) {
+					logger.warn("getBinaryCodec: Cannot create BinarySchema! Falling back to XML: " + x, x);
+					binaryCodec = null;
+				}
+			}
+			return binaryCodec;
+		}
+	}
+
+	/**
+	 * Gets the value for the HTTP-header {@link #HTTP_HEADER_CODECS} announcing the codecs supported locally.
+	 * @return the codecs supported locally. Never <code>null</code>.
+	 */
+	public static String getCodecOffer() {
+		final BinaryRpcMessageCodec binaryCodec = getBinaryCodec();
+		if (binaryCodec == null)
+			return XmlRpcMessageCodec.NAME;
+
+		return BinaryRpcMessageCodec.NAME + ';' + SCHEMA_PARAM + toHex(binaryCodec.getBinarySchema().getFingerprint())
+				+ ", " + XmlRpcMessageCodec.NAME;
+	}
+
+	/**
+	 * Selects the best codec supported by both sides.
+	 * @param peerOffer the codecs supported by the peer, as announced in the HTTP-header {@link #HTTP_HEADER_CODECS}.
+	 * May be <code>null</code>.
+	 * @return the codec to be used for messages sent to the peer. Never <code>null</code>.
+	 */
+	public static RpcMessageCodec negotiateCodec(final String peerOffer) {
+		if (peerOffer == null)
+			return xmlCodec;
+
+		final BinaryRpcMessageCodec binaryCodec = getBinaryCodec();
+		if (binaryCodec == null)
+			return xmlCodec;
+
+		final String localFingerprint = toHex(binaryCodec.getBinarySchema().getFingerprint());
+		for (final String codec : peerOffer.split(",")) {
+			final String[] nameAndParams = codec.trim().split(";");
+			if (! BinaryRpcMessageCodec.NAME.equals(nameAndParams[0].trim()))
+				continue;
+
+			for (int i = 1; i < nameAndParams.length; ++i) {
+				final String param = nameAndParams[i].trim();
+				if (param.startsWith(SCHEMA_PARAM) && localFingerprint.equals(param.substring(SCHEMA_PARAM.length())))
+					return binaryCodec;
+			}
+		}
+		return xmlCodec;
+	}
+
+	/**
+	 * Decodes a message, detecting the codec from the first byte.
+	 * @param in the source. Must not be <code>null</code>. It is not closed.
+	 * @return the decoded message. Never <code>null</code>.
+	 * @throws IOException if reading or decoding failed.
+	 */
+	public static RpcMessage decode(InputStream in) throws IOException {
+		requireNonNull(in, "in");
+		if (! in.markSupported())
+			in = new BufferedInputStream(in);
+
+		in.mark(1);
+		final int firstByte = in.read();
+		in.reset();
+		if (firstByte == BinaryRpcMessageCodec.MAGIC[0]) {
+			final BinaryRpcMessageCodec binaryCodec = getBinaryCodec();
+			if (binaryCodec == null)
+				throw new BinarySchemaMismatchException("Received binary-encoded message, but binary codec is not available!");
+
+			return binaryCodec.decode(in);
+		}
+		return xmlCodec.decode(in);
+	}
+
+	static String toHex(final long value) {
+		return String.format("%016x", value);
+	}
+}
@@ -0,0 +1,67 @@
+package house.intelli.core.rpc.codec;
+
+import static java.util.Objects.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+
+import house.intelli.core.io.NoCloseInputStream;
+import house.intelli.core.io.NoCloseOutputStream;
+import house.intelli.core.jaxb.IntelliHouseJaxbContext;
+import house.intelli.core.jaxb.JaxbPool;
+import house.intelli.core.rpc.RpcMessage;
+
+/**
+ * {@link RpcMessageCodec} using JAXB. This is the default and the fallback, if the peer does not support
+ * any other codec.
+ */
+public class XmlRpcMessageCodec implements RpcMessageCodec {
+
+	public static final String NAME = "xml";
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	@Override
+	public void encode(final RpcMessage rpcMessage, final OutputStream out) throws IOException {
+		requireNonNull(rpcMessage, "rpcMessage");
+		requireNonNull(out, "out");
+		final JaxbPool jaxbPool = getJaxbPool();
+		try {
+			final Marshaller marshaller = jaxbPool.acquireMarshaller();
+			marshaller.marshal(rpcMessage, new NoCloseOutputStream(out));
+			jaxbPool.releaseMarshaller(marshaller);
+		} catch (JAXBException x) {
+			throw new IOException(x);
+		}
+	}
+
+	@Override
+	public RpcMessage decode(final InputStream in) throws IOException {
+		requireNonNull(in, "in");
+		final Object unmarshalled;
+		final JaxbPool jaxbPool = getJaxbPool();
+		try {
+			final Unmarshaller unmarshaller = jaxbPool.acquireUnmarshaller();
+			unmarshalled = unmarshaller.unmarshal(new NoCloseInputStream(in));
+			jaxbPool.releaseUnmarshaller(unmarshaller);
+		} catch (JAXBException x) {
+			throw new IOException(x);
+		}
+		if (! (unmarshalled instanceof RpcMessage))
+			throw new IOException("Unmarshalled object is not an RpcMessage: " + unmarshalled);
+
+		return (RpcMessage) unmarshalled;
+	}
+
+	protected JaxbPool getJaxbPool() {
+		return IntelliHouseJaxbContext.getJaxbPool();
+	}
+}
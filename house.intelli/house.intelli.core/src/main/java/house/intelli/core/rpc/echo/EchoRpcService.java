@@ -7,8 +7,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import house.intelli.core.rpc.AbstractRpcService;
+import house.intelli.core.rpc.ThreadSafeRpcService;
 import house.intelli.core.util.ReflectionUtil;
 
+@ThreadSafeRpcService
 public class EchoRpcService extends AbstractRpcService<EchoRequest, EchoResponse> {
 
 	private static final Logger logger = LoggerFactory.getLogger(EchoRpcService.class);
@@ -0,0 +1,36 @@
+package house.intelli.core.rpc.metrics;
+
+import javax.xml.bind.annotation.XmlRootElement;
+
+import house.intelli.core.rpc.Request;
+
+/**
+ * Queries the metrics of the host the request is addressed to -- i.e. of its {@code RpcContext} as well as
+ * the global ones.
+ */
+@XmlRootElement
+public class MetricsRequest extends Request<MetricsResponse> {
+
+	private String namePrefix;
+
+	/**
+	 * Gets the prefix restricting the metrics returned -- e.g. "rpcClient.".
+	 * @return the prefix of the names of the metrics returned or <code>null</code> to return all metrics.
+	 */
+	public String getNamePrefix() {
+		return namePrefix;
+	}
+	public void setNamePrefix(String namePrefix) {
+		this.namePrefix = namePrefix;
+	}
+
+	@Override
+	public boolean isIdempotent() {
+		return true;
+	}
+
+	@Override
+	protected String toString_getProperties() {
+		return super.toString_getProperties() + ", namePrefix=" + namePrefix;
+	}
+}
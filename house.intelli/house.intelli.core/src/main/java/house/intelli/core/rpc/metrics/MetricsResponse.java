@@ -0,0 +1,32 @@
+package house.intelli.core.rpc.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+import house.intelli.core.metrics.MetricValue;
+import house.intelli.core.rpc.Response;
+
+@XmlRootElement
+public class MetricsResponse extends Response {
+
+	private List<MetricValue> metricValues;
+
+	@XmlElement(name="metricValue")
+	public List<MetricValue> getMetricValues() {
+		if (metricValues == null)
+			metricValues = new ArrayList<>();
+
+		return metricValues;
+	}
+	public void setMetricValues(List<MetricValue> metricValues) {
+		this.metricValues = metricValues;
+	}
+
+	@Override
+	protected String toString_getProperties() {
+		return super.toString_getProperties() + ", metricValues=" + metricValues;
+	}
+}
@@ -0,0 +1,21 @@
+package house.intelli.core.rpc.metrics;
+
+import static java.util.Objects.*;
+
+import house.intelli.core.metrics.MetricRegistry;
+import house.intelli.core.rpc.AbstractRpcService;
+import house.intelli.core.rpc.ThreadSafeRpcService;
+
+@ThreadSafeRpcService
+public class MetricsRpcService extends AbstractRpcService<MetricsRequest, MetricsResponse> {
+
+	@Override
+	public MetricsResponse process(MetricsRequest request) throws Exception {
+		requireNonNull(request, "request");
+
+		final MetricsResponse response = new MetricsResponse();
+		response.getMetricValues().addAll(getRpcContext().getMetricRegistry().getMetricValues(request.getNamePrefix()));
+		response.getMetricValues().addAll(MetricRegistry.getInstance().getMetricValues(request.getNamePrefix()));
+		return response;
+	}
+}
@@ -0,0 +1,51 @@
+package house.intelli.core.rpc.pv;
+
+import java.io.IOException;
+import java.util.List;
+
+import javax.xml.bind.annotation.XmlRootElement;
+
+import house.intelli.core.rpc.Request;
+import house.intelli.core.rpc.VoidResponse;
+
+/**
+ * Same as {@link PvStatusEventRequest}, but the measurements are {@linkplain PvStatusColumnarFormat packed}.
+ * <p>
+ * This is a separate request-type (instead of an additional property of {@code PvStatusEventRequest}), because
+ * an older server would silently ignore an unknown property and thus lose the measurements. An unknown
+ * request-type, however, is rejected -- and the client falls back to {@code PvStatusEventRequest}.
+ * <p>
+ * It is processed by {@link PackedPvStatusEventRpcService}, which unpacks it and passes the resulting
+ * {@code PvStatusEventRequest} on to the service actually handling it.
+ */
+@XmlRootElement
+public class PackedPvStatusEventRequest extends Request<VoidResponse> {
+
+	private byte[] packedPvStatuses;
+
+	public PackedPvStatusEventRequest() {
+	}
+
+	public byte[] getPackedPvStatuses() {
+		return packedPvStatuses;
+	}
+	public void setPackedPvStatuses(byte[] packedPvStatuses) {
+		this.packedPvStatuses = packedPvStatuses;
+	}
+
+	public void packPvStatuses(final List<PvStatus> pvStatuses) {
+		this.packedPvStatuses = PvStatusColumnarFormat.pack(pvStatuses);
+	}
+
+	public List<PvStatus> unpackPvStatuses() throws IOException {
+		if (packedPvStatuses == null)
+			throw new IOException("packedPvStatuses == null");
+
+		return PvStatusColumnarFormat.unpack(packedPvStatuses);
+	}
+
+	@Override
+	protected String toString_getProperties() {
+		return super.toString_getProperties() + ", packedPvStatuses.length=" + (packedPvStatuses == null ? null : packedPvStatuses.length);
+	}
+}
@@ -0,0 +1,31 @@
+package house.intelli.core.rpc.pv;
+
+import static java.util.Objects.*;
+
+import house.intelli.core.rpc.AbstractRpcService;
+import house.intelli.core.rpc.ThreadSafeRpcService;
+import house.intelli.core.rpc.VoidResponse;
+
+/**
+ * Unpacks a {@link PackedPvStatusEventRequest} and passes the measurements as {@link PvStatusEventRequest}
+ * on to the {@code RpcService} registered for it -- thus, the services consuming the measurements need
+ * not know about the packed format.
+ */
+@ThreadSafeRpcService
+public class PackedPvStatusEventRpcService extends AbstractRpcService<PackedPvStatusEventRequest, VoidResponse> {
+
+	@Override
+	public VoidResponse process(PackedPvStatusEventRequest request) throws Exception {
+		requireNonNull(request, "request");
+
+		final PvStatusEventRequest pvStatusEventRequest = new PvStatusEventRequest();
+		pvStatusEventRequest.copyRequestCoordinates(request);
+		pvStatusEventRequest.setCreated(request.getCreated());
+		pvStatusEventRequest.setTimeout(request.getTimeout());
+		pvStatusEventRequest.setDeadline(request.getDeadline());
+		pvStatusEventRequest.setPvStatuses(request.unpackPvStatuses());
+
+		getRpcContext().getRpcServiceExecutor().processLocally(pvStatusEventRequest);
+		return null;
+	}
+}
@@ -0,0 +1,538 @@
+package house.intelli.core.rpc.pv;
+
+import static java.util.Objects.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Compact, column-wise encoding of a list of {@link PvStatus} -- e.g. the contents of a {@link PvStatusList}.
+ * <p>
+ * A {@code PvStatus} is measured every second and its values hardly change from one second to the next.
+ * Instead of one record per measurement, every property is therefore written as one column, which
+ * only contains the changes:
+ * <ul>
+ * <li>{@code measured}: The first timestamp and then the delta-of-deltas. With a fixed interval, this is a 0 for every
+ * measurement -- and thus a single run.
+ * <li>{@code deviceName} and {@code deviceMode}: A dictionary of the distinct strings and the run-length-encoded
+ * indices into it.
+ * <li>{@code float}-properties: If all values of a column are decimals with at most 2 fractional digits (which is
+ * what the inverter reports), the deltas of the scaled integers. Otherwise, the XOR of the bits with the previous
+ * value.
+ * <li>{@code int}-properties: The deltas.
+ * </ul>
+ * All numbers are written as var-ints (zig-zag-encoded, if signed). Within the numeric columns, a run of 0s (i.e.
+ * unchanged values) is written as a single 0 followed by the length of the run. The encoding is lossless -- every value
+ * (including <code>null</code>, {@code NaN} and {@code -0.0}) is restored exactly.
+ */
+public final class PvStatusColumnarFormat {
+
+	public static final byte[] MAGIC = { 'i', 'h', 'p', 'v' };
+
+	public static final int VERSION = 1;
+
+	/**
+	 * Decimal-scales of the {@code float}-columns. The index is written as the column's encoding -- 0 means XOR.
+	 */
+	private static final int[] DECIMAL_SCALES = { 0, 1, 10, 100 };
+
+	private static final long NULL_DATE = Long.MIN_VALUE;
+
+	private static final int MAX_COUNT = 10_000_000;
+
+	private static final int MAX_STRING_LENGTH = 64 * 1024;
+
+	private static final List<FloatColumn> floatColumns = Arrays.asList(
+			new FloatColumn(PvStatus::getAcInVoltage, PvStatus::setAcInVoltage),
+			new FloatColumn(PvStatus::getAcInFrequency, PvStatus::setAcInFrequency),
+			new FloatColumn(PvStatus::getAcOutVoltage, PvStatus::setAcOutVoltage),
+			new FloatColumn(PvStatus::getAcOutFrequency, PvStatus::setAcOutFrequency),
+			new FloatColumn(PvStatus::getAcOutApparentPower, PvStatus::setAcOutApparentPower),
+			new FloatColumn(PvStatus::getAcOutActivePower, PvStatus::setAcOutActivePower),
+			new FloatColumn(PvStatus::getAcOutLoadPercentage, PvStatus::setAcOutLoadPercentage),
+			new FloatColumn(PvStatus::getInternalBusVoltage, PvStatus::setInternalBusVoltage),
+			new FloatColumn(PvStatus::getBatteryVoltageAtInverter, PvStatus::setBatteryVoltageAtInverter),
+			new FloatColumn(PvStatus::getBatteryChargeCurrent, PvStatus::setBatteryChargeCurrent),
+			new FloatColumn(PvStatus::getBatteryCapacityPercentage, PvStatus::setBatteryCapacityPercentage),
+			new FloatColumn(PvStatus::getHeatSinkTemperature, PvStatus::setHeatSinkTemperature),
+			new FloatColumn(PvStatus::getPvToBatteryCurrent, PvStatus::setPvToBatteryCurrent),
+			new FloatColumn(PvStatus::getPvVoltage, PvStatus::setPvVoltage),
+			new FloatColumn(PvStatus::getBatteryVoltageAtCharger, PvStatus::setBatteryVoltageAtCharger),
+			new FloatColumn(PvStatus::getBatteryDischargeCurrent, PvStatus::setBatteryDischargeCurrent),
+			new FloatColumn(PvStatus::getPvPower, PvStatus::setPvPower));
+
+	private static final List<IntColumn> intColumns = Arrays.asList(
+			new IntColumn(PvStatus::getStatusBitmask, PvStatus::setStatusBitmask),
+			new IntColumn(PvStatus::getEepromVersion, PvStatus::setEepromVersion));
+
+	private static final List<StringColumn> stringColumns = Arrays.asList(
+			new StringColumn(PvStatus::getDeviceName, PvStatus::setDeviceName),
+			new StringColumn(PvStatus::getDeviceMode, PvStatus::setDeviceMode));
+
+	private PvStatusColumnarFormat() {
+	}
+
+	/**
+	 * Encodes the given measurements.
+	 * @param pvStatuses the measurements. Must not be <code>null</code>. The elements must not be <code>null</code>.
+	 * @return the encoded measurements. Never <code>null</code>.
+	 */
+	public static byte[] pack(final List<PvStatus> pvStatuses) {
+		requireNonNull(pvStatuses, "pvStatuses");
+		final ByteArrayOutputStream bout = new ByteArrayOutputStream(64 + pvStatuses.size() * 24);
+		try {
+			write(bout, pvStatuses);
+		} catch (IOException x) { // impossible with a ByteArrayOutputStream
+			throw new IllegalStateException(x);
+		}
+		return bout.toByteArray();
+	}
+
+	/**
+	 * Decodes measurements encoded by {@link #pack(List)}.
+	 * @param packed the encoded measurements. Must not be <code>null</code>.
+	 * @return the measurements. Never <code>null</code>.
+	 * @throws IOException if the data is malformed.
+	 */
+	public static List<PvStatus> unpack(final byte[] packed) throws IOException {
+		requireNonNull(packed, "packed");
+		final ByteArrayInputStream bin = new ByteArrayInputStream(packed);
+		final List<PvStatus> result = read(bin);
+		if (bin.available() > 0)
+			throw new IOException("Trailing garbage after packed PvStatus-list: " + bin.available() + " bytes");
+
+		return result;
+	}
+
+	/**
+	 * Writes the given measurements.
+	 * @param out the destination. Must not be <code>null</code>. It is neither flushed nor closed.
+	 * @param pvStatuses the measurements. Must not be <code>null</code>. The elements must not be <code>null</code>.
+	 * @throws IOException if writing failed.
+	 */
+	public static void write(final OutputStream out, final List<PvStatus> pvStatuses) throws IOException {
+		requireNonNull(out, "out");
+		requireNonNull(pvStatuses, "pvStatuses");
+		for (final PvStatus pvStatus : pvStatuses)
+			requireNonNull(pvStatus, "pvStatuses[*]");
+
+		final DataOutputStream dout = new DataOutputStream(out);
+		dout.write(MAGIC);
+		dout.writeByte(VERSION);
+		final int count = pvStatuses.size();
+		writeVarLong(dout, count);
+
+		for (final StringColumn column : stringColumns)
+			column.write(dout, pvStatuses);
+
+		writeMeasured(dout, pvStatuses);
+
+		for (final FloatColumn column : floatColumns)
+			column.write(dout, pvStatuses);
+
+		for (final IntColumn column : intColumns)
+			column.write(dout, pvStatuses);
+
+		dout.flush();
+	}
+
+	/**
+	 * Reads measurements written by {@link #write(OutputStream, List)}.
+	 * @param in the source. Must not be <code>null</code>. It is not closed.
+	 * @return the measurements. Never <code>null</code>.
+	 * @throws IOException if reading failed or the data is malformed.
+	 */
+	public static List<PvStatus> read(final InputStream in) throws IOException {
+		requireNonNull(in, "in");
+		final DataInputStream din = new DataInputStream(in);
+		final byte[] magic = new byte[MAGIC.length];
+		din.readFully(magic);
+		if (! Arrays.equals(MAGIC, magic))
+			throw new IOException("Not a packed PvStatus-list: Magic mismatch!");
+
+		final int version = din.readUnsignedByte();
+		if (version != VERSION)
+			throw new IOException("Unsupported version of packed PvStatus-list: " + version);
+
+		final long count = readVarLong(din);
+		if (count < 0 || count > MAX_COUNT)
+			throw new IOException("Invalid count: " + count);
+
+		final List<PvStatus> pvStatuses = new ArrayList<>((int) count);
+		for (int i = 0; i < count; ++i)
+			pvStatuses.add(new PvStatus());
+
+		for (final StringColumn column : stringColumns)
+			column.read(din, pvStatuses);
+
+		readMeasured(din, pvStatuses);
+
+		for (final FloatColumn column : floatColumns)
+			column.read(din, pvStatuses);
+
+		for (final IntColumn column : intColumns)
+			column.read(din, pvStatuses);
+
+		return pvStatuses;
+	}
+
+	private static void writeMeasured(final DataOutputStream dout, final List<PvStatus> pvStatuses) throws IOException {
+		// The arithmetic may overflow (e.g. with NULL_DATE), but it does so identically in readMeasured(...).
+		final ZeroRunOutput out = new ZeroRunOutput(dout);
+		long previous = 0;
+		long previousDelta = 0;
+		for (final PvStatus pvStatus : pvStatuses) {
+			final Date measured = pvStatus.getMeasured();
+			final long millis = measured == null ? NULL_DATE : measured.getTime();
+			final long delta = millis - previous;
+			out.write(zigZag(delta - previousDelta));
+			previous = millis;
+			previousDelta = delta;
+		}
+		out.flush();
+	}
+
+	private static void readMeasured(final DataInputStream din, final List<PvStatus> pvStatuses) throws IOException {
+		final ZeroRunInput in = new ZeroRunInput(din);
+		long previous = 0;
+		long previousDelta = 0;
+		for (final PvStatus pvStatus : pvStatuses) {
+			final long delta = previousDelta + unZigZag(in.read());
+			final long millis = previous + delta;
+			pvStatus.setMeasured(millis == NULL_DATE ? null : new Date(millis));
+			previous = millis;
+			previousDelta = delta;
+		}
+		in.close();
+	}
+
+	private static final class StringColumn {
+		private final Function<PvStatus, String> getter;
+		private final BiConsumer<PvStatus, String> setter;
+
+		public StringColumn(final Function<PvStatus, String> getter, final BiConsumer<PvStatus, String> setter) {
+			this.getter = getter;
+			this.setter = setter;
+		}
+
+		public void write(final DataOutputStream out, final List<PvStatus> pvStatuses) throws IOException {
+			// Index 0 is null, the dictionary starts at 1.
+			final Map<String, Integer> string2Index = new HashMap<>();
+			final List<String> dictionary = new ArrayList<>();
+			final int[] indices = new int[pvStatuses.size()];
+			for (int i = 0; i < indices.length; ++i) {
+				final String value = getter.apply(pvStatuses.get(i));
+				if (value == null)
+					continue;
+
+				Integer index = string2Index.get(value);
+				if (index == null) {
+					dictionary.add(value);
+					index = dictionary.size();
+					string2Index.put(value, index);
+				}
+				indices[i] = index;
+			}
+
+			writeVarLong(out, dictionary.size());
+			for (final String value : dictionary) {
+				final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+				writeVarLong(out, bytes.length);
+				out.write(bytes);
+			}
+
+			// runs of (length, index)
+			int i = 0;
+			while (i < indices.length) {
+				int runEnd = i + 1;
+				while (runEnd < indices.length && indices[runEnd] == indices[i])
+					++runEnd;
+
+				writeVarLong(out, runEnd - i);
+				writeVarLong(out, indices[i]);
+				i = runEnd;
+			}
+		}
+
+		public void read(final DataInputStream in, final List<PvStatus> pvStatuses) throws IOException {
+			final long dictionarySize = readVarLong(in);
+			if (dictionarySize < 0 || dictionarySize > pvStatuses.size())
+				throw new IOException("Invalid dictionarySize: " + dictionarySize);
+
+			final String[] dictionary = new String[(int) dictionarySize + 1];
+			for (int d = 1; d < dictionary.length; ++d) {
+				final long length = readVarLong(in);
+				if (length < 0 || length > MAX_STRING_LENGTH)
+					throw new IOException("Invalid string-length: " + length);
+
+				final byte[] bytes = new byte[(int) length];
+				in.readFully(bytes);
+				dictionary[d] = new String(bytes, StandardCharsets.UTF_8);
+			}
+
+			int i = 0;
+			while (i < pvStatuses.size()) {
+				final long runLength = readVarLong(in);
+				final long index = readVarLong(in);
+				if (runLength < 1 || runLength > pvStatuses.size() - i)
+					throw new IOException("Invalid runLength: " + runLength);
+
+				if (index < 0 || index >= dictionary.length)
+					throw new IOException("Invalid dictionary-index: " + index);
+
+				for (final int runEnd = i + (int) runLength; i < runEnd; ++i)
+					setter.accept(pvStatuses.get(i), dictionary[(int) index]);
+			}
+		}
+	}
+
+	private interface FloatGetter {
+		float get(PvStatus pvStatus);
+	}
+
+	private interface FloatSetter {
+		void set(PvStatus pvStatus, float value);
+	}
+
+	private static final class FloatColumn {
+		private final FloatGetter getter;
+		private final FloatSetter setter;
+
+		public FloatColumn(final FloatGetter getter, final FloatSetter setter) {
+			this.getter = getter;
+			this.setter = setter;
+		}
+
+		public void write(final DataOutputStream dout, final List<PvStatus> pvStatuses) throws IOException {
+			final int scaleIndex = getDecimalScaleIndex(pvStatuses);
+			dout.writeByte(scaleIndex);
+			final ZeroRunOutput out = new ZeroRunOutput(dout);
+			if (scaleIndex == 0) {
+				int previousBits = 0;
+				for (final PvStatus pvStatus : pvStatuses) {
+					final int bits = Float.floatToRawIntBits(getter.get(pvStatus));
+					out.write((bits ^ previousBits) & 0xFFFFFFFFL);
+					previousBits = bits;
+				}
+			}
+			else {
+				final int scale = DECIMAL_SCALES[scaleIndex];
+				long previous = 0;
+				for (final PvStatus pvStatus : pvStatuses) {
+					final long decimal = Math.round((double) getter.get(pvStatus) * scale);
+					out.write(zigZag(decimal - previous));
+					previous = decimal;
+				}
+			}
+			out.flush();
+		}
+
+		public void read(final DataInputStream din, final List<PvStatus> pvStatuses) throws IOException {
+			final int scaleIndex = din.readUnsignedByte();
+			if (scaleIndex >= DECIMAL_SCALES.length)
+				throw new IOException("Invalid scaleIndex: " + scaleIndex);
+
+			final ZeroRunInput in = new ZeroRunInput(din);
+			if (scaleIndex == 0) {
+				int previousBits = 0;
+				for (final PvStatus pvStatus : pvStatuses) {
+					final int bits = previousBits ^ (int) in.read();
+					setter.set(pvStatus, Float.intBitsToFloat(bits));
+					previousBits = bits;
+				}
+			}
+			else {
+				final int scale = DECIMAL_SCALES[scaleIndex];
+				long previous = 0;
+				for (final PvStatus pvStatus : pvStatuses) {
+					final long decimal = previous + unZigZag(in.read());
+					setter.set(pvStatus, toFloat(decimal, scale));
+					previous = decimal;
+				}
+			}
+			in.close();
+		}
+
+		/**
+		 * Gets the smallest decimal-scale representing all values of this column exactly.
+		 * @return the index into {@link #DECIMAL_SCALES} or 0, if the column must be XOR-encoded.
+		 */
+		private int getDecimalScaleIndex(final List<PvStatus> pvStatuses) {
+			if (pvStatuses.isEmpty())
+				return 0;
+
+			nextScale: for (int scaleIndex = 1; scaleIndex < DECIMAL_SCALES.length; ++scaleIndex) {
+				final int scale = DECIMAL_SCALES[scaleIndex];
+				for (final PvStatus pvStatus : pvStatuses) {
+					final float value = getter.get(pvStatus);
+					final double scaled = (double) value * scale;
+					if (! (Math.abs(scaled) < (1L << 40)))
+						return 0; // also NaN and infinity
+
+					final long decimal = Math.round(scaled);
+					if (Float.floatToRawIntBits(toFloat(decimal, scale)) != Float.floatToRawIntBits(value))
+						continue nextScale; // also -0.0
+				}
+				return scaleIndex;
+			}
+			return 0;
+		}
+
+		private static float toFloat(final long decimal, final int scale) {
+			return (float) ((double) decimal / scale);
+		}
+	}
+
+	private interface IntGetter {
+		int get(PvStatus pvStatus);
+	}
+
+	private interface IntSetter {
+		void set(PvStatus pvStatus, int value);
+	}
+
+	private static final class IntColumn {
+		private final IntGetter getter;
+		private final IntSetter setter;
+
+		public IntColumn(final IntGetter getter, final IntSetter setter) {
+			this.getter = getter;
+			this.setter = setter;
+		}
+
+		public void write(final DataOutputStream dout, final List<PvStatus> pvStatuses) throws IOException {
+			final ZeroRunOutput out = new ZeroRunOutput(dout);
+			long previous = 0;
+			for (final PvStatus pvStatus : pvStatuses) {
+				final long value = getter.get(pvStatus);
+				out.write(zigZag(value - previous));
+				previous = value;
+			}
+			out.flush();
+		}
+
+		public void read(final DataInputStream din, final List<PvStatus> pvStatuses) throws IOException {
+			final ZeroRunInput in = new ZeroRunInput(din);
+			long previous = 0;
+			for (final PvStatus pvStatus : pvStatuses) {
+				final long value = previous + unZigZag(in.read());
+				setter.set(pvStatus, (int) value);
+				previous = value;
+			}
+			in.close();
+		}
+	}
+
+	/**
+	 * Writes var-ints, combining each run of 0s into a 0 followed by the length of the run.
+	 */
+	private static final class ZeroRunOutput {
+		private final DataOutputStream out;
+		private long zeroRunLength;
+
+		public ZeroRunOutput(final DataOutputStream out) {
+			this.out = out;
+		}
+
+		public void write(final long value) throws IOException {
+			if (value == 0) {
+				++zeroRunLength;
+				return;
+			}
+			flush();
+			writeVarLong(out, value);
+		}
+
+		/**
+		 * Writes the pending run of 0s. Must be invoked at the end of the column.
+		 */
+		public void flush() throws IOException {
+			if (zeroRunLength > 0) {
+				writeVarLong(out, 0);
+				writeVarLong(out, zeroRunLength);
+				zeroRunLength = 0;
+			}
+		}
+	}
+
+	/**
+	 * Reads var-ints written by {@link ZeroRunOutput}.
+	 */
+	private static final class ZeroRunInput {
+		private final DataInputStream in;
+		private long zeroRunLength;
+
+		public ZeroRunInput(final DataInputStream in) {
+			this.in = in;
+		}
+
+		public long read() throws IOException {
+			if (zeroRunLength > 0) {
+				--zeroRunLength;
+				return 0;
+			}
+			final long value = readVarLong(in);
+			if (value == 0) {
+				final long runLength = readVarLong(in);
+				if (runLength < 1 || runLength > MAX_COUNT)
+					throw new IOException("Invalid zeroRunLength: " + runLength);
+
+				zeroRunLength = runLength - 1;
+			}
+			return value;
+		}
+
+		/**
+		 * Checks that the column ended together with its last run of 0s. Must be invoked at the end of the column.
+		 */
+		public void close() throws IOException {
+			if (zeroRunLength != 0)
+				throw new IOException("Run of 0s exceeds column: " + zeroRunLength);
+		}
+	}
+
+	private static long zigZag(final long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private static long unZigZag(final long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private static void writeVarLong(final DataOutputStream out, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	private static long readVarLong(final DataInputStream in) throws IOException {
+		long result = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			final int b = in.read();
+			if (b < 0)
+				throw new EOFException();
+
+			result |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return result;
+		}
+		throw new IOException("Malformed var-int!");
+	}
+}
@@ -0,0 +1,27 @@
+package house.intelli.core.util;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * {@link ByteArrayOutputStream} granting access to its buffer, thus avoiding the copy made by
+ * {@link #toByteArray()}.
+ * <p>
+ * Only the first {@link #size()} bytes of the {@linkplain #getBuffer() buffer} are valid.
+ */
+public class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+
+	public ExposedByteArrayOutputStream() {
+	}
+
+	public ExposedByteArrayOutputStream(final int size) {
+		super(size);
+	}
+
+	/**
+	 * Gets the internal buffer -- not a copy.
+	 * @return the internal buffer. Never <code>null</code>. Its length is usually greater than {@link #size()}.
+	 */
+	public byte[] getBuffer() {
+		return buf;
+	}
+}
@@ -0,0 +1,110 @@
+package house.intelli.core.jaxb;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.annotation.XmlRootElement;
+
+import org.junit.Test;
+
+import house.intelli.core.Uid;
+import house.intelli.core.rpc.HostId;
+import house.intelli.core.rpc.echo.EchoRequest;
+import house.intelli.core.service.AbstractServiceRegistryDelegate;
+import house.intelli.core.service.ServiceRegistry;
+
+public class IntelliHouseJaxbContextTest {
+	@XmlRootElement
+	public static class AdditionalDto {
+		private String value;
+
+		public String getValue() {
+			return value;
+		}
+		public void setValue(String value) {
+			this.value = value;
+		}
+	}
+
+	private static class AdditionalProviderDelegate extends AbstractServiceRegistryDelegate<IntelliHouseJaxbContextProvider> {
+		@Override
+		public List<IntelliHouseJaxbContextProvider> getServices() {
+			return Collections.singletonList(new AbstractIntelliHouseJaxbContextProvider() {
+				@Override
+				public Class<?>[] getClassesToBeBound() {
+					return new Class<?>[] { AdditionalDto.class };
+				}
+			});
+		}
+	}
+
+	@Test
+	public void initializeInBackgroundBuildsBeforeFirstMessage() throws Exception {
+		IntelliHouseJaxbContext.clear();
+		assertThat(IntelliHouseJaxbContext.isBuilt()).isFalse();
+
+		IntelliHouseJaxbContext.initializeInBackground();
+		IntelliHouseJaxbContext.awaitPendingBuild(); // the application does other things during start-up
+		assertThat(IntelliHouseJaxbContext.isBuilt()).isTrue();
+
+		marshalMessage();
+	}
+
+	@Test
+	public void providerEventWithUnchangedClassesKeepsContext() throws Exception {
+		final JAXBContext jaxbContext = IntelliHouseJaxbContext.getJaxbContext();
+		final JaxbPool jaxbPool = IntelliHouseJaxbContext.getJaxbPool();
+
+		ServiceRegistry.getInstance(IntelliHouseJaxbContextProvider.class).fireServiceRegistryChanged();
+		marshalMessage();
+		IntelliHouseJaxbContext.awaitPendingBuild();
+
+		assertThat(IntelliHouseJaxbContext.getJaxbContext()).isSameAs(jaxbContext);
+		assertThat(IntelliHouseJaxbContext.getJaxbPool()).isSameAs(jaxbPool);
+	}
+
+	@Test
+	public void providerEventWithChangedClassesSwapsContextInBackground() throws Exception {
+		final ServiceRegistry<IntelliHouseJaxbContextProvider> serviceRegistry = ServiceRegistry.getInstance(IntelliHouseJaxbContextProvider.class);
+		final JAXBContext jaxbContext = IntelliHouseJaxbContext.getJaxbContext();
+
+		final AdditionalProviderDelegate delegate = new AdditionalProviderDelegate();
+		serviceRegistry.addDelegate(delegate);
+		try {
+			// While the new context is built, messages are still processed with the old one.
+			marshalMessage();
+			IntelliHouseJaxbContext.awaitPendingBuild();
+
+			assertThat(IntelliHouseJaxbContext.getJaxbContext()).isNotSameAs(jaxbContext);
+			assertThat(IntelliHouseJaxbContext.getClassesToBeBound()).contains(AdditionalDto.class);
+
+			final AdditionalDto additionalDto = new AdditionalDto();
+			additionalDto.setValue("test");
+			IntelliHouseJaxbContext.getJaxbContext().createMarshaller().marshal(additionalDto, new ByteArrayOutputStream());
+		} finally {
+			serviceRegistry.removeDelegate(delegate);
+			IntelliHouseJaxbContext.awaitPendingBuild();
+		}
+		assertThat(IntelliHouseJaxbContext.getClassesToBeBound()).doesNotContain(AdditionalDto.class);
+	}
+
+	private static void marshalMessage() throws Exception {
+		final EchoRequest echoRequest = new EchoRequest();
+		echoRequest.setRequestId(new Uid());
+		echoRequest.setClientHostId(new HostId("client"));
+		echoRequest.setServerHostId(HostId.SERVER);
+		echoRequest.setCreated(new Date());
+		echoRequest.setPayload("Hello world!");
+
+		final JaxbPool jaxbPool = IntelliHouseJaxbContext.getJaxbPool();
+		final Marshaller marshaller = jaxbPool.acquireMarshaller();
+		marshaller.marshal(echoRequest, new ByteArrayOutputStream());
+		jaxbPool.releaseMarshaller(marshaller);
+	}
+}
@@ -0,0 +1,69 @@
+package house.intelli.core.jaxb;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Date;
+
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+
+import org.junit.Test;
+
+import house.intelli.core.Uid;
+import house.intelli.core.rpc.HostId;
+import house.intelli.core.rpc.echo.EchoRequest;
+
+public class JaxbPoolTest {
+	@Test
+	public void poolIsReplacedWithContext() throws Exception {
+		final JaxbPool jaxbPool = IntelliHouseJaxbContext.getJaxbPool();
+		assertThat(IntelliHouseJaxbContext.getJaxbPool()).isSameAs(jaxbPool);
+
+		final Marshaller marshaller = jaxbPool.acquireMarshaller();
+		jaxbPool.releaseMarshaller(marshaller);
+		assertThat(jaxbPool.acquireMarshaller()).isSameAs(marshaller);
+
+		IntelliHouseJaxbContext.clear();
+		final JaxbPool newJaxbPool = IntelliHouseJaxbContext.getJaxbPool();
+		assertThat(newJaxbPool).isNotSameAs(jaxbPool);
+		assertThat(newJaxbPool.getJaxbContext()).isNotSameAs(jaxbPool.getJaxbContext());
+
+		// Releasing into the old pool must not affect the new one.
+		jaxbPool.releaseMarshaller(marshaller);
+		assertThat(newJaxbPool.acquireMarshaller()).isNotSameAs(marshaller);
+	}
+
+	@Test
+	public void pooledInstancesAreReused() throws Exception {
+		final EchoRequest echoRequest = new EchoRequest();
+		echoRequest.setRequestId(new Uid());
+		echoRequest.setClientHostId(new HostId("client"));
+		echoRequest.setServerHostId(HostId.SERVER);
+		echoRequest.setCreated(new Date());
+		echoRequest.setPayload("Hello world!");
+
+		final JaxbPool jaxbPool = IntelliHouseJaxbContext.getJaxbPool();
+		Marshaller lastMarshaller = null;
+		Unmarshaller lastUnmarshaller = null;
+		for (int i = 0; i < 3; ++i) {
+			final ByteArrayOutputStream bout = new ByteArrayOutputStream();
+			final Marshaller marshaller = jaxbPool.acquireMarshaller();
+			marshaller.marshal(echoRequest, bout);
+			jaxbPool.releaseMarshaller(marshaller);
+
+			final Unmarshaller unmarshaller = jaxbPool.acquireUnmarshaller();
+			final EchoRequest unmarshalled = (EchoRequest) unmarshaller.unmarshal(new ByteArrayInputStream(bout.toByteArray()));
+			jaxbPool.releaseUnmarshaller(unmarshaller);
+			assertThat(unmarshalled.getPayload()).isEqualTo(echoRequest.getPayload());
+
+			if (lastMarshaller != null) {
+				assertThat(marshaller).isSameAs(lastMarshaller);
+				assertThat(unmarshaller).isSameAs(lastUnmarshaller);
+			}
+			lastMarshaller = marshaller;
+			lastUnmarshaller = unmarshaller;
+		}
+	}
+}
@@ -0,0 +1,154 @@
+package house.intelli.core.rpc;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import house.intelli.core.Uid;
+import house.intelli.core.rpc.echo.EchoRequest;
+import house.intelli.core.rpc.echo.EchoResponse;
+import house.intelli.core.rpc.mocktransport.MockRpcClientTransportProvider;
+
+public class AsyncInvokeTest extends AbstractRpcTest {
+	private static final int IO_THREAD_COUNT = 2;
+
+	private static final int INVOCATION_COUNT = 300;
+
+	/**
+	 * How long (milliseconds) every service invocation takes.
+	 */
+	private static final long SLEEP = 200L;
+
+	/**
+	 * How long (milliseconds) one exchange of an asynchronous invocation may wait for the response.
+	 */
+	private static final int ASYNC_LOW_LEVEL_TIMEOUT = 5;
+
+	private HostId clientHostId;
+
+	private RpcContext clientRpcContext;
+
+	private RpcContext serverRpcContext;
+
+	@Before
+	public void before() throws Exception {
+		clientHostId = new HostId("client-" + new Uid());
+
+		clientRpcContext = new RpcContext(RpcContextMode.CLIENT, clientHostId);
+		clientRpcContext.setAsyncIoThreadCount(IO_THREAD_COUNT);
+		// Every exchange returns quickly -- deferring the slow requests -- so few I/O threads serve many invocations.
+		clientRpcContext.setAsyncLowLevelTimeout(ASYNC_LOW_LEVEL_TIMEOUT);
+		// The client processes the inverse requests -- like the server, it should not be the bottleneck.
+		clientRpcContext.setWorkerPoolSize(RpcConst.DEFAULT_SERVER_WORKER_POOL_SIZE);
+		clientRpcContext.setWorkerQueueCapacity(RpcConst.DEFAULT_SERVER_WORKER_QUEUE_CAPACITY);
+		serverRpcContext = new RpcContext(RpcContextMode.SERVER, new HostId("server-" + new Uid()));
+		serverRpcContext.setAsyncIoThreadCount(IO_THREAD_COUNT);
+
+		MockRpcClientTransportProvider rpcClientTransportProvider = new MockRpcClientTransportProvider();
+		rpcClientTransportProvider.setServerRpcContext(serverRpcContext);
+		clientRpcContext.setRpcClientTransportProvider(rpcClientTransportProvider);
+	}
+
+	@After
+	public void after() throws Exception {
+		if (clientRpcContext != null)
+			clientRpcContext.close();
+
+		if (serverRpcContext != null)
+			serverRpcContext.close();
+	}
+
+	@Test
+	public void clientInvokesManyOutstandingRequestsWithFewThreads() throws Exception {
+		invokeManyOutstandingRequests(clientRpcContext, HostId.SERVER);
+	}
+
+	@Test
+	public void serverInvokesManyOutstandingRequestsWithFewThreads() throws Exception {
+		invokeManyOutstandingRequests(serverRpcContext, clientHostId);
+	}
+
+	/**
+	 * The other client's response does not arrive within the first exchange, hence it is polled from the relaying
+	 * server.
+	 */
+	@Test
+	public void clientInvokesOtherClientRelayedByServer() throws Exception {
+		try (RpcContext otherClientRpcContext = new RpcContext(RpcContextMode.CLIENT, new HostId("client-" + new Uid()))) {
+			MockRpcClientTransportProvider rpcClientTransportProvider = new MockRpcClientTransportProvider();
+			rpcClientTransportProvider.setServerRpcContext(serverRpcContext);
+			otherClientRpcContext.setRpcClientTransportProvider(rpcClientTransportProvider);
+
+			final EchoRequest echoRequest = new EchoRequest();
+			echoRequest.setServerHostId(otherClientRpcContext.getLocalHostId());
+			echoRequest.setPayload(new Uid().toString());
+			echoRequest.setSleep(SLEEP);
+
+			final EchoResponse echoResponse = clientRpcContext.getRpcClient().invokeAsync(echoRequest).get(30, TimeUnit.SECONDS);
+			assertThat(echoResponse.getPayload()).isEqualTo(echoRequest.getPayload());
+		}
+	}
+
+	@Test
+	public void failureCompletesFutureExceptionally() throws Exception {
+		final EchoRequest echoRequest = new EchoRequest();
+		echoRequest.setServerHostId(HostId.SERVER);
+		echoRequest.setPayload(new Uid().toString());
+		echoRequest.setThrowExceptionClassName(NumberFormatException.class.getName());
+
+		final CompletableFuture<EchoResponse> future = clientRpcContext.getRpcClient().invokeAsync(echoRequest);
+		assertThatThrownBy(() -> future.get(30, TimeUnit.SECONDS))
+		.isInstanceOf(ExecutionException.class)
+		.hasCauseInstanceOf(NumberFormatException.class);
+	}
+
+	@Test
+	public void asyncIoThreadCountCannotBeChangedAfterFirstAsyncInvocation() throws Exception {
+		final EchoRequest echoRequest = new EchoRequest();
+		echoRequest.setServerHostId(HostId.SERVER);
+		echoRequest.setPayload(new Uid().toString());
+		clientRpcContext.getRpcClient().invokeAsync(echoRequest).get(30, TimeUnit.SECONDS);
+
+		assertThatThrownBy(() -> clientRpcContext.setAsyncIoThreadCount(IO_THREAD_COUNT + 1))
+		.isInstanceOf(IllegalStateException.class);
+		assertThat(clientRpcContext.getAsyncIoThreadCount()).isEqualTo(IO_THREAD_COUNT);
+	}
+
+	private void invokeManyOutstandingRequests(final RpcContext rpcContext, final HostId serverHostId) throws Exception {
+		final RpcClient rpcClient = rpcContext.getRpcClient();
+		final List<EchoRequest> requests = new ArrayList<>(INVOCATION_COUNT);
+		final List<CompletableFuture<EchoResponse>> futures = new ArrayList<>(INVOCATION_COUNT);
+		for (int i = 0; i < INVOCATION_COUNT; ++i) {
+			final EchoRequest echoRequest = new EchoRequest();
+			echoRequest.setServerHostId(serverHostId);
+			echoRequest.setPayload(new Uid().toString());
+			echoRequest.setSleep(SLEEP);
+			requests.add(echoRequest);
+			futures.add(rpcClient.invokeAsync(echoRequest));
+		}
+		final int ioThreadCount = getIoThreadCount(rpcContext);
+
+		for (int i = 0; i < INVOCATION_COUNT; ++i)
+			assertThat(futures.get(i).get(60, TimeUnit.SECONDS).getPayload()).isEqualTo(requests.get(i).getPayload());
+
+		assertThat(ioThreadCount).isLessThanOrEqualTo(IO_THREAD_COUNT);
+	}
+
+	private static int getIoThreadCount(final RpcContext rpcContext) {
+		final String prefix = String.format("RpcClient[%s].io-", rpcContext.getLocalHostId());
+		int result = 0;
+		for (final Thread thread : Thread.getAllStackTraces().keySet()) {
+			if (thread.getName().startsWith(prefix))
+				++result;
+		}
+		return result;
+	}
+}
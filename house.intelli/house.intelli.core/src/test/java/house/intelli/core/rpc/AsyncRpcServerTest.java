@@ -0,0 +1,354 @@
+package house.intelli.core.rpc;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.net.httpserver.HttpServer;
+
+import house.intelli.core.Uid;
+import house.intelli.core.rpc.codec.RpcMessageCodecUtil;
+import house.intelli.core.rpc.echo.EchoRequest;
+import house.intelli.core.rpc.echo.EchoResponse;
+
+/**
+ * Parks hundreds of long polls in a local HTTP-server with only a few threads -- like the RpcServlet does
+ * with an asynchronous servlet-request.
+ */
+public class AsyncRpcServerTest extends AbstractRpcTest {
+	private static final Logger logger = LoggerFactory.getLogger(AsyncRpcServerTest.class);
+
+	private static final int SERVER_THREAD_COUNT = 4;
+
+	private static final int CLIENT_COUNT = 300;
+
+	private static final long POLL_TIMEOUT = 20000L;
+
+	private static final int CANCEL_RACE_ROUND_COUNT = 2000;
+
+	private RpcContext serverRpcContext;
+
+	private RpcContext clientRpcContext;
+
+	private HttpServer httpServer;
+
+	private ExecutorService serverExecutorService;
+
+	private final AtomicInteger createdServerThreadCount = new AtomicInteger();
+
+	@Before
+	public void before() throws Exception {
+		System.setProperty("sun.net.httpserver.nodelay", "true");
+		serverRpcContext = new RpcContext(RpcContextMode.SERVER, new HostId("server-" + new Uid()));
+		// The transports need a context, but no poll-thread.
+		clientRpcContext = new RpcContext(RpcContextMode.SERVER, new HostId("clients-" + new Uid()));
+
+		serverExecutorService = Executors.newFixedThreadPool(SERVER_THREAD_COUNT,
+				runnable -> new Thread(runnable, "server-" + createdServerThreadCount.incrementAndGet()));
+
+		httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), CLIENT_COUNT);
+		httpServer.setExecutor(serverExecutorService);
+		httpServer.createContext("/", exchange -> {
+			try {
+				final ByteArrayOutputStream requestBody = new ByteArrayOutputStream();
+				try (InputStream in = exchange.getRequestBody()) {
+					final byte[] buf = new byte[1024];
+					int bytesRead;
+					while ((bytesRead = in.read(buf)) >= 0)
+						requestBody.write(buf, 0, bytesRead);
+				}
+				// Like the RpcServlet.
+				exchange.getResponseHeaders().set(RpcMessageCodecUtil.HTTP_HEADER_CODECS, RpcMessageCodecUtil.getCodecOffer());
+				exchange.sendResponseHeaders(200, 0); // chunked
+
+				final HttpRpcServerTransport transport = new HttpRpcServerTransport();
+				transport.setRpcContext(serverRpcContext);
+				transport.setInputStream(new ByteArrayInputStream(requestBody.toByteArray()));
+				transport.setOutputStream(exchange.getResponseBody());
+				transport.setResponseCodec(RpcMessageCodecUtil.negotiateCodec(
+						exchange.getRequestHeaders().getFirst(RpcMessageCodecUtil.HTTP_HEADER_CODECS)));
+
+				// Returning without closing the exchange -- it is completed later by one of the few server threads.
+				final RpcServer rpcServer = serverRpcContext.createRpcServer();
+				rpcServer.receiveAndProcessRequestAsync(transport, serverExecutorService).whenComplete((response, x) -> {
+					if (x != null)
+						logger.debug("handle: " + x + ' ', x);
+
+					rpcServer.close();
+					exchange.close();
+				});
+			} catch (Exception x) {
+				logger.debug("handle: " + x + ' ', x);
+				exchange.close();
+			}
+		});
+		httpServer.start();
+	}
+
+	@After
+	public void after() throws Exception {
+		if (httpServer != null)
+			httpServer.stop(0);
+
+		if (serverExecutorService != null)
+			serverExecutorService.shutdownNow();
+
+		if (clientRpcContext != null)
+			clientRpcContext.close();
+
+		if (serverRpcContext != null)
+			serverRpcContext.close();
+	}
+
+	@Test
+	public void manyParkedPollsWithFewThreads() throws Exception {
+		final URL serverUrl = new URL("http", "127.0.0.1", httpServer.getAddress().getPort(), "/");
+		final InverseRequestRegistry inverseRequestRegistry = serverRpcContext.getInverseRequestRegistry();
+		final ExecutorService clientExecutorService = Executors.newFixedThreadPool(CLIENT_COUNT);
+		try {
+			final List<HostId> clientHostIds = new ArrayList<>();
+			final List<Future<List<Request<?>>>> futures = new ArrayList<>();
+			for (int i = 0; i < CLIENT_COUNT; ++i) {
+				final HostId clientHostId = new HostId("client-" + i + '-' + new Uid());
+				clientHostIds.add(clientHostId);
+				futures.add(clientExecutorService.submit(() -> {
+					final PollInverseRequestsRequest pollRequest = new PollInverseRequestsRequest();
+					initRequest(pollRequest, clientHostId, serverRpcContext.getLocalHostId());
+					final Response response = exchange(serverUrl, pollRequest);
+					assertThat(response).isInstanceOf(PollInverseRequestsResponse.class);
+					return ((PollInverseRequestsResponse) response).getInverseRequests();
+				}));
+			}
+
+			final long parkStart = System.currentTimeMillis();
+			while (inverseRequestRegistry.getWaiterCount() < CLIENT_COUNT) {
+				if (System.currentTimeMillis() - parkStart > POLL_TIMEOUT / 2)
+					fail("Only " + inverseRequestRegistry.getWaiterCount() + " polls parked!");
+
+				Thread.sleep(10);
+			}
+			final long parkDuration = System.currentTimeMillis() - parkStart;
+
+			// While all polls are parked, the server still processes ordinary requests.
+			final long echoStart = System.currentTimeMillis();
+			final EchoRequest echoRequest = new EchoRequest();
+			initRequest(echoRequest, clientRpcContext.getLocalHostId(), serverRpcContext.getLocalHostId());
+			echoRequest.setPayload("still responsive");
+			final Response echoResponse = exchange(serverUrl, echoRequest);
+			assertThat(((EchoResponse) echoResponse).getPayload()).isEqualTo("still responsive");
+			final long echoDuration = System.currentTimeMillis() - echoStart;
+
+			final long releaseStart = System.currentTimeMillis();
+			for (final HostId clientHostId : clientHostIds) {
+				final EchoRequest inverseRequest = new EchoRequest();
+				initRequest(inverseRequest, serverRpcContext.getLocalHostId(), clientHostId);
+				inverseRequest.setPayload(clientHostId.toString());
+				inverseRequestRegistry.putRequest(inverseRequest);
+			}
+			for (int i = 0; i < CLIENT_COUNT; ++i) {
+				final List<Request<?>> inverseRequests = futures.get(i).get();
+				assertThat(inverseRequests).hasSize(1);
+				assertThat(((EchoRequest) inverseRequests.get(0)).getPayload()).isEqualTo(clientHostIds.get(i).toString());
+			}
+			final long releaseDuration = System.currentTimeMillis() - releaseStart;
+
+			logger.info("manyParkedPollsWithFewThreads: clientCount={}, serverThreadCount={}, createdServerThreadCount={}, parkDuration={} ms, echoDuration={} ms, releaseDuration={} ms",
+					CLIENT_COUNT, SERVER_THREAD_COUNT, createdServerThreadCount.get(), parkDuration, echoDuration, releaseDuration);
+
+			assertThat(createdServerThreadCount.get()).isLessThanOrEqualTo(SERVER_THREAD_COUNT);
+			assertThat(inverseRequestRegistry.getWaiterCount()).isEqualTo(0);
+		} finally {
+			clientExecutorService.shutdownNow();
+		}
+	}
+
+	/**
+	 * Many more streams than server threads: Every streamed response is sent by one of the few threads, and
+	 * no stream occupies a thread while waiting.
+	 */
+	@Test
+	public void manyStreamsWithFewThreads() throws Exception {
+		final int streamCount = SERVER_THREAD_COUNT * 10;
+		final int inverseRequestCountPerStream = 3;
+		final URL serverUrl = new URL("http", "127.0.0.1", httpServer.getAddress().getPort(), "/");
+		final InverseRequestRegistry inverseRequestRegistry = serverRpcContext.getInverseRequestRegistry();
+		final ExecutorService clientExecutorService = Executors.newFixedThreadPool(streamCount);
+		try {
+			final List<HostId> clientHostIds = new ArrayList<>();
+			final List<Future<List<String>>> futures = new ArrayList<>();
+			for (int i = 0; i < streamCount; ++i) {
+				final HostId clientHostId = new HostId("client-" + i + '-' + new Uid());
+				clientHostIds.add(clientHostId);
+				futures.add(clientExecutorService.submit(() -> {
+					final StreamInverseRequestsRequest streamRequest = new StreamInverseRequestsRequest();
+					initRequest(streamRequest, clientHostId, serverRpcContext.getLocalHostId());
+					streamRequest.setTimeout(3000);
+					final List<String> payloads = new ArrayList<>();
+					try (HttpRpcClientTransport transport = new HttpRpcClientTransport()) {
+						transport.setRpcContext(clientRpcContext);
+						transport.setServerUrl(serverUrl);
+						transport.sendRequest(streamRequest);
+						do {
+							final Response response = transport.receiveResponse();
+							for (final Request<?> inverseRequest : ((PollInverseRequestsResponse) response).getInverseRequests())
+								payloads.add(((EchoRequest) inverseRequest).getPayload());
+						} while (transport.isMoreResponsesExpected());
+					}
+					return payloads;
+				}));
+			}
+			while (inverseRequestRegistry.getWaiterCount() < streamCount)
+				Thread.sleep(10);
+
+			for (int r = 0; r < inverseRequestCountPerStream; ++r) {
+				for (final HostId clientHostId : clientHostIds) {
+					final EchoRequest inverseRequest = new EchoRequest();
+					initRequest(inverseRequest, serverRpcContext.getLocalHostId(), clientHostId);
+					inverseRequest.setPayload(Integer.toString(r));
+					inverseRequestRegistry.putRequest(inverseRequest);
+				}
+				Thread.sleep(100);
+			}
+			for (final Future<List<String>> future : futures)
+				assertThat(future.get()).containsExactly("0", "1", "2");
+
+			logger.info("manyStreamsWithFewThreads: streamCount={}, serverThreadCount={}, createdServerThreadCount={}",
+					streamCount, SERVER_THREAD_COUNT, createdServerThreadCount.get());
+			assertThat(createdServerThreadCount.get()).isLessThanOrEqualTo(SERVER_THREAD_COUNT);
+		} finally {
+			clientExecutorService.shutdownNow();
+		}
+	}
+
+	/**
+	 * Cancelling -- like the RpcServlet does, if the container times out the request or the connection fails --
+	 * un-parks the poll: An inverse request put afterwards stays queued for the next poll.
+	 */
+	@Test
+	public void cancelledPollDoesNotObtainRequests() throws Exception {
+		final HostId clientHostId = new HostId("client-" + new Uid());
+		final PollInverseRequestsRequest pollRequest = new PollInverseRequestsRequest();
+		initRequest(pollRequest, clientHostId, serverRpcContext.getLocalHostId());
+		final List<Response> sentResponses = new CopyOnWriteArrayList<>();
+		final RpcServerTransport transport = new AbstractRpcServerTransport() {
+			@Override
+			public Request<?> receiveRequest() throws IOException {
+				return pollRequest;
+			}
+
+			@Override
+			public void sendResponse(Response response) throws IOException {
+				sentResponses.add(response);
+			}
+		};
+		transport.setRpcContext(serverRpcContext);
+
+		final InverseRequestRegistry inverseRequestRegistry = serverRpcContext.getInverseRequestRegistry();
+		try (RpcServer rpcServer = serverRpcContext.createRpcServer()) {
+			final CompletableFuture<Response> future = rpcServer.receiveAndProcessRequestAsync(transport, Runnable::run);
+			assertThat(inverseRequestRegistry.getWaiterCount()).isEqualTo(1);
+
+			future.cancel(false);
+			assertThat(inverseRequestRegistry.getWaiterCount()).isEqualTo(0);
+		}
+
+		final EchoRequest inverseRequest = new EchoRequest();
+		initRequest(inverseRequest, serverRpcContext.getLocalHostId(), clientHostId);
+		inverseRequestRegistry.putRequest(inverseRequest);
+		assertThat(inverseRequestRegistry.pollRequests(clientHostId, POLL_TIMEOUT)).containsExactly(inverseRequest);
+		assertThat(sentResponses).isEmpty();
+	}
+
+	/**
+	 * Cancelling a parked poll while an inverse request is handed over to it must not lose the request: It is
+	 * either sent with the poll's response or stays queued for the next poll.
+	 */
+	@Test
+	public void pollCancelledConcurrentlyWithPutRequestLosesNothing() throws Exception {
+		final HostId clientHostId = new HostId("client-" + new Uid());
+		final InverseRequestRegistry inverseRequestRegistry = serverRpcContext.getInverseRequestRegistry();
+		final List<Request<?>> sentInverseRequests = new CopyOnWriteArrayList<>();
+		final List<Request<?>> putInverseRequests = new ArrayList<>();
+		final ExecutorService cancelExecutorService = Executors.newSingleThreadExecutor();
+		try {
+			for (int i = 0; i < CANCEL_RACE_ROUND_COUNT; ++i) {
+				final PollInverseRequestsRequest pollRequest = new PollInverseRequestsRequest();
+				initRequest(pollRequest, clientHostId, serverRpcContext.getLocalHostId());
+				final RpcServerTransport transport = new AbstractRpcServerTransport() {
+					@Override
+					public Request<?> receiveRequest() throws IOException {
+						return pollRequest;
+					}
+
+					@Override
+					public void sendResponse(Response response) throws IOException {
+						sentInverseRequests.addAll(((PollInverseRequestsResponse) response).getInverseRequests());
+					}
+				};
+				transport.setRpcContext(serverRpcContext);
+
+				try (RpcServer rpcServer = serverRpcContext.createRpcServer()) {
+					final CompletableFuture<Response> future = rpcServer.receiveAndProcessRequestAsync(transport, Runnable::run);
+					final AtomicBoolean started = new AtomicBoolean();
+					final Future<?> cancelled = cancelExecutorService.submit(() -> {
+						while (! started.get()); // spinning to start as simultaneously as possible
+
+						return future.cancel(false);
+					});
+
+					final EchoRequest inverseRequest = new EchoRequest();
+					initRequest(inverseRequest, serverRpcContext.getLocalHostId(), clientHostId);
+					putInverseRequests.add(inverseRequest);
+					started.set(true);
+					inverseRequestRegistry.putRequest(inverseRequest);
+					cancelled.get();
+				}
+			}
+		} finally {
+			cancelExecutorService.shutdownNow();
+		}
+
+		final List<Request<?>> deliveredInverseRequests = new ArrayList<>(sentInverseRequests);
+		deliveredInverseRequests.addAll(inverseRequestRegistry.pollRequests(clientHostId, 0));
+		assertThat(deliveredInverseRequests).hasSameSizeAs(putInverseRequests).containsOnlyElementsOf(putInverseRequests);
+	}
+
+	private Response exchange(final URL serverUrl, final Request<?> request) throws Exception {
+		try (HttpRpcClientTransport transport = new HttpRpcClientTransport()) {
+			transport.setRpcContext(clientRpcContext);
+			transport.setServerUrl(serverUrl);
+			transport.sendRequest(request);
+			return transport.receiveResponse();
+		}
+	}
+
+	private static void initRequest(final Request<?> request, final HostId clientHostId, final HostId serverHostId) {
+		request.setRequestId(new Uid());
+		request.setClientHostId(clientHostId);
+		request.setServerHostId(serverHostId);
+		request.setCreated(new Date());
+		request.setTimeout(POLL_TIMEOUT);
+	}
+}
@@ -0,0 +1,154 @@
+package house.intelli.core.rpc;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.net.httpserver.HttpServer;
+
+import house.intelli.core.Uid;
+import house.intelli.core.rpc.codec.RpcMessageCodecUtil;
+import house.intelli.core.rpc.echo.EchoRequest;
+import house.intelli.core.rpc.echo.EchoResponse;
+
+/**
+ * Tests {@link BatchRequest}s over a loopback-HTTP-connection.
+ */
+public class BatchRequestTest extends AbstractRpcTest {
+	private static final Logger logger = LoggerFactory.getLogger(BatchRequestTest.class);
+
+	private HostId clientHostId;
+
+	private RpcContext clientRpcContext;
+
+	private RpcContext serverRpcContext;
+
+	private HttpServer httpServer;
+
+	@Before
+	public void before() throws Exception {
+		System.setProperty("sun.net.httpserver.nodelay", "true");
+
+		serverRpcContext = new RpcContext(RpcContextMode.SERVER, new HostId("server-" + new Uid()));
+
+		httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		httpServer.setExecutor(Executors.newCachedThreadPool());
+		httpServer.createContext("/", exchange -> {
+			try {
+				final ByteArrayOutputStream requestBody = new ByteArrayOutputStream();
+				try (InputStream in = exchange.getRequestBody()) {
+					final byte[] buf = new byte[1024];
+					int bytesRead;
+					while ((bytesRead = in.read(buf)) >= 0)
+						requestBody.write(buf, 0, bytesRead);
+				}
+				// Like the RpcServlet.
+				exchange.getResponseHeaders().set(RpcMessageCodecUtil.HTTP_HEADER_CODECS, RpcMessageCodecUtil.getCodecOffer());
+				exchange.sendResponseHeaders(200, 0); // chunked
+
+				final HttpRpcServerTransport transport = new HttpRpcServerTransport();
+				transport.setRpcContext(serverRpcContext);
+				transport.setInputStream(new ByteArrayInputStream(requestBody.toByteArray()));
+				transport.setOutputStream(exchange.getResponseBody());
+				transport.setResponseCodec(RpcMessageCodecUtil.negotiateCodec(
+						exchange.getRequestHeaders().getFirst(RpcMessageCodecUtil.HTTP_HEADER_CODECS)));
+				try (RpcServer rpcServer = serverRpcContext.createRpcServer()) {
+					rpcServer.receiveAndProcessRequest(transport);
+				}
+			} catch (Exception x) {
+				logger.debug("handle: " + x + ' ', x);
+			} finally {
+				exchange.close();
+			}
+		});
+		httpServer.start();
+
+		clientHostId = new HostId("client-" + new Uid());
+		clientRpcContext = new RpcContext(RpcContextMode.CLIENT, clientHostId);
+		final HttpRpcClientTransportProvider rpcClientTransportProvider = new HttpRpcClientTransportProvider();
+		rpcClientTransportProvider.setServerUrl(new URL("http", "127.0.0.1", httpServer.getAddress().getPort(), "/"));
+		clientRpcContext.setRpcClientTransportProvider(rpcClientTransportProvider);
+	}
+
+	@After
+	public void after() throws Exception {
+		if (clientRpcContext != null)
+			clientRpcContext.close();
+
+		if (serverRpcContext != null)
+			serverRpcContext.close();
+
+		if (httpServer != null)
+			httpServer.stop(0);
+	}
+
+	@Test
+	public void clientInvokesBatchOnServer() throws Exception {
+		final List<EchoRequest> requests = createEchoRequests(HostId.SERVER, 20);
+		final List<EchoResponse> responses = clientRpcContext.getRpcClient().invokeBatch(requests);
+		assertResponses(requests, responses);
+	}
+
+	@Test
+	public void serverInvokesBatchOnClient() throws Exception {
+		final List<EchoRequest> requests = createEchoRequests(clientHostId, 20);
+		final List<EchoResponse> responses = serverRpcContext.getRpcClient().invokeBatch(requests);
+		assertResponses(requests, responses);
+	}
+
+	@Test
+	public void failedRequestDoesNotAffectOthers() throws Exception {
+		final List<EchoRequest> requests = createEchoRequests(HostId.SERVER, 3);
+		requests.get(1).setThrowExceptionClassName(UnsupportedOperationException.class.getName());
+
+		final BatchRequest batchRequest = new BatchRequest();
+		batchRequest.setServerHostId(HostId.SERVER);
+		batchRequest.setSequential(true);
+		batchRequest.getRequests().addAll(requests);
+		final EchoRequest foreignRequest = createEchoRequests(HostId.SERVER, 1).get(0);
+		foreignRequest.setClientHostId(new HostId("foreign-" + new Uid()));
+		batchRequest.getRequests().add(foreignRequest);
+
+		final BatchResponse batchResponse = clientRpcContext.getRpcClient().invoke(batchRequest);
+		final List<Response> responses = batchResponse.getResponses();
+		assertThat(responses).hasSize(4);
+		assertThat(((EchoResponse) responses.get(0)).getPayload()).isEqualTo(requests.get(0).getPayload());
+		assertThat(((ErrorResponse) responses.get(1)).getError().getClassName()).isEqualTo(UnsupportedOperationException.class.getName());
+		assertThat(((EchoResponse) responses.get(2)).getPayload()).isEqualTo(requests.get(2).getPayload());
+		assertThat(((ErrorResponse) responses.get(3)).getError().getClassName()).isEqualTo(IllegalArgumentException.class.getName());
+
+		assertThatThrownBy(() -> clientRpcContext.getRpcClient().invokeBatch(requests.subList(0, 2)))
+		.isInstanceOf(UnsupportedOperationException.class);
+	}
+
+	private static List<EchoRequest> createEchoRequests(final HostId serverHostId, final int requestCount) {
+		final List<EchoRequest> requests = new ArrayList<>(requestCount);
+		for (int i = 0; i < requestCount; ++i) {
+			final EchoRequest request = new EchoRequest();
+			request.setServerHostId(serverHostId);
+			request.setPayload(new Uid().toString());
+			requests.add(request);
+		}
+		return requests;
+	}
+
+	private static void assertResponses(final List<EchoRequest> requests, final List<EchoResponse> responses) {
+		assertThat(responses).hasSize(requests.size());
+		for (int i = 0; i < requests.size(); ++i)
+			assertThat(responses.get(i).getPayload()).isEqualTo(requests.get(i).getPayload());
+	}
+}
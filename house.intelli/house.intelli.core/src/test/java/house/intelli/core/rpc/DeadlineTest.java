@@ -0,0 +1,244 @@
+package house.intelli.core.rpc;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.bind.annotation.XmlRootElement;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import house.intelli.core.Uid;
+import house.intelli.core.rpc.codec.RpcMessageCodecUtil;
+import house.intelli.core.rpc.echo.EchoRequest;
+import house.intelli.core.service.AbstractServiceRegistryDelegate;
+import house.intelli.core.service.ServiceRegistry;
+
+public class DeadlineTest extends AbstractRpcTest {
+	private static final Logger logger = LoggerFactory.getLogger(DeadlineTest.class);
+
+	private static final int BACKLOG_SIZE = 40;
+
+	private static final long WORK_DURATION = 100L;
+
+	private static final long TIMEOUT = 300L;
+
+	private static final AtomicInteger startedCount = new AtomicInteger();
+
+	/**
+	 * How long (milliseconds) the latest service invocation kept running after its request's deadline.
+	 */
+	private static final AtomicLong maxOverrun = new AtomicLong();
+
+	private static final AtomicInteger interruptedCount = new AtomicInteger();
+
+	private RpcContext rpcContext;
+
+	@SuppressWarnings("rawtypes")
+	private final ServiceRegistry<RpcService> serviceRegistry = ServiceRegistry.getInstance(RpcService.class);
+
+	private final WorkRpcServiceDelegate delegate = new WorkRpcServiceDelegate();
+
+	@XmlRootElement
+	public static class WorkRequest extends Request<VoidResponse> {
+		private long duration;
+
+		public long getDuration() {
+			return duration;
+		}
+		public void setDuration(long duration) {
+			this.duration = duration;
+		}
+	}
+
+	public static class WorkRpcService extends AbstractRpcService<WorkRequest, VoidResponse> {
+		@Override
+		public VoidResponse process(WorkRequest request) throws Exception {
+			startedCount.incrementAndGet();
+			try {
+				Thread.sleep(request.getDuration());
+			} catch (InterruptedException x) {
+				interruptedCount.incrementAndGet();
+				throw x;
+			} finally {
+				final long overrun = System.currentTimeMillis() - request.getDeadline();
+				maxOverrun.accumulateAndGet(overrun, Math::max);
+			}
+			return null;
+		}
+	}
+
+	@SuppressWarnings("rawtypes")
+	private static class WorkRpcServiceDelegate extends AbstractServiceRegistryDelegate<RpcService> {
+		@Override
+		public List<RpcService> getServices() {
+			return Collections.singletonList(new WorkRpcService());
+		}
+	}
+
+	@Before
+	public void before() throws Exception {
+		startedCount.set(0);
+		maxOverrun.set(Long.MIN_VALUE);
+		interruptedCount.set(0);
+		serviceRegistry.addDelegate(delegate);
+
+		rpcContext = new RpcContext(RpcContextMode.SERVER, new HostId("server-" + new Uid()));
+		rpcContext.setWorkerPoolSize(1);
+	}
+
+	@After
+	public void after() throws Exception {
+		serviceRegistry.removeDelegate(delegate);
+
+		if (rpcContext != null)
+			rpcContext.close();
+	}
+
+	/**
+	 * A single worker faces a backlog of requests, most of which expire while waiting in the queue. Every
+	 * request processed after its caller gave up is wasted work.
+	 */
+	@Test
+	public void staleBacklogIsDroppedBeforeDispatch() throws Exception {
+		final RpcServiceExecutor rpcServiceExecutor = rpcContext.getRpcServiceExecutor();
+		final List<WorkRequest> requests = new ArrayList<>(BACKLOG_SIZE);
+		for (int i = 0; i < BACKLOG_SIZE; ++i) {
+			final WorkRequest request = createWorkRequest(rpcContext.getLocalHostId(), WORK_DURATION, TIMEOUT);
+			requests.add(request);
+			rpcServiceExecutor.putRequest(request);
+		}
+
+		int timedOutCount = 0;
+		for (final WorkRequest request : requests) {
+			final Response response = rpcServiceExecutor.pollResponse(request.getRequestId(), TIMEOUT * 10);
+			assertThat(response).isNotNull();
+			assertThat(System.currentTimeMillis()).isLessThan(request.getDeadline() + TIMEOUT);
+			if (response instanceof ErrorResponse) {
+				assertThat(((ErrorResponse) response).getError().getClassName()).isEqualTo(RpcTimeoutException.class.getName());
+				++timedOutCount;
+			}
+		}
+		Thread.sleep(WORK_DURATION * 2); // the last service might still be running
+
+		// Without deadlines, the worker would process all requests: BACKLOG_SIZE * WORK_DURATION.
+		logger.info("staleBacklogIsDroppedBeforeDispatch: backlogSize={}, timedOutCount={}, startedCount={}, maxOverrun={} ms, interruptedCount={}, wastedWorkWithoutDeadlines={} ms",
+				BACKLOG_SIZE, timedOutCount, startedCount.get(), maxOverrun.get(), interruptedCount.get(),
+				timedOutCount * WORK_DURATION);
+
+		assertThat(timedOutCount).isGreaterThan(BACKLOG_SIZE / 2);
+		assertThat(startedCount.get()).isLessThanOrEqualTo((int) (TIMEOUT / WORK_DURATION) + 2);
+		// A service still running at the deadline is interrupted -- it does not keep the worker busy.
+		assertThat(maxOverrun.get()).isLessThan(WORK_DURATION);
+	}
+
+	@Test
+	public void inFlightWorkIsInterruptedAtDeadline() throws Exception {
+		final RpcServiceExecutor rpcServiceExecutor = rpcContext.getRpcServiceExecutor();
+		final WorkRequest request = createWorkRequest(rpcContext.getLocalHostId(), 60000L, TIMEOUT);
+		rpcServiceExecutor.putRequest(request);
+
+		final Response response = rpcServiceExecutor.pollResponse(request.getRequestId(), 60000L);
+		assertThat(response).isInstanceOf(ErrorResponse.class);
+		assertThat(System.currentTimeMillis()).isLessThan(request.getDeadline() + TIMEOUT);
+
+		Thread.sleep(TIMEOUT);
+		assertThat(startedCount.get()).isEqualTo(1);
+		assertThat(interruptedCount.get()).isEqualTo(1);
+
+		// The interrupted worker is re-used for the next request -- without being interrupted again.
+		final WorkRequest nextRequest = createWorkRequest(rpcContext.getLocalHostId(), WORK_DURATION, TIMEOUT * 10);
+		rpcServiceExecutor.putRequest(nextRequest);
+		assertThat(rpcServiceExecutor.pollResponse(nextRequest.getRequestId(), TIMEOUT * 10)).isInstanceOf(NullResponse.class);
+		assertThat(interruptedCount.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void staleInverseRequestIsNotDelivered() throws Exception {
+		final HostId clientHostId = new HostId("client-" + new Uid());
+		final RpcServiceExecutor rpcServiceExecutor = rpcContext.getRpcServiceExecutor();
+		final WorkRequest request = createWorkRequest(clientHostId, WORK_DURATION, TIMEOUT);
+		rpcServiceExecutor.putRequest(request);
+
+		// Nobody polls it => the waiting caller must not wait any longer than the deadline.
+		final Response response = rpcServiceExecutor.pollResponse(request.getRequestId(), 60000L);
+		assertThat(response).isInstanceOf(ErrorResponse.class);
+		assertThat(System.currentTimeMillis()).isLessThan(request.getDeadline() + TIMEOUT);
+
+		assertThat(rpcContext.getInverseRequestRegistry().pollRequests(clientHostId, 0)).isEmpty();
+	}
+
+	/**
+	 * A Raspberry Pi without RTC sends {@code created} in 1970 until NTP synchronized its clock -- another may
+	 * run ahead. The deadline must be measured by the receiver's clock nevertheless.
+	 */
+	@Test
+	public void deadlineIsIndependentOfSenderClock() throws Exception {
+		for (final String foreignCreated : new String[] { "1970-01-01T00:02:17.000Z", "2100-01-01T00:00:00.000Z" }) {
+			final String xml = encodeXml(createEchoRequest(new Date(), TIMEOUT * 10))
+					.replaceAll("<created>[^<]*</created>", "<created>" + foreignCreated + "</created>");
+
+			final long start = System.currentTimeMillis();
+			final Request<?> decoded = (Request<?>) decode(xml);
+			assertThat(decoded.isExpired()).isFalse();
+			assertThat(decoded.getDeadline()).isBetween(start, System.currentTimeMillis() + TIMEOUT * 10);
+
+			// An older sender does not transfer the remaining timeout => it is counted from the arrival.
+			final Request<?> legacyDecoded = (Request<?>) decode(xml.replaceAll("<remainingTimeout>[^<]*</remainingTimeout>", ""));
+			assertThat(legacyDecoded.isExpired()).isFalse();
+			assertThat(legacyDecoded.getDeadline()).isBetween(start + TIMEOUT * 10, System.currentTimeMillis() + TIMEOUT * 10);
+		}
+
+		// The remaining timeout survives the binary codec, too -- and is not renewed.
+		final EchoRequest request = createEchoRequest(new Date(System.currentTimeMillis() - TIMEOUT * 2), TIMEOUT);
+		assertThat(request.isExpired()).isTrue();
+		final ByteArrayOutputStream bout = new ByteArrayOutputStream();
+		RpcMessageCodecUtil.getBinaryCodec().encode(request, bout);
+		final Request<?> decoded = (Request<?>) RpcMessageCodecUtil.decode(new ByteArrayInputStream(bout.toByteArray()));
+		Thread.sleep(2);
+		assertThat(decoded.isExpired()).isTrue();
+	}
+
+	private EchoRequest createEchoRequest(final Date created, final long timeout) {
+		final EchoRequest request = new EchoRequest();
+		request.setRequestId(new Uid());
+		request.setClientHostId(new HostId("client-" + new Uid()));
+		request.setServerHostId(rpcContext.getLocalHostId());
+		request.setCreated(created);
+		request.setTimeout(timeout);
+		return request;
+	}
+
+	private static String encodeXml(final RpcMessage rpcMessage) throws Exception {
+		final ByteArrayOutputStream bout = new ByteArrayOutputStream();
+		RpcMessageCodecUtil.getXmlCodec().encode(rpcMessage, bout);
+		return new String(bout.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	private static RpcMessage decode(final String xml) throws Exception {
+		return RpcMessageCodecUtil.decode(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private WorkRequest createWorkRequest(final HostId serverHostId, final long duration, final long timeout) {
+		final WorkRequest request = new WorkRequest();
+		request.setRequestId(new Uid());
+		request.setClientHostId(rpcContext.getLocalHostId());
+		request.setServerHostId(serverHostId);
+		request.setCreated(new Date());
+		request.setTimeout(timeout);
+		request.setDuration(duration);
+		return request;
+	}
+}
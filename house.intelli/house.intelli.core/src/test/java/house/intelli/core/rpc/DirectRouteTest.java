@@ -0,0 +1,210 @@
+package house.intelli.core.rpc;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.net.httpserver.HttpServer;
+
+import house.intelli.core.Uid;
+import house.intelli.core.rpc.codec.RpcMessageCodecUtil;
+import house.intelli.core.rpc.echo.EchoRequest;
+import house.intelli.core.rpc.echo.EchoResponse;
+
+/**
+ * Two clients (e.g. Raspberry Pis) invoke each other -- relayed by the server and directly over loopback.
+ */
+public class DirectRouteTest extends AbstractRpcTest {
+	private static final Logger logger = LoggerFactory.getLogger(DirectRouteTest.class);
+
+	private RpcContext serverRpcContext;
+
+	private HttpServer httpServer;
+
+	private RpcContext clientRpcContext1;
+
+	private RpcContext clientRpcContext2;
+
+	private DirectRpcServer directRpcServer2;
+
+	@Before
+	public void before() throws Exception {
+		System.setProperty("sun.net.httpserver.nodelay", "true");
+
+		serverRpcContext = new RpcContext(RpcContextMode.SERVER, new HostId("server-" + new Uid()));
+
+		httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		httpServer.setExecutor(Executors.newCachedThreadPool()); // a stream occupies its thread
+		httpServer.createContext("/", exchange -> {
+			try {
+				final ByteArrayOutputStream requestBody = new ByteArrayOutputStream();
+				try (InputStream in = exchange.getRequestBody()) {
+					final byte[] buf = new byte[1024];
+					int bytesRead;
+					while ((bytesRead = in.read(buf)) >= 0)
+						requestBody.write(buf, 0, bytesRead);
+				}
+				// Like the RpcServlet.
+				exchange.getResponseHeaders().set(RpcMessageCodecUtil.HTTP_HEADER_CODECS, RpcMessageCodecUtil.getCodecOffer());
+				exchange.sendResponseHeaders(200, 0); // chunked
+
+				final HttpRpcServerTransport transport = new HttpRpcServerTransport();
+				transport.setRpcContext(serverRpcContext);
+				transport.setInputStream(new ByteArrayInputStream(requestBody.toByteArray()));
+				transport.setOutputStream(exchange.getResponseBody());
+				transport.setResponseCodec(RpcMessageCodecUtil.negotiateCodec(
+						exchange.getRequestHeaders().getFirst(RpcMessageCodecUtil.HTTP_HEADER_CODECS)));
+				try (RpcServer rpcServer = serverRpcContext.createRpcServer()) {
+					rpcServer.receiveAndProcessRequest(transport);
+				}
+			} catch (Exception x) {
+				logger.debug("handle: " + x + ' ', x);
+			} finally {
+				exchange.close();
+			}
+		});
+		httpServer.start();
+
+		clientRpcContext1 = createClientRpcContext("client1-");
+		clientRpcContext2 = createClientRpcContext("client2-");
+
+		directRpcServer2 = new DirectRpcServer(clientRpcContext2);
+		directRpcServer2.setBindAddress(InetAddress.getLoopbackAddress().getHostAddress());
+		directRpcServer2.setPort(0);
+		directRpcServer2.init();
+	}
+
+	private RpcContext createClientRpcContext(final String hostIdPrefix) throws Exception {
+		final RpcContext rpcContext = new RpcContext(RpcContextMode.CLIENT, new HostId(hostIdPrefix + new Uid()));
+		final HttpRpcClientTransportProvider rpcClientTransportProvider = new HttpRpcClientTransportProvider();
+		rpcClientTransportProvider.setServerUrl(new URL("http", "127.0.0.1", httpServer.getAddress().getPort(), "/"));
+		rpcContext.setRpcClientTransportProvider(rpcClientTransportProvider);
+		return rpcContext;
+	}
+
+	@After
+	public void after() throws Exception {
+		if (directRpcServer2 != null)
+			directRpcServer2.close();
+
+		if (clientRpcContext1 != null)
+			clientRpcContext1.close();
+
+		if (clientRpcContext2 != null)
+			clientRpcContext2.close();
+
+		if (serverRpcContext != null)
+			serverRpcContext.close();
+
+		if (httpServer != null)
+			httpServer.stop(0);
+	}
+
+	@Test
+	public void directRouteBypassesServer() throws Exception {
+		invokeOnClient2("relayed");
+
+		clientRpcContext1.putDirectRpcClientTransportProvider(clientRpcContext2.getLocalHostId(),
+				createDirectRpcClientTransportProvider(directRpcServer2.getLocalPort()));
+		httpServer.stop(0);
+		httpServer = null;
+
+		invokeOnClient2("direct");
+		assertThat(clientRpcContext1.getAvailableDirectRoute(clientRpcContext2.getLocalHostId())).isNotNull();
+	}
+
+	@Test
+	public void fallBackToRelayIfDirectRouteFails() throws Exception {
+		final int unusedPort;
+		try (ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+			unusedPort = serverSocket.getLocalPort();
+		}
+		final HostId clientHostId2 = clientRpcContext2.getLocalHostId();
+		clientRpcContext1.putDirectRpcClientTransportProvider(clientHostId2, createDirectRpcClientTransportProvider(unusedPort));
+		assertThat(clientRpcContext1.getAvailableDirectRoute(clientHostId2)).isNotNull();
+
+		invokeOnClient2("fallback");
+		assertThat(clientRpcContext1.getAvailableDirectRoute(clientHostId2)).isNull();
+
+		// The server-relay is used right away now -- without trying the direct route again.
+		invokeOnClient2("relayed");
+	}
+
+	@Test
+	public void directRpcServerOnlyAcceptsRequestsForItsClient() throws Exception {
+		final HostId otherHostId = new HostId("other-" + new Uid());
+		clientRpcContext1.putDirectRpcClientTransportProvider(otherHostId,
+				createDirectRpcClientTransportProvider(directRpcServer2.getLocalPort()));
+
+		final EchoRequest echoRequest = new EchoRequest();
+		echoRequest.setServerHostId(otherHostId);
+		echoRequest.setPayload("not for client2");
+		echoRequest.setTimeout(2000);
+		assertThatThrownBy(() -> clientRpcContext1.getRpcClient().invoke(echoRequest))
+				.isInstanceOf(UnsupportedOperationException.class);
+	}
+
+	@Test
+	public void plainTransportIsOnlyAllowedOnLoopback() throws Exception {
+		try (DirectRpcServer directRpcServer = new DirectRpcServer(clientRpcContext1)) {
+			directRpcServer.setPort(0); // all interfaces
+			assertThatThrownBy(() -> directRpcServer.init()).isInstanceOf(IllegalStateException.class);
+			assertThat(directRpcServer.getLocalPort()).isEqualTo(-1);
+		}
+		try (DirectRpcServer directRpcServer = new DirectRpcServer(clientRpcContext1)) {
+			directRpcServer.setPort(0);
+			directRpcServer.setRpcServerTransportProvider(new HttpRpcServerTransportProvider());
+			assertThatThrownBy(() -> directRpcServer.init()).isInstanceOf(IllegalStateException.class);
+		}
+	}
+
+	@Test
+	public void oversizedRequestBodyIsRejected() throws Exception {
+		final HttpURLConnection connection = (HttpURLConnection) new URL("http", "127.0.0.1", directRpcServer2.getLocalPort(),
+				DirectRpcServer.CONTEXT_PATH).openConnection();
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		connection.setChunkedStreamingMode(8 * 1024); // no Content-Length => the size is only known while reading
+		try (OutputStream out = connection.getOutputStream()) {
+			out.write(new byte[RpcConst.DIRECT_RPC_SERVER_MAX_REQUEST_SIZE + 1]);
+		} catch (IOException x) {
+			logger.debug("oversizedRequestBodyIsRejected: " + x, x); // the server might close before all is written
+		}
+		assertThat(connection.getResponseCode()).isEqualTo(413);
+
+		// Still serving normal requests.
+		clientRpcContext1.putDirectRpcClientTransportProvider(clientRpcContext2.getLocalHostId(),
+				createDirectRpcClientTransportProvider(directRpcServer2.getLocalPort()));
+		invokeOnClient2("after oversized request");
+	}
+
+	private RpcClientTransportProvider createDirectRpcClientTransportProvider(final int port) throws Exception {
+		final HttpRpcClientTransportProvider rpcClientTransportProvider = new HttpRpcClientTransportProvider();
+		rpcClientTransportProvider.setServerUrl(new URL("http", "127.0.0.1", port, "/"));
+		return rpcClientTransportProvider;
+	}
+
+	private void invokeOnClient2(final String payload) throws Exception {
+		final EchoRequest echoRequest = new EchoRequest();
+		echoRequest.setServerHostId(clientRpcContext2.getLocalHostId());
+		echoRequest.setPayload(payload);
+		final EchoResponse echoResponse = clientRpcContext1.getRpcClient().invoke(echoRequest);
+		assertThat(echoResponse.getPayload()).isEqualTo(payload);
+	}
+}
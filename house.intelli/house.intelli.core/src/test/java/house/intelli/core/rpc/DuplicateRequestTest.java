@@ -0,0 +1,197 @@
+package house.intelli.core.rpc;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.bind.annotation.XmlRootElement;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import house.intelli.core.Uid;
+import house.intelli.core.service.AbstractServiceRegistryDelegate;
+import house.intelli.core.service.ServiceRegistry;
+
+public class DuplicateRequestTest extends AbstractRpcTest {
+	private static final Logger logger = LoggerFactory.getLogger(DuplicateRequestTest.class);
+
+	private static final int DUPLICATE_COUNT = 20;
+
+	private static final long INSERT_DURATION = 200L;
+
+	private static final AtomicInteger insertCount = new AtomicInteger();
+
+	private RpcContext rpcContext;
+
+	private final HostId clientHostId = new HostId("client-" + new Uid());
+
+	@SuppressWarnings("rawtypes")
+	private final ServiceRegistry<RpcService> serviceRegistry = ServiceRegistry.getInstance(RpcService.class);
+
+	private final InsertRpcServiceDelegate delegate = new InsertRpcServiceDelegate();
+
+	/**
+	 * Simulates an expensive, non-idempotent request -- like inserting a batch of PV-values.
+	 */
+	@XmlRootElement
+	public static class InsertRequest extends Request<InsertResponse> {
+	}
+
+	@XmlRootElement
+	public static class InsertResponse extends Response {
+		private int insertNumber;
+
+		public int getInsertNumber() {
+			return insertNumber;
+		}
+		public void setInsertNumber(int insertNumber) {
+			this.insertNumber = insertNumber;
+		}
+	}
+
+	public static class InsertRpcService extends AbstractRpcService<InsertRequest, InsertResponse> {
+		@Override
+		public InsertResponse process(InsertRequest request) throws Exception {
+			final int insertNumber = insertCount.incrementAndGet();
+			Thread.sleep(INSERT_DURATION);
+			final InsertResponse response = new InsertResponse();
+			response.setInsertNumber(insertNumber);
+			return response;
+		}
+	}
+
+	@SuppressWarnings("rawtypes")
+	private static class InsertRpcServiceDelegate extends AbstractServiceRegistryDelegate<RpcService> {
+		@Override
+		public List<RpcService> getServices() {
+			return Collections.singletonList(new InsertRpcService());
+		}
+	}
+
+	@Before
+	public void before() throws Exception {
+		insertCount.set(0);
+		serviceRegistry.addDelegate(delegate);
+		rpcContext = new RpcContext(RpcContextMode.SERVER, new HostId("server-" + new Uid()));
+	}
+
+	@After
+	public void after() throws Exception {
+		serviceRegistry.removeDelegate(delegate);
+
+		if (rpcContext != null)
+			rpcContext.close();
+	}
+
+	/**
+	 * A client re-sends its request many times -- all copies arriving while the original is still being
+	 * processed. They all obtain the original's response and the service is invoked only once.
+	 */
+	@Test
+	public void duplicatesRacingWithOriginalAreProcessedOnce() throws Exception {
+		final RpcServiceExecutor rpcServiceExecutor = rpcContext.getRpcServiceExecutor();
+		final Uid requestId = new Uid();
+		final CountDownLatch startLatch = new CountDownLatch(1);
+		final ExecutorService executorService = Executors.newFixedThreadPool(DUPLICATE_COUNT);
+		try {
+			final List<Future<Response>> futures = new ArrayList<>();
+			for (int i = 0; i < DUPLICATE_COUNT; ++i) {
+				futures.add(executorService.submit(() -> {
+					startLatch.await();
+					// Every copy is a distinct object -- just like deserialized from a distinct HTTP request.
+					final InsertRequest request = createInsertRequest(requestId);
+					rpcServiceExecutor.putRequest(request);
+					return rpcServiceExecutor.pollResponse(requestId, INSERT_DURATION * 20);
+				}));
+			}
+			startLatch.countDown();
+
+			for (final Future<Response> future : futures) {
+				final Response response = future.get();
+				assertThat(response).isInstanceOf(InsertResponse.class);
+				assertThat(((InsertResponse) response).getInsertNumber()).isEqualTo(1);
+			}
+		} finally {
+			executorService.shutdownNow();
+		}
+		logger.info("duplicatesRacingWithOriginalAreProcessedOnce: duplicateCount={}, insertCount={}, cachedResponseCount={}",
+				DUPLICATE_COUNT, insertCount.get(), rpcServiceExecutor.getCachedResponseCount());
+
+		assertThat(insertCount.get()).isEqualTo(1);
+		assertThat(rpcServiceExecutor.getPendingRequestCount()).isEqualTo(0);
+	}
+
+	/**
+	 * The response was already picked up by an exchange which never reached the client. Neither re-sending the
+	 * request nor polling the response (like a {@link DeferredResponseRequest} does) processes it again.
+	 */
+	@Test
+	public void duplicateAfterResponseWasPickedUpIsServedFromCache() throws Exception {
+		final RpcServiceExecutor rpcServiceExecutor = rpcContext.getRpcServiceExecutor();
+		final Uid requestId = new Uid();
+		rpcServiceExecutor.putRequest(createInsertRequest(requestId));
+		final Response lostResponse = rpcServiceExecutor.pollResponse(requestId, INSERT_DURATION * 20);
+		assertThat(lostResponse).isInstanceOf(InsertResponse.class);
+		assertThat(rpcServiceExecutor.getPendingRequestCount()).isEqualTo(0);
+
+		final Response polledResponse = rpcServiceExecutor.pollResponse(requestId, 0);
+		assertThat(polledResponse).isSameAs(lostResponse);
+
+		final long resendStart = System.currentTimeMillis();
+		rpcServiceExecutor.putRequest(createInsertRequest(requestId));
+		final Response resentResponse = rpcServiceExecutor.pollResponse(requestId, INSERT_DURATION * 20);
+		assertThat(System.currentTimeMillis() - resendStart).isLessThan(INSERT_DURATION);
+		assertThat(((InsertResponse) resentResponse).getInsertNumber()).isEqualTo(1);
+		assertThat(insertCount.get()).isEqualTo(1);
+
+		// Another client must not obtain the response.
+		final InsertRequest foreignRequest = createInsertRequest(requestId);
+		foreignRequest.setClientHostId(new HostId("other-client-" + new Uid()));
+		assertThatThrownBy(() -> rpcServiceExecutor.putRequest(foreignRequest)).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	public void cacheIsBoundedAndTimeLimited() throws Exception {
+		final long timeToLive = 200L;
+		final ResponseCache responseCache = new ResponseCache(3, timeToLive);
+		final List<Response> responses = new ArrayList<>();
+		for (int i = 0; i < 5; ++i) {
+			final Response response = new NullResponse();
+			response.setRequestId(new Uid());
+			responses.add(response);
+			responseCache.put(response);
+		}
+		assertThat(responseCache.size()).isEqualTo(3);
+		assertThat(responseCache.get(responses.get(0).getRequestId())).isNull();
+		assertThat(responseCache.get(responses.get(4).getRequestId())).isSameAs(responses.get(4));
+
+		Thread.sleep(timeToLive + 50);
+		assertThat(responseCache.get(responses.get(4).getRequestId())).isNull();
+
+		final ErrorResponse rejected = new ErrorResponse(RemoteExceptionUtil.createError(new RequestRejectedException()));
+		assertThat(ResponseCache.isCacheable(rejected)).isFalse();
+		assertThat(ResponseCache.isCacheable(responses.get(0))).isTrue();
+	}
+
+	private InsertRequest createInsertRequest(final Uid requestId) {
+		final InsertRequest request = new InsertRequest();
+		request.setRequestId(requestId);
+		request.setClientHostId(clientHostId);
+		request.setServerHostId(rpcContext.getLocalHostId());
+		request.setCreated(new Date());
+		request.setTimeout(INSERT_DURATION * 50);
+		return request;
+	}
+}
@@ -1,22 +1,43 @@
 package house.intelli.core.rpc;
 
+import static org.assertj.core.api.Assertions.*;
+
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.net.httpserver.HttpServer;
 
 import house.intelli.core.Uid;
 
 public class HttpRpcClientTransportTest {
+	private static final Logger logger = LoggerFactory.getLogger(HttpRpcClientTransportTest.class);
+
+	private static final int LOOPBACK_MESSAGE_COUNT = 500;
 
 	private RpcContext rpcContext;
 
@@ -76,4 +97,151 @@ public class HttpRpcClientTransportTest {
 		}
 	}
 
+	/**
+	 * Sends many messages over loopback and compares the number of sockets used (and the throughput)
+	 * with the old implementation, which disconnected after every message.
+	 * <p>
+	 * The server sends chunked responses, and the client reads only the message itself -- but not the
+	 * terminating chunk. This is how the JAXB-unmarshaller behaves and it is the situation in which the
+	 * old implementation lost the socket.
+	 */
+	@Test
+	public void loopbackKeepAlive() throws Exception {
+		// The JRE's HttpServer otherwise suffers from Nagle's algorithm and delayed ACKs (about 40 ms per exchange).
+		System.setProperty("sun.net.httpserver.nodelay", "true");
+
+		final Set<InetSocketAddress> remoteAddresses = ConcurrentHashMap.newKeySet();
+		final HttpServer httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		httpServer.createContext("/", exchange -> {
+			remoteAddresses.add(exchange.getRemoteAddress());
+			final ByteArrayOutputStream body = new ByteArrayOutputStream();
+			try (InputStream in = exchange.getRequestBody()) {
+				final byte[] buf = new byte[1024];
+				int bytesRead;
+				while ((bytesRead = in.read(buf)) >= 0)
+					body.write(buf, 0, bytesRead);
+			}
+			exchange.sendResponseHeaders(200, 0); // chunked
+			try (OutputStream out = exchange.getResponseBody()) {
+				body.writeTo(out);
+			}
+		});
+		httpServer.start();
+		try {
+			final URL serverUrl = new URL("http", "127.0.0.1", httpServer.getAddress().getPort(), "/");
+
+			sendLoopbackMessages(new OldHttpRpcClientTransport(), serverUrl); // warm-up
+			sendLoopbackMessages(new HttpRpcClientTransport(), serverUrl); // warm-up
+			remoteAddresses.clear();
+
+			final long oldDuration = sendLoopbackMessages(new OldHttpRpcClientTransport(), serverUrl);
+			final int oldSocketCount = remoteAddresses.size();
+			remoteAddresses.clear();
+
+			final long keepAliveDuration = sendLoopbackMessages(new HttpRpcClientTransport(), serverUrl);
+			final int keepAliveSocketCount = remoteAddresses.size();
+
+			logger.info("loopbackKeepAlive: old: sockets={}, requestsPerSecond={}",
+					oldSocketCount, LOOPBACK_MESSAGE_COUNT * 1000L / Math.max(1, oldDuration));
+			logger.info("loopbackKeepAlive: keepAlive: sockets={}, requestsPerSecond={}",
+					keepAliveSocketCount, LOOPBACK_MESSAGE_COUNT * 1000L / Math.max(1, keepAliveDuration));
+
+			assertThat(keepAliveSocketCount).isLessThanOrEqualTo(2);
+			assertThat(oldSocketCount).isGreaterThan(keepAliveSocketCount);
+		} finally {
+			httpServer.stop(0);
+		}
+	}
+
+	/**
+	 * A small request is sent with a Content-Length (and can thus be re-sent transparently), a large one is
+	 * streamed in chunks. Both must arrive intact.
+	 */
+	@Test
+	public void loopbackLargeRequestIsStreamedInChunks() throws Exception {
+		final List<String> transferEncodings = Collections.synchronizedList(new ArrayList<>());
+		final HttpServer httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		httpServer.createContext("/", exchange -> {
+			transferEncodings.add(String.valueOf(exchange.getRequestHeaders().getFirst("Transfer-Encoding")));
+			final ByteArrayOutputStream body = new ByteArrayOutputStream();
+			try (InputStream in = exchange.getRequestBody()) {
+				final byte[] buf = new byte[1024];
+				int bytesRead;
+				while ((bytesRead = in.read(buf)) >= 0)
+					body.write(buf, 0, bytesRead);
+			}
+			exchange.sendResponseHeaders(200, 0); // chunked
+			try (OutputStream out = exchange.getResponseBody()) {
+				body.writeTo(out);
+			}
+		});
+		httpServer.start();
+		try (HttpRpcClientTransport transport = new HttpRpcClientTransport()) {
+			transport.setRpcContext(rpcContext);
+			transport.setServerUrl(new URL("http", "127.0.0.1", httpServer.getAddress().getPort(), "/"));
+
+			final Random random = new Random();
+			final int[] messageLengths = { 100, RpcConst.HTTP_STREAMING_THRESHOLD, RpcConst.HTTP_STREAMING_THRESHOLD + 1, 1024 * 1024 };
+			for (final int messageLength : messageLengths) {
+				final byte[] message = new byte[messageLength];
+				random.nextBytes(message);
+				try (OutputStream out = transport.createRequestOutputStream()) {
+					// writing in pieces, like an encoder does
+					for (int off = 0; off < message.length; off += 1000)
+						out.write(message, off, Math.min(1000, message.length - off));
+				}
+				try (InputStream in = transport.createResponseInputStream()) {
+					final byte[] received = new byte[message.length];
+					new DataInputStream(in).readFully(received);
+					assertThat(received).isEqualTo(message);
+				}
+			}
+		} finally {
+			httpServer.stop(0);
+		}
+		logger.info("loopbackLargeRequestIsStreamedInChunks: transferEncodings={}", transferEncodings);
+		assertThat(transferEncodings).containsExactly("null", "null", "chunked", "chunked");
+	}
+
+	private long sendLoopbackMessages(final HttpRpcClientTransport transport, final URL serverUrl) throws Exception {
+		final long startTimestamp = System.currentTimeMillis();
+		try {
+			transport.setRpcContext(rpcContext);
+			transport.setServerUrl(serverUrl);
+			for (int i = 0; i < LOOPBACK_MESSAGE_COUNT; ++i) {
+				final byte[] message = new Uid().toString().getBytes(StandardCharsets.UTF_8);
+				try (OutputStream out = transport.createRequestOutputStream()) {
+					out.write(message);
+				}
+				try (InputStream in = transport.createResponseInputStream()) {
+					final byte[] received = new byte[message.length];
+					new DataInputStream(in).readFully(received);
+					assertThat(received).isEqualTo(message);
+				}
+			}
+		} finally {
+			transport.close();
+		}
+		return System.currentTimeMillis() - startTimestamp;
+	}
+
+	/**
+	 * Behaves like the {@link HttpRpcClientTransport} before sockets were re-used.
+	 */
+	private static class OldHttpRpcClientTransport extends HttpRpcClientTransport {
+		@Override
+		protected InputStream createResponseInputStream() throws IOException {
+			final InputStream in = getConnection().getInputStream();
+			return new FilterInputStream(in) {
+				@Override
+				public void close() throws IOException {
+					try {
+						super.close();
+					} finally {
+						disconnect();
+					}
+				}
+			};
+		}
+	}
 }
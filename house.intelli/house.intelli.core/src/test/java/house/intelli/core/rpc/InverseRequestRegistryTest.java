@@ -0,0 +1,179 @@
+package house.intelli.core.rpc;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import house.intelli.core.Uid;
+import house.intelli.core.rpc.echo.EchoRequest;
+
+public class InverseRequestRegistryTest extends AbstractRpcTest {
+	private static final Logger logger = LoggerFactory.getLogger(InverseRequestRegistryTest.class);
+
+	private static final int IDLE_HOST_COUNT = 20;
+
+	private static final int BUSY_HOST_REQUEST_COUNT = 20000;
+
+	private static final long IDLE_POLL_TIMEOUT = 60000L;
+
+	private RpcContext rpcContext;
+
+	@Before
+	public void before() throws Exception {
+		rpcContext = new RpcContext(RpcContextMode.SERVER, new HostId("server-" + new Uid()));
+	}
+
+	@After
+	public void after() throws Exception {
+		if (rpcContext != null)
+			rpcContext.close();
+	}
+
+	@Test
+	public void requestsAreDeliveredInOrderAndNewOnesRejectedIfFull() throws Exception {
+		rpcContext.setInverseRequestQueueCapacity(3);
+		final InverseRequestRegistry inverseRequestRegistry = rpcContext.getInverseRequestRegistry();
+		final HostId clientHostId = new HostId("client-" + new Uid());
+
+		final List<Request<?>> requests = new ArrayList<>();
+		for (int i = 0; i < 3; ++i) {
+			requests.add(createEchoRequest(clientHostId));
+			inverseRequestRegistry.putRequest(requests.get(i));
+		}
+		assertThatThrownBy(() -> inverseRequestRegistry.putRequest(createEchoRequest(clientHostId)))
+				.isInstanceOf(RequestRejectedException.class);
+
+		// Another host is not affected.
+		inverseRequestRegistry.putRequest(createEchoRequest(new HostId("other-client-" + new Uid())));
+
+		final List<Request<?>> polled = inverseRequestRegistry.pollRequests(clientHostId, 0);
+		assertThat(polled).containsExactlyElementsOf(requests);
+		assertThat(inverseRequestRegistry.getRequestCount(clientHostId)).isEqualTo(0);
+
+		// Requests which could not be delivered are put back before newer ones.
+		final EchoRequest newerRequest = createEchoRequest(clientHostId);
+		inverseRequestRegistry.putRequest(newerRequest);
+		inverseRequestRegistry.putRequestsBack(polled);
+		assertThat(inverseRequestRegistry.pollRequests(clientHostId, 0))
+				.containsExactly(requests.get(0), requests.get(1), requests.get(2), newerRequest);
+	}
+
+	@Test
+	public void oldestRequestIsDroppedAndAnsweredIfFull() throws Exception {
+		rpcContext.setInverseRequestQueueCapacity(2);
+		rpcContext.setInverseRequestOverflowPolicy(InverseRequestOverflowPolicy.DROP_OLDEST);
+		final RpcServiceExecutor rpcServiceExecutor = rpcContext.getRpcServiceExecutor();
+		final HostId clientHostId = new HostId("client-" + new Uid());
+
+		final List<EchoRequest> requests = new ArrayList<>();
+		for (int i = 0; i < 3; ++i) {
+			requests.add(createEchoRequest(clientHostId));
+			rpcServiceExecutor.putRequest(requests.get(i));
+		}
+
+		final Response droppedResponse = rpcServiceExecutor.pollResponse(requests.get(0).getRequestId(), 0);
+		assertThat(droppedResponse).isInstanceOf(ErrorResponse.class);
+		assertThat(((ErrorResponse) droppedResponse).getError().getClassName()).isEqualTo(RequestRejectedException.class.getName());
+
+		assertThat(rpcContext.getInverseRequestRegistry().pollRequests(clientHostId, 0))
+				.containsExactly(requests.get(1), requests.get(2));
+	}
+
+	/**
+	 * Many hosts wait for inverse requests, while one host receives a flood of them. The waiting hosts must
+	 * not be woken up by this traffic -- like they were, when all hosts shared one monitor.
+	 */
+	@Test
+	public void waitersAreNotWokenByOtherHostsTraffic() throws Exception {
+		final InverseRequestRegistry inverseRequestRegistry = rpcContext.getInverseRequestRegistry();
+		final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+		final List<HostId> idleHostIds = new ArrayList<>();
+		final List<Thread> idleWaiters = new ArrayList<>();
+		final AtomicInteger idleWaiterResultCount = new AtomicInteger();
+		for (int i = 0; i < IDLE_HOST_COUNT; ++i) {
+			final HostId idleHostId = new HostId("idle-" + i + '-' + new Uid());
+			idleHostIds.add(idleHostId);
+			final Thread thread = new Thread(() -> {
+				idleWaiterResultCount.addAndGet(inverseRequestRegistry.pollRequests(idleHostId, IDLE_POLL_TIMEOUT).size());
+			}, "idleWaiter-" + i);
+			thread.start();
+			idleWaiters.add(thread);
+		}
+		for (final Thread thread : idleWaiters) {
+			while (thread.getState() != Thread.State.TIMED_WAITING)
+				Thread.sleep(1);
+		}
+		final long[] idleWaiterThreadIds = idleWaiters.stream().mapToLong(Thread::getId).toArray();
+		final long[] waitedCountsBefore = getWaitedCounts(threadMXBean, idleWaiterThreadIds);
+
+		final HostId busyHostId = new HostId("busy-" + new Uid());
+		final AtomicInteger busyHostPolledCount = new AtomicInteger();
+		final Thread busyPoller = new Thread(() -> {
+			while (busyHostPolledCount.get() < BUSY_HOST_REQUEST_COUNT)
+				busyHostPolledCount.addAndGet(inverseRequestRegistry.pollRequests(busyHostId, 1000).size());
+		}, "busyPoller");
+		busyPoller.start();
+
+		final long startTimestamp = System.currentTimeMillis();
+		for (int i = 0; i < BUSY_HOST_REQUEST_COUNT; ++i) {
+			final EchoRequest request = createEchoRequest(busyHostId);
+			request.setTimeout(RpcConst.DEFAULT_REQUEST_TIMEOUT);
+			// Keeping the queue below its capacity -- only the wake-ups are measured here.
+			while (inverseRequestRegistry.getRequestCount(busyHostId) >= RpcConst.DEFAULT_INVERSE_REQUEST_QUEUE_CAPACITY)
+				Thread.yield();
+
+			inverseRequestRegistry.putRequest(request);
+		}
+		busyPoller.join(30000);
+		final long duration = System.currentTimeMillis() - startTimestamp;
+
+		final long[] waitedCountsAfter = getWaitedCounts(threadMXBean, idleWaiterThreadIds);
+		long maxIdleWakeUpCount = 0;
+		for (int i = 0; i < idleWaiterThreadIds.length; ++i)
+			maxIdleWakeUpCount = Math.max(maxIdleWakeUpCount, waitedCountsAfter[i] - waitedCountsBefore[i]);
+
+		for (final HostId idleHostId : idleHostIds)
+			inverseRequestRegistry.putRequest(createEchoRequest(idleHostId));
+
+		for (final Thread thread : idleWaiters)
+			thread.join(10000);
+
+		logger.info("waitersAreNotWokenByOtherHostsTraffic: idleHostCount={}, busyHostRequestCount={}, busyHostPolledCount={}, duration={} ms, maxIdleWakeUpCount={}",
+				IDLE_HOST_COUNT, BUSY_HOST_REQUEST_COUNT, busyHostPolledCount.get(), duration, maxIdleWakeUpCount);
+
+		assertThat(busyHostPolledCount.get()).isEqualTo(BUSY_HOST_REQUEST_COUNT);
+		assertThat(maxIdleWakeUpCount).isEqualTo(0);
+		assertThat(idleWaiterResultCount.get()).isEqualTo(IDLE_HOST_COUNT);
+		assertThat(inverseRequestRegistry.getRequestCount()).isEqualTo(0);
+	}
+
+	private static long[] getWaitedCounts(final ThreadMXBean threadMXBean, final long[] threadIds) {
+		final ThreadInfo[] threadInfos = threadMXBean.getThreadInfo(threadIds);
+		return Arrays.stream(threadInfos).mapToLong(ThreadInfo::getWaitedCount).toArray();
+	}
+
+	private EchoRequest createEchoRequest(final HostId serverHostId) {
+		final EchoRequest request = new EchoRequest();
+		request.setRequestId(new Uid());
+		request.setClientHostId(rpcContext.getLocalHostId());
+		request.setServerHostId(serverHostId);
+		request.setCreated(new Date());
+		request.setTimeout(IDLE_POLL_TIMEOUT);
+		request.setPayload("inverse");
+		return request;
+	}
+}
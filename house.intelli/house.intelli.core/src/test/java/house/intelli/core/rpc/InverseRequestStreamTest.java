@@ -0,0 +1,187 @@
+package house.intelli.core.rpc;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.net.httpserver.HttpServer;
+
+import house.intelli.core.Uid;
+import house.intelli.core.rpc.codec.RpcMessageCodecUtil;
+import house.intelli.core.rpc.echo.EchoRequest;
+import house.intelli.core.rpc.echo.EchoResponse;
+
+/**
+ * Invokes bursts of inverse requests with streamed and with polled inverse requests over a
+ * loopback-HTTP-connection.
+ */
+public class InverseRequestStreamTest extends AbstractRpcTest {
+	private static final Logger logger = LoggerFactory.getLogger(InverseRequestStreamTest.class);
+
+	private static final int BURST_COUNT = 10;
+
+	private static final int BURST_SIZE = 5;
+
+	private static final long BURST_INTERVAL = 10L;
+
+	private static final long CLOSE_TIMEOUT = 10000L;
+
+	private HostId clientHostId;
+
+	private RpcContext clientRpcContext;
+
+	private RpcContext serverRpcContext;
+
+	private HttpServer httpServer;
+
+	@Before
+	public void before() throws Exception {
+		System.setProperty("sun.net.httpserver.nodelay", "true");
+
+		serverRpcContext = new RpcContext(RpcContextMode.SERVER, new HostId("server-" + new Uid()));
+
+		httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		httpServer.setExecutor(Executors.newCachedThreadPool()); // a stream occupies its thread
+		httpServer.createContext("/", exchange -> {
+			try {
+				final ByteArrayOutputStream requestBody = new ByteArrayOutputStream();
+				try (InputStream in = exchange.getRequestBody()) {
+					final byte[] buf = new byte[1024];
+					int bytesRead;
+					while ((bytesRead = in.read(buf)) >= 0)
+						requestBody.write(buf, 0, bytesRead);
+				}
+				// Like the RpcServlet.
+				exchange.getResponseHeaders().set(RpcMessageCodecUtil.HTTP_HEADER_CODECS, RpcMessageCodecUtil.getCodecOffer());
+				exchange.sendResponseHeaders(200, 0); // chunked
+
+				final HttpRpcServerTransport transport = new HttpRpcServerTransport();
+				transport.setRpcContext(serverRpcContext);
+				transport.setInputStream(new ByteArrayInputStream(requestBody.toByteArray()));
+				transport.setOutputStream(exchange.getResponseBody());
+				transport.setResponseCodec(RpcMessageCodecUtil.negotiateCodec(
+						exchange.getRequestHeaders().getFirst(RpcMessageCodecUtil.HTTP_HEADER_CODECS)));
+				try (RpcServer rpcServer = serverRpcContext.createRpcServer()) {
+					rpcServer.receiveAndProcessRequest(transport);
+				}
+			} catch (Exception x) {
+				logger.debug("handle: " + x + ' ', x);
+			} finally {
+				exchange.close();
+			}
+		});
+		httpServer.start();
+	}
+
+	@After
+	public void after() throws Exception {
+		if (clientRpcContext != null)
+			clientRpcContext.close();
+
+		if (serverRpcContext != null)
+			serverRpcContext.close();
+
+		if (httpServer != null)
+			httpServer.stop(0);
+	}
+
+	@Test
+	public void polledInverseRequests() throws Exception {
+		startClient(false);
+		invokeBursts();
+	}
+
+	@Test
+	public void streamedInverseRequests() throws Exception {
+		startClient(true);
+		invokeBursts();
+	}
+
+	/**
+	 * Closing the client's RpcContext must end its stream of inverse requests promptly -- not only after
+	 * {@link RpcConst#INVERSE_REQUEST_STREAM_TIMEOUT}.
+	 */
+	@Test
+	public void closeDuringOpenStream() throws Exception {
+		startClient(true);
+		final Thread pollInverseRequestsThread = getPollInverseRequestsThread();
+		final InverseRequestRegistry inverseRequestRegistry = serverRpcContext.getInverseRequestRegistry();
+		while (inverseRequestRegistry.getWaiterCount() == 0) // the stream is parked on the server
+			Thread.sleep(10);
+
+		clientRpcContext.close();
+		pollInverseRequestsThread.join(CLOSE_TIMEOUT);
+		assertThat(pollInverseRequestsThread.isAlive()).isFalse();
+	}
+
+	private Thread getPollInverseRequestsThread() {
+		final String threadName = PollInverseRequestsThread.class.getSimpleName() + '-' + clientHostId;
+		for (final Thread thread : Thread.getAllStackTraces().keySet()) {
+			if (thread instanceof PollInverseRequestsThread && threadName.equals(thread.getName()))
+				return thread;
+		}
+		throw new IllegalStateException("Thread not found: " + threadName);
+	}
+
+	private void startClient(final boolean inverseRequestStreamEnabled) throws Exception {
+		clientHostId = new HostId("client-" + new Uid());
+		clientRpcContext = new RpcContext(RpcContextMode.CLIENT, clientHostId);
+		clientRpcContext.setInverseRequestStreamEnabled(inverseRequestStreamEnabled);
+		final HttpRpcClientTransportProvider rpcClientTransportProvider = new HttpRpcClientTransportProvider();
+		rpcClientTransportProvider.setServerUrl(new URL("http", "127.0.0.1", httpServer.getAddress().getPort(), "/"));
+		clientRpcContext.setRpcClientTransportProvider(rpcClientTransportProvider);
+
+		invokeOnClient("warm-up");
+	}
+
+	/**
+	 * Invokes multiple bursts of inverse requests. Within each burst, the requests are started shortly
+	 * one after the other -- like e.g. a light-scene switching multiple dimmers.
+	 */
+	private void invokeBursts() throws Exception {
+		final ExecutorService executorService = Executors.newFixedThreadPool(BURST_SIZE);
+		try {
+			for (int burst = 0; burst < BURST_COUNT; ++burst) {
+				final List<Future<?>> futures = new ArrayList<>();
+				for (int i = 0; i < BURST_SIZE; ++i) {
+					final long delay = i * BURST_INTERVAL;
+					futures.add(executorService.submit(() -> {
+						Thread.sleep(delay);
+						invokeOnClient(new Uid().toString());
+						return null;
+					}));
+				}
+				for (final Future<?> future : futures)
+					future.get();
+
+				Thread.sleep(random.nextInt(100));
+			}
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+
+	private void invokeOnClient(final String payload) throws Exception {
+		final EchoRequest echoRequest = new EchoRequest();
+		echoRequest.setServerHostId(clientHostId);
+		echoRequest.setPayload(payload);
+		final EchoResponse echoResponse = serverRpcContext.getRpcClient().invoke(echoRequest);
+		assertThat(echoResponse.getPayload()).isEqualTo(payload);
+	}
+}
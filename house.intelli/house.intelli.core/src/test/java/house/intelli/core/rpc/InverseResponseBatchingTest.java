@@ -0,0 +1,133 @@
+package house.intelli.core.rpc;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import house.intelli.core.Uid;
+import house.intelli.core.rpc.echo.EchoRequest;
+import house.intelli.core.rpc.echo.EchoResponse;
+import house.intelli.core.rpc.mocktransport.MockRpcClientTransport;
+import house.intelli.core.rpc.mocktransport.MockRpcClientTransportProvider;
+
+public class InverseResponseBatchingTest extends AbstractRpcTest {
+	private static final Logger logger = LoggerFactory.getLogger(InverseResponseBatchingTest.class);
+
+	/**
+	 * Simulated latency of every exchange -- e.g. the network and the encryption on a Raspberry Pi.
+	 */
+	private static final long EXCHANGE_LATENCY = 20L;
+
+	private static final int INVOCATION_COUNT = 100;
+
+	private HostId clientHostId;
+
+	private RpcContext clientRpcContext;
+
+	private RpcContext serverRpcContext;
+
+	private final AtomicInteger putInverseResponseRequestCount = new AtomicInteger();
+
+	private final AtomicInteger inverseResponseCount = new AtomicInteger();
+
+	private final AtomicInteger failureCount = new AtomicInteger();
+
+	@Before
+	public void before() throws Exception {
+		clientHostId = new HostId("client-" + new Uid());
+
+		clientRpcContext = new RpcContext(RpcContextMode.CLIENT, clientHostId);
+		serverRpcContext = new RpcContext(RpcContextMode.SERVER, new HostId("server-" + new Uid()));
+
+		MockRpcClientTransportProvider rpcClientTransportProvider = new MockRpcClientTransportProvider() {
+			@Override
+			public RpcClientTransport _createRpcClientTransport() {
+				MockRpcClientTransport rpcClientTransport = new MockRpcClientTransport() {
+					@Override
+					public void sendRequest(Request request) throws IOException {
+						if (request instanceof PutInverseResponseRequest) {
+							final PutInverseResponseRequest pirRequest = (PutInverseResponseRequest) request;
+							if (failureCount.getAndDecrement() > 0)
+								throw new IOException("Simulated transport failure!");
+
+							putInverseResponseRequestCount.incrementAndGet();
+							inverseResponseCount.addAndGet(pirRequest.getInverseResponses().size() + (pirRequest.getInverseResponse() == null ? 0 : 1));
+						}
+						try {
+							Thread.sleep(EXCHANGE_LATENCY);
+						} catch (InterruptedException e) {
+							throw new IOException(e);
+						}
+						super.sendRequest(request);
+					}
+				};
+				rpcClientTransport.setServerRpcContext(getServerRpcContext());
+				return rpcClientTransport;
+			}
+		};
+		rpcClientTransportProvider.setServerRpcContext(serverRpcContext);
+		clientRpcContext.setRpcClientTransportProvider(rpcClientTransportProvider);
+	}
+
+	@After
+	public void after() throws Exception {
+		if (clientRpcContext != null)
+			clientRpcContext.close();
+
+		if (serverRpcContext != null)
+			serverRpcContext.close();
+	}
+
+	@Test
+	public void concurrentInverseResponsesAreCoalesced() throws Exception {
+		invokeConcurrently();
+
+		logger.info("concurrentInverseResponsesAreCoalesced: invocations={}, putInverseResponseRequests={}",
+				INVOCATION_COUNT, putInverseResponseRequestCount.get());
+
+		assertThat(inverseResponseCount.get()).isEqualTo(INVOCATION_COUNT);
+		assertThat(putInverseResponseRequestCount.get()).isLessThanOrEqualTo(INVOCATION_COUNT / 5);
+	}
+
+	@Test
+	public void failedDeliveryIsRetried() throws Exception {
+		failureCount.set(6); // more than the RpcClient retries by itself
+		invokeConcurrently();
+
+		assertThat(inverseResponseCount.get()).isEqualTo(INVOCATION_COUNT);
+	}
+
+	private void invokeConcurrently() throws Exception {
+		final ExecutorService executorService = Executors.newFixedThreadPool(INVOCATION_COUNT);
+		try {
+			final List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < INVOCATION_COUNT; ++i) {
+				futures.add(executorService.submit(() -> {
+					final String payload = new Uid().toString();
+					final EchoRequest echoRequest = new EchoRequest();
+					echoRequest.setServerHostId(clientHostId);
+					echoRequest.setPayload(payload);
+					final EchoResponse echoResponse = serverRpcContext.getRpcClient().invoke(echoRequest);
+					assertThat(echoResponse.getPayload()).isEqualTo(payload);
+					return null;
+				}));
+			}
+			for (final Future<?> future : futures)
+				future.get();
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+}
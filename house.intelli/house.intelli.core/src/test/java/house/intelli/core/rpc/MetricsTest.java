@@ -0,0 +1,149 @@
+package house.intelli.core.rpc;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import house.intelli.core.Uid;
+import house.intelli.core.metrics.Counter;
+import house.intelli.core.metrics.LatencyHistogram;
+import house.intelli.core.metrics.LatencyHistogramsByType;
+import house.intelli.core.metrics.MetricRegistry;
+import house.intelli.core.metrics.MetricType;
+import house.intelli.core.metrics.MetricValue;
+import house.intelli.core.rpc.echo.EchoRequest;
+import house.intelli.core.rpc.echo.EchoResponse;
+import house.intelli.core.rpc.metrics.MetricsRequest;
+import house.intelli.core.rpc.metrics.MetricsResponse;
+import house.intelli.core.rpc.mocktransport.MockRpcClientTransportProvider;
+
+public class MetricsTest extends AbstractRpcTest {
+	private static final Logger logger = LoggerFactory.getLogger(MetricsTest.class);
+
+	private static final int RECORD_COUNT = 1_000_000;
+
+	private RpcContext clientRpcContext;
+
+	private RpcContext serverRpcContext;
+
+	@Before
+	public void before() throws Exception {
+		clientRpcContext = new RpcContext(RpcContextMode.CLIENT, new HostId("client-" + new Uid()));
+		serverRpcContext = new RpcContext(RpcContextMode.SERVER, new HostId("server-" + new Uid()));
+
+		MockRpcClientTransportProvider rpcClientTransportProvider = new MockRpcClientTransportProvider();
+		rpcClientTransportProvider.setServerRpcContext(serverRpcContext);
+		clientRpcContext.setRpcClientTransportProvider(rpcClientTransportProvider);
+	}
+
+	@After
+	public void after() throws Exception {
+		if (clientRpcContext != null)
+			clientRpcContext.close();
+
+		if (serverRpcContext != null)
+			serverRpcContext.close();
+	}
+
+	@Test
+	public void metricsAreQueriedRemotely() throws Exception {
+		final int invocationCount = 10;
+		for (int i = 0; i < invocationCount; ++i) {
+			final EchoRequest echoRequest = new EchoRequest();
+			echoRequest.setServerHostId(HostId.SERVER);
+			echoRequest.setPayload("metrics-" + i);
+			final EchoResponse echoResponse = clientRpcContext.getRpcClient().invoke(echoRequest);
+			assertThat(echoResponse.getPayload()).isEqualTo(echoRequest.getPayload());
+		}
+
+		final Map<String, MetricValue> clientMetricValues = toMap(clientRpcContext.getMetricRegistry().getMetricValues("rpcClient."));
+		final MetricValue clientInvoke = clientMetricValues.get("rpcClient.invoke[EchoRequest]");
+		assertThat(clientInvoke).isNotNull();
+		assertThat(clientInvoke.getType()).isEqualTo(MetricType.HISTOGRAM);
+		assertThat(clientInvoke.getValue()).isEqualTo(invocationCount);
+		assertThat(clientMetricValues.get("rpcClient.failed").getValue()).isEqualTo(0);
+
+		final MetricsRequest metricsRequest = new MetricsRequest();
+		metricsRequest.setServerHostId(HostId.SERVER);
+		metricsRequest.setNamePrefix("rpcServiceExecutor.");
+		final MetricsResponse metricsResponse = clientRpcContext.getRpcClient().invoke(metricsRequest);
+		logger.info("metricsAreQueriedRemotely: {}", metricsResponse.getMetricValues());
+
+		final Map<String, MetricValue> serverMetricValues = toMap(metricsResponse.getMetricValues());
+		for (final String name : serverMetricValues.keySet())
+			assertThat(name).startsWith("rpcServiceExecutor.");
+
+		assertThat(serverMetricValues.get("rpcServiceExecutor.process[EchoRequest]").getValue()).isEqualTo(invocationCount);
+		assertThat(serverMetricValues.get("rpcServiceExecutor.rejected").getValue()).isEqualTo(0);
+		assertThat(serverMetricValues.get("rpcServiceExecutor.pendingRequests").getType()).isEqualTo(MetricType.GAUGE);
+	}
+
+	@Test
+	public void percentilesAreApproximatedByBuckets() throws Exception {
+		final LatencyHistogram latencyHistogram = new MetricRegistry().getLatencyHistogram("test");
+		assertThat(latencyHistogram.getPercentilesMicros(50, 99)).containsExactly(0, 0);
+
+		for (int i = 0; i < 90; ++i)
+			latencyHistogram.record(100_000); // 100 µs
+
+		for (int i = 0; i < 10; ++i)
+			latencyHistogram.record(10_000_000); // 10 ms
+
+		assertThat(latencyHistogram.getCount()).isEqualTo(100);
+		assertThat(latencyHistogram.getMaxNanos()).isEqualTo(10_000_000);
+
+		final long[] percentilesMicros = latencyHistogram.getPercentilesMicros(50, 90, 99);
+		// Each value is the upper bound of its bucket -- thus at most twice the real value.
+		assertThat(percentilesMicros[0]).isBetween(100L, 200L);
+		assertThat(percentilesMicros[1]).isBetween(100L, 200L);
+		assertThat(percentilesMicros[2]).isEqualTo(10_000L); // capped at the maximum
+	}
+
+	@Test
+	public void recordingIsAllocationFree() throws Exception {
+		final MetricRegistry metricRegistry = new MetricRegistry();
+		final Counter counter = metricRegistry.getCounter("test.counter");
+		final LatencyHistogram latencyHistogram = metricRegistry.getLatencyHistogram("test.histogram");
+		final LatencyHistogramsByType latencyHistograms = metricRegistry.getLatencyHistogramsByType("test.byType");
+
+		record(counter, latencyHistogram, latencyHistograms); // warm-up
+		final long allocatedBytesBefore = getCurrentThreadAllocatedBytes();
+		record(counter, latencyHistogram, latencyHistograms);
+		final long allocatedBytes = getCurrentThreadAllocatedBytes() - allocatedBytesBefore;
+
+		assertThat(counter.getCount()).isEqualTo(2L * RECORD_COUNT);
+		assertThat(latencyHistograms.get(EchoRequest.class).getCount()).isEqualTo(2L * RECORD_COUNT);
+
+		// A few bytes may be allocated by the measurement itself -- but nothing per record.
+		assertThat(allocatedBytes).isLessThan(RECORD_COUNT / 100);
+	}
+
+	private static void record(final Counter counter, final LatencyHistogram latencyHistogram, final LatencyHistogramsByType latencyHistograms) {
+		for (int i = 0; i < RECORD_COUNT; ++i) {
+			counter.increment();
+			latencyHistogram.record(i);
+			latencyHistograms.record(EchoRequest.class, i);
+		}
+	}
+
+	private static Map<String, MetricValue> toMap(final Iterable<MetricValue> metricValues) {
+		final Map<String, MetricValue> result = new HashMap<>();
+		for (final MetricValue metricValue : metricValues)
+			result.put(metricValue.getName(), metricValue);
+
+		return result;
+	}
+
+	@SuppressWarnings("restriction")
+	private static long getCurrentThreadAllocatedBytes() {
+		return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+}
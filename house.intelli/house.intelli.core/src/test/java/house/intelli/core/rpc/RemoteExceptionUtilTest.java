@@ -0,0 +1,82 @@
+package house.intelli.core.rpc;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import javax.xml.bind.annotation.XmlRootElement;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import house.intelli.core.Uid;
+import house.intelli.core.rpc.codec.RpcMessageCodecUtil;
+import house.intelli.core.rpc.echo.EchoRequest;
+import house.intelli.core.rpc.mocktransport.MockRpcClientTransportProvider;
+
+public class RemoteExceptionUtilTest extends AbstractRpcTest {
+
+	private RpcContext clientRpcContext;
+
+	private RpcContext serverRpcContext;
+
+	/**
+	 * Neither processed by any service nor bound in the JAXBContext -- like a new request-type sent to an old server.
+	 */
+	@XmlRootElement
+	public static class UnsupportedRequest extends Request<VoidResponse> {
+	}
+
+	@Before
+	public void before() throws Exception {
+		clientRpcContext = new RpcContext(RpcContextMode.CLIENT, new HostId("client-" + new Uid()));
+		serverRpcContext = new RpcContext(RpcContextMode.SERVER, new HostId("server-" + new Uid()));
+
+		MockRpcClientTransportProvider rpcClientTransportProvider = new MockRpcClientTransportProvider();
+		rpcClientTransportProvider.setServerRpcContext(serverRpcContext);
+		clientRpcContext.setRpcClientTransportProvider(rpcClientTransportProvider);
+	}
+
+	@After
+	public void after() throws Exception {
+		if (clientRpcContext != null)
+			clientRpcContext.close();
+
+		if (serverRpcContext != null)
+			serverRpcContext.close();
+	}
+
+	@Test
+	public void requestTypeWithoutService() throws Exception {
+		final UnsupportedRequest request = new UnsupportedRequest();
+		request.setServerHostId(HostId.SERVER);
+		final Throwable throwable = catchThrowable(() -> clientRpcContext.getRpcClient().invoke(request));
+
+		assertThat(throwable).isNotNull();
+		assertThat(RemoteExceptionUtil.isRequestTypeUnsupported(throwable, UnsupportedRequest.class)).isTrue();
+		assertThat(RemoteExceptionUtil.isRequestTypeUnsupported(throwable, EchoRequest.class)).isFalse();
+	}
+
+	@Test
+	public void requestTypeUnknownToXmlCodec() throws Exception {
+		final byte[] encoded = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><unsupportedRequest/>".getBytes(StandardCharsets.UTF_8);
+		final Throwable throwable = catchThrowable(() -> RpcMessageCodecUtil.getXmlCodec().decode(new ByteArrayInputStream(encoded)));
+
+		assertThat(throwable).isInstanceOf(IOException.class);
+		assertThat(RemoteExceptionUtil.isRequestTypeUnsupported(throwable, UnsupportedRequest.class)).isTrue();
+	}
+
+	@Test
+	public void failingServiceDoesNotMeanUnsupported() throws Exception {
+		final EchoRequest request = new EchoRequest();
+		request.setServerHostId(HostId.SERVER);
+		request.setThrowExceptionClassName(IllegalStateException.class.getName());
+		final Throwable throwable = catchThrowable(() -> clientRpcContext.getRpcClient().invoke(request));
+
+		assertThat(throwable).isInstanceOf(IllegalStateException.class);
+		assertThat(RemoteExceptionUtil.isRequestTypeUnsupported(throwable, EchoRequest.class)).isFalse();
+	}
+}
@@ -0,0 +1,269 @@
+package house.intelli.core.rpc;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import house.intelli.core.Uid;
+import house.intelli.core.rpc.RetryPolicy.FailureType;
+import house.intelli.core.rpc.echo.EchoRequest;
+import house.intelli.core.rpc.echo.EchoResponse;
+import house.intelli.core.rpc.mocktransport.MockRpcClientTransport;
+import house.intelli.core.rpc.mocktransport.MockRpcClientTransportProvider;
+
+public class RetryPolicyTest extends AbstractRpcTest {
+	private static final Logger logger = LoggerFactory.getLogger(RetryPolicyTest.class);
+
+	private static final int CLIENT_COUNT = 40;
+
+	/**
+	 * How long (milliseconds) every client waits after an invocation, before invoking the server again.
+	 */
+	private static final long INVOKE_PERIOD = 1000L;
+
+	/**
+	 * How long (milliseconds) the server is down, after it crashed at the beginning of the test.
+	 */
+	private static final long SERVER_DOWN_DURATION = 2500L;
+
+	private static final long TEST_DURATION = 6000L;
+
+	/**
+	 * Width (milliseconds) of the windows in which the backoffs are counted.
+	 */
+	private static final long WINDOW = 100L;
+
+	private RpcContext serverRpcContext;
+
+	private final List<RpcContext> clientRpcContexts = new ArrayList<>();
+
+	private volatile boolean serverDown;
+
+	private volatile long start;
+
+	private final AtomicInteger totalExchangeCount = new AtomicInteger();
+
+	/**
+	 * Simulates the server's connector -- refusing every connection, while the server is down.
+	 */
+	private class RestartingRpcClientTransport extends MockRpcClientTransport {
+		private final RpcContext clientRpcContext;
+
+		public RestartingRpcClientTransport(final RpcContext clientRpcContext) {
+			this.clientRpcContext = clientRpcContext;
+		}
+
+		@Override
+		public void sendRequest(Request request) throws IOException {
+			if (request instanceof EchoRequest)
+				totalExchangeCount.incrementAndGet();
+
+			if (serverDown)
+				throw new ConnectException("Connection refused (simulated)");
+
+			// The mock processes the request already here -- a real transport returns as soon as it was sent.
+			// Otherwise, a long poll would keep the circuit half-open.
+			clientRpcContext.getHostRetryState(HostId.SERVER).onHostReached();
+			super.sendRequest(request);
+		}
+	}
+
+	@Before
+	public void before() throws Exception {
+		serverRpcContext = new RpcContext(RpcContextMode.SERVER, new HostId("server-" + new Uid()));
+	}
+
+	@After
+	public void after() throws Exception {
+		for (final RpcContext clientRpcContext : clientRpcContexts)
+			clientRpcContext.close();
+
+		if (serverRpcContext != null)
+			serverRpcContext.close();
+	}
+
+	@Test
+	public void classify() throws Exception {
+		final RetryPolicy retryPolicy = new RetryPolicy();
+		assertThat(retryPolicy.classify(new RpcException(new ConnectException()))).isEqualTo(FailureType.CONNECTION_REFUSED);
+		assertThat(retryPolicy.classify(new SocketTimeoutException())).isEqualTo(FailureType.TIMEOUT);
+		assertThat(retryPolicy.classify(new SocketException("Connection reset"))).isEqualTo(FailureType.CONNECTION_RESET);
+		assertThat(retryPolicy.classify(new RequestRejectedException())).isEqualTo(FailureType.OVERLOAD);
+		assertThat(retryPolicy.classify(new CircuitOpenException())).isEqualTo(FailureType.FATAL);
+
+		// An IOException thrown by the remote service is re-thrown locally -- it is no transport-failure.
+		final IOException remote = new IOException("remote");
+		remote.initCause(new RemoteException(RemoteExceptionUtil.createError(new IOException("remote"))));
+		assertThat(retryPolicy.classify(remote)).isEqualTo(FailureType.FATAL);
+
+		final EchoRequest idempotent = new EchoRequest();
+		final PollInverseRequestsRequest nonIdempotent = new PollInverseRequestsRequest();
+		assertThat(retryPolicy.isRetriable(nonIdempotent, FailureType.CONNECTION_REFUSED)).isTrue();
+		assertThat(retryPolicy.isRetriable(nonIdempotent, FailureType.TIMEOUT)).isFalse();
+		assertThat(retryPolicy.isRetriable(idempotent, FailureType.TIMEOUT)).isTrue();
+		assertThat(retryPolicy.isRetriable(idempotent, FailureType.FATAL)).isFalse();
+
+		assertThat(retryPolicy.getBackoff(1, FailureType.CONNECTION_RESET)).isEqualTo(0);
+		for (int retryCount = 1; retryCount < 20; ++retryCount)
+			assertThat(retryPolicy.getBackoff(retryCount, FailureType.CONNECTION_REFUSED)).isBetween(0L, retryPolicy.getMaxBackoff());
+	}
+
+	@Test
+	public void circuitOpensAndFailsFast() throws Exception {
+		final RetryPolicy retryPolicy = new RetryPolicy();
+		retryPolicy.setMaxRetryCount(0);
+		retryPolicy.setCircuitBreakerOpenDuration(2000);
+		final RpcContext clientRpcContext = createClientRpcContext(retryPolicy);
+		serverDown = true;
+
+		for (int i = 0; i < retryPolicy.getCircuitBreakerFailureThreshold(); ++i) {
+			try {
+				clientRpcContext.getRpcClient().invoke(createEchoRequest());
+				fail("Server is down, but invocation succeeded!");
+			} catch (CircuitOpenException x) {
+				break; // the PollInverseRequestsThread's failures count, too
+			} catch (RpcException x) {
+				logger.debug("circuitOpensAndFailsFast: " + x);
+			}
+		}
+		final int exchangeCount = totalExchangeCount.get();
+		assertThatThrownBy(() -> clientRpcContext.getRpcClient().invoke(createEchoRequest()))
+		.isInstanceOf(CircuitOpenException.class);
+		assertThat(totalExchangeCount.get()).isEqualTo(exchangeCount); // failed fast -- without even trying
+
+		serverDown = false;
+		final long recoveryStart = System.currentTimeMillis();
+		EchoResponse response = null;
+		while (response == null) {
+			try {
+				response = clientRpcContext.getRpcClient().invoke(createEchoRequest());
+			} catch (CircuitOpenException x) {
+				assertThat(System.currentTimeMillis() - recoveryStart).isLessThan(retryPolicy.getCircuitBreakerOpenDuration() * 4);
+				Thread.sleep(100);
+			}
+		}
+		logger.info("circuitOpensAndFailsFast: recovered after {} ms", System.currentTimeMillis() - recoveryStart);
+		assertThat(response.getPayload()).isEqualTo("retry");
+		assertThat(clientRpcContext.getHostRetryState(HostId.SERVER).getCircuitState()).isEqualTo(HostRetryState.CircuitState.CLOSED);
+	}
+
+	/**
+	 * The backoff is jittered over the whole interval -- thus clients failing at the same time do not retry in
+	 * lockstep.
+	 */
+	@Test
+	public void backoffIsJittered() throws Exception {
+		final RetryPolicy retryPolicy = new RetryPolicy();
+		retryPolicy.setInitialBackoff(1000);
+		final int sampleCount = 1000;
+		final int[] window2BackoffCount = new int[(int) (1000 / WINDOW)];
+		for (int i = 0; i < sampleCount; ++i) {
+			final long backoff = retryPolicy.getBackoff(1, FailureType.CONNECTION_REFUSED);
+			assertThat(backoff).isBetween(0L, 999L);
+			++window2BackoffCount[(int) (backoff / WINDOW)];
+		}
+		// Evenly distributed, there are 100 per window.
+		for (final int backoffCount : window2BackoffCount)
+			assertThat(backoffCount).isBetween(1, sampleCount / 4);
+	}
+
+	/**
+	 * Many clients lose their connections at the same time, because the server crashed -- just like all Pis
+	 * holding a long poll do. They all re-connect immediately and keep invoking the server periodically,
+	 * while it restarts. All of them recover after the restart.
+	 */
+	@Test
+	public void serverRestartWithManyClients() throws Exception {
+		for (int i = 0; i < CLIENT_COUNT; ++i) {
+			final RetryPolicy retryPolicy = new RetryPolicy();
+			retryPolicy.setInitialBackoff(1000);
+			retryPolicy.setCircuitBreakerOpenDuration(1000);
+			createClientRpcContext(retryPolicy);
+		}
+
+		final ExecutorService executorService = Executors.newFixedThreadPool(CLIENT_COUNT);
+		try {
+			final CountDownLatch crashLatch = new CountDownLatch(1);
+			final List<Future<?>> futures = new ArrayList<>();
+			for (final RpcContext clientRpcContext : clientRpcContexts) {
+				futures.add(executorService.submit(() -> {
+					crashLatch.await();
+					while (System.currentTimeMillis() - start < TEST_DURATION) {
+						try {
+							clientRpcContext.getRpcClient().invoke(createEchoRequest());
+						} catch (Exception x) {
+							logger.debug("serverRestartWithManyClients: " + x);
+						}
+						Thread.sleep(INVOKE_PERIOD);
+					}
+					return null;
+				}));
+			}
+			serverDown = true;
+			start = System.currentTimeMillis();
+			crashLatch.countDown();
+			Thread.sleep(SERVER_DOWN_DURATION);
+			serverDown = false;
+
+			for (final Future<?> future : futures)
+				future.get();
+		} finally {
+			executorService.shutdownNow();
+		}
+		assertThat(totalExchangeCount.get()).isGreaterThanOrEqualTo(CLIENT_COUNT);
+
+		for (final RpcContext clientRpcContext : clientRpcContexts) {
+			final long recoveryStart = System.currentTimeMillis();
+			EchoResponse response = null;
+			while (response == null) {
+				try {
+					response = clientRpcContext.getRpcClient().invoke(createEchoRequest());
+				} catch (CircuitOpenException x) {
+					assertThat(System.currentTimeMillis() - recoveryStart).isLessThan(30000L);
+					Thread.sleep(100);
+				}
+			}
+			assertThat(response.getPayload()).isEqualTo("retry");
+		}
+	}
+
+	private RpcContext createClientRpcContext(final RetryPolicy retryPolicy) {
+		final RpcContext clientRpcContext = new RpcContext(RpcContextMode.CLIENT, new HostId("client-" + new Uid()));
+		clientRpcContext.setRetryPolicy(retryPolicy);
+		final MockRpcClientTransportProvider rpcClientTransportProvider = new MockRpcClientTransportProvider() {
+			@Override
+			public RpcClientTransport _createRpcClientTransport() {
+				final RestartingRpcClientTransport rpcClientTransport = new RestartingRpcClientTransport(clientRpcContext);
+				rpcClientTransport.setServerRpcContext(serverRpcContext);
+				return rpcClientTransport;
+			}
+		};
+		rpcClientTransportProvider.setServerRpcContext(serverRpcContext);
+		clientRpcContext.setRpcClientTransportProvider(rpcClientTransportProvider);
+		clientRpcContexts.add(clientRpcContext);
+		return clientRpcContext;
+	}
+
+	private static EchoRequest createEchoRequest() {
+		final EchoRequest request = new EchoRequest();
+		request.setServerHostId(HostId.SERVER);
+		request.setPayload("retry");
+		return request;
+	}
+}
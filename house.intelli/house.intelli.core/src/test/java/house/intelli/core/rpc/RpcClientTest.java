@@ -0,0 +1,148 @@
+package house.intelli.core.rpc;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import house.intelli.core.Uid;
+import house.intelli.core.rpc.echo.EchoRequest;
+import house.intelli.core.rpc.echo.EchoResponse;
+import house.intelli.core.rpc.mocktransport.MockRpcClientTransportProvider;
+
+public class RpcClientTest extends AbstractRpcTest {
+	private static final int INVOCATION_COUNT_PER_THREAD = 50;
+
+	/**
+	 * Simulated latency of the network and the service -- keeping the invocations of all threads in-flight
+	 * concurrently.
+	 */
+	private static final long ECHO_SLEEP = 20L;
+
+	private RpcContext clientRpcContext;
+
+	private RpcContext serverRpcContext;
+
+	private final AtomicInteger createdRpcClientTransportCount = new AtomicInteger();
+
+	@Before
+	public void before() throws Exception {
+		clientRpcContext = new RpcContext(RpcContextMode.CLIENT, new HostId("client-" + new Uid()));
+		serverRpcContext = new RpcContext(RpcContextMode.SERVER, new HostId("server-" + new Uid()));
+
+		MockRpcClientTransportProvider rpcClientTransportProvider = new MockRpcClientTransportProvider() {
+			@Override
+			public RpcClientTransport _createRpcClientTransport() {
+				createdRpcClientTransportCount.incrementAndGet();
+				return super._createRpcClientTransport();
+			}
+		};
+		rpcClientTransportProvider.setServerRpcContext(serverRpcContext);
+		clientRpcContext.setRpcClientTransportProvider(rpcClientTransportProvider);
+	}
+
+	@After
+	public void after() throws Exception {
+		if (clientRpcContext != null)
+			clientRpcContext.close();
+
+		if (serverRpcContext != null)
+			serverRpcContext.close();
+	}
+
+	@Test
+	public void sharedRpcClientIsReturnedAgain() throws Exception {
+		RpcClient rpcClient = clientRpcContext.getRpcClient();
+		assertThat(clientRpcContext.getRpcClient()).isSameAs(rpcClient);
+
+		clientRpcContext.close();
+		assertThatThrownBy(() -> rpcClient.invoke(createEchoRequest())).isInstanceOf(IllegalStateException.class);
+	}
+
+	@Test
+	public void sharedRpcClientInvokesServer() throws Exception {
+		final EchoRequest echoRequest = createEchoRequest();
+		final EchoResponse echoResponse = clientRpcContext.getRpcClient().invoke(echoRequest);
+		assertThat(echoResponse.getPayload()).isEqualTo(echoRequest.getPayload());
+	}
+
+	@Test
+	public void sharedRpcClientInvokesClientInversely() throws Exception {
+		final EchoRequest echoRequest = createEchoRequest();
+		echoRequest.setServerHostId(clientRpcContext.getLocalHostId());
+		final EchoResponse echoResponse = serverRpcContext.getRpcClient().invoke(echoRequest);
+		assertThat(echoResponse.getPayload()).isEqualTo(echoRequest.getPayload());
+	}
+
+	@Test
+	public void sharedRpcClientIsUsableAfterException() throws Exception {
+		final EchoRequest failingEchoRequest = createEchoRequest();
+		failingEchoRequest.setThrowExceptionClassName(NumberFormatException.class.getName());
+		assertThatThrownBy(() -> clientRpcContext.getRpcClient().invoke(failingEchoRequest))
+		.isInstanceOf(NumberFormatException.class);
+
+		// The transport used by the failed invocation is re-used.
+		final EchoRequest echoRequest = createEchoRequest();
+		final EchoResponse echoResponse = clientRpcContext.getRpcClient().invoke(echoRequest);
+		assertThat(echoResponse.getPayload()).isEqualTo(echoRequest.getPayload());
+	}
+
+	@Test
+	public void sharedRpcClientPoolsTransports() throws Exception {
+		// There are never more transports than invocations in-flight concurrently (+1 for the PollInverseRequestsThread).
+		assertThat(countCreatedRpcClientTransports(1, true)).isLessThanOrEqualTo(1 + 1);
+		assertThat(countCreatedRpcClientTransports(8, true)).isLessThanOrEqualTo(8 + 1);
+
+		assertThat(countCreatedRpcClientTransports(4, false)).isGreaterThanOrEqualTo(4 * INVOCATION_COUNT_PER_THREAD);
+	}
+
+	private int countCreatedRpcClientTransports(final int threadCount, final boolean sharedRpcClient) throws Exception {
+		// Start with a fresh shared RpcClient (without idle transports) in order to count the transports created.
+		clientRpcContext.setRpcClientTransportProvider(clientRpcContext.getRpcClientTransportProvider());
+		createdRpcClientTransportCount.set(0);
+
+		final ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+		try {
+			final List<Future<?>> futures = new ArrayList<>(threadCount);
+			for (int t = 0; t < threadCount; ++t) {
+				futures.add(executorService.submit(() -> {
+					for (int i = 0; i < INVOCATION_COUNT_PER_THREAD; ++i) {
+						final EchoRequest echoRequest = createEchoRequest();
+						final EchoResponse echoResponse;
+						if (sharedRpcClient)
+							echoResponse = clientRpcContext.getRpcClient().invoke(echoRequest);
+						else {
+							try (RpcClient rpcClient = clientRpcContext.createRpcClient()) {
+								echoResponse = rpcClient.invoke(echoRequest);
+							}
+						}
+						assertThat(echoResponse.getPayload()).isEqualTo(echoRequest.getPayload());
+					}
+					return null;
+				}));
+			}
+			for (final Future<?> future : futures)
+				future.get();
+
+			return createdRpcClientTransportCount.get();
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+
+	private EchoRequest createEchoRequest() {
+		final EchoRequest echoRequest = new EchoRequest();
+		echoRequest.setServerHostId(HostId.SERVER);
+		echoRequest.setPayload(new Uid().toString());
+		echoRequest.setSleep(ECHO_SLEEP);
+		return echoRequest;
+	}
+}
@@ -0,0 +1,221 @@
+package house.intelli.core.rpc;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import house.intelli.core.Uid;
+import house.intelli.core.rpc.echo.EchoRequest;
+import house.intelli.core.rpc.echo.EchoResponse;
+
+public class RpcServiceExecutorTest extends AbstractRpcTest {
+	private static final int ROUND_TRIP_COUNT = 500;
+
+	private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+	private HostId serverHostId;
+
+	private RpcContext serverRpcContext;
+
+	@Before
+	public void before() throws Exception {
+		serverHostId = new HostId("server-" + new Uid());
+		serverRpcContext = new RpcContext(RpcContextMode.SERVER, serverHostId);
+	}
+
+	@After
+	public void after() throws Exception {
+		if (serverRpcContext != null)
+			serverRpcContext.close();
+	}
+
+	@Test
+	public void parkedWaitersAreNotWokenUpByOtherResponses() throws Exception {
+		assertThat(countWakeUps(10)).isEqualTo(0);
+		assertThat(countWakeUps(400)).isEqualTo(0);
+	}
+
+	@Test
+	public void pollBeforePut() throws Exception {
+		final RpcServiceExecutor rpcServiceExecutor = serverRpcContext.getRpcServiceExecutor();
+		final EchoRequest echoRequest = createEchoRequest(HostId.SERVER);
+
+		final Response[] polled = new Response[1];
+		final Thread poller = new Thread(() -> polled[0] = rpcServiceExecutor.pollResponse(echoRequest.getRequestId(), 60000L));
+		poller.start();
+		waitUntilParked(Arrays.asList(poller));
+
+		rpcServiceExecutor.putRequest(echoRequest);
+		poller.join(60000L);
+
+		assertThat(polled[0]).isInstanceOf(EchoResponse.class);
+		assertThat(((EchoResponse) polled[0]).getPayload()).isEqualTo(echoRequest.getPayload());
+	}
+
+	@Test
+	public void pollUnknownRequestIdTimesOut() throws Exception {
+		final RpcServiceExecutor rpcServiceExecutor = serverRpcContext.getRpcServiceExecutor();
+		final long startTimestamp = System.currentTimeMillis();
+		assertThat(rpcServiceExecutor.pollResponse(new Uid(), 500L)).isNull();
+		assertThat(System.currentTimeMillis() - startTimestamp).isGreaterThanOrEqualTo(500L);
+	}
+
+	@Test
+	public void floodIsRejectedWithBoundedThreadCount() throws Exception {
+		final int workerPoolSize = 4;
+		final int workerQueueCapacity = 8;
+		final int requestCount = 200;
+		serverRpcContext.setWorkerPoolSize(workerPoolSize);
+		serverRpcContext.setWorkerQueueCapacity(workerQueueCapacity);
+		serverRpcContext.setWorkerRejectionPolicy(RejectionPolicy.REJECT);
+		final RpcServiceExecutor rpcServiceExecutor = serverRpcContext.getRpcServiceExecutor();
+
+		final List<EchoRequest> echoRequests = new ArrayList<>(requestCount);
+		for (int i = 0; i < requestCount; ++i) {
+			final EchoRequest echoRequest = createEchoRequest(HostId.SERVER);
+			echoRequest.setSleep(500L);
+			rpcServiceExecutor.putRequest(echoRequest);
+			echoRequests.add(echoRequest);
+		}
+		assertThat(getWorkerThreadCount()).isLessThanOrEqualTo(workerPoolSize);
+
+		int echoResponseCount = 0;
+		int rejectedCount = 0;
+		for (final EchoRequest echoRequest : echoRequests) {
+			final Response response = rpcServiceExecutor.pollResponse(echoRequest.getRequestId(), 60000L);
+			if (response instanceof EchoResponse)
+				++echoResponseCount;
+			else {
+				assertThat(response).isInstanceOf(ErrorResponse.class);
+				assertThat(((ErrorResponse) response).getError().getClassName()).isEqualTo(RequestRejectedException.class.getName());
+				++rejectedCount;
+			}
+			assertThat(getWorkerThreadCount()).isLessThanOrEqualTo(workerPoolSize);
+		}
+		assertThat(echoResponseCount).isEqualTo(workerPoolSize + workerQueueCapacity);
+		assertThat(rejectedCount).isEqualTo(requestCount - workerPoolSize - workerQueueCapacity);
+	}
+
+	@Test
+	public void floodIsThrottledByCallerRuns() throws Exception {
+		final int workerPoolSize = 4;
+		final int callerCount = 32;
+		final int requestCountPerCaller = 10;
+		serverRpcContext.setWorkerPoolSize(workerPoolSize);
+		serverRpcContext.setWorkerQueueCapacity(2);
+		serverRpcContext.setWorkerRejectionPolicy(RejectionPolicy.CALLER_RUNS);
+		final RpcServiceExecutor rpcServiceExecutor = serverRpcContext.getRpcServiceExecutor();
+
+		final ExecutorService callers = Executors.newFixedThreadPool(callerCount);
+		try {
+			final List<Future<Integer>> futures = new ArrayList<>();
+			for (int c = 0; c < callerCount; ++c) {
+				futures.add(callers.submit(() -> {
+					int echoResponseCount = 0;
+					for (int i = 0; i < requestCountPerCaller; ++i) {
+						final EchoRequest echoRequest = createEchoRequest(HostId.SERVER);
+						echoRequest.setSleep(10L);
+						rpcServiceExecutor.putRequest(echoRequest);
+						assertThat(getWorkerThreadCount()).isLessThanOrEqualTo(workerPoolSize);
+						if (rpcServiceExecutor.pollResponse(echoRequest.getRequestId(), 60000L) instanceof EchoResponse)
+							++echoResponseCount;
+					}
+					return echoResponseCount;
+				}));
+			}
+			for (final Future<Integer> future : futures)
+				assertThat(future.get()).isEqualTo(requestCountPerCaller);
+		} finally {
+			callers.shutdownNow();
+		}
+	}
+
+	private int getWorkerThreadCount() {
+		final String prefix = String.format("RpcServiceExecutor[%s].worker-", serverHostId);
+		int result = 0;
+		for (final Thread thread : Thread.getAllStackTraces().keySet()) {
+			if (thread.getName().startsWith(prefix))
+				++result;
+		}
+		return result;
+	}
+
+	/**
+	 * Counts how often {@code parkedWaiterCount} threads, waiting for responses which never arrive, are woken up
+	 * while {@link #ROUND_TRIP_COUNT} other requests are processed.
+	 */
+	private long countWakeUps(final int parkedWaiterCount) throws Exception {
+		final RpcServiceExecutor rpcServiceExecutor = serverRpcContext.getRpcServiceExecutor();
+
+		// Park the waiters on inverse requests which are never answered (the addressed client does not exist).
+		final HostId absentClientHostId = new HostId("client-" + new Uid());
+		final List<Thread> parkedWaiters = new ArrayList<>(parkedWaiterCount);
+		for (int i = 0; i < parkedWaiterCount; ++i) {
+			final EchoRequest inverseRequest = createEchoRequest(absentClientHostId);
+			rpcServiceExecutor.putRequest(inverseRequest);
+			final Thread thread = new Thread(() -> rpcServiceExecutor.pollResponse(inverseRequest.getRequestId(), 5L * 60L * 1000L));
+			thread.setDaemon(true);
+			thread.start();
+			parkedWaiters.add(thread);
+		}
+		waitUntilParked(parkedWaiters);
+		final long waitedCountBefore = getWaitedCount(parkedWaiters);
+
+		for (int i = 0; i < ROUND_TRIP_COUNT; ++i) {
+			final EchoRequest echoRequest = createEchoRequest(HostId.SERVER);
+			rpcServiceExecutor.putRequest(echoRequest);
+			final Response response = rpcServiceExecutor.pollResponse(echoRequest.getRequestId(), 60000L);
+			assertThat(response).isInstanceOf(EchoResponse.class);
+		}
+
+		final long wakeUpCount = getWaitedCount(parkedWaiters) - waitedCountBefore;
+
+		for (Thread thread : parkedWaiters)
+			thread.interrupt();
+
+		for (Thread thread : parkedWaiters)
+			thread.join(10000L);
+
+		return wakeUpCount;
+	}
+
+	private EchoRequest createEchoRequest(final HostId targetHostId) {
+		final EchoRequest echoRequest = new EchoRequest();
+		echoRequest.setRequestId(new Uid());
+		echoRequest.setClientHostId(new HostId("client-" + new Uid()));
+		echoRequest.setServerHostId(targetHostId);
+		echoRequest.setCreated(new Date());
+		echoRequest.setTimeout(RpcConst.DEFAULT_REQUEST_TIMEOUT);
+		echoRequest.setPayload(echoRequest.getRequestId().toString());
+		return echoRequest;
+	}
+
+	private void waitUntilParked(final List<Thread> threads) throws InterruptedException {
+		for (final Thread thread : threads) {
+			while (thread.getState() != Thread.State.TIMED_WAITING)
+				Thread.sleep(1L);
+		}
+	}
+
+	private long getWaitedCount(final List<Thread> threads) {
+		long result = 0;
+		for (final Thread thread : threads) {
+			final ThreadInfo threadInfo = threadMXBean.getThreadInfo(thread.getId());
+			result += threadInfo.getWaitedCount();
+		}
+		return result;
+	}
+}
@@ -0,0 +1,88 @@
+package house.intelli.core.rpc;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.bind.annotation.XmlRootElement;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import house.intelli.core.Uid;
+import house.intelli.core.rpc.echo.EchoRequest;
+import house.intelli.core.service.AbstractServiceRegistryDelegate;
+import house.intelli.core.service.ServiceRegistry;
+
+public class RpcServiceRegistryTest extends AbstractRpcTest {
+	private RpcContext rpcContext;
+
+	@XmlRootElement
+	public static class StatefulRequest extends Request<VoidResponse> {
+	}
+
+	@XmlRootElement
+	public static class SubStatefulRequest extends StatefulRequest {
+	}
+
+	public static class StatefulRpcService extends AbstractRpcService<StatefulRequest, VoidResponse> {
+		@Override
+		public VoidResponse process(StatefulRequest request) throws Exception {
+			return null;
+		}
+	}
+
+	@SuppressWarnings("rawtypes")
+	private static class StatefulRpcServiceDelegate extends AbstractServiceRegistryDelegate<RpcService> {
+		@Override
+		public List<RpcService> getServices() {
+			return Collections.singletonList(new StatefulRpcService());
+		}
+	}
+
+	@Before
+	public void before() throws Exception {
+		rpcContext = new RpcContext(RpcContextMode.SERVER, new HostId("server-" + new Uid()));
+	}
+
+	@After
+	public void after() throws Exception {
+		if (rpcContext != null)
+			rpcContext.close();
+	}
+
+	@Test
+	public void threadSafeServiceIsReusedPerContext() throws Exception {
+		final RpcServiceExecutor rpcServiceExecutor = rpcContext.getRpcServiceExecutor();
+		final RpcService<Request, Response> rpcService = rpcServiceExecutor.getRpcService(EchoRequest.class);
+		assertThat(rpcService).isNotNull();
+		assertThat(rpcService.getRpcContext()).isSameAs(rpcContext);
+		assertThat(rpcServiceExecutor.getRpcService(EchoRequest.class)).isSameAs(rpcService);
+
+		try (RpcContext otherRpcContext = new RpcContext(RpcContextMode.SERVER, new HostId("server-" + new Uid()))) {
+			final RpcService<Request, Response> otherRpcService = otherRpcContext.getRpcServiceExecutor().getRpcService(EchoRequest.class);
+			assertThat(otherRpcService).isNotSameAs(rpcService);
+			assertThat(otherRpcService.getRpcContext()).isSameAs(otherRpcContext);
+		}
+	}
+
+	@Test
+	public void statefulServiceIsClonedForSubClassedRequest() throws Exception {
+		@SuppressWarnings("rawtypes")
+		final ServiceRegistry<RpcService> serviceRegistry = ServiceRegistry.getInstance(RpcService.class);
+		final StatefulRpcServiceDelegate delegate = new StatefulRpcServiceDelegate();
+		serviceRegistry.addDelegate(delegate);
+		try {
+			final RpcServiceExecutor rpcServiceExecutor = rpcContext.getRpcServiceExecutor();
+			final RpcService<Request, Response> rpcService = rpcServiceExecutor.getRpcService(SubStatefulRequest.class);
+			assertThat(rpcService).isInstanceOf(StatefulRpcService.class);
+			assertThat(rpcService.getRpcContext()).isSameAs(rpcContext);
+			assertThat(rpcServiceExecutor.getRpcService(SubStatefulRequest.class)).isNotSameAs(rpcService);
+		} finally {
+			serviceRegistry.removeDelegate(delegate);
+		}
+		assertThat(rpcContext.getRpcServiceExecutor().getRpcService(SubStatefulRequest.class)).isNull();
+	}
+}
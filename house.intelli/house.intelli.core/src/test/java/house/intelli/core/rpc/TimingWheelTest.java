@@ -0,0 +1,147 @@
+package house.intelli.core.rpc;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import house.intelli.core.Uid;
+import house.intelli.core.rpc.echo.EchoRequest;
+
+public class TimingWheelTest extends AbstractRpcTest {
+	private static final Logger logger = LoggerFactory.getLogger(TimingWheelTest.class);
+
+	/**
+	 * Timeout (milliseconds) of the abandoned requests.
+	 */
+	private static final long TIMEOUT = 200L;
+
+	private RpcContext rpcContext;
+
+	@Before
+	public void before() throws Exception {
+		rpcContext = new RpcContext(RpcContextMode.SERVER, new HostId("server-" + new Uid()));
+	}
+
+	@After
+	public void after() throws Exception {
+		if (rpcContext != null)
+			rpcContext.close();
+	}
+
+	@Test
+	public void tasksRunAtTheirTimestampUnlessCancelled() throws Exception {
+		try (TimingWheel timingWheel = new TimingWheel("test.timingWheel", 10, 16)) {
+			final long start = System.currentTimeMillis();
+			final long[] delays = { 0, 30, 100, 350, 700 }; // 350 and 700 take more than one revolution
+			final long[] ranAt = new long[delays.length];
+			final CountDownLatch latch = new CountDownLatch(delays.length);
+			for (int i = 0; i < delays.length; ++i) {
+				final int index = i;
+				timingWheel.schedule(() -> {
+					ranAt[index] = System.currentTimeMillis();
+					latch.countDown();
+				}, start + delays[i]);
+			}
+			final AtomicInteger cancelledRunCount = new AtomicInteger();
+			final TimingWheel.Timeout cancelled = timingWheel.schedule(cancelledRunCount::incrementAndGet, start + 500);
+			assertThat(cancelled.cancel()).isTrue();
+			assertThat(cancelled.cancel()).isFalse();
+
+			assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+			for (int i = 0; i < delays.length; ++i) {
+				final long lateness = ranAt[i] - (start + delays[i]);
+				logger.info("tasksRunAtTheirTimestampUnlessCancelled: delay={} ms, lateness={} ms", delays[i], lateness);
+				assertThat(lateness).isBetween(0L, 100L);
+			}
+			assertThat(cancelledRunCount.get()).isEqualTo(0);
+			assertThat(timingWheel.getSize()).isEqualTo(0);
+		}
+	}
+
+	/**
+	 * A steady stream of requests nobody ever picks up must not accumulate: they are evicted close to their
+	 * timeout -- and not by an hourly sweep.
+	 */
+	@Test
+	public void memoryStaysBoundedUnderAbandonedRequests() throws Exception {
+		rpcContext.setInverseRequestQueueCapacity(Integer.MAX_VALUE); // measuring eviction -- not the queue's limit
+		final RpcServiceExecutor rpcServiceExecutor = rpcContext.getRpcServiceExecutor();
+		final InverseRequestRegistry inverseRequestRegistry = rpcContext.getInverseRequestRegistry();
+		final HostId clientHostId = new HostId("client-" + new Uid()); // never polls
+		final int requestsPerMillisecond = 5;
+
+		final long start = System.currentTimeMillis();
+		int putCount = 0;
+		int maxPendingRequestCount = 0;
+		int maxInverseRequestCount = 0;
+		while (System.currentTimeMillis() - start < TIMEOUT * 20) {
+			for (int i = 0; i < requestsPerMillisecond; ++i) {
+				rpcServiceExecutor.putRequest(createEchoRequest(clientHostId));
+				++putCount;
+			}
+			maxPendingRequestCount = Math.max(maxPendingRequestCount, rpcServiceExecutor.getPendingRequestCount());
+			maxInverseRequestCount = Math.max(maxInverseRequestCount, inverseRequestRegistry.getRequestCount());
+			Thread.sleep(1);
+		}
+		logger.info("memoryStaysBoundedUnderAbandonedRequests: putCount={}, maxPendingRequestCount={}, maxInverseRequestCount={}",
+				putCount, maxPendingRequestCount, maxInverseRequestCount);
+
+		// Only the requests of the last TIMEOUT -- plus the grace period for late polls -- may still be there.
+		assertThat(maxPendingRequestCount).isLessThan(putCount / 4);
+		assertThat(maxInverseRequestCount).isLessThan(putCount / 8);
+
+		Thread.sleep(TIMEOUT * 3);
+		assertThat(rpcServiceExecutor.getPendingRequestCount()).isEqualTo(0);
+		assertThat(inverseRequestRegistry.getRequestCount()).isEqualTo(0);
+	}
+
+	/**
+	 * Many requests expiring at the same time are evicted while the other traffic goes on.
+	 */
+	@Test
+	public void massExpiryDoesNotBlockTraffic() throws Exception {
+		final int abandonedCount = 200000;
+		rpcContext.setInverseRequestQueueCapacity(abandonedCount);
+		final InverseRequestRegistry inverseRequestRegistry = rpcContext.getInverseRequestRegistry();
+		final long expiry = System.currentTimeMillis() + TIMEOUT * 10;
+		final HostId abandonedHostId = new HostId("abandoned-" + new Uid());
+		for (int i = 0; i < abandonedCount; ++i) {
+			final EchoRequest request = createEchoRequest(abandonedHostId);
+			request.setTimeout(Math.max(1, expiry - System.currentTimeMillis()));
+			inverseRequestRegistry.putRequest(request);
+		}
+
+		// Other traffic goes on while the abandoned requests are evicted.
+		final HostId clientHostId = new HostId("client-" + new Uid());
+		int operationCount = 0;
+		while (inverseRequestRegistry.getRequestCount() > 0) {
+			final EchoRequest request = createEchoRequest(clientHostId);
+			request.setTimeout(RpcConst.DEFAULT_REQUEST_TIMEOUT);
+			inverseRequestRegistry.putRequest(request);
+			assertThat(inverseRequestRegistry.pollRequests(clientHostId, 0)).hasSize(1);
+			++operationCount;
+		}
+		assertThat(operationCount).isGreaterThan(0);
+		assertThat(inverseRequestRegistry.getRequestCount(abandonedHostId)).isEqualTo(0);
+	}
+
+	private EchoRequest createEchoRequest(final HostId serverHostId) {
+		final EchoRequest request = new EchoRequest();
+		request.setRequestId(new Uid());
+		request.setClientHostId(rpcContext.getLocalHostId());
+		request.setServerHostId(serverHostId);
+		request.setCreated(new Date());
+		request.setTimeout(TIMEOUT);
+		request.setPayload("abandoned");
+		return request;
+	}
+}
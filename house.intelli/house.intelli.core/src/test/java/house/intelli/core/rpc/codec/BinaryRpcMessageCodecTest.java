@@ -0,0 +1,333 @@
+package house.intelli.core.rpc.codec;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.bind.annotation.XmlTransient;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import house.intelli.core.Uid;
+import house.intelli.core.jaxb.IntelliHouseJaxbContext;
+import house.intelli.core.rpc.AbstractRpcTest;
+import house.intelli.core.rpc.Error;
+import house.intelli.core.rpc.ErrorResponse;
+import house.intelli.core.rpc.HostId;
+import house.intelli.core.rpc.Request;
+import house.intelli.core.rpc.RpcMessage;
+import house.intelli.core.rpc.echo.EchoRequest;
+import house.intelli.core.rpc.pv.PackedPvStatusEventRequest;
+import house.intelli.core.rpc.pv.PvStatus;
+import house.intelli.core.rpc.pv.PvStatusEventRequest;
+
+public class BinaryRpcMessageCodecTest extends AbstractRpcTest {
+	private static final Logger logger = LoggerFactory.getLogger(BinaryRpcMessageCodecTest.class);
+
+	private static final int MAX_POPULATE_DEPTH = 3;
+
+	@Test
+	public void roundTripAllDtos() throws Exception {
+		final BinaryRpcMessageCodec binaryCodec = RpcMessageCodecUtil.getBinaryCodec();
+		assertThat(binaryCodec).isNotNull();
+
+		final List<Class<?>> classes = binaryCodec.getBinarySchema().getClasses();
+		int rpcMessageClassCount = 0;
+		for (final Class<?> clazz : IntelliHouseJaxbContext.getClassesToBeBound()) {
+			if (! RpcMessage.class.isAssignableFrom(clazz) || ! classes.contains(clazz))
+				continue;
+
+			++rpcMessageClassCount;
+			final RpcMessage rpcMessage = (RpcMessage) createPopulatedInstance(clazz, classes, 0);
+
+			final byte[] encoded = encode(binaryCodec, rpcMessage);
+			final RpcMessage decoded = RpcMessageCodecUtil.decode(new ByteArrayInputStream(encoded));
+
+			assertThat(decoded).as(clazz.getName()).isInstanceOf(clazz);
+			assertThat(decoded.getRequestId()).as(clazz.getName()).isEqualTo(rpcMessage.getRequestId());
+			assertThat(decoded.getClientHostId()).as(clazz.getName()).isEqualTo(rpcMessage.getClientHostId());
+			assertThat(decoded.getServerHostId()).as(clazz.getName()).isEqualTo(rpcMessage.getServerHostId());
+
+			// Each property is populated with a single value (and collections with a single element). Thus, the order
+			// is well-defined and comparing the XML proves that every property survived the round-trip.
+			assertThat(new String(encode(RpcMessageCodecUtil.getXmlCodec(), decoded), StandardCharsets.UTF_8)).as(clazz.getName())
+			.isEqualTo(new String(encode(RpcMessageCodecUtil.getXmlCodec(), rpcMessage), StandardCharsets.UTF_8));
+
+			assertThat(encode(binaryCodec, decoded)).as(clazz.getName()).isEqualTo(encoded);
+		}
+		assertThat(rpcMessageClassCount).isGreaterThan(20);
+	}
+
+	@Test
+	public void roundTripRepeatedStringsAndDecimals() throws Exception {
+		final PvStatusEventRequest request = createPvStatusEventRequest(30);
+		request.setDeadline(1); // passed => the remainingTimeout is constantly 0
+		final byte[] encoded = encode(RpcMessageCodecUtil.getBinaryCodec(), request);
+		final RpcMessage decoded = RpcMessageCodecUtil.decode(new ByteArrayInputStream(encoded));
+		assertThat(new String(encode(RpcMessageCodecUtil.getXmlCodec(), decoded), StandardCharsets.UTF_8))
+		.isEqualTo(new String(encode(RpcMessageCodecUtil.getXmlCodec(), request), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void xmlIsDetected() throws Exception {
+		final PvStatusEventRequest request = createPvStatusEventRequest(3);
+		final byte[] encoded = encode(RpcMessageCodecUtil.getXmlCodec(), request);
+		final RpcMessage decoded = RpcMessageCodecUtil.decode(new ByteArrayInputStream(encoded));
+		assertThat(decoded).isInstanceOf(PvStatusEventRequest.class);
+		assertThat(((PvStatusEventRequest) decoded).getPvStatuses()).hasSize(3);
+	}
+
+	@Test
+	public void negotiation() throws Exception {
+		final String offer = RpcMessageCodecUtil.getCodecOffer();
+		assertThat(RpcMessageCodecUtil.negotiateCodec(offer)).isSameAs(RpcMessageCodecUtil.getBinaryCodec());
+		assertThat(RpcMessageCodecUtil.negotiateCodec(null)).isSameAs(RpcMessageCodecUtil.getXmlCodec());
+		assertThat(RpcMessageCodecUtil.negotiateCodec("xml")).isSameAs(RpcMessageCodecUtil.getXmlCodec());
+		assertThat(RpcMessageCodecUtil.negotiateCodec("binary;schema=0000000000000000, xml")).isSameAs(RpcMessageCodecUtil.getXmlCodec());
+	}
+
+	@Test
+	public void schemaMismatchIsDetected() throws Exception {
+		final Set<Class<?>> classes = new HashSet<>(IntelliHouseJaxbContext.getClassesToBeBound());
+		classes.remove(PvStatusEventRequest.class);
+		final BinaryRpcMessageCodec otherCodec = new BinaryRpcMessageCodec(new BinarySchema(classes));
+		assertThat(otherCodec.getBinarySchema().getFingerprint()).isNotEqualTo(RpcMessageCodecUtil.getBinaryCodec().getBinarySchema().getFingerprint());
+
+		final byte[] encoded = encode(RpcMessageCodecUtil.getBinaryCodec(), createPvStatusEventRequest(1));
+		assertThatThrownBy(() -> otherCodec.decode(new ByteArrayInputStream(encoded))).isInstanceOf(BinarySchemaMismatchException.class);
+	}
+
+	/**
+	 * The input is decoded before it is authenticated -- a declared length must therefore never cause an
+	 * allocation beyond the data actually received.
+	 */
+	@Test
+	public void declaredLengthsAreBounded() throws Exception {
+		final byte[] marker = "0123456789abcdef".getBytes(StandardCharsets.UTF_8);
+
+		final EchoRequest echoRequest = new EchoRequest();
+		echoRequest.setPayload(new String(marker, StandardCharsets.UTF_8));
+		final byte[] encodedString = encode(RpcMessageCodecUtil.getBinaryCodec(), echoRequest);
+		assertDeclaredLengthRejected(encodedString, marker, Integer.MAX_VALUE); // string: (length + 1) << 1
+		assertDeclaredLengthRejected(encodedString, marker, 100_000_000); // below the maximum, but truncated
+
+		final PackedPvStatusEventRequest packedRequest = new PackedPvStatusEventRequest();
+		packedRequest.setPackedPvStatuses(marker);
+		final byte[] encodedBytes = encode(RpcMessageCodecUtil.getBinaryCodec(), packedRequest);
+		assertDeclaredLengthRejected(encodedBytes, marker, Integer.MAX_VALUE);
+		assertDeclaredLengthRejected(encodedBytes, marker, 50_000_000);
+	}
+
+	/**
+	 * Decoding recurses into nested objects -- a deep nesting must be rejected with an {@link IOException}
+	 * instead of causing a {@link StackOverflowError}.
+	 */
+	@Test
+	public void nestingDepthIsBounded() throws Exception {
+		final byte[] encodedShallow = encode(RpcMessageCodecUtil.getBinaryCodec(), createErrorResponse(30));
+		final ErrorResponse decoded = (ErrorResponse) RpcMessageCodecUtil.decode(new ByteArrayInputStream(encodedShallow));
+		assertThat(decoded.getError().getCause()).isNotNull();
+
+		final byte[] encodedDeep = encode(RpcMessageCodecUtil.getBinaryCodec(), createErrorResponse(100));
+		assertThatThrownBy(() -> RpcMessageCodecUtil.decode(new ByteArrayInputStream(encodedDeep)))
+		.isInstanceOf(IOException.class);
+	}
+
+	private static ErrorResponse createErrorResponse(final int causeCount) {
+		Error error = null;
+		for (int i = 0; i <= causeCount; ++i) {
+			final Error parent = new Error();
+			parent.setClassName(IOException.class.getName());
+			parent.setMessage("level " + i);
+			parent.setCause(error);
+			error = parent;
+		}
+		return new ErrorResponse(error);
+	}
+
+	/**
+	 * Replaces the length preceding the {@code marker} by {@code declaredLength} and truncates the data after it.
+	 */
+	private static void assertDeclaredLengthRejected(final byte[] encoded, final byte[] marker, final int declaredLength) throws Exception {
+		final int markerIndex = indexOf(encoded, marker);
+		assertThat(markerIndex).isGreaterThan(0);
+
+		final ByteArrayOutputStream bout = new ByteArrayOutputStream();
+		bout.write(encoded, 0, markerIndex - 1); // the length of the marker fits into a single byte
+		long value = declaredLength;
+		while ((value & ~0x7FL) != 0) {
+			bout.write((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		bout.write((int) value);
+		bout.write(marker);
+
+		assertThatThrownBy(() -> RpcMessageCodecUtil.decode(new ByteArrayInputStream(bout.toByteArray())))
+		.isInstanceOf(IOException.class);
+	}
+
+	private static int indexOf(final byte[] data, final byte[] part) {
+		nextIndex: for (int i = 0; i <= data.length - part.length; ++i) {
+			for (int j = 0; j < part.length; ++j) {
+				if (data[i + j] != part[j])
+					continue nextIndex;
+			}
+			return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Compares the binary codec's wire-size with XML+gzip (as used by {@code PgpTransportSupport} before) for the
+	 * {@link PvStatusEventRequest} which is sent every 30 seconds by each PV-collecting Raspberry Pi. The speed is
+	 * compared by the {@code RpcMessageCodecBenchmark}.
+	 */
+	@Test
+	public void binaryIsSmallerThanXmlGzip() throws Exception {
+		final PvStatusEventRequest request = createPvStatusEventRequest(30);
+
+		final ByteArrayOutputStream bout = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzOut = new GZIPOutputStream(bout)) {
+			RpcMessageCodecUtil.getXmlCodec().encode(request, gzOut);
+		}
+		final byte[] xmlGzip = bout.toByteArray();
+		final byte[] binary = encode(RpcMessageCodecUtil.getBinaryCodec(), request);
+		logger.info("binaryIsSmallerThanXmlGzip: xmlGzip={} bytes, binary={} bytes", xmlGzip.length, binary.length);
+
+		assertThat(binary.length).isLessThan(xmlGzip.length);
+	}
+
+	private PvStatusEventRequest createPvStatusEventRequest(final int pvStatusCount) {
+		final PvStatusEventRequest request = new PvStatusEventRequest();
+		request.setRequestId(new Uid());
+		request.setClientHostId(new HostId("pv-collector"));
+		request.setServerHostId(HostId.SERVER);
+		request.setCreated(new Date());
+		final long measuredStart = System.currentTimeMillis() - pvStatusCount * 1000L;
+		for (int i = 0; i < pvStatusCount; ++i) {
+			final PvStatus pvStatus = new PvStatus();
+			pvStatus.setDeviceName("inverter");
+			pvStatus.setDeviceMode("B");
+			pvStatus.setMeasured(new Date(measuredStart + i * 1000L));
+			pvStatus.setAcInVoltage(measuredValue(230f + random.nextInt(50) / 10f));
+			pvStatus.setAcInFrequency(measuredValue(49.9f + random.nextInt(3) / 10f));
+			pvStatus.setAcOutVoltage(measuredValue(230f + random.nextInt(50) / 10f));
+			pvStatus.setAcOutFrequency(measuredValue(50f));
+			pvStatus.setAcOutApparentPower(measuredValue(random.nextInt(3000)));
+			pvStatus.setAcOutActivePower(measuredValue(random.nextInt(3000)));
+			pvStatus.setAcOutLoadPercentage(measuredValue(random.nextInt(100)));
+			pvStatus.setInternalBusVoltage(measuredValue(380f + random.nextInt(20)));
+			pvStatus.setBatteryVoltageAtInverter(measuredValue(52f + random.nextInt(30) / 10f));
+			pvStatus.setBatteryChargeCurrent(measuredValue(random.nextInt(60)));
+			pvStatus.setBatteryCapacityPercentage(measuredValue(random.nextInt(100)));
+			pvStatus.setHeatSinkTemperature(measuredValue(30f + random.nextInt(20)));
+			pvStatus.setPvToBatteryCurrent(measuredValue(random.nextInt(60)));
+			pvStatus.setPvVoltage(measuredValue(200f + random.nextInt(1000) / 10f));
+			pvStatus.setBatteryVoltageAtCharger(measuredValue(52f + random.nextInt(30) / 10f));
+			pvStatus.setBatteryDischargeCurrent(measuredValue(random.nextInt(10)));
+			pvStatus.setStatusBitmask(random.nextInt(256));
+			pvStatus.setEepromVersion(1);
+			pvStatus.setPvPower(measuredValue(random.nextInt(4000)));
+			request.getPvStatuses().add(pvStatus);
+		}
+		return request;
+	}
+
+	/**
+	 * Values are read from the inverter as decimal strings with at most one decimal place.
+	 */
+	private static float measuredValue(final float value) {
+		return Float.parseFloat(String.format(Locale.UK, "%.1f", value));
+	}
+
+	private static byte[] encode(final RpcMessageCodec codec, final RpcMessage rpcMessage) throws Exception {
+		final ByteArrayOutputStream bout = new ByteArrayOutputStream();
+		codec.encode(rpcMessage, bout);
+		return bout.toByteArray();
+	}
+
+	private Object createPopulatedInstance(final Class<?> clazz, final List<Class<?>> schemaClasses, final int depth) throws Exception {
+		final Object object = clazz.getConstructor().newInstance();
+		for (final Method setter : clazz.getMethods()) {
+			if (! setter.getName().startsWith("set") || setter.getParameterCount() != 1 || Modifier.isStatic(setter.getModifiers()))
+				continue;
+
+			final Method getter = getGetter(clazz, setter);
+			if (getter == null || getter.isAnnotationPresent(XmlTransient.class))
+				continue;
+
+			final Object value = createValue(getter.getGenericReturnType(), schemaClasses, depth);
+			if (value != null)
+				setter.invoke(object, value);
+		}
+		// The remainingTimeout is relative to the current time -- it is only constant (0), if the deadline passed.
+		if (object instanceof Request)
+			((Request<?>) object).setDeadline(1);
+
+		return object;
+	}
+
+	private Object createValue(final Type type, final List<Class<?>> schemaClasses, final int depth) throws Exception {
+		final Class<?> clazz = (Class<?>) (type instanceof ParameterizedType ? ((ParameterizedType) type).getRawType() : type);
+		if (clazz == boolean.class || clazz == Boolean.class) return true;
+		if (clazz == int.class || clazz == Integer.class) return random.nextInt(Integer.MAX_VALUE); // some setters (e.g. timeout) reject negative values
+		if (clazz == long.class || clazz == Long.class) return random.nextLong() & Long.MAX_VALUE;
+		if (clazz == short.class || clazz == Short.class) return (short) random.nextInt(Short.MAX_VALUE);
+		if (clazz == float.class || clazz == Float.class) return random.nextFloat();
+		if (clazz == double.class || clazz == Double.class) return random.nextDouble();
+		if (clazz == String.class) return "s-" + new Uid() + "-äöü";
+		if (clazz == byte[].class) { final byte[] bytes = new byte[17]; random.nextBytes(bytes); return bytes; }
+		if (clazz == Date.class) return new Date(System.currentTimeMillis() - random.nextInt(1000000));
+		if (clazz == Uid.class) return new Uid();
+		if (clazz == HostId.class) return new HostId("host-" + random.nextInt(1000));
+		if (clazz.isEnum()) return clazz.getEnumConstants()[clazz.getEnumConstants().length - 1];
+
+		if (depth >= MAX_POPULATE_DEPTH)
+			return null;
+
+		if (Collection.class.isAssignableFrom(clazz)) {
+			final Collection<Object> collection = Set.class.isAssignableFrom(clazz) ? new HashSet<>() : new ArrayList<>();
+			final Object element = createValue(((ParameterizedType) type).getActualTypeArguments()[0], schemaClasses, depth + 1);
+			if (element != null)
+				collection.add(element);
+
+			return collection;
+		}
+		for (final Class<?> schemaClass : schemaClasses) {
+			if (clazz.isAssignableFrom(schemaClass))
+				return createPopulatedInstance(schemaClass, schemaClasses, depth + 1);
+		}
+		return null;
+	}
+
+	private static Method getGetter(final Class<?> clazz, final Method setter) {
+		final String propertyName = setter.getName().substring(3);
+		for (final String prefix : new String[] { "get", "is" }) {
+			try {
+				final Method getter = clazz.getMethod(prefix + propertyName);
+				if (getter.getReturnType() == setter.getParameterTypes()[0])
+					return getter;
+			} catch (NoSuchMethodException x) {
+				// try next prefix
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,165 @@
+package house.intelli.core.rpc.codec;
+
+import static house.intelli.core.rpc.RpcConst.*;
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+
+import house.intelli.core.Uid;
+import house.intelli.core.rpc.HostId;
+import house.intelli.core.rpc.pv.PvStatus;
+import house.intelli.core.rpc.pv.PvStatusEventRequest;
+import house.intelli.core.util.IOUtil;
+
+public class RpcCompressionUtilTest {
+
+	private final Random random = new Random(1);
+
+	@Test
+	public void lz4RoundTrip() throws Exception {
+		for (int i = 0; i < 2000; ++i) {
+			final byte[] data = createData(random.nextInt(i < 1000 ? 100 : 100000), 1 + random.nextInt(i % 3 == 0 ? 256 : 4));
+			final byte[] block = new byte[Lz4Block.getMaxCompressedLength(data.length) + 3];
+			final int blockLength = Lz4Block.compress(data, 0, data.length, block, 3);
+
+			final byte[] decompressed = new byte[data.length];
+			Lz4Block.decompress(block, 3, blockLength, decompressed, 0, decompressed.length);
+			assertThat(decompressed).isEqualTo(data);
+		}
+	}
+
+	@Test
+	public void lz4RejectsMalformedBlock() throws Exception {
+		final byte[] data = createData(10000, 4);
+		final byte[] block = new byte[Lz4Block.getMaxCompressedLength(data.length)];
+		final int blockLength = Lz4Block.compress(data, 0, data.length, block, 0);
+
+		try { // truncated
+			Lz4Block.decompress(block, 0, blockLength - 3, new byte[data.length], 0, data.length);
+			fail("Truncated block was not detected!");
+		} catch (IOException expected) { }
+
+		try { // wrong length
+			Lz4Block.decompress(block, 0, blockLength, new byte[data.length + 1], 0, data.length + 1);
+			fail("Wrong length was not detected!");
+		} catch (IOException expected) { }
+
+		// Random garbage must never cause anything but an IOException.
+		for (int i = 0; i < 1000; ++i) {
+			final byte[] garbage = new byte[1 + random.nextInt(100)];
+			random.nextBytes(garbage);
+			try {
+				Lz4Block.decompress(garbage, 0, garbage.length, new byte[1000], 0, 1000);
+			} catch (IOException expected) { }
+		}
+	}
+
+	@Test
+	public void negotiateCompression() {
+		assertThat(RpcCompressionUtil.negotiateCompression(null)).isNull();
+		assertThat(RpcCompressionUtil.negotiateCompression(RpcCompressionUtil.getCompressionOffer())).isEqualTo(RpcCompression.LZ4);
+		assertThat(RpcCompressionUtil.negotiateCompression("deflate")).isEqualTo(RpcCompression.DEFLATE);
+		assertThat(RpcCompressionUtil.negotiateCompression("zstd, deflate")).isEqualTo(RpcCompression.DEFLATE);
+		assertThat(RpcCompressionUtil.negotiateCompression("zstd")).isEqualTo(RpcCompression.NONE);
+		assertThat(RpcCompressionUtil.negotiateCompression("")).isEqualTo(RpcCompression.NONE);
+	}
+
+	@Test
+	public void selectCompression() {
+		assertThat(RpcCompressionUtil.selectCompression(RpcCompression.LZ4, LZ4_COMPRESSION_THRESHOLD - 1)).isEqualTo(RpcCompression.NONE);
+		assertThat(RpcCompressionUtil.selectCompression(RpcCompression.LZ4, LZ4_COMPRESSION_THRESHOLD)).isEqualTo(RpcCompression.LZ4);
+		assertThat(RpcCompressionUtil.selectCompression(RpcCompression.DEFLATE, DEFLATE_COMPRESSION_THRESHOLD - 1)).isEqualTo(RpcCompression.NONE);
+		assertThat(RpcCompressionUtil.selectCompression(RpcCompression.DEFLATE, DEFLATE_COMPRESSION_THRESHOLD)).isEqualTo(RpcCompression.DEFLATE);
+		assertThat(RpcCompressionUtil.selectCompression(RpcCompression.NONE, Integer.MAX_VALUE)).isEqualTo(RpcCompression.NONE);
+	}
+
+	@Test
+	public void compressAndDecompressMessage() throws Exception {
+		final PvStatusEventRequest request = new PvStatusEventRequest();
+		request.setRequestId(new Uid());
+		request.setClientHostId(new HostId("raspi0"));
+		request.setServerHostId(HostId.SERVER);
+		for (int i = 0; i < 20; ++i) {
+			final PvStatus pvStatus = new PvStatus();
+			pvStatus.setDeviceName("inverter0");
+			pvStatus.setMeasured(new Date(1500000000000L + i * 1000L));
+			pvStatus.setPvPower(random.nextInt(3000));
+			pvStatus.setBatteryVoltageAtInverter(52f);
+			request.getPvStatuses().add(pvStatus);
+		}
+		final ByteArrayOutputStream bout = new ByteArrayOutputStream();
+		RpcMessageCodecUtil.getXmlCodec().encode(request, bout);
+		final byte[] encoded = bout.toByteArray();
+
+		for (final RpcCompression compression : RpcCompression.values()) {
+			final ByteBuffer compressed = RpcCompressionUtil.compress(compression, encoded, 0, encoded.length);
+			if (compression == RpcCompression.NONE)
+				assertThat(compressed.remaining()).isEqualTo(encoded.length);
+			else
+				assertThat(compressed.remaining()).isLessThan(encoded.length / 2);
+
+			final PvStatusEventRequest decoded = (PvStatusEventRequest) RpcMessageCodecUtil.decode(
+					RpcCompressionUtil.decompress(toByteArray(compressed)));
+			assertThat(decoded.getRequestId()).isEqualTo(request.getRequestId());
+			assertThat(decoded.getPvStatuses()).hasSize(request.getPvStatuses().size());
+		}
+	}
+
+	@Test
+	public void incompressibleDataIsNotCompressed() throws Exception {
+		final byte[] data = new byte[10000];
+		random.nextBytes(data);
+		for (final RpcCompression compression : RpcCompression.values()) {
+			final ByteBuffer compressed = RpcCompressionUtil.compress(compression, data, 0, data.length);
+			assertThat(toByteArray(compressed)).isEqualTo(data);
+		}
+	}
+
+	/**
+	 * Older peers always gzip XML -- this must still be understood.
+	 */
+	@Test
+	public void decompressLegacyFormat() throws Exception {
+		final byte[] xml = "<?xml version=\"1.0\"?><test/>".getBytes("UTF-8");
+		final ByteArrayOutputStream bout = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzOut = new GZIPOutputStream(bout)) {
+			gzOut.write(xml);
+		}
+		assertThat(readFully(RpcCompressionUtil.decompress(bout.toByteArray()))).isEqualTo(xml);
+		assertThat(readFully(RpcCompressionUtil.decompress(xml))).isEqualTo(xml);
+	}
+
+	private byte[] createData(final int length, final int alphabetSize) {
+		final byte[] data = new byte[length];
+		for (int i = 0; i < length; ++i) {
+			if (i > 8 && random.nextInt(10) < 7) // repetitions, like in XML
+				data[i] = data[i - 1 - random.nextInt(8)];
+			else
+				data[i] = (byte) random.nextInt(alphabetSize);
+		}
+		return data;
+	}
+
+	private static byte[] toByteArray(final ByteBuffer buffer) {
+		return Arrays.copyOfRange(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.arrayOffset() + buffer.limit());
+	}
+
+	private static byte[] readFully(final InputStream in) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try {
+			IOUtil.transferStreamData(in, out);
+		} finally {
+			in.close();
+		}
+		return out.toByteArray();
+	}
+}
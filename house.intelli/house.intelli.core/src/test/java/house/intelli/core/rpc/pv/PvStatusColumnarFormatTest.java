@@ -0,0 +1,222 @@
+package house.intelli.core.rpc.pv;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+
+import house.intelli.core.Uid;
+import house.intelli.core.jaxb.IntelliHouseJaxbContext;
+import house.intelli.core.rpc.HostId;
+import house.intelli.core.rpc.codec.RpcMessageCodec;
+import house.intelli.core.rpc.codec.RpcMessageCodecUtil;
+
+public class PvStatusColumnarFormatTest {
+
+	private final Random random = new Random(1);
+
+	@Test
+	public void roundTripDecimals() throws Exception {
+		final List<PvStatus> pvStatuses = new ArrayList<>();
+		final long start = 1500000000000L;
+		int pvPower = 1500;
+		int batteryVoltage = 5200;
+		for (int i = 0; i < 1000; ++i) {
+			final PvStatus pvStatus = createPvStatus(i % 300 == 299 ? "inverter1" : "inverter0", new Date(start + i * 1000L + (i % 97 == 0 ? 13 : 0)));
+			// values drifting like real measurements
+			pvPower = Math.max(0, pvPower + random.nextInt(41) - 20);
+			batteryVoltage += random.nextInt(5) - 2;
+			pvStatus.setPvPower(pvPower);
+			pvStatus.setBatteryVoltageAtInverter(batteryVoltage / 100f);
+			pvStatus.setAcOutFrequency(49.9f + random.nextInt(3) / 10f);
+			pvStatuses.add(pvStatus);
+		}
+		final byte[] packed = assertRoundTrip(pvStatuses);
+
+		// Must be considerably smaller than the gzipped XML, which was stored and sent before.
+		final PvStatusList pvStatusList = new PvStatusList();
+		pvStatusList.setPvStatuses(pvStatuses);
+		final ByteArrayOutputStream gzippedXml = new ByteArrayOutputStream();
+		try (GZIPOutputStream out = new GZIPOutputStream(gzippedXml)) {
+			IntelliHouseJaxbContext.getJaxbContext().createMarshaller().marshal(pvStatusList, out);
+		}
+		assertThat(packed.length).isLessThan(gzippedXml.size() / 2);
+	}
+
+	@Test
+	public void roundTripArbitraryFloats() throws Exception {
+		final List<PvStatus> pvStatuses = new ArrayList<>();
+		for (int i = 0; i < 500; ++i) {
+			final PvStatus pvStatus = createPvStatus("inverter0", new Date(random.nextLong()));
+			pvStatus.setAcInVoltage(random.nextFloat() * 230f);
+			pvStatus.setPvVoltage(Float.intBitsToFloat(random.nextInt()));
+			pvStatus.setStatusBitmask(random.nextInt());
+			pvStatus.setEepromVersion(i % 2 == 0 ? Integer.MIN_VALUE : Integer.MAX_VALUE);
+			pvStatuses.add(pvStatus);
+		}
+		assertRoundTrip(pvStatuses);
+	}
+
+	@Test
+	public void roundTripSpecialValues() throws Exception {
+		final List<PvStatus> pvStatuses = new ArrayList<>();
+		final float[] specialValues = { 0f, -0f, Float.NaN, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY,
+				Float.MIN_VALUE, Float.MAX_VALUE, -Float.MAX_VALUE, 0.1f, 1e12f };
+		for (final float value : specialValues) {
+			final PvStatus pvStatus = createPvStatus(null, null);
+			pvStatus.setDeviceMode(null);
+			pvStatus.setHeatSinkTemperature(value);
+			pvStatuses.add(pvStatus);
+		}
+		pvStatuses.add(createPvStatus("", new Date(0)));
+		pvStatuses.add(createPvStatus("Wechselrichter äöü €", new Date(Long.MAX_VALUE)));
+		pvStatuses.add(createPvStatus(null, new Date(Long.MIN_VALUE + 1)));
+		assertRoundTrip(pvStatuses);
+
+		// Every single value on its own, too: A column consisting of only one value is encoded differently.
+		for (final PvStatus pvStatus : pvStatuses)
+			assertRoundTrip(Collections.singletonList(pvStatus));
+	}
+
+	@Test
+	public void roundTripEmpty() throws Exception {
+		assertRoundTrip(Collections.<PvStatus>emptyList());
+	}
+
+	@Test
+	public void readAndWriteStream() throws Exception {
+		final List<PvStatus> pvStatuses = Arrays.asList(createPvStatus("inverter0", new Date(1000)), createPvStatus("inverter0", new Date(2000)));
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		PvStatusColumnarFormat.write(out, pvStatuses);
+		out.write(42); // data following in the same stream must not be consumed
+
+		final ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+		assertEquals(pvStatuses, PvStatusColumnarFormat.read(in));
+		assertThat(in.read()).isEqualTo(42);
+	}
+
+	@Test
+	public void rejectMalformed() throws Exception {
+		final List<PvStatus> pvStatuses = new ArrayList<>();
+		for (int i = 0; i < 100; ++i)
+			pvStatuses.add(createPvStatus("inverter" + (i % 3), new Date(i * 1000L)));
+
+		final byte[] packed = PvStatusColumnarFormat.pack(pvStatuses);
+
+		try { // truncated
+			PvStatusColumnarFormat.unpack(Arrays.copyOf(packed, packed.length - 1));
+			fail("Truncated data was not detected!");
+		} catch (IOException expected) { }
+
+		try { // trailing garbage
+			PvStatusColumnarFormat.unpack(Arrays.copyOf(packed, packed.length + 1));
+			fail("Trailing garbage was not detected!");
+		} catch (IOException expected) { }
+
+		try { // no magic
+			PvStatusColumnarFormat.unpack("<pvStatusList/>".getBytes("UTF-8"));
+			fail("Missing magic was not detected!");
+		} catch (IOException expected) { }
+
+		// Corrupt data must never cause anything but an IOException (or a wrong, but valid result).
+		for (int i = 0; i < 2000; ++i) {
+			final byte[] corrupt = packed.clone();
+			for (int j = 0; j < 3; ++j) {
+				final int index = PvStatusColumnarFormat.MAGIC.length + 1 + random.nextInt(corrupt.length - PvStatusColumnarFormat.MAGIC.length - 1);
+				corrupt[index] = (byte) random.nextInt();
+			}
+			try {
+				PvStatusColumnarFormat.unpack(corrupt);
+			} catch (IOException expected) { }
+		}
+	}
+
+	@Test
+	public void packedRequestRoundTripThroughCodecs() throws Exception {
+		final List<PvStatus> pvStatuses = new ArrayList<>();
+		for (int i = 0; i < 60; ++i)
+			pvStatuses.add(createPvStatus("inverter0", new Date(1500000000000L + i * 1000L)));
+
+		final PackedPvStatusEventRequest request = new PackedPvStatusEventRequest();
+		request.setRequestId(new Uid());
+		request.setClientHostId(new HostId("raspi0"));
+		request.setServerHostId(HostId.SERVER);
+		request.packPvStatuses(pvStatuses);
+
+		for (final RpcMessageCodec codec : Arrays.asList(RpcMessageCodecUtil.getXmlCodec(), RpcMessageCodecUtil.getBinaryCodec())) {
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			codec.encode(request, out);
+			final PackedPvStatusEventRequest decoded = (PackedPvStatusEventRequest) RpcMessageCodecUtil.decode(new ByteArrayInputStream(out.toByteArray()));
+			assertThat(decoded.getRequestId()).isEqualTo(request.getRequestId());
+			assertEquals(pvStatuses, decoded.unpackPvStatuses());
+		}
+	}
+
+	private byte[] assertRoundTrip(final List<PvStatus> pvStatuses) throws IOException {
+		final byte[] packed = PvStatusColumnarFormat.pack(pvStatuses);
+		assertEquals(pvStatuses, PvStatusColumnarFormat.unpack(packed));
+		return packed;
+	}
+
+	private PvStatus createPvStatus(final String deviceName, final Date measured) {
+		final PvStatus pvStatus = new PvStatus();
+		pvStatus.setDeviceName(deviceName);
+		pvStatus.setDeviceMode(random.nextInt(50) == 0 ? "B" : "L");
+		pvStatus.setMeasured(measured);
+		pvStatus.setAcInVoltage(230.1f);
+		pvStatus.setAcInFrequency(50f);
+		pvStatus.setAcOutVoltage(229.9f);
+		pvStatus.setAcOutFrequency(50f);
+		pvStatus.setAcOutApparentPower(random.nextInt(1000));
+		pvStatus.setAcOutActivePower(random.nextInt(1000));
+		pvStatus.setAcOutLoadPercentage(random.nextInt(100));
+		pvStatus.setInternalBusVoltage(380);
+		pvStatus.setBatteryVoltageAtInverter(52.3f);
+		pvStatus.setBatteryChargeCurrent(random.nextInt(20));
+		pvStatus.setBatteryCapacityPercentage(87);
+		pvStatus.setHeatSinkTemperature(35);
+		pvStatus.setPvToBatteryCurrent(random.nextInt(20));
+		pvStatus.setPvVoltage(120.5f);
+		pvStatus.setBatteryVoltageAtCharger(52.31f);
+		pvStatus.setBatteryDischargeCurrent(0);
+		pvStatus.setStatusBitmask(0x10);
+		pvStatus.setEepromVersion(3);
+		pvStatus.setPvPower(random.nextInt(3000));
+		return pvStatus;
+	}
+
+	/**
+	 * Compares all properties -- {@code float}s by their bits, because {@code NaN != NaN} and {@code -0.0 == 0.0}.
+	 */
+	private static void assertEquals(final List<PvStatus> expected, final List<PvStatus> actual) {
+		assertThat(actual).hasSize(expected.size());
+		for (int i = 0; i < expected.size(); ++i)
+			assertThat(toComparableString(actual.get(i))).isEqualTo(toComparableString(expected.get(i)));
+	}
+
+	private static String toComparableString(final PvStatus s) {
+		final float[] floats = { s.getAcInVoltage(), s.getAcInFrequency(), s.getAcOutVoltage(), s.getAcOutFrequency(),
+				s.getAcOutApparentPower(), s.getAcOutActivePower(), s.getAcOutLoadPercentage(), s.getInternalBusVoltage(),
+				s.getBatteryVoltageAtInverter(), s.getBatteryChargeCurrent(), s.getBatteryCapacityPercentage(),
+				s.getHeatSinkTemperature(), s.getPvToBatteryCurrent(), s.getPvVoltage(), s.getBatteryVoltageAtCharger(),
+				s.getBatteryDischargeCurrent(), s.getPvPower() };
+		final StringBuilder sb = new StringBuilder();
+		sb.append(s.getDeviceName()).append('|').append(s.getDeviceMode()).append('|')
+		.append(s.getMeasured() == null ? null : s.getMeasured().getTime()).append('|')
+		.append(s.getStatusBitmask()).append('|').append(s.getEepromVersion());
+		for (final float f : floats)
+			sb.append('|').append(Integer.toHexString(Float.floatToRawIntBits(f)));
+
+		return sb.toString();
+	}
+}
@@ -15,6 +15,9 @@ import house.intelli.core.rpc.HttpRpcClientTransport;
 import house.intelli.core.rpc.Request;
 import house.intelli.core.rpc.Response;
 import house.intelli.core.rpc.RpcMessage;
+import house.intelli.core.rpc.codec.RpcCompression;
+import house.intelli.core.rpc.codec.RpcMessageCodec;
+import house.intelli.core.rpc.codec.RpcMessageCodecUtil;
 
 public class PgpHttpRpcClientTransport extends HttpRpcClientTransport {
 	private static final Logger logger = LoggerFactory.getLogger(PgpHttpRpcClientTransport.class);
@@ -45,17 +48,21 @@ public class PgpHttpRpcClientTransport extends HttpRpcClientTransport {
 			pgpRequest.copyRequestCoordinates(request);
 			pgpRequest.setRequestId(new Uid());
 
-			byte[] plainRequest = pgpTransportSupport.serializeRpcMessage(request);
-
 //			HostId clientHostId = pgpTransportSupport.resolveRealServerHostId(request.getClientHostId());
 			HostId serverHostId = pgpTransportSupport.resolveRealServerHostId(request.getServerHostId());
 
+			// The codec and the compression were negotiated with our direct peer. If the request is relayed to someone
+			// else, we don't know which ones the recipient supports and thus use the legacy format (gzipped XML).
+			final boolean directPeer = serverHostId.equals(getServerHostId());
+			final RpcMessageCodec codec = directPeer ? getRequestCodec() : RpcMessageCodecUtil.getXmlCodec();
+			final RpcCompression compression = directPeer ? getRequestCompression() : null;
+
 		// If it is encrypted + signed, it must always be signed by us -- even if we forward e.g. an error-message for someone else (which might be plain-text).
 			HostId clientHostId = HostId.getLocalHostId();
 			pgpRequest.setClientHostId(pgpTransportSupport.resolveAliasHostId(clientHostId));
 
 			pgpRequest.setEncryptedRequest(
-					pgpTransportSupport.encryptAndSign(plainRequest, clientHostId, serverHostId));
+					pgpTransportSupport.serializeAndEncryptAndSign(request, codec, compression, clientHostId, serverHostId));
 
 			logger.debug("sendRequest: Encrypted request: {}", pgpRequest);
 		}
@@ -35,7 +35,14 @@ public class PgpHttpRpcClientTransportProvider extends HttpRpcClientTransportPro
 	private void resolveServerHostIdIfNeeded() {
 		if (getServerHostId() == null) {
 			String host = requireNonNull(getServerUrl(), "serverUrl").getHost();
-			setServerHostId(new HostId(host));
+			// A direct route to another client must not replace the server's host-ID.
+			if (getRpcContext().getRpcClientTransportProvider() == this)
+				setServerHostId(new HostId(host));
+			else {
+				synchronized (this) {
+					serverHostId = new HostId(host);
+				}
+			}
 		}
 	}
 }
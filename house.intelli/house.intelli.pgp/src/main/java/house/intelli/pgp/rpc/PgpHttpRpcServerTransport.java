@@ -14,6 +14,9 @@ import house.intelli.core.rpc.HttpRpcServerTransport;
 import house.intelli.core.rpc.Request;
 import house.intelli.core.rpc.Response;
 import house.intelli.core.rpc.RpcMessage;
+import house.intelli.core.rpc.codec.RpcCompression;
+import house.intelli.core.rpc.codec.RpcMessageCodec;
+import house.intelli.core.rpc.codec.RpcMessageCodecUtil;
 
 public class PgpHttpRpcServerTransport extends HttpRpcServerTransport {
 	private static final Logger logger = LoggerFactory.getLogger(PgpHttpRpcServerTransport.class);
@@ -101,9 +104,14 @@ public class PgpHttpRpcServerTransport extends HttpRpcServerTransport {
 				pgpResponse = new PgpResponse();
 				pgpResponse.copyRequestCoordinates(response);
 
-				byte[] plainResponse = pgpTransportSupport.serializeRpcMessage(response);
-
 				HostId clientHostId = pgpTransportSupport.resolveRealServerHostId(response.getClientHostId());
+
+				// The codec and the compression were negotiated with our direct peer. If the response is relayed to someone
+				// else, we don't know which ones the recipient supports and thus use the legacy format (gzipped XML).
+				final HostId peerHostId = pgpTransportSupport.resolveRealServerHostId(rawRequest.getClientHostId());
+				final boolean directPeer = clientHostId.equals(peerHostId);
+				final RpcMessageCodec codec = directPeer ? getResponseCodec() : RpcMessageCodecUtil.getXmlCodec();
+				final RpcCompression compression = directPeer ? getResponseCompression() : null;
 //				HostId serverHostId = pgpTransportSupport.resolveRealServerHostId(response.getServerHostId());
 
 				// If it is encrypted + signed, it must always be signed by us -- even if we forward e.g. an error-message for someone else (which might be plain-text).
@@ -111,7 +119,7 @@ public class PgpHttpRpcServerTransport extends HttpRpcServerTransport {
 				pgpResponse.setServerHostId(pgpTransportSupport.resolveAliasHostId(serverHostId));
 
 				pgpResponse.setEncryptedResponse(
-						pgpTransportSupport.encryptAndSign(plainResponse, serverHostId, clientHostId));
+						pgpTransportSupport.serializeAndEncryptAndSign(response, codec, compression, serverHostId, clientHostId));
 
 				logger.debug("sendResponse: Encrypted response: {}", pgpResponse);
 			} catch (Exception x) {
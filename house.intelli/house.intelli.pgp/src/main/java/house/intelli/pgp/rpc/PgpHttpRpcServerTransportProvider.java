@@ -3,6 +3,7 @@ package house.intelli.pgp.rpc;
 import static java.util.Objects.*;
 
 import house.intelli.core.rpc.HttpRpcServerTransportProvider;
+import house.intelli.core.rpc.RpcContextMode;
 import house.intelli.core.rpc.RpcServerTransport;
 
 public class PgpHttpRpcServerTransportProvider extends HttpRpcServerTransportProvider {
@@ -12,9 +13,17 @@ public class PgpHttpRpcServerTransportProvider extends HttpRpcServerTransportPro
 	@Override
 	protected RpcServerTransport _createRpcServerTransport() {
 		if (! lateInitDone) {
-			PgpRequestService.setServerHostId(requireNonNull(getRpcContext().getLocalHostId(), "rpcContext.localHostId"));
+			// A client's DirectRpcServer must not replace the server's host-ID -- the client is not the server!
+			if (RpcContextMode.SERVER == getRpcContext().getMode())
+				PgpRequestService.setServerHostId(requireNonNull(getRpcContext().getLocalHostId(), "rpcContext.localHostId"));
+
 			lateInitDone = true;
 		}
 		return new PgpHttpRpcServerTransport();
 	}
+
+	@Override
+	public boolean isAuthenticating() {
+		return true;
+	}
 }
@@ -7,16 +7,17 @@ import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
 import java.security.SecureRandom;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 import javax.xml.bind.Unmarshaller;
@@ -32,11 +33,18 @@ import org.slf4j.LoggerFactory;
 import house.intelli.core.Uid;
 import house.intelli.core.auth.SignatureException;
 import house.intelli.core.jaxb.IntelliHouseJaxbContext;
+import house.intelli.core.jaxb.JaxbPool;
 import house.intelli.core.rpc.Error;
 import house.intelli.core.rpc.ErrorResponse;
 import house.intelli.core.rpc.HostId;
 import house.intelli.core.rpc.Response;
 import house.intelli.core.rpc.RpcMessage;
+import house.intelli.core.rpc.codec.RpcCompression;
+import house.intelli.core.rpc.codec.RpcCompressionUtil;
+import house.intelli.core.rpc.codec.RpcMessageCodec;
+import house.intelli.core.rpc.codec.RpcMessageCodecUtil;
+import house.intelli.core.rpc.codec.XmlRpcMessageCodec;
+import house.intelli.core.util.ExposedByteArrayOutputStream;
 import house.intelli.pgp.Pgp;
 import house.intelli.pgp.PgpDecoder;
 import house.intelli.pgp.PgpEncoder;
@@ -50,7 +58,6 @@ public class PgpTransportSupport {
 	private static final Logger logger = LoggerFactory.getLogger(PgpTransportSupport.class);
 
 	private HostId serverHostId;
-	private JAXBContext jaxbContext;
 
 	private static final SymmetricCryptoType symmetricCryptoType = SymmetricCryptoType.TWOFISH_CFB_NOPADDING; // maybe we make this configurable later...
 	private static final HashType hashType = HashType.SHA256; // maybe we make this configurable later...
@@ -69,6 +76,8 @@ public class PgpTransportSupport {
 
 	public static final byte ENCRYPTED_DATA_MODE_SYMMETRIC = 1;
 
+	private static final int GZIP_BUFFER_SIZE = 8 * 1024;
+
 	public PgpTransportSupport() {
 	}
 
@@ -130,33 +139,115 @@ public class PgpTransportSupport {
 	}
 
 	public byte[] serializeRpcMessage(RpcMessage rpcMessage) throws IOException {
+		return serializeRpcMessage(rpcMessage, RpcMessageCodecUtil.getXmlCodec());
+	}
+
+	/**
+	 * Serializes the given message using the given codec in the legacy format understood by all peers.
+	 * <p>
+	 * XML is gzipped (as it always was), because it compresses very well. The binary encoding is already
+	 * compact and therefore not compressed. {@link #deserializeRpcMessage(byte[])} detects both formats.
+	 * @param rpcMessage the message to be serialized. Must not be <code>null</code>.
+	 * @param codec the codec to be used. Must not be <code>null</code>.
+	 * @return the serialized message. Never <code>null</code>.
+	 * @throws IOException if serializing failed.
+	 */
+	public byte[] serializeRpcMessage(RpcMessage rpcMessage, RpcMessageCodec codec) throws IOException {
+		return serializeRpcMessage(rpcMessage, codec, null);
+	}
+
+	/**
+	 * Serializes the given message using the given codec and compression.
+	 * <p>
+	 * The compression is selected per message by {@link RpcCompressionUtil#selectCompression(RpcCompression, int)}:
+	 * Small messages are not compressed at all. If no compression was negotiated, the legacy format is used (see
+	 * {@link #serializeRpcMessage(RpcMessage, RpcMessageCodec)}).
+	 * @param rpcMessage the message to be serialized. Must not be <code>null</code>.
+	 * @param codec the codec to be used. Must not be <code>null</code>.
+	 * @param compression the compression negotiated with the recipient. <code>null</code> for the legacy format.
+	 * @return the serialized message. Never <code>null</code>.
+	 * @throws IOException if serializing failed.
+	 */
+	public byte[] serializeRpcMessage(RpcMessage rpcMessage, RpcMessageCodec codec, RpcCompression compression) throws IOException {
+		final ByteBuffer serialized = serializeRpcMessageToBuffer(rpcMessage, codec, compression);
+		return Arrays.copyOfRange(serialized.array(), serialized.arrayOffset() + serialized.position(),
+				serialized.arrayOffset() + serialized.limit());
+	}
+
+	/**
+	 * Serializes the given message, encrypts and signs it -- like {@link #serializeRpcMessage(RpcMessage, RpcMessageCodec)}
+	 * followed by {@link #encryptAndSign(byte[], HostId, HostId)}, but without copying the serialized message.
+	 * @param rpcMessage the message to be serialized. Must not be <code>null</code>.
+	 * @param codec the codec to be used. Must not be <code>null</code>.
+	 * @param senderHostId the sender. Must not be <code>null</code>.
+	 * @param recipientHostId the recipient. Must not be <code>null</code>.
+	 * @return the encrypted message. Never <code>null</code>.
+	 * @throws IOException if serializing or encrypting failed.
+	 */
+	public byte[] serializeAndEncryptAndSign(RpcMessage rpcMessage, RpcMessageCodec codec, HostId senderHostId, HostId recipientHostId) throws IOException {
+		return serializeAndEncryptAndSign(rpcMessage, codec, null, senderHostId, recipientHostId);
+	}
+
+	/**
+	 * Serializes the given message, encrypts and signs it -- like
+	 * {@link #serializeRpcMessage(RpcMessage, RpcMessageCodec, RpcCompression)} followed by
+	 * {@link #encryptAndSign(byte[], HostId, HostId)}, but without copying the serialized message.
+	 * @param rpcMessage the message to be serialized. Must not be <code>null</code>.
+	 * @param codec the codec to be used. Must not be <code>null</code>.
+	 * @param compression the compression negotiated with the recipient. <code>null</code> for the legacy format.
+	 * @param senderHostId the sender. Must not be <code>null</code>.
+	 * @param recipientHostId the recipient. Must not be <code>null</code>.
+	 * @return the encrypted message. Never <code>null</code>.
+	 * @throws IOException if serializing or encrypting failed.
+	 */
+	public byte[] serializeAndEncryptAndSign(RpcMessage rpcMessage, RpcMessageCodec codec, RpcCompression compression,
+			HostId senderHostId, HostId recipientHostId) throws IOException {
+		final ByteBuffer plainData = serializeRpcMessageToBuffer(rpcMessage, codec, compression);
+		return encryptAndSign(plainData.array(), plainData.arrayOffset() + plainData.position(), plainData.remaining(),
+				senderHostId, recipientHostId);
+	}
+
+	private ByteBuffer serializeRpcMessageToBuffer(RpcMessage rpcMessage, RpcMessageCodec codec, RpcCompression compression) throws IOException {
 		requireNonNull(rpcMessage, "rpcMessage");
-		try {
-			ByteArrayOutputStream bout = new ByteArrayOutputStream();
-			try (GZIPOutputStream gzOut = new GZIPOutputStream(bout)) {
-				Marshaller marshaller = getJaxbContext().createMarshaller();
-				marshaller.marshal(rpcMessage, gzOut);
+		requireNonNull(codec, "codec");
+		ExposedByteArrayOutputStream bout = new ExposedByteArrayOutputStream();
+		if (compression == null) { // legacy format
+			if (XmlRpcMessageCodec.NAME.equals(codec.getName())) {
+				try (GZIPOutputStream gzOut = new GZIPOutputStream(bout, GZIP_BUFFER_SIZE)) {
+					codec.encode(rpcMessage, gzOut);
+				}
 			}
-			return bout.toByteArray();
-		} catch (JAXBException e) {
-			throw new IOException(e);
+			else
+				codec.encode(rpcMessage, bout);
+
+			return ByteBuffer.wrap(bout.getBuffer(), 0, bout.size());
 		}
+
+		codec.encode(rpcMessage, bout);
+		return RpcCompressionUtil.compress(RpcCompressionUtil.selectCompression(compression, bout.size()),
+				bout.getBuffer(), 0, bout.size());
 	}
 
+	/**
+	 * Deserializes the given message -- detecting its compression and codec. It may be in the legacy format or
+	 * in any format written by {@link #serializeRpcMessage(RpcMessage, RpcMessageCodec, RpcCompression)}.
+	 * @param serialized the serialized message. Must not be <code>null</code>.
+	 * @return the message. Never <code>null</code>.
+	 * @throws IOException if deserializing failed.
+	 */
 	public RpcMessage deserializeRpcMessage(byte[] serialized) throws IOException {
 		requireNonNull(serialized, "serialized");
-		try {
-			try (GZIPInputStream gzIn = new GZIPInputStream(new ByteArrayInputStream(serialized))) {
-				Unmarshaller unmarshaller = getJaxbContext().createUnmarshaller();
-				Object object = unmarshaller.unmarshal(gzIn);
-				return (RpcMessage) object;
-			}
-		} catch (JAXBException e) {
-			throw new IOException(e);
+		try (InputStream in = RpcCompressionUtil.decompress(serialized)) {
+			return RpcMessageCodecUtil.decode(in);
 		}
 	}
 
 	public byte[] encryptAndSign(final byte[] plainData, final HostId senderHostId, final HostId recipientHostId) throws IOException {
+		requireNonNull(plainData, "plainData");
+		return encryptAndSign(plainData, 0, plainData.length, senderHostId, recipientHostId);
+	}
+
+	private byte[] encryptAndSign(final byte[] plainData, final int plainDataOffset, final int plainDataLength, final HostId senderHostId, final HostId recipientHostId) throws IOException {
 		requireNonNull(plainData, "plainData");
 		requireNonNull(senderHostId, "senderHostId");
 		requireNonNull(recipientHostId, "recipientHostId");
@@ -167,7 +258,7 @@ public class PgpTransportSupport {
 		final Session session = sessionManager.getOrCreateSession(sessionHostIdPair);
 		session.confirmByHostId(senderHostId);
 
-		ByteArrayOutputStream bout = new ByteArrayOutputStream();
+		ExposedByteArrayOutputStream bout = new ExposedByteArrayOutputStream();
 		DataOutputStream dout = new DataOutputStream(bout);
 		dout.write(ENCRYPTED_DATA_HEADER);
 		dout.write(ENCRYPTED_DATA_VERSION);
@@ -188,14 +279,16 @@ public class PgpTransportSupport {
 
 			// There is no need to sign this data, because only the two session partners know the key.
 			// But we generate an SHA256 hash to make sure, nobody can manipulate the data.
-			final byte[] plainDataWithHash = combinePlainDataWithHash(plainData);
+			// The cipher-text has exactly the length of the plain-text => we encrypt directly into the result.
+			final int encLen = getPlainDataWithHashLength(plainDataLength);
+			dout.writeInt(encLen);
+			dout.flush();
+			final byte[] result = new byte[bout.size() + encLen];
+			System.arraycopy(bout.getBuffer(), 0, result, 0, bout.size());
 
-			// encrypt data and write cipher-text to output-stream
-			final byte[] enc = new byte[plainDataWithHash.length * 3 / 2];
 			final long startTimestampEncode = System.currentTimeMillis();
-			int encLen = cipherWithIv.cipher.processBytes(plainDataWithHash, 0, plainDataWithHash.length, enc, 0);
+			encryptPlainDataWithHash(cipherWithIv.cipher, plainData, plainDataOffset, plainDataLength, result, bout.size());
 			final long stopTimestampEncode = System.currentTimeMillis();
-			writeLongByteArray(dout, enc, 0, encLen);
 
 			releaseCipher(cipherWithIv);
 
@@ -204,16 +297,18 @@ public class PgpTransportSupport {
 						stopTimestampEncode - startTimestampEncode,
 						System.currentTimeMillis() - startTimestampTotal);
 			}
+			return result;
 		} else {
 			dout.writeByte(ENCRYPTED_DATA_MODE_PGP);
 
 			byte[] sessionRequestBytes = serializeSessionRequest(session);
 
-			ByteArrayOutputStream plainDataBout = new ByteArrayOutputStream();
-			DataOutputStream plainDataDout = new DataOutputStream(plainDataBout);
+			// Concatenating the streams instead of the data -- the plain-text is not copied.
+			ByteArrayOutputStream plainDataPrefixBout = new ByteArrayOutputStream();
+			DataOutputStream plainDataPrefixDout = new DataOutputStream(plainDataPrefixBout);
 
-			writeLongByteArray(plainDataDout, sessionRequestBytes);
-			writeLongByteArray(plainDataDout, plainData);
+			writeLongByteArray(plainDataPrefixDout, sessionRequestBytes);
+			plainDataPrefixDout.writeInt(plainDataLength);
 
 			final long startTimestampLookupPgpKeyForSenderHostId = System.currentTimeMillis();
 			PgpKey senderKey = getMasterKeyOrFail(senderHostId);
@@ -223,7 +318,9 @@ public class PgpTransportSupport {
 			PgpKey recipientKey = getMasterKeyOrFail(recipientHostId);
 			final long stopTimestampLookupPgpKeyForRecipientHostId = System.currentTimeMillis();
 
-			PgpEncoder encoder = pgp.createEncoder(new ByteArrayInputStream(plainDataBout.toByteArray()), dout);
+			PgpEncoder encoder = pgp.createEncoder(new SequenceInputStream(
+					new ByteArrayInputStream(plainDataPrefixBout.toByteArray()),
+					new ByteArrayInputStream(plainData, plainDataOffset, plainDataLength)), dout);
 			encoder.setSignPgpKey(senderKey);
 			encoder.getEncryptPgpKeys().add(recipientKey);
 
@@ -279,19 +376,20 @@ public class PgpTransportSupport {
 			session.confirmByHostId(senderHostId);
 
 			final byte[] iv = readShortByteArray(din);
-			final byte[] enc = readLongByteArray(din);
+			final int encLength = din.readInt();
+			final int encOffset = encryptedData.length - bin.available(); // decrypting in place -- not copying
+			if (encLength < 0 || encLength > bin.available())
+				throw new IOException(String.format("encLength out of range! encLength=%d, available=%d", encLength, bin.available()));
 
-			final byte[] buf = new byte[enc.length * 3 / 2]; // decrypted data should never be larger than encrypted data, but we're careful
 			StreamCipher cipher = acquireInitializedCipherForDecryption(symmetricCryptoType, session.getSessionKey(), iv);
 			final long startTimestampDecode = System.currentTimeMillis();
-			int plainDataWithHashLength = cipher.processBytes(enc, 0, enc.length, buf, 0);
+			final byte[] plainData;
+			try {
+				plainData = decryptPlainDataWithHashWithVerification(cipher, encryptedData, encOffset, encLength);
+			} finally {
+				releaseCipher(cipher);
+			}
 			final long stopTimestampDecode = System.currentTimeMillis();
-			releaseCipher(cipher);
-
-			final byte[] plainDataWithHash = new byte[plainDataWithHashLength];
-			System.arraycopy(buf, 0, plainDataWithHash, 0, plainDataWithHashLength);
-
-			final byte[] plainData = splitPlainDataFromHashWithVerification(plainDataWithHash);
 
 			if (logger.isDebugEnabled()) {
 				logger.debug("decryptAndVerifySignature: mode=SYMMETRIC, decodeDuration={}ms, totalDuration={}ms",
@@ -409,9 +507,12 @@ public class PgpTransportSupport {
 
 	private byte[] serializeSessionRequest(final Session session) throws IOException {
 		requireNonNull(session, "session");
+		final JaxbPool jaxbPool = getJaxbPool();
 		try {
 			ByteArrayOutputStream sessionRequestOut = new ByteArrayOutputStream();
-			getJaxbContext().createMarshaller().marshal(new SessionRequest(session), sessionRequestOut);
+			Marshaller marshaller = jaxbPool.acquireMarshaller();
+			marshaller.marshal(new SessionRequest(session), sessionRequestOut);
+			jaxbPool.releaseMarshaller(marshaller);
 			return sessionRequestOut.toByteArray();
 		} catch (JAXBException e) {
 			throw new IOException(e);
@@ -420,8 +521,11 @@ public class PgpTransportSupport {
 
 	private SessionRequest deserializeSessionRequest(final byte[] sessionRequestBytes) throws IOException {
 		requireNonNull(sessionRequestBytes, "sessionRequestBytes");
+		final JaxbPool jaxbPool = getJaxbPool();
 		try {
-			Object deserialized = getJaxbContext().createUnmarshaller().unmarshal(new ByteArrayInputStream(sessionRequestBytes));
+			Unmarshaller unmarshaller = jaxbPool.acquireUnmarshaller();
+			Object deserialized = unmarshaller.unmarshal(new ByteArrayInputStream(sessionRequestBytes));
+			jaxbPool.releaseUnmarshaller(unmarshaller);
 			return (SessionRequest) deserialized;
 		} catch (JAXBException e) {
 			throw new IOException(e);
@@ -468,11 +572,8 @@ public class PgpTransportSupport {
 		return byteArray;
 	}
 
-	protected JAXBContext getJaxbContext() {
-		if (jaxbContext == null)
-			jaxbContext = IntelliHouseJaxbContext.getJaxbContext();
-
-		return jaxbContext;
+	protected JaxbPool getJaxbPool() {
+		return IntelliHouseJaxbContext.getJaxbPool();
 	}
 
 	private static CipherWithIv acquireInitializedCipherForEncryption(SymmetricCryptoType symmetricCryptoType, byte[] key) {
@@ -556,6 +657,103 @@ public class PgpTransportSupport {
 		return plainData;
 	}
 
+	/**
+	 * Gets the length of the data produced by {@link #combinePlainDataWithHash(byte[])}.
+	 * @param plainDataLength the length of the plain data.
+	 * @return the length of the plain data combined with its hash.
+	 */
+	protected static int getPlainDataWithHashLength(final int plainDataLength) {
+		return 4 + 4 + plainDataLength + 1 + new SHA256Digest().getDigestSize();
+	}
+
+	/**
+	 * Combines the given plain data with its hash like {@link #combinePlainDataWithHash(byte[])} and encrypts the
+	 * result directly into the given output-array -- without copying the plain data.
+	 * @param cipher the initialized cipher. Must not be <code>null</code>.
+	 * @param plainData the plain data. Must not be <code>null</code>.
+	 * @param plainDataOffset the offset of the plain data in {@code plainData}.
+	 * @param plainDataLength the length of the plain data.
+	 * @param out the output-array. Must not be <code>null</code>. It must have room for
+	 * {@link #getPlainDataWithHashLength(int)} bytes.
+	 * @param outOffset the offset in {@code out}.
+	 */
+	protected static void encryptPlainDataWithHash(final StreamCipher cipher, final byte[] plainData, final int plainDataOffset, final int plainDataLength,
+			final byte[] out, int outOffset) {
+		requireNonNull(cipher, "cipher");
+		requireNonNull(plainData, "plainData");
+		requireNonNull(out, "out");
+		final SHA256Digest digest = new SHA256Digest();
+		final byte[] hash = new byte[digest.getDigestSize()];
+		digest.update(plainData, plainDataOffset, plainDataLength);
+		digest.doFinal(hash, 0);
+
+		final ByteBuffer head = ByteBuffer.allocate(8);
+		head.putInt(hashType.ordinal());
+		head.putInt(plainDataLength);
+		outOffset += cipher.processBytes(head.array(), 0, head.capacity(), out, outOffset);
+		outOffset += cipher.processBytes(plainData, plainDataOffset, plainDataLength, out, outOffset);
+		outOffset += cipher.processBytes(new byte[] { (byte) hash.length }, 0, 1, out, outOffset);
+		cipher.processBytes(hash, 0, hash.length, out, outOffset);
+	}
+
+	/**
+	 * Decrypts the given data and splits the plain data from its hash like
+	 * {@link #splitPlainDataFromHashWithVerification(byte[])} -- without an intermediate copy.
+	 * @param cipher the initialized cipher. Must not be <code>null</code>.
+	 * @param enc the encrypted data. Must not be <code>null</code>.
+	 * @param encOffset the offset of the encrypted data in {@code enc}.
+	 * @param encLength the length of the encrypted data.
+	 * @return the plain data. Never <code>null</code>.
+	 * @throws IOException if the data is corrupt.
+	 */
+	protected static byte[] decryptPlainDataWithHashWithVerification(final StreamCipher cipher, final byte[] enc, int encOffset, final int encLength) throws IOException {
+		requireNonNull(cipher, "cipher");
+		requireNonNull(enc, "enc");
+		final int encEnd = encOffset + encLength;
+		if (encLength < 8 + 1)
+			throw new IOException("encLength too small! encLength=" + encLength);
+
+		final byte[] head = new byte[8];
+		encOffset += cipher.processBytes(enc, encOffset, head.length, head, 0);
+		final ByteBuffer headBuffer = ByteBuffer.wrap(head);
+		final int hashTypeOrdinal = headBuffer.getInt();
+		if (hashTypeOrdinal < 0)
+			throw new IOException("hashTypeOrdinal < 0!!! hashTypeOrdinal=" + hashTypeOrdinal);
+
+		if (hashTypeOrdinal >= HashType.values().length)
+			throw new IOException("hashTypeOrdinal >= HashType.values.length!!! hashTypeOrdinal=" + hashTypeOrdinal);
+
+		final HashType hashType = HashType.values()[hashTypeOrdinal];
+		final int plainDataLength = headBuffer.getInt();
+		if (plainDataLength < 0 || plainDataLength > encEnd - encOffset - 1)
+			throw new IOException("Data corruption: plainDataLength out of range! plainDataLength=" + plainDataLength);
+
+		final byte[] plainData = new byte[plainDataLength];
+		encOffset += cipher.processBytes(enc, encOffset, plainDataLength, plainData, 0);
+
+		final byte[] declaredHashLength = new byte[1];
+		encOffset += cipher.processBytes(enc, encOffset, 1, declaredHashLength, 0);
+		final byte[] declaredHash = new byte[declaredHashLength[0] & 0xFF];
+		if (declaredHash.length > encEnd - encOffset)
+			throw new IOException("Data corruption: declaredHashLength out of range! declaredHashLength=" + declaredHash.length);
+
+		cipher.processBytes(enc, encOffset, declaredHash.length, declaredHash, 0);
+
+		final byte[] foundHash;
+		switch (hashType) {
+			case SHA256:
+				foundHash = sha256(plainData);
+				break;
+			default:
+				throw new UnsupportedOperationException("hashType: " + hashType);
+		}
+
+		if (! Arrays.equals(declaredHash, foundHash))
+			throw new IOException("Data corruption: Declared hash does not match found hash!!!");
+
+		return plainData;
+	}
+
 	protected static int getIvSize(StreamCipher cipher) {
 		requireNonNull(cipher, "cipher");
 		if (cipher instanceof BlockCipher) // it's likely a StreamBlockCipher
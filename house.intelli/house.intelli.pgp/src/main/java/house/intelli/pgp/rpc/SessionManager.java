@@ -15,7 +15,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import house.intelli.core.Uid;
-
+import house.intelli.core.metrics.Counter;
+import house.intelli.core.metrics.MetricRegistry;
+
+/**
+ * Keeps the {@link Session}s of this JVM.
+ * <p>
+ * Its metrics are registered in the {@linkplain MetricRegistry#getInstance() global} registry with the prefix
+ * "sessionManager." -- most importantly, how often a session is renegotiated, because it expired or because
+ * the peer did not know it ("removed").
+ */
 public class SessionManager {
 
 	private static final Logger logger = LoggerFactory.getLogger(SessionManager.class);
@@ -28,6 +37,12 @@ public class SessionManager {
 	private final Map<Uid, Session> sessionId2Session = new HashMap<>();
 	private final Map<SessionHostIdPair, Session> sessionHostIdPair2Session = new HashMap<>();
 
+	private final MetricRegistry metricRegistry = MetricRegistry.getInstance();
+	private final Counter createdCounter = metricRegistry.getCounter("sessionManager.created");
+	private final Counter renewedCounter = metricRegistry.getCounter("sessionManager.renewed");
+	private final Counter removedCounter = metricRegistry.getCounter("sessionManager.removed");
+	private final Counter evictedCounter = metricRegistry.getCounter("sessionManager.evicted");
+
 	private final Timer evictTimer = new Timer("SessionManager.evictTimer", true);
 	private final TimerTask evictTimerTask = new TimerTask() {
 		@Override
@@ -46,6 +61,7 @@ public class SessionManager {
 
 	protected SessionManager() {
 		evictTimer.schedule(evictTimerTask, EVICT_PERIOD, EVICT_PERIOD);
+		metricRegistry.putGauge("sessionManager.sessions", this::getSessionCount);
 	}
 
 	public synchronized Session getSession(final Uid sessionId) {
@@ -56,6 +72,11 @@ public class SessionManager {
 	public synchronized Session getOrCreateSession(final SessionHostIdPair sessionHostIdPair) {
 		Session session = getSession(sessionHostIdPair);
 		if (session == null || session.isExpired()) {
+			if (session == null)
+				createdCounter.increment();
+			else
+				renewedCounter.increment();
+
 			session = new Session(sessionHostIdPair);
 			logger.debug("getOrCreateSession: created: {}", session);
 			putSession(session);
@@ -83,11 +104,16 @@ public class SessionManager {
 		final Session session = sessionId2Session.remove(sessionId);
 		if (session != null) {
 			sessionHostIdPair2Session.remove(session.getSessionHostIdPair());
+			removedCounter.increment();
 			return true;
 		}
 		return false;
 	}
 
+	public synchronized int getSessionCount() {
+		return sessionId2Session.size();
+	}
+
 	private static final String SESSION_NOT_FOUND_EXCEPTION_MESSAGE_PREFIX = "There is no session with sessionId=";
 
 	public Session getSessionOrFail(final Uid sessionId) throws SessionNotFoundException {
@@ -120,6 +146,7 @@ public class SessionManager {
 				sessionHostIdPair2Session.remove(session.getSessionHostIdPair());
 			}
 		}
+		evictedCounter.add(evictedSessionIds.size());
 		logger.info("evict: evictedSessionIds={}", evictedSessionIds);
 	}
 }
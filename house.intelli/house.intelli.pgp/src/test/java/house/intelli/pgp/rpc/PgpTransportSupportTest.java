@@ -3,8 +3,12 @@ package house.intelli.pgp.rpc;
 import static org.assertj.core.api.Assertions.*;
 
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.security.SecureRandom;
 
+import org.bouncycastle.crypto.StreamCipher;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.crypto.params.ParametersWithIV;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,4 +42,106 @@ public class PgpTransportSupportTest {
 		}
 	}
 
+	/**
+	 * The data encrypted in place must be exactly what was encrypted before from the combined copy -- in both
+	 * directions, because the peer might run the old version.
+	 */
+	@Test
+	public void encryptInPlaceIsCompatible() throws Exception {
+		final byte[] plainData = new byte[10 + random.nextInt(100000)];
+		random.nextBytes(plainData);
+		final byte[] key = new byte[32];
+		random.nextBytes(key);
+		final byte[] iv = new byte[16];
+		random.nextBytes(iv);
+
+		// old encrypt => new decrypt
+		final byte[] plainDataWithHash = PgpTransportSupport.combinePlainDataWithHash(plainData);
+		final byte[] oldEnc = new byte[plainDataWithHash.length];
+		createCipher(true, key, iv).processBytes(plainDataWithHash, 0, plainDataWithHash.length, oldEnc, 0);
+		final byte[] prefixedOldEnc = new byte[oldEnc.length + 7];
+		System.arraycopy(oldEnc, 0, prefixedOldEnc, 7, oldEnc.length);
+		assertThat(PgpTransportSupport.decryptPlainDataWithHashWithVerification(
+				createCipher(false, key, iv), prefixedOldEnc, 7, oldEnc.length)).isEqualTo(plainData);
+
+		// new encrypt => old decrypt
+		final byte[] newEnc = new byte[PgpTransportSupport.getPlainDataWithHashLength(plainData.length)];
+		PgpTransportSupport.encryptPlainDataWithHash(createCipher(true, key, iv), plainData, 0, plainData.length, newEnc, 0);
+		assertThat(newEnc).isEqualTo(oldEnc);
+		final byte[] decrypted = new byte[newEnc.length];
+		createCipher(false, key, iv).processBytes(newEnc, 0, newEnc.length, decrypted, 0);
+		assertThat(PgpTransportSupport.splitPlainDataFromHashWithVerification(decrypted)).isEqualTo(plainData);
+
+		// corruption
+		newEnc[random.nextInt(newEnc.length)] ^= 1;
+		try {
+			PgpTransportSupport.decryptPlainDataWithHashWithVerification(createCipher(false, key, iv), newEnc, 0, newEnc.length);
+			fail("Data corruption was not detected!");
+		} catch (IOException x) {
+			logger.info("Data corruption was properly detected: " + x);
+		}
+	}
+
+	/**
+	 * Measures the bytes allocated for encrypting and decrypting messages of increasing size. Apart from the
+	 * input and the output, the allocation must not grow with the message size -- before, there were multiple
+	 * intermediate copies, each as large as the message.
+	 */
+	@Test
+	public void allocationIsIndependentOfMessageSize() throws Exception {
+		final com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		final long threadId = Thread.currentThread().getId();
+		final byte[] key = new byte[32];
+		random.nextBytes(key);
+		final byte[] iv = new byte[16];
+		random.nextBytes(iv);
+		final StreamCipher encryptCipher = createCipher(true, key, iv);
+		final StreamCipher decryptCipher = createCipher(false, key, iv);
+
+		long firstOverhead = -1;
+		for (int messageSize = 256 * 1024; messageSize <= 4 * 1024 * 1024; messageSize *= 4) {
+			final byte[] plainData = new byte[messageSize];
+			random.nextBytes(plainData);
+			final int encLength = PgpTransportSupport.getPlainDataWithHashLength(messageSize);
+
+			// legacy: combine (copy), encrypt into an over-sized buffer, copy the result
+			encryptCipher.reset();
+			long allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+			final byte[] plainDataWithHash = PgpTransportSupport.combinePlainDataWithHash(plainData);
+			final byte[] buf = new byte[plainDataWithHash.length * 3 / 2];
+			final int len = encryptCipher.processBytes(plainDataWithHash, 0, plainDataWithHash.length, buf, 0);
+			final byte[] oldEnc = new byte[len];
+			System.arraycopy(buf, 0, oldEnc, 0, len);
+			final long oldOverhead = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore - oldEnc.length;
+
+			encryptCipher.reset();
+			decryptCipher.reset();
+			allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+			final byte[] enc = new byte[encLength];
+			PgpTransportSupport.encryptPlainDataWithHash(encryptCipher, plainData, 0, plainData.length, enc, 0);
+			final long encryptOverhead = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore - enc.length;
+
+			allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+			final byte[] decrypted = PgpTransportSupport.decryptPlainDataWithHashWithVerification(decryptCipher, enc, 0, enc.length);
+			final long decryptOverhead = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore - decrypted.length;
+
+			assertThat(enc).isEqualTo(oldEnc);
+			assertThat(decrypted).isEqualTo(plainData);
+			logger.info("allocationIsIndependentOfMessageSize: messageSize={}, oldEncryptOverhead={}, encryptOverhead={}, decryptOverhead={}",
+					messageSize, oldOverhead, encryptOverhead, decryptOverhead);
+
+			assertThat(oldOverhead).isGreaterThanOrEqualTo(2L * messageSize);
+			if (firstOverhead < 0)
+				firstOverhead = encryptOverhead + decryptOverhead;
+			else
+				assertThat(encryptOverhead + decryptOverhead).isLessThan(firstOverhead + 64 * 1024);
+		}
+	}
+
+	private static StreamCipher createCipher(final boolean forEncryption, final byte[] key, final byte[] iv) {
+		final StreamCipher cipher = CipherManager.getInstance().acquireCipher(SymmetricCryptoType.AES_CFB_NOPADDING);
+		cipher.init(forEncryption, new ParametersWithIV(new KeyParameter(key), iv));
+		return cipher;
+	}
+
 }
@@ -12,8 +12,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CompletableFuture;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,9 +21,8 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Component;
 
 import house.intelli.core.rpc.HostId;
-import house.intelli.core.rpc.RpcClient;
 import house.intelli.core.rpc.RpcContext;
-import house.intelli.core.rpc.RpcException;
+import house.intelli.core.rpc.VoidResponse;
 import house.intelli.core.rpc.lightcontroller.LightControllerEventRequest;
 import house.intelli.core.rpc.lightcontroller.LightControllerState;
 import house.intelli.raspi.LightController;
@@ -41,8 +39,6 @@ public class LightControllerEventNotifier {
 
 	private RpcContext rpcContext;
 
-	private final ExecutorService executorService = Executors.newCachedThreadPool();
-
 	private final Map<String, Set<HostId>> beanId2listenerHostIds = new HashMap<>();
 
 	private LightControllerImpl ignoredLightController;
@@ -68,29 +64,25 @@ public class LightControllerEventNotifier {
 				return;
 
 			for (final HostId listenerHostId : listenerHostIds) {
-				executorService.submit(new Runnable() {
-					@Override
-					public void run() {
-						try {
-							invokeLightControllerEventRequest(listenerHostId, beanId, state);
-						} catch (Exception x) {
-							logger.error("statePropertyChangeListener.propertyChange.run: " + x + ' ', x);
-						}
-					}
-				});
+				try {
+					invokeLightControllerEventRequest(listenerHostId, beanId, state).whenComplete((response, x) -> {
+						if (x != null)
+							logger.error("statePropertyChangeListener.propertyChange: " + x + ' ', x);
+					});
+				} catch (Exception x) {
+					logger.error("statePropertyChangeListener.propertyChange: " + x + ' ', x);
+				}
 			}
 		}
 	};
 
-	protected void invokeLightControllerEventRequest(final HostId listenerHostId, final String beanId, final LightControllerState state) throws RpcException {
+	protected CompletableFuture<VoidResponse> invokeLightControllerEventRequest(final HostId listenerHostId, final String beanId, final LightControllerState state) {
 		logger.debug("invokeKeyButtonSensorEventRequest: listenerHostId={}, beanId={}, state={}", listenerHostId, beanId, state);
 		LightControllerEventRequest request = new LightControllerEventRequest();
 		request.setServerHostId(listenerHostId);
 		request.setChannelId(beanId);
 		request.setLightControllerState(state);
-		try (RpcClient rpcClient = rpcContext.createRpcClient()) {
-			rpcClient.invoke(request);
-		}
+		return rpcContext.getRpcClient().invokeAsync(request);
 	}
 
 	public LightControllerEventNotifier() {
@@ -18,7 +18,6 @@ import org.springframework.stereotype.Component;
 
 import house.intelli.core.event.EventQueue;
 import house.intelli.core.rpc.RemoteBeanRef;
-import house.intelli.core.rpc.RpcClient;
 import house.intelli.core.rpc.RpcContext;
 import house.intelli.core.rpc.RpcException;
 import house.intelli.core.rpc.lightcontroller.LightControllerFederationPropagationRequest;
@@ -128,9 +127,7 @@ public class LightControllerFederationPropagator implements ApplicationContextAw
 		request.setSourceBeanId(requireNonNull(lightController.getBeanName(), "lightController.beanName")); // FROM bean
 		request.setFederatedLightControllers(lightController.getCollectedFederatedLightControllers());
 		request.setLightControllerState(lightController.getState());
-		try (RpcClient rpcClient = rpcContext.createRpcClient()) {
-			rpcClient.invoke(request);
-		}
+		rpcContext.getRpcClient().invoke(request);
 	}
 
 }
@@ -4,10 +4,14 @@ import static house.intelli.core.event.EventQueue.*;
 import static house.intelli.core.util.AssertUtil.*;
 import static java.util.Objects.*;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -18,9 +22,7 @@ import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
 
-import javax.xml.bind.Marshaller;
 import javax.xml.bind.Unmarshaller;
 
 import org.slf4j.Logger;
@@ -32,9 +34,11 @@ import org.springframework.stereotype.Component;
 import house.intelli.core.config.ConfigDir;
 import house.intelli.core.jaxb.IntelliHouseJaxbContext;
 import house.intelli.core.rpc.HostId;
-import house.intelli.core.rpc.RpcClient;
+import house.intelli.core.rpc.RemoteExceptionUtil;
 import house.intelli.core.rpc.RpcContext;
+import house.intelli.core.rpc.pv.PackedPvStatusEventRequest;
 import house.intelli.core.rpc.pv.PvStatus;
+import house.intelli.core.rpc.pv.PvStatusColumnarFormat;
 import house.intelli.core.rpc.pv.PvStatusEventRequest;
 import house.intelli.core.rpc.pv.PvStatusList;
 import house.intelli.raspi.PvDataCollector;
@@ -66,8 +70,19 @@ public class DataCollectorBufferAndEventNotifier {
 	private static final String DIR_DATE_FORMAT = "yyyy/MM/dd/HH";
 	private static final String FILE_NAME_DATE_FORMAT = "yyyy-MM-dd_HH-mm-ss.SSS";
 	private static final String FILE_NAME_PREFIX = "pvStatusList.";
-	private static final String FILE_NAME_SUFFIX = ".xml.gz";
+	private static final String FILE_NAME_SUFFIX = ".pvs";
+	/**
+	 * Suffix of the files written by older versions (gzipped XML). They are still read and sent.
+	 */
+	private static final String LEGACY_FILE_NAME_SUFFIX = ".xml.gz";
 	private static final String TMP_SUFFIX = ".tmp";
+
+	/**
+	 * Whether the server understands {@link PackedPvStatusEventRequest}. <code>null</code>, as long as this is
+	 * unknown -- i.e. until the first successful invocation or until the server rejected the request-type.
+	 */
+	private volatile Boolean packedPvStatusEventRequestSupported;
+
 	private Thread shutdownHook;
 
 	private final DataCollectorListener dataCollectorListener = new DataCollectorListener() {
@@ -174,12 +189,31 @@ public class DataCollectorBufferAndEventNotifier {
 			return;
 		}
 
+		final Boolean packedSupported = packedPvStatusEventRequestSupported;
+		if (! Boolean.FALSE.equals(packedSupported)) {
+			final PackedPvStatusEventRequest packedRequest = new PackedPvStatusEventRequest();
+			packedRequest.setServerHostId(HostId.SERVER);
+			packedRequest.packPvStatuses(pvStatusList.getPvStatuses());
+			try {
+				rpcContext.getRpcClient().invoke(packedRequest);
+				packedPvStatusEventRequestSupported = Boolean.TRUE;
+				return;
+			} catch (Exception x) {
+				// Only an older server rejecting the unknown request-type makes us switch to the old one. Any other
+				// failure (e.g. the server being unreachable) is handled like a failure of the old request.
+				if (packedSupported != null || ! RemoteExceptionUtil.isRequestTypeUnsupported(x, PackedPvStatusEventRequest.class))
+					throw x;
+
+				logger.info("sendPvStatusListToServer: Server does not support PackedPvStatusEventRequest => using PvStatusEventRequest from now on.");
+				logger.debug("sendPvStatusListToServer: PackedPvStatusEventRequest failed: " + x, x);
+				packedPvStatusEventRequestSupported = Boolean.FALSE;
+			}
+		}
+
 		final PvStatusEventRequest request = new PvStatusEventRequest();
 		request.setServerHostId(HostId.SERVER);
 		request.setPvStatuses(pvStatusList.getPvStatuses());
-		try (RpcClient rpcClient = rpcContext.createRpcClient()) {
-			rpcClient.invoke(request);
-		}
+		rpcContext.getRpcClient().invoke(request);
 	}
 
 	protected void storePvStatusListLocally(final PvStatusList pvStatusList) throws Exception {
@@ -201,9 +235,8 @@ public class DataCollectorBufferAndEventNotifier {
 		final File file = new File(dir, fileName);
 		final File tmpFile = new File(dir, fileName + TMP_SUFFIX);
 
-		try (final GZIPOutputStream out = new GZIPOutputStream(new FileOutputStream(tmpFile))) {
-			final Marshaller marshaller = IntelliHouseJaxbContext.getJaxbContext().createMarshaller();
-			marshaller.marshal(pvStatusList, out);
+		try (final OutputStream out = new BufferedOutputStream(new FileOutputStream(tmpFile))) {
+			PvStatusColumnarFormat.write(out, pvStatusList.getPvStatuses());
 		}
 
 		tmpFile.renameTo(file);
@@ -246,16 +279,12 @@ public class DataCollectorBufferAndEventNotifier {
 				}
 			}
 		}
-		else if (dirOrFile.isFile() && dirOrFile.getName().endsWith(FILE_NAME_SUFFIX)) {
+		else if (dirOrFile.isFile() && (dirOrFile.getName().endsWith(FILE_NAME_SUFFIX) || dirOrFile.getName().endsWith(LEGACY_FILE_NAME_SUFFIX))) {
 			if (dirOrFile.length() == 0) {
 				logger.warn("sendOldPvStatusListsToServer: Skipping and deleting empty file: {}", dirOrFile.getAbsolutePath());
 			}
 			else {
-				final PvStatusList pvStatusList;
-				try (final GZIPInputStream in = new GZIPInputStream(new FileInputStream(dirOrFile))) {
-					final Unmarshaller unmarshaller = IntelliHouseJaxbContext.getJaxbContext().createUnmarshaller();
-					pvStatusList = (PvStatusList) unmarshaller.unmarshal(in);
-				}
+				final PvStatusList pvStatusList = readPvStatusList(dirOrFile);
 				sendPvStatusListToServer(pvStatusList);
 			}
 			// no exception => successfully stored => delete file.
@@ -264,6 +293,21 @@ public class DataCollectorBufferAndEventNotifier {
 		return true;
 	}
 
+	protected PvStatusList readPvStatusList(final File file) throws Exception {
+		requireNonNull(file, "file");
+		if (file.getName().endsWith(LEGACY_FILE_NAME_SUFFIX)) {
+			try (final GZIPInputStream in = new GZIPInputStream(new FileInputStream(file))) {
+				final Unmarshaller unmarshaller = IntelliHouseJaxbContext.getJaxbContext().createUnmarshaller();
+				return (PvStatusList) unmarshaller.unmarshal(in);
+			}
+		}
+		final PvStatusList pvStatusList = new PvStatusList();
+		try (final InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+			pvStatusList.setPvStatuses(PvStatusColumnarFormat.read(in));
+		}
+		return pvStatusList;
+	}
+
 	private final Comparator<File> fileNameComparator = new Comparator<File>() {
 		@Override
 		public int compare(File f1, File f2) {
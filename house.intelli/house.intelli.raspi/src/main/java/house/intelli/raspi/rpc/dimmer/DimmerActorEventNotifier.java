@@ -19,7 +19,6 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Component;
 
 import house.intelli.core.rpc.HostId;
-import house.intelli.core.rpc.RpcClient;
 import house.intelli.core.rpc.RpcContext;
 import house.intelli.core.rpc.RpcException;
 import house.intelli.core.rpc.dimmer.DimmerActorEventRequest;
@@ -77,9 +76,7 @@ public class DimmerActorEventNotifier {
 		request.setServerHostId(HostId.SERVER);
 		request.setChannelId(beanId);
 		request.setDimmerValue(dimmerValue);
-		try (RpcClient rpcClient = rpcContext.createRpcClient()) {
-			rpcClient.invoke(request);
-		}
+		rpcContext.getRpcClient().invoke(request);
 	}
 
 	public DimmerActorEventNotifier() {
@@ -10,10 +10,12 @@ import org.springframework.stereotype.Component;
 
 import house.intelli.core.event.EventQueue;
 import house.intelli.core.rpc.AbstractRpcService;
+import house.intelli.core.rpc.ThreadSafeRpcService;
 import house.intelli.core.rpc.dimmer.DimmerActorReadRequest;
 import house.intelli.core.rpc.dimmer.DimmerActorReadResponse;
 import house.intelli.raspi.DimmerActor;
 
+@ThreadSafeRpcService
 @Component
 public class DimmerActorReadRpcService extends AbstractRpcService<DimmerActorReadRequest, DimmerActorReadResponse> {
 
@@ -10,10 +10,12 @@ import org.springframework.stereotype.Component;
 
 import house.intelli.core.event.EventQueue;
 import house.intelli.core.rpc.AbstractRpcService;
+import house.intelli.core.rpc.ThreadSafeRpcService;
 import house.intelli.core.rpc.dimmer.DimmerActorWriteRequest;
 import house.intelli.core.rpc.dimmer.DimmerActorWriteResponse;
 import house.intelli.raspi.DimmerActor;
 
+@ThreadSafeRpcService
 @Component
 public class DimmerActorWriteRpcService extends AbstractRpcService<DimmerActorWriteRequest, DimmerActorWriteResponse> {
 
@@ -22,7 +22,6 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Component;
 
 import house.intelli.core.rpc.HostId;
-import house.intelli.core.rpc.RpcClient;
 import house.intelli.core.rpc.RpcContext;
 import house.intelli.core.rpc.RpcException;
 import house.intelli.core.rpc.keybutton.KeyButtonSensorEventRequest;
@@ -89,9 +88,7 @@ public class KeyButtonSensorEventNotifier {
 		request.setServerHostId(listenerHostId);
 		request.setChannelId(beanId); // SENDER id!
 		request.setDown(down);
-		try (RpcClient rpcClient = rpcContext.createRpcClient()) {
-			rpcClient.invoke(request);
-		}
+		rpcContext.getRpcClient().invoke(request);
 	}
 
 	public KeyButtonSensorEventNotifier() {
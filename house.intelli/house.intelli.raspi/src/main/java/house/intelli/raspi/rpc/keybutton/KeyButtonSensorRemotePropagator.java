@@ -14,7 +14,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import house.intelli.core.rpc.RemoteBeanRef;
-import house.intelli.core.rpc.RpcClient;
 import house.intelli.core.rpc.RpcContext;
 import house.intelli.core.rpc.RpcException;
 import house.intelli.core.rpc.keybutton.KeyButtonSensorRemotePropagationRequest;
@@ -99,8 +98,6 @@ public class KeyButtonSensorRemotePropagator {
 		KeyButtonSensorRemotePropagationRequest request = new KeyButtonSensorRemotePropagationRequest();
 		request.setServerHostId(remoteBeanRef.getHostId());
 		request.setChannelId(remoteBeanRef.getBeanId());
-		try (RpcClient rpcClient = rpcContext.createRpcClient()) {
-			rpcClient.invoke(request);
-		}
+		rpcContext.getRpcClient().invoke(request);
 	}
 }
@@ -10,10 +10,12 @@ import org.springframework.stereotype.Component;
 
 import house.intelli.core.event.EventQueue;
 import house.intelli.core.rpc.AbstractRpcService;
+import house.intelli.core.rpc.ThreadSafeRpcService;
 import house.intelli.core.rpc.relay.RelayActorReadRequest;
 import house.intelli.core.rpc.relay.RelayActorReadResponse;
 import house.intelli.raspi.RelayActor;
 
+@ThreadSafeRpcService
 @Component
 public class RelayActorReadRpcService extends AbstractRpcService<RelayActorReadRequest, RelayActorReadResponse> {
 
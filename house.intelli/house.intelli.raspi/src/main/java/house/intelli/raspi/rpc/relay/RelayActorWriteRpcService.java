@@ -10,10 +10,12 @@ import org.springframework.stereotype.Component;
 
 import house.intelli.core.event.EventQueue;
 import house.intelli.core.rpc.AbstractRpcService;
+import house.intelli.core.rpc.ThreadSafeRpcService;
 import house.intelli.core.rpc.relay.RelayActorWriteRequest;
 import house.intelli.core.rpc.relay.RelayActorWriteResponse;
 import house.intelli.raspi.RelayActor;
 
+@ThreadSafeRpcService
 @Component
 public class RelayActorWriteRpcService extends AbstractRpcService<RelayActorWriteRequest, RelayActorWriteResponse> {
 
@@ -10,7 +10,6 @@ import org.eclipse.smarthome.core.types.RefreshType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import house.intelli.core.rpc.RpcClient;
 import house.intelli.core.rpc.RpcContext;
 import house.intelli.core.rpc.dimmer.DimmerActorReadRequest;
 import house.intelli.core.rpc.dimmer.DimmerActorReadResponse;
@@ -49,8 +48,8 @@ public class IntelliHouseDimmerHandler extends IntelliHouseHandler {
             request.setChannelId(channelId);
             request.setDimmerValue(percent.intValue());
             DimmerActorWriteResponse response = null;
-            try (RpcClient rpcClient = rpcContext.createRpcClient()) {
-                response = rpcClient.invoke(request);
+            try {
+                response = rpcContext.getRpcClient().invoke(request);
             } catch (Exception e) {
                 logger.error("DimmerActorWriteRequest for channelUID=" + channelUID + " failed: " + e, e);
                 updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR, e.toString());
@@ -75,10 +74,7 @@ public class IntelliHouseDimmerHandler extends IntelliHouseHandler {
         DimmerActorReadRequest request = new DimmerActorReadRequest();
         request.setServerHostId(getServerHostId());
         request.setChannelId(channelId);
-        DimmerActorReadResponse response = null;
-        try (RpcClient rpcClient = rpcContext.createRpcClient()) {
-            response = rpcClient.invoke(request);
-        }
+        DimmerActorReadResponse response = rpcContext.getRpcClient().invoke(request);
         if (response != null) {
             PercentType responsePercent = new PercentType(response.getDimmerValue());
             updateStatus(ThingStatus.ONLINE);
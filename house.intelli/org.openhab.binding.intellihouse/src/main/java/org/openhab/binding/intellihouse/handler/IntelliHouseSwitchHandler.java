@@ -10,7 +10,6 @@ import org.eclipse.smarthome.core.types.RefreshType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import house.intelli.core.rpc.RpcClient;
 import house.intelli.core.rpc.RpcContext;
 import house.intelli.core.rpc.relay.RelayActorReadRequest;
 import house.intelli.core.rpc.relay.RelayActorReadResponse;
@@ -49,8 +48,8 @@ public class IntelliHouseSwitchHandler extends IntelliHouseHandler {
             request.setChannelId(channelId);
             request.setEnergized(OnOffType.ON.equals(onOff));
             RelayActorWriteResponse response = null;
-            try (RpcClient rpcClient = rpcContext.createRpcClient()) {
-                response = rpcClient.invoke(request);
+            try {
+                response = rpcContext.getRpcClient().invoke(request);
             } catch (Exception e) {
                 logger.error("RelayActorWriteRequest for channelUID=" + channelUID + " failed: " + e, e);
                 updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR, e.toString());
@@ -75,10 +74,7 @@ public class IntelliHouseSwitchHandler extends IntelliHouseHandler {
         RelayActorReadRequest request = new RelayActorReadRequest();
         request.setServerHostId(getServerHostId());
         request.setChannelId(channelId);
-        RelayActorReadResponse response = null;
-        try (RpcClient rpcClient = rpcContext.createRpcClient()) {
-            response = rpcClient.invoke(request);
-        }
+        RelayActorReadResponse response = rpcContext.getRpcClient().invoke(request);
         if (response != null) {
             OnOffType responseOnOff = response.isEnergized() ? OnOffType.ON : OnOffType.OFF;
             updateStatus(ThingStatus.ONLINE);
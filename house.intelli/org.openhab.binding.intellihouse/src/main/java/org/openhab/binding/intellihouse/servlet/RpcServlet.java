@@ -22,11 +22,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.ServletException;
-import javax.servlet.ServletInputStream;
-import javax.servlet.ServletOutputStream;
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
@@ -52,13 +55,17 @@ import house.intelli.core.jaxb.IntelliHouseJaxbContextProvider;
 import house.intelli.core.rpc.HostId;
 import house.intelli.core.rpc.HttpRpcServerTransportProvider;
 import house.intelli.core.rpc.Request;
+import house.intelli.core.rpc.Response;
 import house.intelli.core.rpc.RpcContext;
+import house.intelli.core.rpc.RpcConst;
 import house.intelli.core.rpc.RpcContextMode;
 import house.intelli.core.rpc.RpcServer;
 import house.intelli.core.rpc.RpcServerTransport;
 import house.intelli.core.rpc.RpcServerTransportProvider;
 import house.intelli.core.rpc.RpcService;
 import house.intelli.core.rpc.ServletRpcServerTransport;
+import house.intelli.core.rpc.codec.RpcCompressionUtil;
+import house.intelli.core.rpc.codec.RpcMessageCodecUtil;
 import house.intelli.core.service.ServiceRegistry;
 import house.intelli.core.util.ReflectionUtil;
 import house.intelli.pgp.Pgp;
@@ -126,6 +133,8 @@ public class RpcServlet extends BaseServlet {
             setupPgp();
 
             Hashtable<String, String> props = new Hashtable<String, String>();
+            // Long polls are parked without occupying a container thread -- see service(...).
+            props.put("async-supported", "true");
             httpService.registerServlet(WEBAPP_ALIAS + "/" + SERVLET_NAME, this, props, createHttpContext());
 
             thingStatusOfflineTimer = new Timer("thingStatusOfflineTimer", true);
@@ -257,28 +266,15 @@ public class RpcServlet extends BaseServlet {
         final HttpServletResponse res = (HttpServletResponse) _res;
 
         if (METHOD_POST.equals(req.getMethod())) {
+            if (req.isAsyncSupported()) {
+                serviceAsync(req, res);
+                return;
+            }
             try (RpcServer rpcServer = getRpcContextOrFail().createRpcServer()) {
-                try (RpcServerTransport rst = createRpcServerTransport(req.getInputStream(), res.getOutputStream())) {
+                try (RpcServerTransport rst = createRpcServerTransport(req, res)) {
                     rpcServer.receiveAndProcessRequest(rst);
                 }
-                Request<?> request = rpcServer.getRequest();
-                // request is null, if the RpcServer was unable to read (e.g. decrypt) a request!
-                if (request != null) {
-                    Date now = new Date();
-                    ThingStatusInfo thingStatusInfo = new ThingStatusInfo(ThingStatus.ONLINE, ThingStatusDetail.NONE,
-                            null);
-                    for (Thing thing : getThings(request.getClientHostId())) {
-                        thing.getConfiguration().put(THING_CONFIG_KEY_LAST_SEEN_DATE, DateUtil.toString(now));
-                        thing.getConfiguration().remove(THING_CONFIG_KEY_MAYBE_OFFLINE_SINCE_DATE);
-
-                        // We prevent a configuration error to be overwritten by ONLINE, even if the outpost says
-                        // properly
-                        // "hello"!
-                        if (!isThingStatusConfigurationError(thing)) {
-                            setThingStatus(thing, thingStatusInfo);
-                        }
-                    }
-                }
+                updateThingStatusOnline(rpcServer.getRequest());
             }
         } else {
             res.sendError(405, String.format("Method '%s' not supported! Please use 'POST' instead!", req.getMethod()));
@@ -313,10 +309,106 @@ public class RpcServlet extends BaseServlet {
         // }
     }
 
-    protected RpcServerTransport createRpcServerTransport(final ServletInputStream inputStream,
-            final ServletOutputStream outputStream) {
-        requireNonNull(inputStream, "inputStream");
-        requireNonNull(outputStream, "outputStream");
+    /**
+     * Processes the request asynchronously: A long poll or an inverse-request-stream is parked in the
+     * {@code InverseRequestRegistry} and this container thread is returned immediately. The response is sent
+     * later via {@link AsyncContext#start(Runnable)}.
+     * <p>
+     * If the container times out the request or the connection fails, the processing is cancelled -- hence a
+     * parked poll does not obtain inverse requests for a client, which is gone.
+     */
+    protected void serviceAsync(final HttpServletRequest req, final HttpServletResponse res) throws IOException {
+        final AsyncContext asyncContext = req.startAsync(req, res);
+        asyncContext.setTimeout(RpcConst.INVERSE_REQUEST_STREAM_TIMEOUT + RpcConst.LOW_LEVEL_TIMEOUT);
+
+        final RpcServer rpcServer = getRpcContextOrFail().createRpcServer();
+        final RpcServerTransport rst;
+        try {
+            rst = createRpcServerTransport(req, res);
+        } catch (IOException | RuntimeException x) {
+            rpcServer.close();
+            asyncContext.complete();
+            throw x;
+        }
+
+        // Either the processing or the container (timeout, error) ends the request -- whichever comes first.
+        final AtomicBoolean completed = new AtomicBoolean();
+        final Runnable complete = () -> {
+            if (completed.compareAndSet(false, true)) {
+                rst.close();
+                rpcServer.close();
+                asyncContext.complete();
+            }
+        };
+        final CompletableFuture<CompletableFuture<Response>> responseFutureHolder = new CompletableFuture<>();
+        // Must be added before processing starts, because the processing might complete the AsyncContext.
+        asyncContext.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(AsyncEvent event) throws IOException {
+                logger.warn("serviceAsync.onTimeout: request={}", rpcServer.getRequest());
+                cancel();
+            }
+
+            @Override
+            public void onError(AsyncEvent event) throws IOException {
+                final Throwable x = event.getThrowable();
+                logger.warn("serviceAsync.onError: " + x + ' ', x);
+                cancel();
+            }
+
+            private void cancel() {
+                responseFutureHolder.thenAccept(future -> future.cancel(false));
+                complete.run();
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) throws IOException {
+            }
+
+            @Override
+            public void onComplete(AsyncEvent event) throws IOException {
+            }
+        });
+
+        final CompletableFuture<Response> responseFuture = rpcServer.receiveAndProcessRequestAsync(rst, asyncContext::start);
+        responseFutureHolder.complete(responseFuture);
+        responseFuture.whenComplete((response, x) -> {
+            try {
+                if (x != null && !completed.get()) {
+                    logger.warn("serviceAsync: " + x + ' ', x);
+                }
+                updateThingStatusOnline(rpcServer.getRequest());
+            } catch (Exception y) {
+                logger.error("serviceAsync: " + y + ' ', y);
+            } finally {
+                complete.run();
+            }
+        });
+    }
+
+    protected void updateThingStatusOnline(final Request<?> request) {
+        // request is null, if the RpcServer was unable to read (e.g. decrypt) a request!
+        if (request == null) {
+            return;
+        }
+        Date now = new Date();
+        ThingStatusInfo thingStatusInfo = new ThingStatusInfo(ThingStatus.ONLINE, ThingStatusDetail.NONE, null);
+        for (Thing thing : getThings(request.getClientHostId())) {
+            thing.getConfiguration().put(THING_CONFIG_KEY_LAST_SEEN_DATE, DateUtil.toString(now));
+            thing.getConfiguration().remove(THING_CONFIG_KEY_MAYBE_OFFLINE_SINCE_DATE);
+
+            // We prevent a configuration error to be overwritten by ONLINE, even if the outpost says properly
+            // "hello"!
+            if (!isThingStatusConfigurationError(thing)) {
+                setThingStatus(thing, thingStatusInfo);
+            }
+        }
+    }
+
+    protected RpcServerTransport createRpcServerTransport(final HttpServletRequest req,
+            final HttpServletResponse res) throws IOException {
+        requireNonNull(req, "req");
+        requireNonNull(res, "res");
 
         Object tpcn = configProps.get(CONFIG_KEY_TRANSPORT);
         String transportProviderClassName = trim(tpcn == null ? null : tpcn.toString());
@@ -347,8 +439,15 @@ public class RpcServlet extends BaseServlet {
 
         if (rpcServerTransport instanceof ServletRpcServerTransport) {
             ServletRpcServerTransport transport = (ServletRpcServerTransport) rpcServerTransport;
-            transport.setInputStream(inputStream);
-            transport.setOutputStream(outputStream);
+            transport.setInputStream(req.getInputStream());
+            transport.setOutputStream(res.getOutputStream());
+            // The header must be set before the response-body is written.
+            res.setHeader(RpcMessageCodecUtil.HTTP_HEADER_CODECS, RpcMessageCodecUtil.getCodecOffer());
+            res.setHeader(RpcCompressionUtil.HTTP_HEADER_COMPRESSIONS, RpcCompressionUtil.getCompressionOffer());
+            transport.setResponseCodec(
+                    RpcMessageCodecUtil.negotiateCodec(req.getHeader(RpcMessageCodecUtil.HTTP_HEADER_CODECS)));
+            transport.setResponseCompression(RpcCompressionUtil
+                    .negotiateCompression(req.getHeader(RpcCompressionUtil.HTTP_HEADER_COMPRESSIONS)));
         }
         return rpcServerTransport;
     }